@@ -0,0 +1,360 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.cloudfront;
+
+import static com.amazonaws.util.StringUtils.UTF8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Reusable signer of CloudFront URLs and cookies for one key pair. Unlike the
+ * static methods of {@link CloudFrontUrlSigner}, the private key is loaded
+ * and parsed once, each thread keeps its own initialized
+ * {@link Signature}, and signatures of canned policies are cached.
+ * <p>
+ * Signatures are deterministic, so a canned-policy signature can be reused
+ * for as long as the same resource is signed with the same expiry. To make
+ * that happen, {@link #getSignedURLWithCannedPolicy(String, long)} rounds
+ * expiry times up to a multiple of the expiry bucket (one minute by
+ * default): all the URLs of a resource signed within the same bucket then
+ * share one signature, and expire at most one bucket later than requested.
+ * <p>
+ * To sign many resources at once, sign a custom policy whose resource is a
+ * wildcard pattern covering all of them with
+ * {@link #getSignedURLsWithCustomPolicy(List, String, Date, Date, String)};
+ * the policy is then signed only once.
+ * <p>
+ * Instances are thread safe, and meant to be shared.
+ *
+ * <pre>
+ * CloudFrontSigner signer = new CloudFrontSigner("APKAJCEOKRHC3XIVU5NA",
+ *         new File("/path/to/rsa-private-key.pem"));
+ *
+ * String url = signer.getSignedURLWithCannedPolicy(
+ *         "https://d1b2c3a4g5h6.cloudfront.net/a/b/images.jpeg",
+ *         TimeUnit.HOURS.toMillis(1));
+ * </pre>
+ */
+public class CloudFrontSigner {
+
+    /** Default granularity of the expiry times of canned policies. */
+    public static final long DEFAULT_EXPIRY_BUCKET_MILLIS = 60 * 1000;
+
+    /** Default maximum number of cached canned-policy signatures. */
+    public static final int DEFAULT_MAX_CACHED_SIGNATURES = 100000;
+
+    private final String keyPairId;
+    private final PrivateKey privateKey;
+    private final long expiryBucketMillis;
+    private final int maxCachedSignatures;
+
+    /** Signature initialized with the private key, per thread. */
+    private final ThreadLocal<Signature> signatures = new ThreadLocal<Signature>() {
+        @Override
+        protected Signature initialValue() {
+            try {
+                Signature signature = Signature.getInstance("SHA1withRSA");
+                signature.initSign(privateKey);
+                return signature;
+            } catch (GeneralSecurityException e) {
+                throw new AmazonClientException("Unable to initialize the signature", e);
+            }
+        }
+    };
+
+    /**
+     * The latest canned-policy signature of each resource; replaced when the
+     * resource is signed with another expiry.
+     */
+    private final ConcurrentMap<String, CannedSignature> cannedSignatures =
+            new ConcurrentHashMap<String, CannedSignature>();
+
+    /**
+     * Creates a signer for the given key pair, using the default expiry
+     * bucket and cache size.
+     *
+     * @param keyPairId
+     *            The id of the CloudFront key pair.
+     * @param privateKey
+     *            The private key of the key pair.
+     */
+    public CloudFrontSigner(String keyPairId, PrivateKey privateKey) {
+        this(keyPairId, privateKey, DEFAULT_EXPIRY_BUCKET_MILLIS, DEFAULT_MAX_CACHED_SIGNATURES);
+    }
+
+    /**
+     * Creates a signer for the given key pair, loading the private key from
+     * the given file.
+     *
+     * @param keyPairId
+     *            The id of the CloudFront key pair.
+     * @param privateKeyFile
+     *            The private key file. RSA private key (.pem) and pkcs8
+     *            (.der) files are supported.
+     */
+    public CloudFrontSigner(String keyPairId, File privateKeyFile)
+            throws InvalidKeySpecException, IOException {
+        this(keyPairId, CloudFrontUrlSigner.loadPrivateKey(privateKeyFile));
+    }
+
+    /**
+     * Creates a signer for the given key pair.
+     *
+     * @param keyPairId
+     *            The id of the CloudFront key pair.
+     * @param privateKey
+     *            The private key of the key pair.
+     * @param expiryBucketMillis
+     *            The granularity, in milliseconds, to which expiry times given
+     *            as a validity period are rounded up; 1000 disables
+     *            rounding.
+     * @param maxCachedSignatures
+     *            The maximum number of canned-policy signatures cached; 0
+     *            disables caching.
+     */
+    public CloudFrontSigner(String keyPairId, PrivateKey privateKey,
+            long expiryBucketMillis, int maxCachedSignatures) {
+        if (keyPairId == null || privateKey == null)
+            throw new IllegalArgumentException("keyPairId and privateKey must be provided");
+        if (expiryBucketMillis < 1000)
+            throw new IllegalArgumentException("expiryBucketMillis must be at least one second");
+        this.keyPairId = keyPairId;
+        this.privateKey = privateKey;
+        this.expiryBucketMillis = expiryBucketMillis;
+        this.maxCachedSignatures = maxCachedSignatures;
+    }
+
+    /**
+     * Returns a signed URL with a canned policy that grants universal access
+     * to the given resource for at least the given period, and at most one
+     * expiry bucket longer.
+     *
+     * @param resourceUrlOrPath
+     *            The URL of the resource, or the name of the stream for rtmp.
+     * @param validForMillis
+     *            The minimum time for which the URL must be valid.
+     * @return The signed URL.
+     */
+    public String getSignedURLWithCannedPolicy(String resourceUrlOrPath, long validForMillis) {
+        long expires = System.currentTimeMillis() + validForMillis;
+        long rounded = (expires + expiryBucketMillis - 1) / expiryBucketMillis * expiryBucketMillis;
+        return getSignedURLWithCannedPolicy(resourceUrlOrPath, new Date(rounded));
+    }
+
+    /**
+     * Returns a signed URL with a canned policy that grants universal access
+     * to the given resource until the given date.
+     *
+     * @param resourceUrlOrPath
+     *            The URL of the resource, or the name of the stream for rtmp.
+     * @param dateLessThan
+     *            The expiration date of the signed URL in UTC.
+     * @return The signed URL.
+     * @see CloudFrontUrlSigner#getSignedURLWithCannedPolicy(String, String, PrivateKey, Date)
+     */
+    public String getSignedURLWithCannedPolicy(String resourceUrlOrPath, Date dateLessThan) {
+        long expires = MILLISECONDS.toSeconds(dateLessThan.getTime());
+        return resourceUrlOrPath
+                + (resourceUrlOrPath.indexOf('?') >= 0 ? "&" : "?")
+                + "Expires=" + expires
+                + "&Signature=" + getCannedSignature(resourceUrlOrPath, dateLessThan, expires)
+                + "&Key-Pair-Id=" + keyPairId;
+    }
+
+    /**
+     * Returns the cookies granting universal access to the given resource
+     * until the given date with a canned policy, by cookie name.
+     *
+     * @param resourceUrlOrPath
+     *            The URL of the resource.
+     * @param dateLessThan
+     *            The expiration date of the cookies in UTC.
+     * @return The CloudFront-Expires, CloudFront-Signature and
+     *         CloudFront-Key-Pair-Id cookie values.
+     */
+    public Map<String, String> getCookiesForCannedPolicy(String resourceUrlOrPath, Date dateLessThan) {
+        long expires = MILLISECONDS.toSeconds(dateLessThan.getTime());
+        Map<String, String> cookies = new LinkedHashMap<String, String>();
+        cookies.put("CloudFront-Expires", String.valueOf(expires));
+        cookies.put("CloudFront-Signature", getCannedSignature(resourceUrlOrPath, dateLessThan, expires));
+        cookies.put("CloudFront-Key-Pair-Id", keyPairId);
+        return cookies;
+    }
+
+    /**
+     * Returns a signed URL for the given resource with the given custom
+     * policy.
+     *
+     * @see CloudFrontUrlSigner#getSignedURLWithCustomPolicy(String, String, PrivateKey, String)
+     */
+    public String getSignedURLWithCustomPolicy(String resourceUrlOrPath, String policy) {
+        return resourceUrlOrPath
+                + (resourceUrlOrPath.indexOf('?') >= 0 ? "&" : "?")
+                + customPolicyQuery(policy);
+    }
+
+    /**
+     * Returns signed URLs for all the given resources with a single custom
+     * policy, which is signed only once.
+     *
+     * @param resourceUrlsOrPaths
+     *            The URLs of the resources to sign.
+     * @param policyResource
+     *            The resource of the policy, which must match every resource
+     *            to sign. The '*' and '?' characters match any sequence of
+     *            characters and any single character respectively; for
+     *            example <tt>https://d1b2c3a4g5h6.cloudfront.net/videos/*</tt>.
+     * @param dateLessThan
+     *            The expiration date of the signed URLs in UTC.
+     * @param dateGreaterThan
+     *            The optional date from which the signed URLs are valid, in
+     *            UTC.
+     * @param ipRange
+     *            The optional IP address range of the clients allowed, in
+     *            CIDR form.
+     * @return The signed URLs, in the order of the resources.
+     * @throws IllegalArgumentException
+     *             If a resource doesn't match the resource of the policy; the
+     *             signed URL would be rejected.
+     */
+    public List<String> getSignedURLsWithCustomPolicy(List<String> resourceUrlsOrPaths,
+            String policyResource, Date dateLessThan, Date dateGreaterThan, String ipRange) {
+        for (String resource : resourceUrlsOrPaths) {
+            if (!matches(policyResource, resource))
+                throw new IllegalArgumentException("Resource " + resource
+                        + " doesn't match the policy resource " + policyResource);
+        }
+        String policy = CloudFrontUrlSigner.buildCustomPolicyForSignedUrl(
+                policyResource, dateLessThan, ipRange, dateGreaterThan);
+        String query = customPolicyQuery(policy);
+        List<String> urls = new ArrayList<String>(resourceUrlsOrPaths.size());
+        for (String resource : resourceUrlsOrPaths)
+            urls.add(resource + (resource.indexOf('?') >= 0 ? "&" : "?") + query);
+        return urls;
+    }
+
+    /**
+     * Returns the cookies granting access to the resources matching the given
+     * policy resource with a custom policy, by cookie name.
+     *
+     * @return The CloudFront-Policy, CloudFront-Signature and
+     *         CloudFront-Key-Pair-Id cookie values.
+     * @see #getSignedURLsWithCustomPolicy(List, String, Date, Date, String)
+     */
+    public Map<String, String> getCookiesForCustomPolicy(String policyResource,
+            Date dateLessThan, Date dateGreaterThan, String ipRange) {
+        String policy = CloudFrontUrlSigner.buildCustomPolicyForSignedUrl(
+                policyResource, dateLessThan, ipRange, dateGreaterThan);
+        Map<String, String> cookies = new LinkedHashMap<String, String>();
+        cookies.put("CloudFront-Policy", CloudFrontUrlSigner.makeBytesUrlSafe(policy.getBytes(UTF8)));
+        cookies.put("CloudFront-Signature", sign(policy));
+        cookies.put("CloudFront-Key-Pair-Id", keyPairId);
+        return cookies;
+    }
+
+    private String customPolicyQuery(String policy) {
+        return "Policy=" + CloudFrontUrlSigner.makeBytesUrlSafe(policy.getBytes(UTF8))
+                + "&Signature=" + sign(policy)
+                + "&Key-Pair-Id=" + keyPairId;
+    }
+
+    /**
+     * Returns the URL-safe signature of the canned policy of the given
+     * resource and expiry, from the cache if possible.
+     */
+    private String getCannedSignature(String resourceUrlOrPath, Date dateLessThan, long expires) {
+        CannedSignature cached = cannedSignatures.get(resourceUrlOrPath);
+        if (cached != null && cached.expires == expires)
+            return cached.signature;
+        String signature = sign(CloudFrontUrlSigner.buildCannedPolicy(resourceUrlOrPath, dateLessThan));
+        if (maxCachedSignatures > 0) {
+            if (cached == null && cannedSignatures.size() >= maxCachedSignatures) {
+                // Crude but cheap: recently signed resources come back quickly
+                cannedSignatures.clear();
+            }
+            cannedSignatures.put(resourceUrlOrPath, new CannedSignature(expires, signature));
+        }
+        return signature;
+    }
+
+    /**
+     * Returns the URL-safe SHA1withRSA signature of the given policy.
+     */
+    private String sign(String policy) {
+        Signature signature = signatures.get();
+        try {
+            signature.update(policy.getBytes(UTF8));
+            return CloudFrontUrlSigner.makeBytesUrlSafe(signature.sign());
+        } catch (GeneralSecurityException e) {
+            // The signature may be left in an unknown state
+            signatures.remove();
+            throw new AmazonClientException("Couldn't sign url", e);
+        }
+    }
+
+    /**
+     * Returns true if the given resource matches the given policy resource,
+     * in which '*' matches any sequence of characters and '?' any single
+     * character.
+     */
+    static boolean matches(String pattern, String resource) {
+        if (pattern == null)
+            return true;
+        int p = 0, r = 0, star = -1, mark = 0;
+        while (r < resource.length()) {
+            if (p < pattern.length()
+                    && (pattern.charAt(p) == '?' || pattern.charAt(p) == resource.charAt(r))) {
+                p++;
+                r++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = r;
+            } else if (star >= 0) {
+                p = star + 1;
+                r = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*')
+            p++;
+        return p == pattern.length();
+    }
+
+    private static final class CannedSignature {
+        final long expires;
+        final String signature;
+
+        CannedSignature(long expires, String signature) {
+            this.expires = expires;
+            this.signature = signature;
+        }
+    }
+}
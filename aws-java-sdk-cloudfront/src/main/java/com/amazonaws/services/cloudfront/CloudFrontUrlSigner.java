@@ -63,6 +63,10 @@ import com.amazonaws.util.StringUtils;
  * String url2 = CloudFrontUrlSigner.getCustomSignedURL(protocol, distributionDomain, privateKeyFile,
  *              s3ObjectKey, keyPairId, dateLessThan, dateGreaterThan, ipRange);
  * </pre>
+ * <p>
+ * The methods taking a private key file read and parse the key on every
+ * call. To sign many URLs, use a {@link CloudFrontSigner}, which keeps the
+ * parsed key and caches signatures.
  * 
  * @see DateUtils
  */
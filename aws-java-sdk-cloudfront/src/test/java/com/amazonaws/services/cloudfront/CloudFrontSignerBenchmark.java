@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.cloudfront;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.cloudfront.CloudFrontUrlSigner.Protocol;
+
+/**
+ * Measures the throughput of signing CloudFront URLs with the static methods
+ * of {@link CloudFrontUrlSigner} and with a reusable {@link CloudFrontSigner}.
+ * <p>
+ * Usage: <code>CloudFrontSignerBenchmark [threads] [seconds per case]</code>
+ * (defaults: 4 threads, 5 seconds). A 2048-bit RSA key is generated for the
+ * run; signing a URL cycles through 1000 resources.
+ */
+public class CloudFrontSignerBenchmark {
+
+    private static final String DOMAIN = "d1b2c3a4g5h6.cloudfront.net";
+    private static final String KEY_PAIR_ID = "APKAJCEOKRHC3XIVU5NA";
+    private static final int RESOURCES = 1000;
+
+    private interface Case {
+        void sign(int i) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 5;
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        final PrivateKey privateKey = generator.generateKeyPair().getPrivate();
+        final File keyFile = File.createTempFile("cloudfront-benchmark", ".der");
+        keyFile.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(keyFile);
+        out.write(privateKey.getEncoded());
+        out.close();
+
+        final List<String> resources = new ArrayList<String>();
+        for (int i = 0; i < RESOURCES; i++)
+            resources.add("https://" + DOMAIN + "/videos/segment-" + i + ".ts");
+        final Date expires = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        final CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        final CloudFrontSigner uncachedSigner = new CloudFrontSigner(KEY_PAIR_ID, privateKey,
+                CloudFrontSigner.DEFAULT_EXPIRY_BUCKET_MILLIS, 0);
+
+        String expected = CloudFrontUrlSigner.getSignedURLWithCannedPolicy(resources.get(0), KEY_PAIR_ID, privateKey, expires);
+        if (!expected.equals(signer.getSignedURLWithCannedPolicy(resources.get(0), expires))
+                || !expected.equals(uncachedSigner.getSignedURLWithCannedPolicy(resources.get(0), expires)))
+            throw new AssertionError("Signed URLs differ");
+
+        System.out.println("Signing with " + threads + " threads for " + seconds + "s per case");
+        run("static, key file", threads, seconds, new Case() {
+            public void sign(int i) throws Exception {
+                CloudFrontUrlSigner.getSignedURLWithCannedPolicy(Protocol.https, DOMAIN, keyFile,
+                        "videos/segment-" + (i % RESOURCES) + ".ts", KEY_PAIR_ID, expires);
+            }
+        });
+        run("static, parsed key", threads, seconds, new Case() {
+            public void sign(int i) {
+                CloudFrontUrlSigner.getSignedURLWithCannedPolicy(resources.get(i % RESOURCES), KEY_PAIR_ID, privateKey, expires);
+            }
+        });
+        run("signer, uncached", threads, seconds, new Case() {
+            public void sign(int i) {
+                uncachedSigner.getSignedURLWithCannedPolicy(resources.get(i % RESOURCES), expires);
+            }
+        });
+        // Steady state: every resource has been signed for the current bucket
+        for (String resource : resources)
+            signer.getSignedURLWithCannedPolicy(resource, TimeUnit.HOURS.toMillis(1));
+        run("signer, cached", threads, seconds, new Case() {
+            public void sign(int i) {
+                signer.getSignedURLWithCannedPolicy(resources.get(i % RESOURCES), TimeUnit.HOURS.toMillis(1));
+            }
+        });
+        final String policyResource = "https://" + DOMAIN + "/videos/*";
+        long start = System.nanoTime();
+        int batches = 0;
+        while (System.nanoTime() - start < TimeUnit.SECONDS.toNanos(seconds)) {
+            signer.getSignedURLsWithCustomPolicy(resources, policyResource, expires, null, null);
+            batches++;
+        }
+        report("signer, bulk custom policy (1 thread)", batches * (long) RESOURCES, System.nanoTime() - start);
+    }
+
+    private static void run(String name, int threads, long seconds, final Case c) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final long[] counts = new long[threads];
+        final CountDownLatch done = new CountDownLatch(threads);
+        final Exception[] failure = new Exception[1];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        int i = thread * 7919;
+                        while (System.nanoTime() < deadline) {
+                            c.sign(i++);
+                            counts[thread]++;
+                        }
+                    } catch (Exception e) {
+                        failure[0] = e;
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        done.await();
+        if (failure[0] != null)
+            throw failure[0];
+        long total = 0;
+        for (long count : counts)
+            total += count;
+        report(name, total, System.nanoTime() - start);
+    }
+
+    private static void report(String name, long urls, long nanos) {
+        System.out.println(String.format("%-40s %10.0f URLs/s", name, urls * 1e9 / nanos));
+    }
+}
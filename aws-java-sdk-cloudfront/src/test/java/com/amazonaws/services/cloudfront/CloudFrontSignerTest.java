@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.cloudfront;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CloudFrontSignerTest {
+
+    private static final String KEY_PAIR_ID = "APKAJCEOKRHC3XIVU5NA";
+
+    private static final String RESOURCE = "https://d1b2c3a4g5h6.cloudfront.net/a/b/images.jpeg";
+
+    private static PrivateKey privateKey;
+
+    @BeforeClass
+    public static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        privateKey = generator.generateKeyPair().getPrivate();
+    }
+
+    @Test
+    public void testCachedUrlIsIdenticalToUncachedUrl() {
+        CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        CloudFrontSigner uncachedSigner = new CloudFrontSigner(KEY_PAIR_ID, privateKey,
+                CloudFrontSigner.DEFAULT_EXPIRY_BUCKET_MILLIS, 0);
+        Date expires = new Date(1420070400000L);
+
+        for (String resource : Arrays.asList(RESOURCE, RESOURCE + "?size=small")) {
+            String expected = CloudFrontUrlSigner.getSignedURLWithCannedPolicy(resource, KEY_PAIR_ID, privateKey, expires);
+            assertEquals(expected, uncachedSigner.getSignedURLWithCannedPolicy(resource, expires));
+            // Signed first, then from the cache
+            assertEquals(expected, signer.getSignedURLWithCannedPolicy(resource, expires));
+            assertEquals(expected, signer.getSignedURLWithCannedPolicy(resource, expires));
+        }
+    }
+
+    @Test
+    public void testDifferentExpiriesDoNotCollide() {
+        CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        Date first = new Date(1420070400000L);
+        Date second = new Date(1420070401000L);
+
+        String firstUrl = signer.getSignedURLWithCannedPolicy(RESOURCE, first);
+        String secondUrl = signer.getSignedURLWithCannedPolicy(RESOURCE, second);
+        assertNotEquals(signature(firstUrl), signature(secondUrl));
+        assertEquals(CloudFrontUrlSigner.getSignedURLWithCannedPolicy(RESOURCE, KEY_PAIR_ID, privateKey, second),
+                secondUrl);
+        // Back to the first expiry, after the second replaced it in the cache
+        assertEquals(firstUrl, signer.getSignedURLWithCannedPolicy(RESOURCE, first));
+        assertEquals(firstUrl, CloudFrontUrlSigner.getSignedURLWithCannedPolicy(RESOURCE, KEY_PAIR_ID, privateKey,
+                first));
+    }
+
+    @Test
+    public void testValidityIsRoundedUpToExpiryBucket() {
+        CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        long validFor = TimeUnit.HOURS.toMillis(1);
+        long before = System.currentTimeMillis();
+        String url = signer.getSignedURLWithCannedPolicy(RESOURCE, validFor);
+        long after = System.currentTimeMillis();
+
+        long expires = TimeUnit.SECONDS.toMillis(Long.parseLong(parameter(url, "Expires")));
+        assertEquals(0, expires % CloudFrontSigner.DEFAULT_EXPIRY_BUCKET_MILLIS);
+        assertTrue(expires >= before + validFor);
+        assertTrue(expires < after + validFor + CloudFrontSigner.DEFAULT_EXPIRY_BUCKET_MILLIS);
+        assertEquals(CloudFrontUrlSigner.getSignedURLWithCannedPolicy(RESOURCE, KEY_PAIR_ID, privateKey,
+                new Date(expires)), url);
+    }
+
+    @Test
+    public void testCannedCookiesMatchSignedUrl() {
+        CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        Date expires = new Date(1420070400000L);
+        Map<String, String> cookies = signer.getCookiesForCannedPolicy(RESOURCE, expires);
+        String url = signer.getSignedURLWithCannedPolicy(RESOURCE, expires);
+
+        assertEquals("1420070400", cookies.get("CloudFront-Expires"));
+        assertEquals(signature(url), cookies.get("CloudFront-Signature"));
+        assertEquals(KEY_PAIR_ID, cookies.get("CloudFront-Key-Pair-Id"));
+    }
+
+    @Test
+    public void testCustomPolicyUrlsAreIdenticalToStaticSigner() {
+        CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        String policyResource = "https://d1b2c3a4g5h6.cloudfront.net/videos/*";
+        Date dateLessThan = new Date(1420070400000L);
+        List<String> resources = Arrays.asList(
+                "https://d1b2c3a4g5h6.cloudfront.net/videos/one.mp4",
+                "https://d1b2c3a4g5h6.cloudfront.net/videos/two.mp4?quality=hd");
+        String policy = CloudFrontUrlSigner.buildCustomPolicyForSignedUrl(policyResource, dateLessThan,
+                "192.0.2.0/24", null);
+
+        List<String> urls = signer.getSignedURLsWithCustomPolicy(resources, policyResource, dateLessThan, null,
+                "192.0.2.0/24");
+        assertEquals(2, urls.size());
+        for (int i = 0; i < resources.size(); i++) {
+            assertEquals(CloudFrontUrlSigner.getSignedURLWithCustomPolicy(resources.get(i), KEY_PAIR_ID, privateKey,
+                    policy), urls.get(i));
+        }
+    }
+
+    @Test
+    public void testResourceOutsideCustomPolicyIsRejected() {
+        CloudFrontSigner signer = new CloudFrontSigner(KEY_PAIR_ID, privateKey);
+        try {
+            signer.getSignedURLsWithCustomPolicy(
+                    Arrays.asList("https://d1b2c3a4g5h6.cloudfront.net/images/one.jpeg"),
+                    "https://d1b2c3a4g5h6.cloudfront.net/videos/*", new Date(1420070400000L), null, null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("images/one.jpeg"));
+        }
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(CloudFrontSigner.matches(null, RESOURCE));
+        assertTrue(CloudFrontSigner.matches("", ""));
+        assertFalse(CloudFrontSigner.matches("", "a"));
+
+        // '*' at either edge, matching an empty sequence too
+        assertTrue(CloudFrontSigner.matches("*", ""));
+        assertTrue(CloudFrontSigner.matches("*", RESOURCE));
+        assertTrue(CloudFrontSigner.matches("**", ""));
+        assertTrue(CloudFrontSigner.matches("*.jpeg", RESOURCE));
+        assertTrue(CloudFrontSigner.matches("*.jpeg", ".jpeg"));
+        assertFalse(CloudFrontSigner.matches("*.jpeg", RESOURCE + "?size=small"));
+        assertTrue(CloudFrontSigner.matches("https://d1b2c3a4g5h6.cloudfront.net/*", RESOURCE));
+        assertTrue(CloudFrontSigner.matches("https://d1b2c3a4g5h6.cloudfront.net/*",
+                "https://d1b2c3a4g5h6.cloudfront.net/"));
+        assertFalse(CloudFrontSigner.matches("https://d1b2c3a4g5h6.cloudfront.net/*",
+                "https://d1b2c3a4g5h6.cloudfront.net"));
+
+        // '?' at either edge, matching exactly one character
+        assertTrue(CloudFrontSigner.matches("?ttps://d1b2c3a4g5h6.cloudfront.net/a/b/images.jpeg", RESOURCE));
+        assertFalse(CloudFrontSigner.matches("?https://d1b2c3a4g5h6.cloudfront.net/a/b/images.jpeg", RESOURCE));
+        assertTrue(CloudFrontSigner.matches("https://d1b2c3a4g5h6.cloudfront.net/a/b/images.jpe?", RESOURCE));
+        assertFalse(CloudFrontSigner.matches("https://d1b2c3a4g5h6.cloudfront.net/a/b/images.jpeg?", RESOURCE));
+        assertFalse(CloudFrontSigner.matches("?", ""));
+        assertFalse(CloudFrontSigner.matches("*?", ""));
+        assertTrue(CloudFrontSigner.matches("*?", "a"));
+        assertTrue(CloudFrontSigner.matches("?*", "a"));
+
+        // Backtracking over earlier partial matches
+        assertTrue(CloudFrontSigner.matches("a*b*c", "aXbYbc"));
+        assertFalse(CloudFrontSigner.matches("a*b*c", "aXbYbcd"));
+        assertTrue(CloudFrontSigner.matches("*/images.*", RESOURCE));
+    }
+
+    private static String signature(String url) {
+        return parameter(url, "Signature");
+    }
+
+    private static String parameter(String url, String name) {
+        for (String parameter : url.substring(url.indexOf('?') + 1).split("&")) {
+            if (parameter.startsWith(name + "="))
+                return parameter.substring(name.length() + 1);
+        }
+        throw new AssertionError("No " + name + " in " + url);
+    }
+}
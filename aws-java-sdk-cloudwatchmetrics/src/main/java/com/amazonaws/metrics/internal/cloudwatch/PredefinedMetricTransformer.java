@@ -72,12 +72,20 @@ public class PredefinedMetricTransformer {
                 case HttpClientPoolAvailableCount:
                 case HttpClientPoolLeasedCount:
                 case HttpClientPoolPendingCount:
+                case HttpClientPoolRouteAvailableCount:
+                case HttpClientPoolRouteLeasedCount:
+                case HttpClientPoolRoutePendingCount:
+                case HttpClientPoolRouteOpenedCount:
+                case HttpClientPoolRouteLeaseWaitTime:
+                case HttpClientTlsHandshakeCount:
+                case HttpClientTlsResumedHandshakeCount:
                     return metricOfCount(predefined, request, response);
                 case RequestCount:  // intentionally fall thru to reuse the same routine as RetryCount
                 case RetryCount:
                     return metricOfRequestOrRetryCount(predefined, request, response);
                 case ResponseProcessingTime: // drop thru
                 case RequestSigningTime: // drop thru
+                case HttpClientTlsHandshakeTime: // drop thru
                     return latencyMetricOf(predefined, request, response, EXCLUDE_REQUEST_TYPE);
                 case ClientExecuteTime:
                     return latencyOfClientExecuteTime(request, response);
@@ -19,6 +19,8 @@ import static com.amazonaws.SDKGlobalConfiguration.PROFILING_SYSTEM_PROPERTY;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
@@ -96,6 +98,15 @@ public abstract class AmazonWebServiceClient {
     /** AWS signer for authenticating requests. */
     private volatile Signer signer;
 
+    /** Maximum number of hosts whose signer is cached; see {@link #getSignerByURI(URI)} */
+    private static final int MAX_CACHED_SIGNERS = 64;
+
+    /**
+     * Signers returned by {@link #getSignerByURI(URI)}, by endpoint host, for
+     * the current service name, signer type and signer region override.
+     */
+    private volatile SignerCache signerCache;
+
     /**
      * The cached service abbreviation for this service, used for identifying
      * service endpoints by region, identifying the necessary signer, etc.
@@ -172,6 +183,7 @@ public abstract class AmazonWebServiceClient {
             this.endpoint = uri;
             this.signer = signer;
         }
+        warmUpConnections(uri);
     }
 
     /** Returns the endpoint as a URI. */
@@ -241,6 +253,25 @@ public abstract class AmazonWebServiceClient {
             this.endpoint = uri;
             this.signerRegionOverride = regionId;
         }
+        warmUpConnections(uri);
+    }
+
+    /**
+     * Pre-opens the configured number of connections to the given endpoint in
+     * the background, if the warm-up is enabled. Never throws, as failing to
+     * warm up must not fail setting the endpoint.
+     *
+     * @see ClientConfiguration#getConnectionWarmUpCount()
+     */
+    private void warmUpConnections(URI uri) {
+        int count = clientConfiguration.getConnectionWarmUpCount();
+        if (count <= 0)
+            return;
+        try {
+            client.warmUpConnectionsAsync(uri, count);
+        } catch (RuntimeException e) {
+            log.debug("Unable to warm up connections to " + uri, e);
+        }
     }
 
     /**
@@ -262,9 +293,65 @@ public abstract class AmazonWebServiceClient {
      * <p>
      * Note, however, the signer returned for S3 is incomplete at this stage as
      * the information on the S3 bucket and key is not yet known.
+     * <p>
+     * The signer is computed once per host and shared by all the requests sent
+     * to that host; it must not be modified.
      */
     public Signer getSignerByURI(URI uri) {
-        return computeSignerByURI(uri, signerRegionOverride, true);
+        final String signerRegionOverride = this.signerRegionOverride;
+        if (uri == null || uri.getHost() == null) {
+            return computeSignerByURI(uri, signerRegionOverride, true);
+        }
+        final String serviceName = getServiceNameIntern();
+        final String signerType = clientConfiguration.getSignerOverride();
+        SignerCache cache = signerCache;
+        if (cache == null || !cache.isFor(serviceName, signerType, signerRegionOverride)) {
+            signerCache = cache = new SignerCache(serviceName, signerType, signerRegionOverride);
+        }
+        final String host = uri.getHost();
+        Signer signer = cache.signers.get(host);
+        if (signer == null) {
+            signer = computeSignerByURI(uri, signerRegionOverride, true);
+            if (cache.signers.size() >= MAX_CACHED_SIGNERS) {
+                cache.signers.clear();
+            }
+            cache.signers.put(host, signer);
+        }
+        return signer;
+    }
+
+    /**
+     * The signers computed for the hosts of the endpoints the requests of
+     * this client are sent to. Signers are fully configured when created and
+     * never modified afterwards, so one signer is shared by all the requests
+     * sent to the same host, which saves parsing the region out of the host
+     * name and looking up and instantiating the signer for every request.
+     */
+    private static final class SignerCache {
+
+        private final String serviceName;
+
+        private final String signerType;
+
+        private final String signerRegionOverride;
+
+        private final ConcurrentMap<String, Signer> signers = new ConcurrentHashMap<String, Signer>();
+
+        SignerCache(String serviceName, String signerType, String signerRegionOverride) {
+            this.serviceName = serviceName;
+            this.signerType = signerType;
+            this.signerRegionOverride = signerRegionOverride;
+        }
+
+        boolean isFor(String serviceName, String signerType, String signerRegionOverride) {
+            return equals(this.serviceName, serviceName)
+                    && equals(this.signerType, signerType)
+                    && equals(this.signerRegionOverride, signerRegionOverride);
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
     }
 
     /**
@@ -371,6 +458,7 @@ public abstract class AmazonWebServiceClient {
             this.endpoint = uri;
             this.signer = signer;
         }
+        warmUpConnections(uri);
     }
 
     /**
@@ -14,6 +14,10 @@
  */
 package com.amazonaws;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 
@@ -24,11 +28,15 @@ import org.apache.http.conn.ssl.SSLSocketFactory;
 @NotThreadSafe
 public final class ApacheHttpClientConfig {
     private SSLSocketFactory sslSocketFactory;
+    private boolean fairRouteSharing;
+    private Map<String, Integer> routeWeights = new HashMap<String, Integer>();
 
     ApacheHttpClientConfig() {}
 
     ApacheHttpClientConfig(ApacheHttpClientConfig that) {
         this.sslSocketFactory = that.sslSocketFactory;
+        this.fairRouteSharing = that.fairRouteSharing;
+        this.routeWeights = new HashMap<String, Integer>(that.routeWeights);
     }
 
     /**
@@ -61,4 +69,64 @@ public final class ApacheHttpClientConfig {
         this.sslSocketFactory = sslSocketFactory;
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns true if the connection pool is partitioned among the currently
+     * active routes (i.e. endpoints) in proportion to their
+     * {@link #getRouteWeights() weights}, so that a busy endpoint cannot
+     * starve the others; false (the default) otherwise.
+     */
+    public boolean isFairRouteSharing() {
+        return fairRouteSharing;
+    }
+
+    /**
+     * Sets whether the connection pool is partitioned among the currently
+     * active routes in proportion to their weights. The share of each route
+     * remains bounded by
+     * {@link ClientConfiguration#getMaxConnectionsPerRoute()}.
+     */
+    public void setFairRouteSharing(boolean fairRouteSharing) {
+        this.fairRouteSharing = fairRouteSharing;
+    }
+
+    /**
+     * Fluent API for {@link #setFairRouteSharing(boolean)}.
+     */
+    public ApacheHttpClientConfig withFairRouteSharing(boolean fairRouteSharing) {
+        this.fairRouteSharing = fairRouteSharing;
+        return this;
+    }
+
+    /**
+     * Returns an unmodifiable view of the route weights by target host name
+     * used for fair route sharing; routes without an explicit weight have a
+     * weight of 1.
+     */
+    public Map<String, Integer> getRouteWeights() {
+        return Collections.unmodifiableMap(routeWeights);
+    }
+
+    /**
+     * Sets the route weights by target host name used for fair route sharing.
+     *
+     * @param routeWeights the route weights; or null if there is none.
+     */
+    public void setRouteWeights(Map<String, Integer> routeWeights) {
+        this.routeWeights = routeWeights == null
+            ? new HashMap<String, Integer>()
+            : new HashMap<String, Integer>(routeWeights);
+    }
+
+    /**
+     * Fluent API for setting the weight of the route to the given target host
+     * used for fair route sharing.
+     *
+     * @param host the target host name, such as "dynamodb.us-east-1.amazonaws.com"
+     * @param weight the relative weight of the route
+     */
+    public ApacheHttpClientConfig withRouteWeight(String host, int weight) {
+        routeWeights.put(host, weight);
+        return this;
+    }
+}
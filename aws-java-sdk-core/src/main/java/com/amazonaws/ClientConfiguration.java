@@ -15,6 +15,11 @@
 package com.amazonaws;
 
 import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.http.annotation.NotThreadSafe;
 
@@ -38,6 +43,30 @@ public class ClientConfiguration {
     /** The default max connection pool size. */
     public static final int DEFAULT_MAX_CONNECTIONS = 50;
 
+    /**
+     * The default max number of connections per route, which means the same
+     * as the max connection pool size.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = -1;
+
+    /** The default number of connections to pre-open per endpoint. */
+    public static final int DEFAULT_CONNECTION_WARM_UP_COUNT = 0;
+
+    /** The default on whether to keep the warmed up connections open. */
+    public static final boolean DEFAULT_USE_CONNECTION_KEEP_WARM = false;
+
+    /**
+     * The default TLS session cache size, which means the setting of the SSL
+     * context is left as is.
+     */
+    public static final int DEFAULT_TLS_SESSION_CACHE_SIZE = -1;
+
+    /**
+     * The default TLS session timeout, which means the setting of the SSL
+     * context is left as is.
+     */
+    public static final int DEFAULT_TLS_SESSION_TIMEOUT = -1;
+
     /** The default HTTP user agent header for AWS Java SDK clients. */
     public static final String DEFAULT_USER_AGENT = VersionInfoUtils.getUserAgent();
 
@@ -68,6 +97,17 @@ public class ClientConfiguration {
      */
     public static final boolean DEFAULT_USE_GZIP = false;
 
+    /**
+     * The default on whether to compress request payloads.
+     */
+    public static final boolean DEFAULT_USE_REQUEST_COMPRESSION = false;
+
+    /**
+     * The default minimum size (in bytes) of a request payload before it is
+     * considered for compression.
+     */
+    public static final int DEFAULT_REQUEST_COMPRESSION_THRESHOLD = 10 * 1024;
+
     /**
      * The default expiration time (in milliseconds) for a connection in the
      * connection pool.
@@ -136,6 +176,37 @@ public class ClientConfiguration {
     /** The maximum number of open HTTP connections. */
     private int maxConnections = DEFAULT_MAX_CONNECTIONS;
 
+    /**
+     * The maximum number of open HTTP connections to a single route (i.e.
+     * endpoint); or a non-positive value if limited only by
+     * {@link #maxConnections}.
+     */
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    /**
+     * The number of connections to pre-open to the endpoint of a client when
+     * the endpoint is set.
+     */
+    private int connectionWarmUpCount = DEFAULT_CONNECTION_WARM_UP_COUNT;
+
+    /**
+     * Whether the {@link IdleConnectionReaper} keeps the warmed up number of
+     * connections of each route open rather than closing them when idle.
+     */
+    private boolean useConnectionKeepWarm = DEFAULT_USE_CONNECTION_KEEP_WARM;
+
+    /**
+     * The maximum number of cached client TLS sessions; or a negative value to
+     * use the default SSL context as is.
+     */
+    private int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+
+    /**
+     * The timeout in seconds of the cached client TLS sessions; or a negative
+     * value to use the default SSL context as is.
+     */
+    private int tlsSessionTimeout = DEFAULT_TLS_SESSION_TIMEOUT;
+
     /**
      * The amount of time to wait (in milliseconds) for data to be transfered
      * over an established, open connection before the connection is timed out.
@@ -176,6 +247,26 @@ public class ClientConfiguration {
      */
     private boolean useGzip = DEFAULT_USE_GZIP;
 
+    /**
+     * Optional whether to gzip compress request payloads of at least
+     * {@link #requestCompressionThreshold} bytes, sent to the services named
+     * in {@link #requestCompressionServiceNames}.
+     */
+    private boolean useRequestCompression = DEFAULT_USE_REQUEST_COMPRESSION;
+
+    /**
+     * The names of the services that accept a <code>Content-Encoding</code> of
+     * gzip, whose request payloads are compressed if request compression is
+     * enabled.
+     */
+    private Set<String> requestCompressionServiceNames = Collections.emptySet();
+
+    /**
+     * The minimum size (in bytes) of a request payload before it is compressed,
+     * if request compression is enabled.
+     */
+    private int requestCompressionThreshold = DEFAULT_REQUEST_COMPRESSION_THRESHOLD;
+
     /**
      * Optional override to control which signature algorithm should be used to
      * sign requests to the service. If not explicitly set, the client will
@@ -221,6 +312,11 @@ public class ClientConfiguration {
     public ClientConfiguration(ClientConfiguration other) {
         this.connectionTimeout           = other.connectionTimeout;
         this.maxConnections              = other.maxConnections;
+        this.maxConnectionsPerRoute      = other.maxConnectionsPerRoute;
+        this.connectionWarmUpCount       = other.connectionWarmUpCount;
+        this.useConnectionKeepWarm       = other.useConnectionKeepWarm;
+        this.tlsSessionCacheSize         = other.tlsSessionCacheSize;
+        this.tlsSessionTimeout           = other.tlsSessionTimeout;
         this.maxErrorRetry               = other.maxErrorRetry;
         this.retryPolicy                 = other.retryPolicy;
         this.localAddress                = other.localAddress;
@@ -236,6 +332,9 @@ public class ClientConfiguration {
         this.userAgent                   = other.userAgent;
         this.useReaper                   = other.useReaper;
         this.useGzip                     = other.useGzip;
+        this.useRequestCompression       = other.useRequestCompression;
+        this.requestCompressionThreshold = other.requestCompressionThreshold;
+        this.requestCompressionServiceNames = other.requestCompressionServiceNames;
         this.socketReceiveBufferSizeHint = other.socketReceiveBufferSizeHint;
         this.socketSendBufferSizeHint    = other.socketSendBufferSizeHint;
         this.signerOverride              = other.signerOverride;
@@ -335,6 +434,200 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the maximum number of allowed open HTTP connections to a single
+     * route (i.e. endpoint); or a non-positive value if the connections of a
+     * route are limited only by the {@link #getMaxConnections() maximum number
+     * of allowed open HTTP connections}.
+     *
+     * @return The maximum number of allowed open HTTP connections per route.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of allowed open HTTP connections to a single
+     * route (i.e. endpoint). A non-positive value means the connections of a
+     * route are limited only by the {@link #getMaxConnections() maximum number
+     * of allowed open HTTP connections}.
+     *
+     * @param maxConnectionsPerRoute
+     *            The maximum number of allowed open HTTP connections per route.
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of allowed open HTTP connections to a single
+     * route (i.e. endpoint) and returns the updated ClientConfiguration object.
+     *
+     * @param maxConnectionsPerRoute
+     *            The maximum number of allowed open HTTP connections per route.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        return this;
+    }
+
+    /**
+     * Returns the number of connections to pre-open to the endpoint of a
+     * client whenever the endpoint is set, so that the first requests don't
+     * pay for the connection establishment and TLS handshake. The warm-up is
+     * opt-in: zero (the default) disables it. The connections are opened in
+     * the background, and failures to open them are only logged.
+     *
+     * @return The number of connections to pre-open per endpoint.
+     */
+    public int getConnectionWarmUpCount() {
+        return connectionWarmUpCount;
+    }
+
+    /**
+     * Sets the number of connections to pre-open to the endpoint of a client
+     * whenever the endpoint is set. Zero disables the warm-up.
+     *
+     * @param connectionWarmUpCount
+     *            The number of connections to pre-open per endpoint.
+     */
+    public void setConnectionWarmUpCount(int connectionWarmUpCount) {
+        this.connectionWarmUpCount = connectionWarmUpCount;
+    }
+
+    /**
+     * Sets the number of connections to pre-open to the endpoint of a client
+     * whenever the endpoint is set, and returns the updated
+     * ClientConfiguration object.
+     *
+     * @param connectionWarmUpCount
+     *            The number of connections to pre-open per endpoint.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withConnectionWarmUpCount(int connectionWarmUpCount) {
+        setConnectionWarmUpCount(connectionWarmUpCount);
+        return this;
+    }
+
+    /**
+     * Checks if the {@link IdleConnectionReaper} keeps the
+     * {@link #getConnectionWarmUpCount() warm up number} of connections of
+     * each route open, re-opening those closed by the server, rather than
+     * closing them when idle.
+     *
+     * @return if the warmed up connections are kept open
+     */
+    public boolean useConnectionKeepWarm() {
+        return useConnectionKeepWarm;
+    }
+
+    /**
+     * Sets whether the {@link IdleConnectionReaper} keeps the
+     * {@link #getConnectionWarmUpCount() warm up number} of connections of
+     * each route open rather than closing them when idle. Has no effect if
+     * the reaper is not in use.
+     *
+     * @param use whether the warmed up connections are kept open
+     */
+    public void setUseConnectionKeepWarm(boolean use) {
+        this.useConnectionKeepWarm = use;
+    }
+
+    /**
+     * Sets whether the {@link IdleConnectionReaper} keeps the
+     * {@link #getConnectionWarmUpCount() warm up number} of connections of
+     * each route open rather than closing them when idle.
+     *
+     * @param use whether the warmed up connections are kept open
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withConnectionKeepWarm(boolean use) {
+        setUseConnectionKeepWarm(use);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of client TLS sessions cached for resumption;
+     * or a negative value if the default SSL context is used as is.
+     *
+     * @return The TLS session cache size.
+     */
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of client TLS sessions cached for resumption,
+     * where zero means no limit. When either this or the
+     * {@link #setTlsSessionTimeout(int) TLS session timeout} is set, the
+     * client uses a dedicated SSL context, shared only with the clients
+     * configured with the same TLS session settings, rather than the default
+     * SSL context of the JVM, which is left untouched.
+     *
+     * @param tlsSessionCacheSize
+     *            The TLS session cache size; or a negative value to use the
+     *            default SSL context as is.
+     */
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of client TLS sessions cached for resumption,
+     * and returns the updated ClientConfiguration object.
+     *
+     * @param tlsSessionCacheSize
+     *            The TLS session cache size; or a negative value to use the
+     *            default SSL context as is.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withTlsSessionCacheSize(int tlsSessionCacheSize) {
+        setTlsSessionCacheSize(tlsSessionCacheSize);
+        return this;
+    }
+
+    /**
+     * Returns the timeout in seconds of the client TLS sessions cached for
+     * resumption; or a negative value if the default SSL context is used as
+     * is.
+     *
+     * @return The TLS session timeout in seconds.
+     */
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    /**
+     * Sets the timeout in seconds of the client TLS sessions cached for
+     * resumption, where zero means no limit. As with the
+     * {@link #setTlsSessionCacheSize(int) TLS session cache size}, setting it
+     * makes the client use a dedicated SSL context rather than the default
+     * SSL context of the JVM.
+     *
+     * @param tlsSessionTimeout
+     *            The TLS session timeout in seconds; or a negative value to
+     *            use the default SSL context as is.
+     */
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    /**
+     * Sets the timeout in seconds of the client TLS sessions cached for
+     * resumption, and returns the updated ClientConfiguration object.
+     *
+     * @param tlsSessionTimeout
+     *            The TLS session timeout in seconds; or a negative value to
+     *            use the default SSL context as is.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withTlsSessionTimeout(int tlsSessionTimeout) {
+        setTlsSessionTimeout(tlsSessionTimeout);
+        return this;
+    }
+
     /**
      * Returns the HTTP user agent header to send with all requests.
      *
@@ -851,6 +1144,121 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Checks if request payloads are gzip compressed before being sent.
+     *
+     * @return if request payloads are compressed
+     */
+    public boolean useRequestCompression() {
+        return useRequestCompression;
+    }
+
+    /**
+     * Sets whether request payloads of at least the
+     * {@link #getRequestCompressionThreshold() compression threshold} should
+     * be gzip compressed, and sent with a <code>Content-Encoding</code> of
+     * gzip. The payload is compressed before the request is signed.
+     * <p>
+     * Only POST requests signed with Signature Version 4 for one of the
+     * {@link #setRequestCompressionServiceNames(Collection) request compression
+     * service names}, and without an explicit <code>Content-Encoding</code>,
+     * are compressed.
+     *
+     * @param use
+     *            whether request payloads should be compressed
+     */
+    public void setUseRequestCompression(boolean use) {
+        this.useRequestCompression = use;
+    }
+
+    /**
+     * Sets whether request payloads should be gzip compressed.
+     *
+     * @param use
+     *            whether request payloads should be compressed
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setUseRequestCompression(boolean)
+     */
+    public ClientConfiguration withRequestCompression(boolean use) {
+        setUseRequestCompression(use);
+        return this;
+    }
+
+    /**
+     * Returns the minimum size (in bytes) of a request payload before it is
+     * compressed, if request compression is enabled.
+     */
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Sets the minimum size (in bytes) of a request payload before it is
+     * compressed, if request compression is enabled. By default, it is set to
+     * {@value #DEFAULT_REQUEST_COMPRESSION_THRESHOLD}.
+     *
+     * @param requestCompressionThreshold
+     *            the minimum payload size in bytes
+     */
+    public void setRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+    }
+
+    /**
+     * Sets the minimum size (in bytes) of a request payload before it is
+     * compressed, if request compression is enabled.
+     *
+     * @param requestCompressionThreshold
+     *            the minimum payload size in bytes
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withRequestCompressionThreshold(int requestCompressionThreshold) {
+        setRequestCompressionThreshold(requestCompressionThreshold);
+        return this;
+    }
+
+    /**
+     * Returns the names of the services whose request payloads are
+     * compressed, if request compression is enabled.
+     */
+    public Set<String> getRequestCompressionServiceNames() {
+        return requestCompressionServiceNames;
+    }
+
+    /**
+     * Sets the names of the services whose request payloads are compressed,
+     * if request compression is enabled; requests to other services are sent
+     * as is. Only name services that accept gzip compressed request payloads.
+     * The names are the ones requests are signed for, such as
+     * <code>monitoring</code> for Amazon CloudWatch. By default, there are
+     * none.
+     *
+     * @param serviceNames
+     *            the names of the services accepting compressed payloads
+     */
+    public void setRequestCompressionServiceNames(Collection<String> serviceNames) {
+        this.requestCompressionServiceNames = serviceNames == null
+                ? Collections.<String> emptySet()
+                : Collections.unmodifiableSet(new HashSet<String>(serviceNames));
+    }
+
+    /**
+     * Sets the names of the services whose request payloads are compressed,
+     * if request compression is enabled.
+     *
+     * @param serviceNames
+     *            the names of the services accepting compressed payloads
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setRequestCompressionServiceNames(Collection)
+     */
+    public ClientConfiguration withRequestCompressionServiceNames(String... serviceNames) {
+        setRequestCompressionServiceNames(Arrays.asList(serviceNames));
+        return this;
+    }
+
     /**
      * Returns the optional size hints (in bytes) for the low level TCP send and
      * receive buffers. This is an advanced option for advanced users who want
@@ -1163,7 +1571,8 @@ public class ClientConfiguration {
 
     /**
      * Sets the response metadata cache size. By default, it is set to
-     * {@value #DEFAULT_RESPONSE_METADATA_CACHE_SIZE}.
+     * {@value #DEFAULT_RESPONSE_METADATA_CACHE_SIZE}. A size of zero disables
+     * the cache, so that no response metadata is retained at all.
      * @param responseMetadataCacheSize maximum cache size.
      */
     public void setResponseMetadataCacheSize(int responseMetadataCacheSize) {
@@ -1172,7 +1581,8 @@ public class ClientConfiguration {
 
     /**
      * Sets the response metadata cache size. By default, it is set to
-     * {@value #DEFAULT_RESPONSE_METADATA_CACHE_SIZE}.
+     * {@value #DEFAULT_RESPONSE_METADATA_CACHE_SIZE}. A size of zero disables
+     * the cache, so that no response metadata is retained at all.
      * @param responseMetadataCacheSize maximum cache size.
      * @return The updated ClientConfiguration object.
      */
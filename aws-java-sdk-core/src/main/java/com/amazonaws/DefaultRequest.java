@@ -27,6 +27,7 @@ import org.apache.http.annotation.NotThreadSafe;
 import com.amazonaws.event.ProgressInputStream;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.EncodedQueryParameters;
 import com.amazonaws.util.json.Jackson;
 
 /**
@@ -77,6 +78,9 @@ public class DefaultRequest<T> implements Request<T> {
     /** All AWS Request metrics are collected into this object. */
     private AWSRequestMetrics metrics;
 
+    /** The parameters as last encoded, reused while they don't change */
+    private EncodedQueryParameters encodedParameters;
+
     /**
      * Constructs a new DefaultRequest with the specified service name and the
      * original, user facing request object.
@@ -237,6 +241,22 @@ public class DefaultRequest<T> implements Request<T> {
         this.parameters.putAll(parameters);
     }
 
+    /**
+     * Returns the parameters of this request as last encoded by
+     * {@link EncodedQueryParameters#of(SignableRequest)}, which may be
+     * outdated; for internal use only.
+     */
+    public EncodedQueryParameters getEncodedParameters() {
+        return encodedParameters;
+    }
+
+    /**
+     * For internal use only.
+     */
+    public void setEncodedParameters(EncodedQueryParameters encodedParameters) {
+        this.encodedParameters = encodedParameters;
+    }
+
     /**
      * @see com.amazonaws.Request#getTimeOffset
      */
@@ -42,6 +42,22 @@ public class SDKGlobalConfiguration {
     public static final String DEFAULT_METRICS_SYSTEM_PROPERTY =
         "com.amazonaws.sdk.enableDefaultMetrics";
 
+    /**
+     * System property used when starting up the JVM to skip registering the
+     * metric admin MBean for JMX access, which otherwise happens on the first
+     * request and initializes the platform MBean server. Short-lived
+     * processes that are not monitored over JMX can set it to start faster;
+     * the MBean can still be registered explicitly with
+     * {@link com.amazonaws.metrics.AwsSdkMetrics#registerMetricAdminMBean()}.
+     *
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.disableMetricAdminMBean
+     * </pre>
+     */
+    public static final String DISABLE_METRIC_ADMIN_MBEAN_SYSTEM_PROPERTY =
+        "com.amazonaws.sdk.disableMetricAdminMBean";
+
     /** System property name for the AWS access key ID */
     public static final String ACCESS_KEY_SYSTEM_PROPERTY = "aws.accessKeyId";
 
@@ -128,6 +144,14 @@ public class SDKGlobalConfiguration {
     public static final String DEFAULT_S3_STREAM_BUFFER_SIZE =
         "com.amazonaws.sdk.s3.defaultStreamBufferSize";
 
+    /**
+     * System property to set the maximum number of bytes of idle IO buffers
+     * cached per thread for reuse by the SDK, 64 KB by default; 0 disables
+     * the caching.
+     */
+    public static final String BUFFER_POOL_MAX_RETAINED_BYTES_SYSTEM_PROPERTY =
+        "com.amazonaws.sdk.bufferPoolMaxRetainedBytes";
+
     /**
      * @deprecated by {@link #DEFAULT_METRICS_SYSTEM_PROPERTY}.
      *
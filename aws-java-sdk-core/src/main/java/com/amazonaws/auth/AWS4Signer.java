@@ -50,7 +50,6 @@ import com.amazonaws.internal.FIFOCache;
 import com.amazonaws.log.InternalLogApi;
 import com.amazonaws.log.InternalLogFactory;
 import com.amazonaws.util.BinaryUtils;
-import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.SdkHttpUtils;
 
 /**
@@ -159,6 +158,14 @@ public class AWS4Signer extends AbstractAWSSigner implements
         return serviceName;
     }
 
+    /**
+     * Returns whether the resource path is double url-encoded when
+     * constructing the canonical request.
+     */
+    public boolean isDoubleUrlEncode() {
+        return doubleUrlEncode;
+    }
+
     /**
      * Returns a copy of date that overrides the signing date in the request.
      * Return null by default.
@@ -337,9 +344,10 @@ public class AWS4Signer extends AbstractAWSSigner implements
 
         final String cacheKey = computeSigningCacheKeyName(credentials,
                 signerRequestParams);
-        final long daysSinceEpochSigningDate = DateUtils
-                .numberOfDaysSinceEpoch(signerRequestParams
-                        .getSigningDateTimeMilli());
+        // Not DateUtils.numberOfDaysSinceEpoch, whose class initializes the
+        // Joda-Time formatters it holds
+        final long daysSinceEpochSigningDate = TimeUnit.MILLISECONDS
+                .toDays(signerRequestParams.getSigningDateTimeMilli());
 
         SignerKey signerKey = signerCache.get(cacheKey);
 
@@ -448,14 +456,13 @@ public class AWS4Signer extends AbstractAWSSigner implements
         Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
 
         final Map<String, String> requestHeaders = request.getHeaders();
-        StringBuilder buffer = new StringBuilder();
+        StringBuilder buffer = new StringBuilder(64 * sortedHeaders.size());
         for (String header : sortedHeaders) {
-            String key = header.toLowerCase().replaceAll("\\s+", " ");
+            appendCompactedString(buffer, header.toLowerCase());
+            buffer.append(":");
             String value = requestHeaders.get(header);
-
-            buffer.append(key).append(":");
             if (value != null) {
-                buffer.append(value.replaceAll("\\s+", " "));
+                appendCompactedString(buffer, value);
             }
 
             buffer.append("\n");
@@ -464,6 +471,25 @@ public class AWS4Signer extends AbstractAWSSigner implements
         return buffer.toString();
     }
 
+    /**
+     * Appends the given string with each sequence of whitespace characters
+     * replaced by a single space, as <code>replaceAll("\\s+", " ")</code>
+     * would but without compiling a pattern for every header.
+     */
+    private static void appendCompactedString(StringBuilder buffer, String value) {
+        boolean previousIsWhitespace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean isWhitespace = c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
+            if (!isWhitespace) {
+                buffer.append(c);
+            } else if (!previousIsWhitespace) {
+                buffer.append(' ');
+            }
+            previousIsWhitespace = isWhitespace;
+        }
+    }
+
     protected String getSignedHeadersString(SignableRequest<?> request) {
         final List<String> sortedHeaders = new ArrayList<String>(request
                 .getHeaders().keySet());
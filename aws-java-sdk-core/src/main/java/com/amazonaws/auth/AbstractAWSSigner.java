@@ -22,14 +22,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -38,9 +33,11 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.ReadLimitInfo;
 import com.amazonaws.SDKGlobalTime;
 import com.amazonaws.SignableRequest;
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.SdkDigestInputStream;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.EncodedQueryParameters;
 import com.amazonaws.util.SdkHttpUtils;
 
 /**
@@ -151,9 +148,13 @@ public abstract class AbstractAWSSigner implements Signer {
             @SuppressWarnings("resource")
             DigestInputStream digestInputStream = new SdkDigestInputStream(
                     input, md);
-            byte[] buffer = new byte[1024];
-            while (digestInputStream.read(buffer) > -1)
-                ;
+            byte[] buffer = BufferPool.acquire(1024);
+            try {
+                while (digestInputStream.read(buffer) > -1)
+                    ;
+            } finally {
+                BufferPool.release(buffer);
+            }
             return digestInputStream.getMessageDigest().digest();
         } catch (Exception e) {
             throw new AmazonClientException(
@@ -198,40 +199,7 @@ public abstract class AbstractAWSSigner implements Signer {
      * @return A canonicalized form for the specified query string parameters.
      */
     protected String getCanonicalizedQueryString(Map<String, List<String>> parameters) {
-
-        final SortedMap<String, List<String>> sorted = new TreeMap<String, List<String>>();
-
-        /**
-         * Signing protocol expects the param values also to be sorted after url
-         * encoding in addition to sorted parameter names.
-         */
-        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
-            final String encodedParamName = SdkHttpUtils.urlEncode(
-                    entry.getKey(), false);
-            final List<String> paramValues = entry.getValue();
-            final List<String> encodedValues = new ArrayList<String>(
-                    paramValues.size());
-            for (String value : paramValues) {
-                encodedValues.add(SdkHttpUtils.urlEncode(value, false));
-            }
-            Collections.sort(encodedValues);
-            sorted.put(encodedParamName, encodedValues);
-
-        }
-
-        final StringBuilder result = new StringBuilder();
-        for(Map.Entry<String, List<String>> entry : sorted.entrySet()) {
-            for(String value : entry.getValue()) {
-                if (result.length() > 0) {
-                    result.append("&");
-                }
-                result.append(entry.getKey())
-                      .append("=")
-                      .append(value);
-            }
-        }
-
-        return result.toString();
+        return new EncodedQueryParameters(parameters).getCanonicalQueryString();
     }
 
     protected String getCanonicalizedQueryString(SignableRequest<?> request) {
@@ -242,7 +210,11 @@ public abstract class AbstractAWSSigner implements Signer {
          */
         if (SdkHttpUtils.usePayloadForQueryParameters(request))
             return "";
-        return this.getCanonicalizedQueryString(request.getParameters());
+        /*
+         * The parameters are encoded once for both the signature and the
+         * query string or payload of the request.
+         */
+        return EncodedQueryParameters.of(request).getCanonicalQueryString();
     }
 
     /**
@@ -304,12 +276,16 @@ public abstract class AbstractAWSSigner implements Signer {
             ReadLimitInfo info = request.getReadLimitInfo();
             content.mark(info == null ? -1 : info.getReadLimit());
             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024 * 5];
-            while (true) {
-                int bytesRead = content.read(buffer);
-                if (bytesRead == -1) break;
+            byte[] buffer = BufferPool.acquire(1024 * 5);
+            try {
+                while (true) {
+                    int bytesRead = content.read(buffer);
+                    if (bytesRead == -1) break;
 
-                byteArrayOutputStream.write(buffer, 0, bytesRead);
+                    byteArrayOutputStream.write(buffer, 0, bytesRead);
+                }
+            } finally {
+                BufferPool.release(buffer);
             }
 
             byteArrayOutputStream.close();
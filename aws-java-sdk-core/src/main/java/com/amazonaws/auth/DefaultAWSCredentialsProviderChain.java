@@ -35,6 +35,6 @@ public class DefaultAWSCredentialsProviderChain extends AWSCredentialsProviderCh
         super(new EnvironmentVariableCredentialsProvider(),
               new SystemPropertiesCredentialsProvider(),
               new ProfileCredentialsProvider(),
-              new InstanceProfileCredentialsProvider());
+              InstanceProfileCredentialsProvider.getInstance());
     }
 }
\ No newline at end of file
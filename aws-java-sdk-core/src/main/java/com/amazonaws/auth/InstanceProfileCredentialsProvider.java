@@ -16,14 +16,12 @@ package com.amazonaws.auth;
 
 import java.io.IOException;
 import java.util.Date;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.internal.CredentialsRefresher;
 import com.amazonaws.internal.EC2MetadataClient;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.json.Jackson;
@@ -33,6 +31,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 /**
  * Credentials provider implementation that loads credentials from the Amazon
  * EC2 Instance Metadata Service.
+ * <p>
+ * Credentials are refreshed in the background, with at most one refresh in
+ * flight, both when they are close to expiring and ahead of time even if the
+ * provider is idle. Request threads keep being served the current credentials
+ * without blocking while a refresh is in progress, and only block when there
+ * are no credentials yet, or when they are about to expire.
  */
 public class InstanceProfileCredentialsProvider implements AWSCredentialsProvider {
 
@@ -60,84 +64,129 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
     private static final String TOKEN = "Token";
 
     /**
-     * The wait time, after which the background thread initiates a refresh to
-     * load latest credentials if needed.
+     * The threshold before credentials expire (in milliseconds) at which
+     * request threads block until new credentials are loaded, rather than
+     * being served the current credentials.
+     */
+    private static final int BLOCKING_EXPIRATION_THRESHOLD = 1000 * 60;
+
+    /**
+     * The current instance profile credentials and their expiration, published
+     * together so that readers never see the credentials of one load with the
+     * expiration of another; or null if not yet loaded. Kept in sync with
+     * {@link #credentials} and {@link #credentialsExpiration}, see
+     * {@link #current()}.
      */
-    private static final int ASYNC_REFRESH_INTERVAL_TIME_MINUTES= 1;
+    private volatile CredentialsHolder current;
 
+    /** Guards the publication of new current credentials. */
+    private final Object currentLock = new Object();
 
-    /** The current instance profile credentials */
+    /**
+     * The current instance profile credentials. Subclasses assigning it
+     * replace the current credentials.
+     */
     protected volatile AWSCredentials credentials;
 
-    /** The expiration for the current instance profile credentials */
+    /**
+     * The expiration for the current instance profile credentials.
+     * Subclasses assigning it replace the expiration of the current
+     * credentials.
+     */
     protected volatile Date credentialsExpiration;
 
     /** The time of the last attempt to check for new credentials */
     protected volatile Date lastInstanceProfileCheck;
 
+    /** Used to refresh the credentials in the background. */
+    private final CredentialsRefresher refresher = new CredentialsRefresher(
+            new Runnable() {
+                @Override
+                public void run() {
+                    refreshInBackground();
+                }
+            });
+
     /**
-     * The executor service used for refreshing the credentials in the
-     * background.
+     * Returns the provider shared by the default credentials provider chains,
+     * so that all the clients using them share the same instance profile
+     * credentials rather than each loading their own.
      */
-    private volatile ScheduledExecutorService executor;
+    public static InstanceProfileCredentialsProvider getInstance() {
+        return SharedHolder.INSTANCE;
+    }
 
     public InstanceProfileCredentialsProvider() {
         this(false);
     }
 
     /**
-     * Spins up a new thread to refresh the credentials asynchronously if
-     * refreshCredentialsAsync is set to true, otherwise the credentials will be
-     * refreshed from the instance metadata service synchronously,
+     * Starts loading the credentials in the background right away if
+     * refreshCredentialsAsync is set to true, otherwise the credentials will
+     * be loaded from the instance metadata service upon the first call to
+     * {@link #getCredentials()}. Either way, the credentials are subsequently
+     * refreshed in the background.
+     * <p>
+     * Note refreshCredentialsAsync no longer starts a thread of its own that
+     * polls the metadata service every minute: the background refreshes of
+     * all providers are run by a small shared pool of daemon threads, ahead
+     * of the expiration of the credentials whether or not they are being
+     * used. A failed background refresh no longer discards the current
+     * credentials either; they keep being served until they expire, and the
+     * refresh is retried.
      *
      * @param refreshCredentialsAsync
-     *            true if credentials needs to be refreshed asynchronously else
-     *            false.
+     *            true if credentials are to be loaded in the background right
+     *            away else false.
      */
     public InstanceProfileCredentialsProvider(boolean refreshCredentialsAsync) {
-        if (refreshCredentialsAsync) {
-            executor = Executors.newScheduledThreadPool(1);
-            executor.scheduleWithFixedDelay(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        getCredentials();
-                    } catch (AmazonClientException ace) {
-                        handleError(ace);
-                    } catch (RuntimeException re) {
-                        handleError(re);
-                    } catch (Error e) {
-                        handleError(e);
-                    }
-                }
-            }, 0, ASYNC_REFRESH_INTERVAL_TIME_MINUTES, TimeUnit.MINUTES);
-        }
-    }
-
-    private void handleError(Throwable t) {
-        credentials = null;
-        LOG.error(t.getMessage(), t);
+        if (refreshCredentialsAsync)
+            refresher.refreshAsync();
     }
 
     public AWSCredentials getCredentials() {
-        if (needsToLoadCredentials())
+        CredentialsHolder holder = current();
+        if (needsToBlockForCredentials(holder)) {
             loadCredentials();
-        if (expired()) {
+            holder = current();
+        } else if (needsToLoadCredentials()) {
+            refresher.refreshAsync();
+        }
+        if (holder == null)
+            throw new AmazonClientException("Unable to load credentials from Amazon EC2 metadata service");
+        if (expired(holder)) {
             throw new AmazonClientException(
                     "The credentials received from the Amazon EC2 metadata service have expired");
         }
-        return credentials;
+        return holder.credentials;
     }
 
     public void refresh() {
-        credentials = null;
+        setCurrentCredentials(null, null);
+    }
+
+    /**
+     * Returns true if there are no credentials, or if they are about to
+     * expire, and therefore new credentials must be loaded before returning.
+     */
+    private static boolean needsToBlockForCredentials(CredentialsHolder holder) {
+        if (holder == null) return true;
+        Date expiration = holder.expiration;
+        return expiration != null
+            && expiration.getTime() - System.currentTimeMillis() < BLOCKING_EXPIRATION_THRESHOLD;
     }
 
+    /**
+     * Returns true if new credentials are to be loaded. {@link #getCredentials()}
+     * loads them in the background, and only blocks if there are no
+     * credentials yet or if they are about to expire.
+     */
     protected boolean needsToLoadCredentials() {
-        if (credentials == null) return true;
+        CredentialsHolder holder = current();
+        if (holder == null) return true;
 
-        if (credentialsExpiration != null) {
-            if (isWithinExpirationThreshold()) return true;
+        if (holder.expiration != null) {
+            if (isWithinExpirationThreshold(holder.expiration)) return true;
         }
 
         if (lastInstanceProfileCheck != null) {
@@ -148,11 +197,11 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
     }
 
     /**
-     * Returns true if the current credentials are within the expiration
-     * threshold, and therefore, should be refreshed.
+     * Returns true if credentials of the given expiration are within the
+     * expiration threshold, and therefore, should be refreshed.
      */
-    private boolean isWithinExpirationThreshold() {
-        return (credentialsExpiration.getTime() - System.currentTimeMillis()) < EXPIRATION_THRESHOLD;
+    private static boolean isWithinExpirationThreshold(Date expiration) {
+        return (expiration.getTime() - System.currentTimeMillis()) < EXPIRATION_THRESHOLD;
     }
 
     /**
@@ -164,9 +213,9 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
         return (System.currentTimeMillis() - lastInstanceProfileCheck.getTime()) > REFRESH_THRESHOLD;
     }
 
-    private boolean expired() {
-        if (credentialsExpiration != null) {
-            if (credentialsExpiration.getTime() < System.currentTimeMillis()) {
+    private static boolean expired(CredentialsHolder holder) {
+        if (holder.expiration != null) {
+            if (holder.expiration.getTime() < System.currentTimeMillis()) {
                 return true;
             }
         }
@@ -174,6 +223,72 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
         return false;
     }
 
+    /**
+     * Publishes the given credentials and expiration as the current ones.
+     */
+    void setCurrentCredentials(AWSCredentials credentials, Date expiration) {
+        synchronized (currentLock) {
+            current = credentials == null ? null : new CredentialsHolder(credentials, expiration);
+            this.credentials = credentials;
+            this.credentialsExpiration = expiration;
+        }
+    }
+
+    /**
+     * Returns the current credentials and their expiration. If a subclass
+     * has assigned {@link #credentials} or {@link #credentialsExpiration}
+     * since they were last published, the assigned values are published and
+     * returned instead.
+     */
+    private CredentialsHolder current() {
+        CredentialsHolder holder = current;
+        if (isPublished(holder))
+            return holder;
+        synchronized (currentLock) {
+            holder = current;
+            if (!isPublished(holder)) {
+                AWSCredentials credentials = this.credentials;
+                holder = credentials == null ? null : new CredentialsHolder(credentials, credentialsExpiration);
+                current = holder;
+            }
+            return holder;
+        }
+    }
+
+    /**
+     * Returns true if the given credentials are those of the fields, that is
+     * if the fields have not been assigned by a subclass since.
+     */
+    private boolean isPublished(CredentialsHolder holder) {
+        if (holder == null)
+            return credentials == null;
+        return holder.credentials == credentials && holder.expiration == credentialsExpiration;
+    }
+
+    /**
+     * Returns the current credentials, whether expired or not; or null if not
+     * yet loaded.
+     */
+    AWSCredentials getCurrentCredentials() {
+        CredentialsHolder holder = current();
+        return holder == null ? null : holder.credentials;
+    }
+
+    /**
+     * Returns the expiration of the current credentials; or null if unknown.
+     */
+    Date getCurrentCredentialsExpiration() {
+        CredentialsHolder holder = current();
+        return holder == null ? null : holder.expiration;
+    }
+
+    /**
+     * Loads new credentials in the background, see {@link CredentialsRefresher}.
+     */
+    void refreshInBackground() {
+        loadCredentials();
+    }
+
     private synchronized void loadCredentials() {
         if (!needsToLoadCredentials()) return;
 
@@ -195,6 +310,7 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
                 throw new AmazonClientException("Unable to load credentials.");
             }
 
+            AWSCredentials credentials;
             if (null != token) {
                 credentials = new BasicSessionCredentials(accessKey.asText(),
                         secretKey.asText(), token.asText());
@@ -203,6 +319,7 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
                         secretKey.asText());
             }
 
+            Date expirationDate = null;
             JsonNode expirationJsonNode = node.get("Expiration");
             if (null != expirationJsonNode) {
                 /*
@@ -214,11 +331,15 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
                 expiration = expiration.replaceAll("\\+0000$", "Z");
 
                 try {
-                    credentialsExpiration = DateUtils.parseISO8601Date(expiration);
+                    expirationDate = DateUtils.parseISO8601Date(expiration);
                 } catch(Exception ex) {
                     handleError("Unable to parse credentials expiration date from Amazon EC2 metadata service", ex);
+                    // Keep the current credentials rather than new ones of unknown expiration
+                    return;
                 }
             }
+            setCurrentCredentials(credentials, expirationDate);
+            refresher.schedulePrefetch(expirationDate, EXPIRATION_THRESHOLD);
         } catch (JsonMappingException e) {
             handleError("Unable to parse credentials from Amazon EC2 metadata service", e);
         } catch (IOException e) {
@@ -240,7 +361,8 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
      */
     private void handleError(String errorMessage, Exception e) {
         // If we don't have any valid credentials to fall back on, then throw an exception
-        if (credentials == null || expired())
+        CredentialsHolder holder = current();
+        if (holder == null || expired(holder))
             throw new AmazonClientException(errorMessage, e);
 
         // Otherwise, just log the error and continuing using the current credentials
@@ -252,10 +374,19 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
         return getClass().getSimpleName();
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        if (executor != null) {
-            executor.shutdownNow();
+    /** Credentials together with their expiration, if any. */
+    private static final class CredentialsHolder {
+        final AWSCredentials credentials;
+        final Date expiration;
+
+        CredentialsHolder(AWSCredentials credentials, Date expiration) {
+            this.credentials = credentials;
+            this.expiration = expiration;
         }
     }
+
+    private static final class SharedHolder {
+        static final InstanceProfileCredentialsProvider INSTANCE =
+            new InstanceProfileCredentialsProvider();
+    }
 }
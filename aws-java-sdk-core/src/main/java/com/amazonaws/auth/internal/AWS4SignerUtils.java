@@ -14,20 +14,16 @@
  */
 package com.amazonaws.auth.internal;
 
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
-
 /**
  * Utility methods that is used by the different AWS Signer implementations.
  * This class is strictly internal and is subjected to change.
+ * <p>
+ * Dates are formatted by hand rather than with Joda-Time, which is costly to
+ * initialize and would otherwise be loaded by the first signed request.
  */
 public final class AWS4SignerUtils {
 
-    private static final DateTimeFormatter dateFormatter = DateTimeFormat
-            .forPattern("yyyyMMdd").withZoneUTC();
-
-    private static final DateTimeFormatter timeFormatter = DateTimeFormat
-            .forPattern("yyyyMMdd'T'HHmmss'Z'").withZoneUTC();
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
 
     /**
      * Returns a string representation of the given date time in yyyyMMdd
@@ -36,7 +32,7 @@ public final class AWS4SignerUtils {
      * For example, given a time "1416863450581", this method returns "20141124"
      */
     public static String formatDateStamp(long timeMilli) {
-        return dateFormatter.print(timeMilli);
+        return appendDate(new StringBuilder(8), timeMilli).toString();
     }
 
     /**
@@ -47,6 +43,51 @@ public final class AWS4SignerUtils {
      * "20141124T211050Z"
      */
     public static String formatTimestamp(long timeMilli) {
-        return timeFormatter.print(timeMilli);
+        final StringBuilder buffer = appendDate(new StringBuilder(16), timeMilli);
+        final int secondOfDay = (int) ((timeMilli - floorDiv(timeMilli, MILLIS_PER_DAY) * MILLIS_PER_DAY) / 1000);
+        buffer.append('T');
+        appendTwoDigits(buffer, secondOfDay / 3600);
+        appendTwoDigits(buffer, secondOfDay / 60 % 60);
+        appendTwoDigits(buffer, secondOfDay % 60);
+        return buffer.append('Z').toString();
+    }
+
+    /**
+     * Appends the UTC date of the given time as yyyyMMdd, computed from the
+     * number of days since the epoch in the proleptic Gregorian calendar.
+     */
+    private static StringBuilder appendDate(StringBuilder buffer, long timeMilli) {
+        // Shift the epoch to 0000-03-01, the start of a 400-year era, so
+        // that leap days fall at the end of each year
+        final long days = floorDiv(timeMilli, MILLIS_PER_DAY) + 719468;
+        final long era = floorDiv(days, 146097);
+        final long dayOfEra = days - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int shiftedMonth = (int) ((5 * dayOfYear + 2) / 153);
+        final int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        final int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        final long absoluteYear = Math.abs(year);
+        if (year < 0) {
+            buffer.append('-');
+        }
+        if (absoluteYear < 1000) {
+            buffer.append(absoluteYear < 10 ? "000" : absoluteYear < 100 ? "00" : "0");
+        }
+        buffer.append(absoluteYear);
+        appendTwoDigits(buffer, month);
+        appendTwoDigits(buffer, day);
+        return buffer;
+    }
+
+    private static void appendTwoDigits(StringBuilder buffer, int value) {
+        buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static long floorDiv(long dividend, long divisor) {
+        final long quotient = dividend / divisor;
+        return (dividend % divisor != 0 && (dividend < 0) != (divisor < 0)) ? quotient - 1 : quotient;
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Refreshes the credentials of a credentials provider in the background, so
+ * that request threads can keep using the current (still valid) credentials
+ * instead of all blocking on the remote call for new ones.
+ * <p>
+ * At most one background refresh of a provider is in flight at any time
+ * (single flight), and consecutive background refreshes are at least a few
+ * seconds apart, so as not to hammer the remote service when it is slow to
+ * hand out new credentials or unavailable. A refresh can also be scheduled
+ * ahead of the expiration of the current credentials so they are prefetched
+ * even when the provider is idle.
+ * <p>
+ * The refreshes of all providers are run by a small shared pool of daemon
+ * threads. The given refresh task must be thread-safe with respect to the
+ * blocking (synchronous) refresh path of the provider, typically by
+ * synchronizing on the same lock and re-checking whether a refresh is still
+ * needed.
+ */
+public class CredentialsRefresher {
+    private static final Log log = LogFactory.getLog(CredentialsRefresher.class);
+
+    /**
+     * Minimum time (in milliseconds) after the start of a background refresh
+     * before another one may be attempted.
+     */
+    static final long MIN_REFRESH_INTERVAL_MILLIS = 10 * 1000;
+
+    private final Runnable refreshTask;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long nextAttemptMillis;
+    private volatile ScheduledFuture<?> prefetch;
+
+    /**
+     * @param refreshTask the task that loads new credentials into the provider
+     */
+    public CredentialsRefresher(Runnable refreshTask) {
+        if (refreshTask == null)
+            throw new IllegalArgumentException("refreshTask must not be null");
+        this.refreshTask = refreshTask;
+    }
+
+    /**
+     * Starts a background refresh unless one is already in flight, or the
+     * last one started less than {@link #MIN_REFRESH_INTERVAL_MILLIS} ago.
+     *
+     * @return true if a background refresh has been started; false otherwise.
+     */
+    public boolean refreshAsync() {
+        if (System.currentTimeMillis() < nextAttemptMillis)
+            return false;
+        if (!refreshing.compareAndSet(false, true))
+            return false;
+        nextAttemptMillis = System.currentTimeMillis() + MIN_REFRESH_INTERVAL_MILLIS;
+        try {
+            LazyHolder.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshTask.run();
+                    } catch (RuntimeException e) {
+                        log.debug("Unable to refresh credentials in the background", e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+            nextAttemptMillis = 0;
+            log.debug("Unable to schedule a credentials refresh", e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if a background refresh is currently in flight.
+     */
+    public boolean isRefreshing() {
+        return refreshing.get();
+    }
+
+    /**
+     * Schedules a background refresh at the given amount of time before the
+     * given expiration, replacing any previously scheduled one. Nothing is
+     * scheduled if the expiration is null or if that time has already passed.
+     *
+     * @param expiration the expiration of the current credentials
+     * @param aheadMillis the time in milliseconds before the expiration at
+     *        which the credentials are to be refreshed
+     */
+    public void schedulePrefetch(Date expiration, long aheadMillis) {
+        cancelPrefetch();
+        if (expiration == null)
+            return;
+        long delay = expiration.getTime() - aheadMillis - System.currentTimeMillis();
+        if (delay <= 0)
+            return;
+        // Only a weak reference is held by the scheduled task, so that an
+        // unused provider can be garbage collected before its prefetch is due
+        final WeakReference<CredentialsRefresher> ref =
+            new WeakReference<CredentialsRefresher>(this);
+        try {
+            prefetch = LazyHolder.executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    CredentialsRefresher refresher = ref.get();
+                    if (refresher != null)
+                        refresher.refreshAsync();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Unable to schedule a credentials prefetch", e);
+        }
+    }
+
+    /**
+     * Cancels the scheduled background refresh, if any.
+     */
+    public void cancelPrefetch() {
+        ScheduledFuture<?> f = prefetch;
+        if (f != null) {
+            f.cancel(false);
+            prefetch = null;
+        }
+    }
+
+    /**
+     * Used to avoid creating the refresh threads until absolutely necessary.
+     */
+    private static final class LazyHolder {
+        private static final int POOL_SIZE = 2;
+        private static final ScheduledExecutorService executor = createExecutor();
+
+        private static ScheduledExecutorService createExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    POOL_SIZE, new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r);
+                            t.setName("java-sdk-credentials-refresher-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            return executor;
+        }
+    }
+}
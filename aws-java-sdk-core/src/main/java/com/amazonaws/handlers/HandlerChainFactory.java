@@ -20,6 +20,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.ClassLoaderHelper;
@@ -29,6 +31,13 @@ import com.amazonaws.util.ClassLoaderHelper;
  */
 public class HandlerChainFactory {
 
+    /**
+     * The request handler class names listed in each resource already read,
+     * by factory class and resource name
+     */
+    private static final ConcurrentMap<String, String[]> REQUEST_HANDLER_CLASS_NAMES =
+        new ConcurrentHashMap<String, String[]>();
+
     /**
      * For backward compatibility, constructs a new request handler chain
      * adapted to {@link RequestHandler2} by analyzing the specified classpath
@@ -62,20 +71,8 @@ public class HandlerChainFactory {
 
     private List<RequestHandler2> createRequestHandlerChain(String resource, Class<?> handlerApiClass) {
         List<RequestHandler2> handlers = new ArrayList<RequestHandler2>();
-        BufferedReader reader = null;
-
         try {
-            InputStream input = getClass().getResourceAsStream(resource);
-            if (input == null) return handlers;
-
-            reader = new BufferedReader(new InputStreamReader(input));
-            while (true) {
-                String requestHandlerClassName = reader.readLine();
-                if (requestHandlerClassName == null)
-                    break;
-                requestHandlerClassName = requestHandlerClassName.trim();
-                if (requestHandlerClassName.equals("")) 
-                    continue;
+            for (String requestHandlerClassName : getRequestHandlerClassNames(resource)) {
                 Class<?> requestHandlerClass = ClassLoaderHelper.loadClass(
                     requestHandlerClassName,
                     handlerApiClass, getClass());
@@ -102,14 +99,47 @@ public class HandlerChainFactory {
         } catch (Exception e) {
             throw new AmazonClientException("Unable to instantiate request handler chain for client: "
                     + e.getMessage(), e);
+        }
+        return handlers;
+    }
+
+    /**
+     * Returns the names of the request handler classes listed in the given
+     * classpath resource, which is only read the first time handlers are
+     * requested from it, typically by the first client of a service.
+     */
+    private String[] getRequestHandlerClassNames(String resource) throws IOException {
+        final String key = getClass().getName() + " " + resource;
+        String[] classNames = REQUEST_HANDLER_CLASS_NAMES.get(key);
+        if (classNames == null) {
+            classNames = readRequestHandlerClassNames(resource);
+            REQUEST_HANDLER_CLASS_NAMES.putIfAbsent(key, classNames);
+        }
+        return classNames;
+    }
+
+    private String[] readRequestHandlerClassNames(String resource) throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        InputStream input = getClass().getResourceAsStream(resource);
+        if (input == null) return new String[0];
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+        try {
+            while (true) {
+                String requestHandlerClassName = reader.readLine();
+                if (requestHandlerClassName == null)
+                    break;
+                requestHandlerClassName = requestHandlerClassName.trim();
+                if (requestHandlerClassName.equals("")) 
+                    continue;
+                classNames.add(requestHandlerClassName);
+            }
         } finally {
             try {
-                if (reader != null) {
-                    reader.close();
-                }
+                reader.close();
             } catch (IOException e) {
             }
         }
-        return handlers;
+        return classNames.toArray(new String[classNames.size()]);
     }
 }
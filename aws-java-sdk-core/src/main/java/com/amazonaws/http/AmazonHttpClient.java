@@ -24,6 +24,10 @@ import static com.amazonaws.util.AWSRequestMetrics.Field.Exception;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolAvailableCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolLeasedCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolPendingCount;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolRouteAvailableCount;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolRouteLeaseWaitTime;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolRouteLeasedCount;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolRoutePendingCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpRequestTime;
 import static com.amazonaws.util.AWSRequestMetrics.Field.RedirectLocation;
 import static com.amazonaws.util.AWSRequestMetrics.Field.RequestCount;
@@ -47,6 +51,12 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
@@ -55,15 +65,19 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.pool.ConnPoolControl;
 import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.BasicHttpContext;
@@ -82,6 +96,7 @@ import com.amazonaws.ResetException;
 import com.amazonaws.Response;
 import com.amazonaws.ResponseMetadata;
 import com.amazonaws.SDKGlobalTime;
+import com.amazonaws.auth.AWS4Signer;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.event.ProgressEventType;
@@ -89,6 +104,8 @@ import com.amazonaws.event.ProgressInputStream;
 import com.amazonaws.event.ProgressListener;
 import com.amazonaws.handlers.CredentialsRequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.conn.RouteStats;
+import com.amazonaws.http.conn.SdkConnPoolControl;
 import com.amazonaws.http.conn.ssl.SdkTLSSocketFactory;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.internal.ReleasableInputStream;
@@ -426,6 +443,11 @@ public class AmazonHttpClient {
         // Apply whatever request options we know how to handle, such as
         // user-agent.
         setUserAgent(request);
+        // Compress the payload once, before it is signed, so that all retries
+        // send and sign the very same compressed bytes
+        if (config.useRequestCompression()) {
+            compressRequest(request, executionContext);
+        }
         // Make a copy of the original request params and headers so that we can
         // permute it in this loop and start over with the original every time.
         final Map<String, List<String>> originalParameters =
@@ -519,6 +541,31 @@ public class AmazonHttpClient {
         } /* end while (true) */
     }
 
+    /**
+     * Compresses the request payload if the request is eligible. Only requests
+     * signed with SigV4 are compressed, since the payload hash is then computed
+     * over the compressed bytes; signers that sign the query parameters
+     * instead of the payload would not cover the compressed content. The
+     * service signed for must also be one of the configured services known to
+     * accept compressed payloads.
+     *
+     * @return true if the request has been compressed; false otherwise.
+     */
+    boolean compressRequest(Request<?> request,
+            ExecutionContext executionContext) {
+        Signer signer = executionContext.getSignerByURI(request.getEndpoint());
+        if (!(signer instanceof AWS4Signer)) {
+            return false;
+        }
+        String serviceName = ((AWS4Signer) signer).getServiceName();
+        if (serviceName == null
+                || !config.getRequestCompressionServiceNames().contains(serviceName)) {
+            return false;
+        }
+        return RequestCompressor.compress(request,
+                config.getRequestCompressionThreshold());
+    }
+
     /**
      * Used to perform a last reset on the content input stream (if
      * mark-supported); this is so that, for backward compatibility reason, any
@@ -691,7 +738,8 @@ public class AmazonHttpClient {
         }
         execParams.newApacheRequest(httpRequestFactory, request, config, execContext);
 
-        captureConnectionPoolMetrics(httpClient.getConnectionManager(), awsRequestMetrics);
+        captureConnectionPoolMetrics(httpClient.getConnectionManager(),
+                request.getEndpoint(), awsRequestMetrics);
         HttpContext httpContext = new BasicHttpContext();
         httpContext.setAttribute(
             AWSRequestMetrics.class.getSimpleName(),
@@ -707,6 +755,7 @@ public class AmazonHttpClient {
             isHeaderReqIdAvail = logHeaderRequestId(execParams.apacheResponse);
         } finally {
             awsRequestMetrics.endEvent(HttpRequestTime);
+            captureLeaseWaitTime(httpClient.getConnectionManager(), awsRequestMetrics);
         }
 
         publishProgress(listener, ProgressEventType.HTTP_REQUEST_COMPLETED_EVENT);
@@ -839,7 +888,7 @@ public class AmazonHttpClient {
      * Captures the connection pool metrics.
      */
     private void captureConnectionPoolMetrics(ClientConnectionManager connectionManager,
-            AWSRequestMetrics awsRequestMetrics) {
+            URI endpoint, AWSRequestMetrics awsRequestMetrics) {
         if (awsRequestMetrics.isEnabled()
                 && connectionManager instanceof ConnPoolControl) {
             ConnPoolControl<?> control = (ConnPoolControl<?>) connectionManager;
@@ -850,6 +899,110 @@ public class AmazonHttpClient {
                 .withCounter(HttpClientPoolPendingCount, stats.getPending())
                 ;
         }
+        if (awsRequestMetrics.isEnabled()
+                && connectionManager instanceof SdkConnPoolControl) {
+            RouteStats stats = ((SdkConnPoolControl) connectionManager)
+                .getRouteStats(new HttpHost(endpoint.getHost(),
+                        endpoint.getPort(), endpoint.getScheme()));
+            if (stats != null) {
+                awsRequestMetrics
+                    .withCounter(HttpClientPoolRouteAvailableCount, stats.getAvailable())
+                    .withCounter(HttpClientPoolRouteLeasedCount, stats.getLeased())
+                    .withCounter(HttpClientPoolRoutePendingCount, stats.getPending())
+                    ;
+            }
+        }
+    }
+
+    /**
+     * Captures the time the current request waited to lease its connection
+     * from the pool, if measured.
+     */
+    private void captureLeaseWaitTime(ClientConnectionManager connectionManager,
+            AWSRequestMetrics awsRequestMetrics) {
+        if (!(connectionManager instanceof SdkConnPoolControl))
+            return;
+        // Always taken, so that it isn't mistaken for that of a later request
+        long waitNanos = ((SdkConnPoolControl) connectionManager).takeLeaseWaitNanos();
+        if (waitNanos >= 0 && awsRequestMetrics.isEnabled()) {
+            awsRequestMetrics.withCounter(HttpClientPoolRouteLeaseWaitTime,
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+
+    /**
+     * Pre-opens up to the given number of connections to the given endpoint
+     * and returns them to the connection pool, so that subsequent requests
+     * can skip the connection establishment and TLS handshake. This is a
+     * no-op for connections through a tunnelling proxy, or if the connection
+     * manager in use doesn't support it.
+     *
+     * @param endpoint the endpoint to connect to
+     * @param count the number of connections to open
+     *
+     * @return the number of connections actually opened
+     */
+    public int warmUpConnections(URI endpoint, int count) {
+        ClientConnectionManager connectionManager = httpClient.getConnectionManager();
+        if (count <= 0 || !(connectionManager instanceof SdkConnPoolControl)
+                || !(httpClient instanceof DefaultHttpClient))
+            return 0;
+        try {
+            HttpHost target = new HttpHost(endpoint.getHost(),
+                    endpoint.getPort(), endpoint.getScheme());
+            HttpRoute route = ((DefaultHttpClient) httpClient).getRoutePlanner()
+                .determineRoute(target, new HttpGet(endpoint), new BasicHttpContext());
+            return ((SdkConnPoolControl) connectionManager)
+                .warmUp(route, count, httpClient.getParams());
+        } catch (Exception e) {
+            log.debug("Unable to warm up connections to " + endpoint, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Pre-opens up to the given number of connections to the given endpoint
+     * in the background, as {@link #warmUpConnections(URI, int)} does.
+     *
+     * @param endpoint the endpoint to connect to
+     * @param count the number of connections to open
+     *
+     * @return the future number of connections actually opened
+     */
+    public Future<Integer> warmUpConnectionsAsync(final URI endpoint, final int count) {
+        return WarmUpHolder.executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return warmUpConnections(endpoint, count);
+            }
+        });
+    }
+
+    /**
+     * Used to avoid creating the warm-up thread until absolutely necessary.
+     */
+    private static final class WarmUpHolder {
+        /** A single daemon thread opening the connections of all clients. */
+        private static final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName("java-sdk-connection-warm-up");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    /**
+     * Returns the per-route statistics of the connection pool; or an empty
+     * list if the connection manager in use doesn't support it.
+     */
+    public List<RouteStats> getConnectionPoolRouteStats() {
+        ClientConnectionManager connectionManager = httpClient.getConnectionManager();
+        return connectionManager instanceof SdkConnPoolControl
+            ? ((SdkConnPoolControl) connectionManager).getAllRouteStats()
+            : Collections.<RouteStats>emptyList();
     }
 
     /**
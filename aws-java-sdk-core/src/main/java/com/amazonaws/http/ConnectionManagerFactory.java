@@ -20,17 +20,27 @@ import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.impl.conn.SchemeRegistryFactory;
 import org.apache.http.params.HttpParams;
 
+import com.amazonaws.ApacheHttpClientConfig;
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.conn.SdkPoolingClientConnectionManager;
 
 /** Responsible for creating and configuring instances of Apache HttpClient4's Connection Manager. */
 class ConnectionManagerFactory {
 
     public static PoolingClientConnectionManager createPoolingClientConnManager( ClientConfiguration config, HttpParams httpClientParams ) {
-        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(
+        ApacheHttpClientConfig apacheConfig = config.getApacheHttpClientConfig();
+        int maxPerRoute = config.getMaxConnectionsPerRoute() > 0
+            ? config.getMaxConnectionsPerRoute()
+            : config.getMaxConnections();
+        PoolingClientConnectionManager connectionManager = new SdkPoolingClientConnectionManager(
                 SchemeRegistryFactory.createDefault(),
-                config.getConnectionTTL(), TimeUnit.MILLISECONDS);
-        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
-        connectionManager.setMaxTotal(config.getMaxConnections());
+                config.getConnectionTTL(), TimeUnit.MILLISECONDS,
+                config.getMaxConnections(), maxPerRoute,
+                apacheConfig.isFairRouteSharing(), apacheConfig.getRouteWeights());
+        if (config.useConnectionKeepWarm() && config.getConnectionWarmUpCount() > 0) {
+            ((SdkPoolingClientConnectionManager) connectionManager)
+                .setKeepWarm(config.getConnectionWarmUpCount(), httpClientParams);
+        }
         if (config.useReaper()) {
             IdleConnectionReaper.registerConnectionManager(connectionManager);
         }
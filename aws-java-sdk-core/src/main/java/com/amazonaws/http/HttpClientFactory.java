@@ -20,11 +20,15 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
@@ -45,7 +49,6 @@ import org.apache.http.auth.NTCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.RedirectStrategy;
-import org.apache.http.client.entity.GzipDecompressingEntity;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.ClientContext;
 import org.apache.http.conn.ConnectTimeoutException;
@@ -74,6 +77,12 @@ import com.amazonaws.http.impl.client.SdkHttpClient;
 /** Responsible for creating and configuring instances of Apache HttpClient4. */
 class HttpClientFactory {
 
+    /**
+     * The dedicated SSL contexts of the clients configured with a TLS session
+     * cache size or timeout, by "cacheSize:timeout".
+     */
+    private static final ConcurrentMap<String, SSLContext> sessionCachingContexts =
+        new ConcurrentHashMap<String, SSLContext>();
 
     /**
      * Creates a new HttpClient object using the specified AWS
@@ -116,7 +125,7 @@ class HttpClientFactory {
             SSLSocketFactory sf = config.getApacheHttpClientConfig().getSslSocketFactory();
             if (sf == null) {
                 sf = new SdkTLSSocketFactory(
-                        SSLContext.getDefault(),
+                        sslContextFor(config),
                         SSLSocketFactory.STRICT_HOSTNAME_VERIFIER);
             }
             Scheme https = new Scheme("https", 443, sf);
@@ -125,6 +134,8 @@ class HttpClientFactory {
             sr.register(https);
         } catch (NoSuchAlgorithmException e) {
             throw new AmazonClientException("Unable to access default SSL context", e);
+        } catch (KeyManagementException e) {
+            throw new AmazonClientException("Unable to initialize SSL context", e);
         }
 
         /*
@@ -190,7 +201,7 @@ class HttpClientFactory {
                             for (int i = 0; i < codecs.length; i++) {
                                 if (codecs[i].getName()
                                         .equalsIgnoreCase("gzip")) {
-                                    response.setEntity(new GzipDecompressingEntity(
+                                    response.setEntity(new PooledGzipDecompressingEntity(
                                             response.getEntity()));
                                     return;
                                 }
@@ -205,6 +216,35 @@ class HttpClientFactory {
         return httpClient;
     }
 
+    /**
+     * Returns the default SSL context, unless a TLS session cache size or
+     * timeout is configured; in which case returns a dedicated SSL context
+     * with these settings, shared by the clients with the same settings so
+     * that they can resume each other's TLS sessions. The JVM-wide default SSL
+     * context is never modified.
+     */
+    static SSLContext sslContextFor(ClientConfiguration config)
+            throws NoSuchAlgorithmException, KeyManagementException {
+        final int cacheSize = config.getTlsSessionCacheSize();
+        final int timeout = config.getTlsSessionTimeout();
+        if (cacheSize < 0 && timeout < 0)
+            return SSLContext.getDefault();
+        final String key = cacheSize + ":" + timeout;
+        SSLContext sslContext = sessionCachingContexts.get(key);
+        if (sslContext != null)
+            return sslContext;
+        sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            if (cacheSize >= 0)
+                sessionContext.setSessionCacheSize(cacheSize);
+            if (timeout >= 0)
+                sessionContext.setSessionTimeout(timeout);
+        }
+        SSLContext existing = sessionCachingContexts.putIfAbsent(key, sslContext);
+        return existing == null ? sslContext : existing;
+    }
 
     /**
      * Disable http redirect inside Apache HttpClient.
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import com.amazonaws.internal.BufferPool;
+import com.amazonaws.internal.PooledGzipInputStream;
+
+/**
+ * {@link HttpEntityWrapper} responsible for handling gzip Content-Encoding
+ * in responses, decompressing through a {@link PooledGzipInputStream} rather
+ * than allocating a new inflater per response.
+ */
+class PooledGzipDecompressingEntity extends HttpEntityWrapper {
+    private static final int BUFFER_SIZE = 1024 * 4;
+
+    /** The content stream, created lazily for streaming entities. */
+    private InputStream content;
+
+    PooledGzipDecompressingEntity(HttpEntity entity) {
+        super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (wrappedEntity.isStreaming()) {
+            if (content == null)
+                content = new PooledGzipInputStream(wrappedEntity.getContent());
+            return content;
+        }
+        return new PooledGzipInputStream(wrappedEntity.getContent());
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        InputStream in = getContent();
+        byte[] buffer = BufferPool.acquire(BUFFER_SIZE);
+        try {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                outstream.write(buffer, 0, n);
+            }
+        } finally {
+            BufferPool.release(buffer);
+            in.close();
+        }
+    }
+
+    /**
+     * The content encoding has been dealt with by this wrapper.
+     */
+    @Override
+    public Header getContentEncoding() {
+        return null;
+    }
+
+    /**
+     * The decompressed length is unknown.
+     */
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.Request;
+import com.amazonaws.internal.BufferPool;
+import com.amazonaws.util.SdkHttpUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Gzip compresses the payload of an outgoing request before it gets signed,
+ * so that signers such as SigV4 compute the payload hash over the exact bytes
+ * sent on the wire.
+ * <p>
+ * Only POST requests without an existing <code>Content-Encoding</code> are
+ * considered. Query protocol requests have their form encoded parameters
+ * moved into the compressed payload; requests that already carry a payload
+ * (e.g. JSON protocol) must declare a <code>Content-Length</code> so that the
+ * threshold can be checked without reading the content.
+ * <p>
+ * The source content is streamed through the deflater once into a single
+ * buffer holding the compressed bytes, which is then both hashed by the signer
+ * and written out by the http client via mark-and-reset. The compressed length
+ * has to be known up front as the request entity is never sent chunked.
+ */
+class RequestCompressor {
+    static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_SIZE = 1024 * 4;
+
+    private static final Log log = LogFactory.getLog(RequestCompressor.class);
+
+    /**
+     * Replaces the payload of the given request with its gzip compressed form
+     * if the request is eligible and its uncompressed payload is at least the
+     * given number of bytes.
+     *
+     * @return true if the request has been compressed; false otherwise.
+     */
+    static boolean compress(Request<?> request, int threshold) {
+        if (request.getHttpMethod() != HttpMethodName.POST)
+            return false;
+        final Map<String, String> headers = request.getHeaders();
+        if (headers.containsKey(CONTENT_ENCODING))
+            return false;
+        final InputStream source;
+        final long uncompressedLength;
+        final boolean queryParams = SdkHttpUtils.usePayloadForQueryParameters(request);
+        if (queryParams) {
+            String encodedParams = SdkHttpUtils.encodeParameters(request);
+            if (encodedParams == null)
+                return false;
+            byte[] bytes = encodedParams.getBytes(StringUtils.UTF8);
+            if (bytes.length < threshold)
+                return false;
+            source = new ByteArrayInputStream(bytes);
+            uncompressedLength = bytes.length;
+        } else {
+            if (request.getContent() == null)
+                return false;
+            String s = headers.get(CONTENT_LENGTH);
+            if (s == null)
+                return false;
+            try {
+                uncompressedLength = Long.parseLong(s);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (uncompressedLength < threshold)
+                return false;
+            source = request.getContent();
+        }
+        final byte[] compressed;
+        try {
+            compressed = gzip(source, uncompressedLength);
+        } catch (IOException e) {
+            throw new AmazonClientException(
+                    "Unable to compress request payload: " + e.getMessage(), e);
+        }
+        if (queryParams) {
+            Map<String, List<String>> none = Collections.emptyMap();
+            request.setParameters(none);
+        }
+        request.setContent(new ByteArrayInputStream(compressed));
+        request.addHeader(CONTENT_LENGTH, Integer.toString(compressed.length));
+        request.addHeader(CONTENT_ENCODING, GZIP);
+        if (log.isDebugEnabled()) {
+            log.debug("Compressed request payload from " + uncompressedLength
+                    + " to " + compressed.length + " bytes");
+        }
+        return true;
+    }
+
+    /**
+     * Streams the given input through a gzip deflater, returning the
+     * compressed bytes.
+     */
+    static byte[] gzip(InputStream source, long sizeHint) throws IOException {
+        // Most AWS payloads compress at least 3:1
+        int initialCapacity = (int) Math.min(Math.max(sizeHint / 3, 64), Integer.MAX_VALUE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(initialCapacity);
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes, BUFFER_SIZE);
+        byte[] buf = BufferPool.acquire(BUFFER_SIZE);
+        try {
+            int n;
+            while ((n = source.read(buf)) > -1) {
+                gzip.write(buf, 0, n);
+            }
+            gzip.finish();
+        } finally {
+            BufferPool.release(buf);
+            gzip.close();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -37,7 +37,14 @@ public class ClientConnectionManagerFactory {
         if (orig instanceof Wrapped)
             throw new IllegalArgumentException();
         final Class<?>[] interfaces;
-        if (orig instanceof ConnPoolControl) {
+        if (orig instanceof SdkConnPoolControl) {
+            interfaces = new Class<?>[] {
+                    ClientConnectionManager.class,
+                    ConnPoolControl.class,
+                    SdkConnPoolControl.class,
+                    Wrapped.class
+            };
+        } else if (orig instanceof ConnPoolControl) {
             interfaces = new Class<?>[] { 
                     ClientConnectionManager.class,
                     ConnPoolControl.class,
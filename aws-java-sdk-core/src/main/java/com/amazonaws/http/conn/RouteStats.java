@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.conn;
+
+import org.apache.http.annotation.Immutable;
+import org.apache.http.conn.routing.HttpRoute;
+
+/**
+ * A point-in-time snapshot of the connection pool statistics of a single
+ * route.
+ */
+@Immutable
+public final class RouteStats {
+    private final HttpRoute route;
+    private final int available;
+    private final int leased;
+    private final int pending;
+    private final int max;
+    private final long leaseCount;
+    private final long totalLeaseWaitNanos;
+    private final long maxLeaseWaitNanos;
+    private final long openedCount;
+
+    RouteStats(HttpRoute route, int available, int leased, int pending,
+            int max, long leaseCount, long totalLeaseWaitNanos,
+            long maxLeaseWaitNanos, long openedCount) {
+        this.route = route;
+        this.available = available;
+        this.leased = leased;
+        this.pending = pending;
+        this.max = max;
+        this.leaseCount = leaseCount;
+        this.totalLeaseWaitNanos = totalLeaseWaitNanos;
+        this.maxLeaseWaitNanos = maxLeaseWaitNanos;
+        this.openedCount = openedCount;
+    }
+
+    /** Returns the route of these statistics. */
+    public HttpRoute getRoute() { return route; }
+
+    /** Returns the number of idle persistent connections of the route. */
+    public int getAvailable() { return available; }
+
+    /** Returns the number of connections of the route currently in use. */
+    public int getLeased() { return leased; }
+
+    /** Returns the number of connection requests blocked awaiting a free connection. */
+    public int getPending() { return pending; }
+
+    /** Returns the current maximum number of connections allowed for the route. */
+    public int getMax() { return max; }
+
+    /** Returns the number of connections leased so far for the route. */
+    public long getLeaseCount() { return leaseCount; }
+
+    /** Returns the average time in milliseconds spent waiting to lease a connection. */
+    public double getAverageLeaseWaitMillis() {
+        return leaseCount == 0 ? 0 : totalLeaseWaitNanos / (leaseCount * 1e6);
+    }
+
+    /** Returns the longest time in milliseconds spent waiting to lease a connection. */
+    public double getMaxLeaseWaitMillis() {
+        return maxLeaseWaitNanos / 1e6;
+    }
+
+    /**
+     * Returns the number of new physical connections opened so far for the
+     * route, which reflects the connection churn.
+     */
+    public long getOpenedCount() { return openedCount; }
+
+    @Override
+    public String toString() {
+        return "[route: " + route + "; available: " + available
+            + "; leased: " + leased + "; pending: " + pending
+            + "; max: " + max + "; leases: " + leaseCount
+            + "; opened: " + openedCount + "]";
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.conn;
+
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.params.HttpParams;
+
+/**
+ * Per-route control and statistics of an AWS SDK connection pool, in addition
+ * to what is available via {@link org.apache.http.pool.ConnPoolControl}.
+ */
+public interface SdkConnPoolControl {
+    /**
+     * Returns the statistics of the route to the given target host; or null if
+     * the pool currently has no such route.
+     */
+    RouteStats getRouteStats(HttpHost target);
+
+    /**
+     * Returns the statistics of all the routes currently known to the pool.
+     */
+    List<RouteStats> getAllRouteStats();
+
+    /**
+     * Returns the time in nanoseconds the current thread spent waiting for
+     * its last connection lease from the pool, and forgets it; or -1 if the
+     * thread hasn't leased a connection since the last call.
+     */
+    long takeLeaseWaitNanos();
+
+    /**
+     * Makes sure up to the given number of connections of the given route are
+     * open and idle in the pool, opening as many as needed, so that subsequent
+     * requests can reuse them without paying for the connection (and TLS
+     * handshake) latency.
+     *
+     * @param route the route to pre-open connections for
+     * @param count the number of connections to open
+     * @param params the http parameters used to open the connections
+     *
+     * @return the number of new connections actually opened
+     */
+    int warmUp(HttpRoute route, int count, HttpParams params);
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.conn;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import com.amazonaws.internal.SdkSSLSocket;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * A {@link PoolingClientConnectionManager} that keeps per-route statistics,
+ * supports pre-opening connections, and can optionally partition the pool
+ * among the active routes according to their weights.
+ * <p>
+ * With fair sharing enabled, each active route is allowed at most its
+ * weighted share of the total number of connections (but at least one, and
+ * no more than the per-route maximum), so that a single hot route cannot take
+ * the whole pool. The shares are recomputed whenever a new route shows up, and
+ * whenever idle routes are pruned upon closing idle connections.
+ */
+@ThreadSafe
+public class SdkPoolingClientConnectionManager extends PoolingClientConnectionManager
+        implements SdkConnPoolControl {
+    private static final Log log = LogFactory.getLog(SdkPoolingClientConnectionManager.class);
+
+    /** Default weight of a route without an explicitly configured weight. */
+    public static final int DEFAULT_ROUTE_WEIGHT = 1;
+
+    private final ConcurrentMap<HttpRoute, RouteCounters> routes =
+        new ConcurrentHashMap<HttpRoute, RouteCounters>();
+    /** The known routes by target host, with the port made explicit. */
+    private final ConcurrentMap<HttpHost, HttpRoute> routesByTarget =
+        new ConcurrentHashMap<HttpHost, HttpRoute>();
+    /**
+     * Number of connections opened per target host; keyed by host rather than
+     * route as that's all the connection operator gets to see.
+     */
+    private final ConcurrentMap<HttpHost, AtomicLong> openedPerHost =
+        new ConcurrentHashMap<HttpHost, AtomicLong>();
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final boolean fairSharing;
+    private final Map<String, Integer> routeWeights;
+    private volatile int keepWarmCount;
+    private volatile HttpParams keepWarmParams;
+    /** Whether a keep-warm round is submitted and not yet completed. */
+    private final AtomicBoolean keepWarmPending = new AtomicBoolean();
+    private volatile Future<?> keepWarmTask;
+    /**
+     * The time in nanoseconds the current thread last waited to lease a
+     * connection, or -1 if not yet known.
+     */
+    private final ThreadLocal<long[]> leaseWaitNanos = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[] { -1 };
+        }
+    };
+
+    /**
+     * @param schemeRegistry the scheme registry
+     * @param connectionTTL maximum time to live of a connection
+     * @param unit time unit of the connection TTL
+     * @param maxTotal the maximum number of connections in the pool
+     * @param maxPerRoute the maximum number of connections per route
+     * @param fairSharing true if the pool is to be partitioned among the active
+     *        routes according to their weights
+     * @param routeWeights weights of the routes by target host name; routes
+     *        not in the map are weighted {@value #DEFAULT_ROUTE_WEIGHT}
+     */
+    public SdkPoolingClientConnectionManager(SchemeRegistry schemeRegistry,
+            long connectionTTL, TimeUnit unit, int maxTotal, int maxPerRoute,
+            boolean fairSharing, Map<String, Integer> routeWeights) {
+        super(schemeRegistry, connectionTTL, unit);
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = Math.min(maxPerRoute, maxTotal);
+        this.fairSharing = fairSharing;
+        this.routeWeights = routeWeights == null
+            ? Collections.<String, Integer>emptyMap()
+            : new HashMap<String, Integer>(routeWeights);
+        setMaxTotal(maxTotal);
+        setDefaultMaxPerRoute(this.maxPerRoute);
+    }
+
+    /**
+     * Note this is invoked by the super class constructor, so the returned
+     * operator must not access any instance state until it is first used.
+     */
+    @Override
+    protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schreg) {
+        return new CountingConnectionOperator(super.createConnectionOperator(schreg));
+    }
+
+    @Override
+    public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final RouteCounters counters = countersOf(route);
+        final ClientConnectionRequest request = super.requestConnection(route, state);
+        return new ClientConnectionRequest() {
+            @Override
+            public ManagedClientConnection getConnection(long timeout, TimeUnit tunit)
+                    throws InterruptedException, ConnectionPoolTimeoutException {
+                final long start = System.nanoTime();
+                ManagedClientConnection conn = request.getConnection(timeout, tunit);
+                final long waitNanos = System.nanoTime() - start;
+                counters.leased(waitNanos);
+                leaseWaitNanos.get()[0] = waitNanos;
+                return conn;
+            }
+
+            @Override
+            public void abortRequest() {
+                request.abortRequest();
+            }
+        };
+    }
+
+    /**
+     * Closes the idle connections, and then stops tracking the routes that no
+     * longer have any connections, so that their share of the pool can be
+     * given to the remaining routes. If keep-warm is enabled, the minimum
+     * number of connections of each route are touched (or re-opened) first so
+     * they are not closed; as this may take new connections and TLS
+     * handshakes, it is all done in the background by the keep-warm thread,
+     * rather than by the caller such as the shared
+     * {@link com.amazonaws.http.IdleConnectionReaper} thread.
+     */
+    @Override
+    public void closeIdleConnections(final long idleTimeout, final TimeUnit tunit) {
+        final int keepWarm = keepWarmCount;
+        if (keepWarm <= 0) {
+            closeIdleConnections(idleTimeout, tunit, 0);
+            return;
+        }
+        if (!keepWarmPending.compareAndSet(false, true))
+            return;     // the previous round is still in progress
+        try {
+            keepWarmTask = KeepWarmHolder.executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        closeIdleConnections(idleTimeout, tunit, keepWarm);
+                    } catch (RuntimeException e) {
+                        // e.g. the pool has been shut down in the meantime
+                        log.debug("Unable to keep connections warm", e);
+                    } finally {
+                        keepWarmPending.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            keepWarmPending.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the last submitted keep-warm round, or null if none; for testing
+     * purposes.
+     */
+    Future<?> getKeepWarmTask() {
+        return keepWarmTask;
+    }
+
+    private void closeIdleConnections(long idleTimeout, TimeUnit tunit, int keepWarm) {
+        if (keepWarm > 0) {
+            for (HttpRoute route : routes.keySet()) {
+                // Leased connections are in use, and so already warm
+                int deficit = keepWarm - getStats(route).getLeased();
+                if (deficit > 0)
+                    warmUp(route, deficit, keepWarmParams);
+            }
+        }
+        super.closeIdleConnections(idleTimeout, tunit);
+        boolean pruned = false;
+        for (HttpRoute route : routes.keySet()) {
+            PoolStats stats = getStats(route);
+            if (stats.getLeased() + stats.getAvailable() + stats.getPending() == 0) {
+                routes.remove(route);
+                routesByTarget.remove(targetOf(route.getTargetHost()), route);
+                openedPerHost.remove(hostOf(route));
+                pruned = true;
+            }
+        }
+        if (pruned && fairSharing)
+            rebalance();
+    }
+
+    @Override
+    public RouteStats getRouteStats(HttpHost target) {
+        HttpRoute route = routesByTarget.get(targetOf(target));
+        return route == null ? null : routeStatsOf(route);
+    }
+
+    @Override
+    public long takeLeaseWaitNanos() {
+        long[] holder = leaseWaitNanos.get();
+        long waitNanos = holder[0];
+        holder[0] = -1;
+        return waitNanos;
+    }
+
+    @Override
+    public List<RouteStats> getAllRouteStats() {
+        List<RouteStats> list = new ArrayList<RouteStats>(routes.size());
+        for (HttpRoute route : routes.keySet())
+            list.add(routeStatsOf(route));
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Connections are leased, opened unless already open, and released back
+     * to the pool one at a time, so that no more than one connection is kept
+     * from the requests at any time. Idle connections being leased are thus
+     * reused (and touched) rather than duplicated. To get a distinct
+     * connection each time, the connections are released with a state unique
+     * to the warm-up, which hides them from the leases without that state,
+     * and are given back their empty state at the end. Tunnelled routes (i.e.
+     * HTTPS via a proxy) are not supported and are skipped.
+     */
+    @Override
+    public int warmUp(HttpRoute route, int count, HttpParams params) {
+        if (route.isTunnelled()) {
+            log.debug("Skipped warming up connections for tunnelled route " + route);
+            return 0;
+        }
+        countersOf(route);
+        PoolStats stats = getStats(route);
+        count = Math.min(count, stats.getMax() - stats.getLeased());
+        if (count <= 0)
+            return 0;
+        final Object warmedUp = new Object();
+        final long timeout = HttpConnectionParams.getConnectionTimeout(params);
+        final HttpContext context = new BasicHttpContext();
+        int warm = 0;
+        int opened = 0;
+        try {
+            for (; warm < count; warm++) {
+                ManagedClientConnection conn = leaseLiveConnection(route, timeout);
+                try {
+                    if (!conn.isOpen()) {
+                        conn.open(route, context, params);
+                        opened++;
+                    }
+                    conn.setState(warmedUp);
+                    conn.markReusable();
+                } finally {
+                    releaseConnection(conn, -1, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("Interrupted while warming up connections for " + route);
+        } catch (ConnectionPoolTimeoutException e) {
+            log.debug("Unable to lease connections for warm up of " + route, e);
+        } catch (IOException e) {
+            log.debug("Unable to open connections for warm up of " + route, e);
+        } finally {
+            resetState(route, warmedUp, warm, timeout);
+        }
+        return opened;
+    }
+
+    /**
+     * Leases a connection of the given route that is either not yet open, or
+     * open and not stale; stale connections (e.g. closed by the server) are
+     * discarded along the way. The lease is not included in the route
+     * statistics.
+     */
+    private ManagedClientConnection leaseLiveConnection(HttpRoute route,
+            long timeout) throws InterruptedException, ConnectionPoolTimeoutException {
+        for (;;) {
+            ManagedClientConnection conn = super.requestConnection(route, null)
+                .getConnection(timeout, TimeUnit.MILLISECONDS);
+            if (!conn.isOpen() || !conn.isStale())
+                return conn;
+            // Not marked reusable, so it gets closed and removed from the pool
+            releaseConnection(conn, -1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gives the given number of idle connections released with the given
+     * state back their empty state, one at a time, so that they can be
+     * leased by the requests again.
+     */
+    private void resetState(HttpRoute route, Object state, int count, long timeout) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (int i = 0; i < count; i++) {
+                ManagedClientConnection conn = super.requestConnection(route, state)
+                    .getConnection(timeout, TimeUnit.MILLISECONDS);
+                // Unless the connection has been closed in the meantime, in
+                // which case the pool hands out a new one, to be discarded
+                if (conn.isOpen()) {
+                    conn.setState(null);
+                    conn.markReusable();
+                }
+                releaseConnection(conn, -1, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            log.debug("Interrupted while warming up connections for " + route);
+        } catch (ConnectionPoolTimeoutException e) {
+            log.debug("Unable to lease connections for warm up of " + route, e);
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Keeps at least the given number of open connections for each known
+     * route whenever idle connections are closed, such as by the
+     * {@link com.amazonaws.http.IdleConnectionReaper}. Idle connections are
+     * kept alive by being touched, and stale ones are replaced, by a daemon
+     * thread shared by all the connection managers.
+     *
+     * @param count the minimum number of connections to keep open per route;
+     *        or zero to disable
+     * @param params the http parameters used to open the connections
+     */
+    public void setKeepWarm(int count, HttpParams params) {
+        this.keepWarmParams = params;
+        this.keepWarmCount = count;
+    }
+
+    private RouteCounters countersOf(HttpRoute route) {
+        RouteCounters counters = routes.get(route);
+        if (counters == null) {
+            RouteCounters existing = routes.putIfAbsent(route, counters = new RouteCounters());
+            if (existing != null)
+                return existing;
+            routesByTarget.put(targetOf(route.getTargetHost()), route);
+            if (fairSharing)
+                rebalance();
+        }
+        return counters;
+    }
+
+    /**
+     * Recomputes the maximum number of connections of each active route as
+     * its weighted share of the total.
+     */
+    private synchronized void rebalance() {
+        long totalWeight = 0;
+        for (HttpRoute route : routes.keySet())
+            totalWeight += weightOf(route);
+        if (totalWeight == 0)
+            return;
+        for (HttpRoute route : routes.keySet()) {
+            long share = maxTotal * weightOf(route) / totalWeight;
+            setMaxPerRoute(route, (int) Math.max(1, Math.min(share, maxPerRoute)));
+        }
+    }
+
+    private int weightOf(HttpRoute route) {
+        Integer weight = routeWeights.get(route.getTargetHost().getHostName());
+        return weight == null ? DEFAULT_ROUTE_WEIGHT : Math.max(0, weight);
+    }
+
+    private RouteStats routeStatsOf(HttpRoute route) {
+        PoolStats stats = getStats(route);
+        RouteCounters counters = routes.get(route);
+        AtomicLong opened = openedPerHost.get(hostOf(route));
+        return new RouteStats(route, stats.getAvailable(), stats.getLeased(),
+                stats.getPending(), stats.getMax(),
+                counters == null ? 0 : counters.leaseCount.get(),
+                counters == null ? 0 : counters.totalLeaseWaitNanos.get(),
+                counters == null ? 0 : counters.maxLeaseWaitNanos.get(),
+                opened == null ? 0 : opened.get());
+    }
+
+    /**
+     * Returns the given host with an unspecified port replaced by the default
+     * port of the scheme, so that equal hosts refer to the same target.
+     */
+    private static HttpHost targetOf(HttpHost host) {
+        return host.getPort() >= 0
+            ? host
+            : new HttpHost(host.getHostName(), portOf(host), host.getSchemeName());
+    }
+
+    private static int portOf(HttpHost host) {
+        if (host.getPort() >= 0)
+            return host.getPort();
+        return "https".equalsIgnoreCase(host.getSchemeName()) ? 443 : 80;
+    }
+
+    /** Returns the host to which the physical connections of a route are made. */
+    private static HttpHost hostOf(HttpRoute route) {
+        HttpHost proxy = route.getProxyHost();
+        return proxy == null ? route.getTargetHost() : proxy;
+    }
+
+    private void opened(HttpHost target) {
+        AtomicLong count = openedPerHost.get(target);
+        if (count == null) {
+            AtomicLong existing = openedPerHost.putIfAbsent(target, count = new AtomicLong());
+            if (existing != null)
+                count = existing;
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Used to avoid creating the keep-warm thread until absolutely necessary.
+     */
+    private static final class KeepWarmHolder {
+        /** A single daemon thread keeping the connections of all pools warm. */
+        private static final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName("java-sdk-connection-keep-warm");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    /** Cumulative counters of a route. */
+    private static class RouteCounters {
+        final AtomicLong leaseCount = new AtomicLong();
+        final AtomicLong totalLeaseWaitNanos = new AtomicLong();
+        final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+
+        void leased(long waitNanos) {
+            leaseCount.incrementAndGet();
+            totalLeaseWaitNanos.addAndGet(waitNanos);
+            long max;
+            while (waitNanos > (max = maxLeaseWaitNanos.get())) {
+                if (maxLeaseWaitNanos.compareAndSet(max, waitNanos))
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Counts the physical connections opened by the delegate operator.
+     */
+    private class CountingConnectionOperator implements ClientConnectionOperator {
+        private final ClientConnectionOperator delegate;
+
+        CountingConnectionOperator(ClientConnectionOperator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public OperatedClientConnection createConnection() {
+            return delegate.createConnection();
+        }
+
+        @Override
+        public void openConnection(OperatedClientConnection conn, HttpHost target,
+                InetAddress local, HttpContext context, HttpParams params)
+                throws IOException {
+            delegate.openConnection(conn, target, local, context, params);
+            opened(target);
+            AWSRequestMetrics awsRequestMetrics = requestMetricsOf(context);
+            if (awsRequestMetrics != null)
+                awsRequestMetrics.incrementCounter(Field.HttpClientPoolRouteOpenedCount);
+            captureHandshakeMetrics(conn, context);
+        }
+
+        @Override
+        public void updateSecureConnection(OperatedClientConnection conn,
+                HttpHost target, HttpContext context, HttpParams params)
+                throws IOException {
+            delegate.updateSecureConnection(conn, target, context, params);
+            captureHandshakeMetrics(conn, context);
+        }
+
+        /**
+         * Captures the TLS handshake metrics of a newly opened (or layered)
+         * connection into the metrics of the request being executed, if any.
+         */
+        private void captureHandshakeMetrics(OperatedClientConnection conn,
+                HttpContext context) {
+            AWSRequestMetrics awsRequestMetrics = requestMetricsOf(context);
+            Socket socket = conn.getSocket();
+            if (awsRequestMetrics == null || !(socket instanceof SdkSSLSocket))
+                return;
+            SdkSSLSocket ssl = (SdkSSLSocket) socket;
+            if (!ssl.isHandshakeTimed())
+                return;
+            awsRequestMetrics.incrementCounter(Field.HttpClientTlsHandshakeCount);
+            if (ssl.isSessionResumed())
+                awsRequestMetrics.incrementCounter(Field.HttpClientTlsResumedHandshakeCount);
+            awsRequestMetrics.getTimingInfo().addSubMeasurement(
+                    Field.HttpClientTlsHandshakeTime.name(),
+                    TimingInfo.unmodifiableTimingInfo(
+                            ssl.getHandshakeStartNano(), ssl.getHandshakeEndNano()));
+        }
+
+        /**
+         * Returns the enabled metrics of the request being executed in the
+         * given context; or null if there is none.
+         */
+        private AWSRequestMetrics requestMetricsOf(HttpContext context) {
+            if (context == null)
+                return null;
+            AWSRequestMetrics awsRequestMetrics = (AWSRequestMetrics) context
+                    .getAttribute(AWSRequestMetrics.class.getSimpleName());
+            return awsRequestMetrics == null || !awsRequestMetrics.isEnabled()
+                    ? null : awsRequestMetrics;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
@@ -37,17 +38,27 @@ import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
 
 import com.amazonaws.internal.SdkSSLSocket;
 import com.amazonaws.internal.SdkSocket;
 
 /**
  * Used to enforce the preferred TLS protocol during SSL handshake.
+ * <p>
+ * TLS sessions are cached by the client session context of the given
+ * {@link SSLContext}, and are resumed by subsequent connections to the same
+ * host and port, including connections of other clients sharing the same
+ * context (as is the case by default, with {@link SSLContext#getDefault()}).
+ * The number of handshakes, and how many of them resumed a cached session,
+ * are counted for diagnostics.
  */
 @ThreadSafe
 public class SdkTLSSocketFactory extends SSLSocketFactory {
     private static final Log log = LogFactory.getLog(SdkTLSSocketFactory.class);
 	private final SSLContext sslContext;
+    private final AtomicLong handshakeCount = new AtomicLong();
+    private final AtomicLong resumedHandshakeCount = new AtomicLong();
     
     public SdkTLSSocketFactory(final SSLContext sslContext,
             final X509HostnameVerifier hostnameVerifier) {
@@ -124,9 +135,10 @@ public class SdkTLSSocketFactory extends SSLSocketFactory {
         if (log.isDebugEnabled())
             log.debug("connecting to " + remoteAddress.getAddress() + ":"
                     + remoteAddress.getPort());
+        final Socket connectedSocket;
         try {
-            verifyMasterSecret(
-                    super.connectSocket(socket, remoteAddress, localAddress, params));
+            connectedSocket = super.connectSocket(socket, remoteAddress, localAddress, params);
+            verifyMasterSecret(connectedSocket);
         } catch (final SSLException sslEx) {
             // clear any related sessions from our cache
             if (log.isDebugEnabled()) {
@@ -135,9 +147,69 @@ public class SdkTLSSocketFactory extends SSLSocketFactory {
             clearSessionCache(sslContext.getClientSessionContext(), remoteAddress);
             throw sslEx;
         }
-        if (socket instanceof SSLSocket)
-            return new SdkSSLSocket((SSLSocket)socket);
-        return new SdkSocket(socket);
+        // The connected socket is the one layered over the given plain socket
+        if (connectedSocket instanceof SdkSSLSocket)
+            return connectedSocket;
+        if (connectedSocket instanceof SSLSocket)
+            return new SdkSSLSocket((SSLSocket)connectedSocket);
+        return new SdkSocket(connectedSocket);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Times the TLS handshake, and determines whether a cached session has
+     * been resumed.
+     */
+    @Override
+    public Socket createLayeredSocket(
+            final Socket socket,
+            final String target,
+            final int port,
+            final HttpContext context) throws IOException {
+        final long startMillis = System.currentTimeMillis();
+        final long startNano = System.nanoTime();
+        final Socket layered = super.createLayeredSocket(socket, target, port, context);
+        final long endNano = System.nanoTime();
+        if (!(layered instanceof SSLSocket))
+            return layered;
+        final SSLSocket ssl = (SSLSocket) layered;
+        final SSLSession session = ssl.getSession();
+        // A resumed session retains the creation time of the full handshake
+        final boolean resumed = session != null
+                && session.getCreationTime() < startMillis;
+        handshakeCount.incrementAndGet();
+        if (resumed)
+            resumedHandshakeCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug((resumed ? "TLS session resumed" : "TLS session negotiated")
+                    + " with " + target + ":" + port + " in "
+                    + (endNano - startNano) / 1000000 + " ms");
+        }
+        return new SdkSSLSocket(ssl, startNano, endNano, resumed);
+    }
+
+    /**
+     * Returns the number of TLS handshakes performed so far by this socket
+     * factory.
+     */
+    public long getHandshakeCount() {
+        return handshakeCount.get();
+    }
+
+    /**
+     * Returns the number of TLS handshakes performed so far by this socket
+     * factory that resumed a previously cached session.
+     */
+    public long getResumedHandshakeCount() {
+        return resumedHandshakeCount.get();
+    }
+
+    /**
+     * Returns the SSL context used by this socket factory.
+     */
+    public SSLContext getSSLContext() {
+        return sslContext;
     }
 
     /**
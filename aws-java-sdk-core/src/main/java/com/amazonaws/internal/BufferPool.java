@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.SDKGlobalConfiguration;
+
+/**
+ * A per-thread cache of the byte arrays used as transient IO buffers, so that
+ * streaming request and response bodies doesn't allocate a new buffer for
+ * every copy.
+ * <p>
+ * Buffers come in power-of-two size classes from 4 KB to
+ * {@value #MAX_POOLED_SIZE} bytes; a request for a larger buffer is served by
+ * a plain allocation. A buffer obtained from {@link #acquire(int)} should be
+ * handed back with {@link #release(byte[])} by the same thread, once nothing
+ * else refers to it. Buffers that are never released are simply garbage
+ * collected. Each thread retains at most {@value #BUFFERS_PER_SIZE_CLASS} idle
+ * buffers per size class, and at most {@link #MAX_RETAINED_BYTES} bytes of
+ * idle buffers overall: 64 KB by default, or the value of the
+ * {@value SDKGlobalConfiguration#BUFFER_POOL_MAX_RETAINED_BYTES_SYSTEM_PROPERTY}
+ * system property; 0 disables the caching.
+ */
+public enum BufferPool {
+    ;
+    private static final int MIN_SIZE_SHIFT = 12;
+    private static final int MAX_SIZE_SHIFT = 16;
+    private static final int SIZE_CLASSES = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+
+    /** The largest buffer size that is pooled. */
+    public static final int MAX_POOLED_SIZE = 1 << MAX_SIZE_SHIFT;
+
+    /** Maximum number of idle buffers retained per thread and size class. */
+    static final int BUFFERS_PER_SIZE_CLASS = 2;
+
+    static final int DEFAULT_MAX_RETAINED_BYTES = 64 * 1024;
+
+    /** Maximum total size of the idle buffers retained per thread. */
+    static final int MAX_RETAINED_BYTES = maxRetainedBytes();
+
+    /**
+     * The idle buffers of a thread, by size class, and their total size.
+     */
+    private static final class IdleBuffers {
+        final byte[][] buffers = new byte[SIZE_CLASSES * BUFFERS_PER_SIZE_CLASS][];
+        int retainedBytes;
+    }
+
+    private static final ThreadLocal<IdleBuffers> idleBuffers = new ThreadLocal<IdleBuffers>() {
+        @Override
+        protected IdleBuffers initialValue() {
+            return new IdleBuffers();
+        }
+    };
+
+    private static int maxRetainedBytes() {
+        String value = System.getProperty(
+                SDKGlobalConfiguration.BUFFER_POOL_MAX_RETAINED_BYTES_SYSTEM_PROPERTY);
+        if (value == null)
+            return DEFAULT_MAX_RETAINED_BYTES;
+        try {
+            int max = Integer.parseInt(value.trim());
+            if (max >= 0)
+                return max;
+        } catch (NumberFormatException e) {
+        }
+        LogFactory.getLog(BufferPool.class).warn("Ignoring invalid value of "
+                + SDKGlobalConfiguration.BUFFER_POOL_MAX_RETAINED_BYTES_SYSTEM_PROPERTY + ": " + value);
+        return DEFAULT_MAX_RETAINED_BYTES;
+    }
+
+    /**
+     * Returns a buffer of at least the given size, reusing one previously
+     * released by the current thread if possible. The content of the returned
+     * buffer is undefined.
+     */
+    public static byte[] acquire(int minSize) {
+        if (minSize < 0)
+            throw new IllegalArgumentException("Negative buffer size: " + minSize);
+        int sizeClass = sizeClassOf(minSize);
+        if (sizeClass < 0)
+            return new byte[minSize];
+        IdleBuffers idle = idleBuffers.get();
+        int first = sizeClass * BUFFERS_PER_SIZE_CLASS;
+        for (int i = first; i < first + BUFFERS_PER_SIZE_CLASS; i++) {
+            byte[] buffer = idle.buffers[i];
+            if (buffer != null) {
+                idle.buffers[i] = null;
+                idle.retainedBytes -= buffer.length;
+                return buffer;
+            }
+        }
+        return new byte[1 << (sizeClass + MIN_SIZE_SHIFT)];
+    }
+
+    /**
+     * Returns the given buffer to the current thread's cache. The caller must
+     * not use the buffer afterwards. Buffers whose size isn't exactly that of
+     * a size class, and buffers released while the cache is full or would
+     * exceed {@link #MAX_RETAINED_BYTES}, are left to the garbage collector;
+     * releasing the same buffer twice has no effect.
+     */
+    public static void release(byte[] buffer) {
+        if (buffer == null)
+            return;
+        int sizeClass = sizeClassOf(buffer.length);
+        if (sizeClass < 0 || buffer.length != 1 << (sizeClass + MIN_SIZE_SHIFT))
+            return;
+        IdleBuffers idle = idleBuffers.get();
+        if (idle.retainedBytes + buffer.length > MAX_RETAINED_BYTES)
+            return;
+        int first = sizeClass * BUFFERS_PER_SIZE_CLASS;
+        int free = -1;
+        for (int i = first; i < first + BUFFERS_PER_SIZE_CLASS; i++) {
+            if (idle.buffers[i] == buffer)
+                return;
+            if (idle.buffers[i] == null && free == -1)
+                free = i;
+        }
+        if (free != -1) {
+            idle.buffers[free] = buffer;
+            idle.retainedBytes += buffer.length;
+        }
+    }
+
+    /**
+     * Returns the index of the smallest size class holding buffers of at least
+     * the given size, or -1 if the size is too large to be pooled.
+     */
+    static int sizeClassOf(int size) {
+        if (size > MAX_POOLED_SIZE)
+            return -1;
+        if (size <= 1 << MIN_SIZE_SHIFT)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SIZE_SHIFT;
+    }
+
+    /**
+     * Returns the number of idle buffers cached by the current thread; for
+     * testing purposes.
+     */
+    static int idleCount() {
+        int count = 0;
+        for (byte[] buffer : idleBuffers.get().buffers) {
+            if (buffer != null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total size of the idle buffers cached by the current
+     * thread; for testing purposes.
+     */
+    static int retainedBytes() {
+        return idleBuffers.get().retainedBytes;
+    }
+}
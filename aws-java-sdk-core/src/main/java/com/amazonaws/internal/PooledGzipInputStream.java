@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A streaming gzip decompressor that, unlike {@link java.util.zip.GZIPInputStream},
+ * borrows its {@link Inflater} from a shared pool and returns it upon close,
+ * avoiding the allocation and release of native zlib state per response.
+ * <p>
+ * Only a single gzip member is read; any data following the first member's
+ * trailer is ignored, which is sufficient for HTTP response bodies.
+ */
+public class PooledGzipInputStream extends InflaterInputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int BUFFER_SIZE = 1024 * 8;
+
+    /** Maximum number of idle inflaters retained for reuse. */
+    static final int MAX_POOLED_INFLATERS = 64;
+
+    private static final InflaterPool pool = new InflaterPool(MAX_POOLED_INFLATERS);
+
+    private final CRC32 crc = new CRC32();
+    private boolean eos;
+    private boolean closed;
+
+    public PooledGzipInputStream(InputStream in) throws IOException {
+        super(in, pool.acquire(), BUFFER_SIZE);
+        try {
+            readHeader();
+        } catch (IOException e) {
+            releaseInflater();
+            throw e;
+        } catch (RuntimeException e) {
+            releaseInflater();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (eos)
+            return -1;
+        int n = super.read(b, off, len);
+        if (n == -1) {
+            readTrailer();
+            eos = true;
+        } else {
+            crc.update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                // The inflater is not ended by the super class since it was
+                // explicitly provided
+                super.close();
+            } finally {
+                releaseInflater();
+            }
+        }
+    }
+
+    private void releaseInflater() {
+        pool.release(inf);
+    }
+
+    private void readHeader() throws IOException {
+        if (readUShort() != GZIP_MAGIC)
+            throw new ZipException("Not in GZIP format");
+        if (readUByte() != 8)
+            throw new ZipException("Unsupported compression method");
+        int flg = readUByte();
+        // Skip MTIME, XFL, and OS fields
+        skipBytes(6);
+        if ((flg & FEXTRA) == FEXTRA)
+            skipBytes(readUShort());
+        if ((flg & FNAME) == FNAME)
+            skipZeroTerminated();
+        if ((flg & FCOMMENT) == FCOMMENT)
+            skipZeroTerminated();
+        if ((flg & FHCRC) == FHCRC)
+            skipBytes(2);
+    }
+
+    private void readTrailer() throws IOException {
+        int remaining = inf.getRemaining();
+        int pos = len - remaining;
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b;
+            if (remaining > 0) {
+                b = buf[pos++] & 0xff;
+                remaining--;
+            } else {
+                b = in.read();
+                if (b == -1)
+                    throw new EOFException("Unexpected end of GZIP trailer");
+            }
+            value |= ((long) b) << (8 * i);
+        }
+        long expectedCrc = value & 0xffffffffL;
+        long expectedSize = value >>> 32;
+        if (expectedCrc != crc.getValue())
+            throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+        if (expectedSize != (inf.getBytesWritten() & 0xffffffffL))
+            throw new ZipException("Corrupt GZIP trailer: size mismatch");
+    }
+
+    private int readUByte() throws IOException {
+        int b = in.read();
+        if (b == -1)
+            throw new EOFException("Unexpected end of GZIP header");
+        return b;
+    }
+
+    private int readUShort() throws IOException {
+        int b = readUByte();
+        return (readUByte() << 8) | b;
+    }
+
+    private void skipBytes(int n) throws IOException {
+        while (n-- > 0)
+            readUByte();
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readUByte() != 0)
+            ;
+    }
+
+    /**
+     * A bounded pool of {@link Inflater}s configured for raw deflate data.
+     */
+    static final class InflaterPool {
+        private final Queue<Inflater> idle = new ConcurrentLinkedQueue<Inflater>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int maxSize;
+
+        InflaterPool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        Inflater acquire() {
+            Inflater inflater = idle.poll();
+            if (inflater == null)
+                return new Inflater(true);
+            size.decrementAndGet();
+            return inflater;
+        }
+
+        void release(Inflater inflater) {
+            inflater.reset();
+            if (size.incrementAndGet() <= maxSize) {
+                idle.offer(inflater);
+            } else {
+                size.decrementAndGet();
+                inflater.end();
+            }
+        }
+
+        int idleCount() {
+            return size.get();
+        }
+    }
+
+    static InflaterPool pool() {
+        return pool;
+    }
+}
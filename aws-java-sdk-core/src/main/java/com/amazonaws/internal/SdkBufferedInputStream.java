@@ -19,21 +19,38 @@ import static com.amazonaws.util.SdkRuntime.shouldAbort;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.amazonaws.AbortedException;
 
 /**
  * A buffered input stream that is both SDK metric aware, and can be aborted
  * via thread interrupt.
+ * <p>
+ * The internal buffer is drawn from the {@link BufferPool}, and returned to it
+ * when the stream is closed while no other thread is reading from it.
  */
 public class SdkBufferedInputStream extends BufferedInputStream implements
         MetricAware {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Number of threads currently in a method using the buffer, offset by
+     * {@link #RELEASED} once the buffer is returned to the pool.
+     */
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private static final int RELEASED = Integer.MIN_VALUE / 2;
+
     public SdkBufferedInputStream(InputStream in) {
-        super(in);
+        this(in, DEFAULT_BUFFER_SIZE);
     }
 
     public SdkBufferedInputStream(InputStream in, int size) {
-        super(in, size);
+        // Validates the size; the one byte buffer allocated by the super
+        // class is immediately replaced by a pooled one
+        super(in, size <= 0 ? size : 1);
+        buf = BufferPool.acquire(size);
     }
 
     @Override
@@ -67,19 +84,34 @@ public class SdkBufferedInputStream extends BufferedInputStream implements
     @Override
     public int read() throws IOException {
         abortIfNeeded();
-        return super.read();
+        readers.incrementAndGet();
+        try {
+            return super.read();
+        } finally {
+            readers.decrementAndGet();
+        }
     }
 
     @Override
     public int read(byte b[], int off, int len) throws IOException {
         abortIfNeeded();
-        return super.read(b, off, len);
+        readers.incrementAndGet();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            readers.decrementAndGet();
+        }
     }
 
     @Override
     public long skip(long n) throws IOException {
         abortIfNeeded();
-        return super.skip(n);
+        readers.incrementAndGet();
+        try {
+            return super.skip(n);
+        } finally {
+            readers.decrementAndGet();
+        }
     }
 
     @Override
@@ -90,7 +122,15 @@ public class SdkBufferedInputStream extends BufferedInputStream implements
 
     @Override
     public void close() throws IOException {
+        byte[] buffer = buf;
         super.close();
+        // The buffer is detached by super.close() before the readers are
+        // checked, so a read starting afterwards finds the stream closed; one
+        // already in progress, e.g. when closed by another thread to abort,
+        // may still be filling it, so it is then left to the garbage
+        // collector. Concurrent closes release it at most once.
+        if (buffer != null && readers.compareAndSet(0, RELEASED))
+            BufferPool.release(buffer);
         abortIfNeeded();
     }
 
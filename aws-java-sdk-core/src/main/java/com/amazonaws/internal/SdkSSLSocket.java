@@ -33,13 +33,64 @@ public class SdkSSLSocket extends SSLSocket {
     private static final Log log = LogFactory.getLog(SdkSSLSocket.class);
 
     private final SSLSocket sock;
+    private final long handshakeStartNano;
+    private final long handshakeEndNano;
+    private final boolean sessionResumed;
 
     public SdkSSLSocket(SSLSocket sock) {
+        this(sock, -1, -1, false);
+    }
+
+    /**
+     * @param sock the underlying SSL socket
+     * @param handshakeStartNano the start time of the TLS handshake in nano
+     *        seconds; or -1 if unknown
+     * @param handshakeEndNano the end time of the TLS handshake in nano
+     *        seconds; or -1 if unknown
+     * @param sessionResumed true if the handshake resumed a previously cached
+     *        TLS session rather than negotiating a new one
+     */
+    public SdkSSLSocket(SSLSocket sock, long handshakeStartNano,
+            long handshakeEndNano, boolean sessionResumed) {
         this.sock = sock;
+        this.handshakeStartNano = handshakeStartNano;
+        this.handshakeEndNano = handshakeEndNano;
+        this.sessionResumed = sessionResumed;
         if (log.isDebugEnabled())
             log.debug("created: " + endpoint());
     }
 
+    /**
+     * Returns true if the TLS handshake of this socket has been timed.
+     */
+    public boolean isHandshakeTimed() {
+        return handshakeStartNano != -1 && handshakeEndNano != -1;
+    }
+
+    /**
+     * Returns the start time of the TLS handshake in nano seconds; or -1 if
+     * unknown.
+     */
+    public long getHandshakeStartNano() {
+        return handshakeStartNano;
+    }
+
+    /**
+     * Returns the end time of the TLS handshake in nano seconds; or -1 if
+     * unknown.
+     */
+    public long getHandshakeEndNano() {
+        return handshakeEndNano;
+    }
+
+    /**
+     * Returns true if the TLS handshake of this socket resumed a previously
+     * cached session (i.e. an abbreviated handshake); false otherwise.
+     */
+    public boolean isSessionResumed() {
+        return sessionResumed;
+    }
+
     /**
      * Returns the endpoint in the format of "address:port"
      */
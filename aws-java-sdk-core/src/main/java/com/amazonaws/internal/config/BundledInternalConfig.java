@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal.config;
+
+/**
+ * The internal configuration bundled with the SDK in
+ * awssdk_config_default.json, compiled into Java so that loading it doesn't
+ * require initializing Jackson and parsing JSON.
+ * <p>
+ * Generated by BundledInternalConfigGenerator; do not edit.
+ */
+final class BundledInternalConfig {
+
+    private BundledInternalConfig() {}
+
+    /**
+     * Returns a new copy of the bundled configuration, as it would be
+     * unmarshalled from awssdk_config_default.json.
+     */
+    @SuppressWarnings("unchecked")
+    static InternalConfigJsonHelper load() {
+        InternalConfigJsonHelper config = new InternalConfigJsonHelper();
+        config.setDefaultSigner(new SignerConfigJsonHelper("AWS4SignerType"));
+        config.setServiceSigners(
+                signer("importexport", "QueryStringSignerType"),
+                signer("s3", "AWSS3V4SignerType"));
+        config.setRegionSigners();
+        config.setServiceRegionSigners(
+                signer("s3/us-east-1", "S3SignerType"),
+                signer("s3/us-west-1", "S3SignerType"),
+                signer("s3/us-west-2", "S3SignerType"),
+                signer("s3/eu-west-1", "S3SignerType"),
+                signer("s3/ap-southeast-1", "S3SignerType"),
+                signer("s3/ap-southeast-2", "S3SignerType"),
+                signer("s3/ap-northeast-1", "S3SignerType"),
+                signer("s3/sa-east-1", "S3SignerType"),
+                signer("s3/us-gov-west-1", "S3SignerType"),
+                signer("s3/fips-us-gov-west-1", "S3SignerType"),
+                signer("sdb/us-east-1", "QueryStringSignerType"),
+                signer("sdb/us-west-1", "QueryStringSignerType"),
+                signer("sdb/us-west-2", "QueryStringSignerType"),
+                signer("sdb/eu-west-1", "QueryStringSignerType"),
+                signer("sdb/ap-southeast-1", "QueryStringSignerType"),
+                signer("sdb/ap-southeast-2", "QueryStringSignerType"),
+                signer("sdb/ap-northeast-1", "QueryStringSignerType"),
+                signer("sdb/sa-east-1", "QueryStringSignerType"),
+                signer("sdb/us-gov-west-1", "QueryStringSignerType"));
+        config.setHttpClients(
+                httpClient("AmazonSimpleWorkflowClient", "swf"),
+                httpClient("AmazonCloudWatchClient", "monitoring"),
+                httpClient("DataPipelineClient", "datapipeline"),
+                httpClient("AmazonIdentityManagementClient", "iam"),
+                httpClient("AmazonSimpleDBClient", "sdb"),
+                httpClient("AmazonSimpleEmailServiceClient", "email"),
+                httpClient("AWSSecurityTokenServiceClient", "sts"),
+                httpClient("AmazonCognitoIdentityClient", "cognito-identity"),
+                httpClient("AmazonCognitoSyncClient", "cognito-sync"),
+                httpClient("AmazonCloudSearchDomainClient", "cloudsearch"),
+                httpClient("AWSSimpleSystemsManagementClient", "ssm"),
+                httpClient("AWSDirectoryServiceClient", "ds"));
+        config.setHostRegexToRegionMappings(new HostRegexToRegionMappingJsonHelper[] {
+                hostRegexToRegion("(.+\\.)?s3\\.amazonaws\\.com", "us-east-1"),
+                hostRegexToRegion("(.+\\.)?s3-external-1\\.amazonaws\\.com", "us-east-1"),
+                hostRegexToRegion("(.+\\.)?s3-fips-us-gov-west-1\\.amazonaws\\.com", "us-gov-west-1") });
+        config.setUserAgentTemplate(
+                "aws-sdk-{platform}/{version} {os.name}/{os.version} {java.vm.name}/{java.vm.version}/{java.version}{language.and.region}");
+        return config;
+    }
+
+    private static JsonIndex<SignerConfigJsonHelper, SignerConfig> signer(String key, String signerType) {
+        return new JsonIndex<SignerConfigJsonHelper, SignerConfig>(key, new SignerConfigJsonHelper(signerType));
+    }
+
+    private static JsonIndex<HttpClientConfigJsonHelper, HttpClientConfig> httpClient(String key, String serviceName) {
+        return new JsonIndex<HttpClientConfigJsonHelper, HttpClientConfig>(key, new HttpClientConfigJsonHelper(serviceName));
+    }
+
+    private static HostRegexToRegionMappingJsonHelper hostRegexToRegion(String hostNameRegex, String regionName) {
+        HostRegexToRegionMappingJsonHelper mapping = new HostRegexToRegionMappingJsonHelper();
+        mapping.setHostNameRegex(hostNameRegex);
+        mapping.setRegionName(regionName);
+        return mapping;
+    }
+}
@@ -23,6 +23,7 @@ import com.amazonaws.annotation.Immutable;
 public class HostRegexToRegionMapping {
 
     private final String hostNameRegex;
+    private final Pattern hostNamePattern;
     private final String regionName;
 
     public HostRegexToRegionMapping(
@@ -33,7 +34,7 @@ public class HostRegexToRegionMapping {
                     "hostNameRegex must be non-empty");
         }
         try {
-            Pattern.compile(hostNameRegex);
+            this.hostNamePattern = Pattern.compile(hostNameRegex);
         } catch (PatternSyntaxException e) {
             throw new IllegalArgumentException(
                     "Invalid HostRegexToRegionMapping configuration: " +
@@ -56,4 +57,12 @@ public class HostRegexToRegionMapping {
     public String getRegionName() {
         return regionName;
     }
+
+    /**
+     * Returns true if the given host name matches the host name regex of
+     * this mapping, which is only compiled once.
+     */
+    public boolean matches(String hostName) {
+        return hostNamePattern.matcher(hostName).matches();
+    }
 }
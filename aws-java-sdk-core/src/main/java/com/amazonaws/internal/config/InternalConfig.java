@@ -233,18 +233,15 @@ public class InternalConfig {
     }
 
     /**
-     * Loads and returns the AWS Java SDK internal configuration from the
-     * classpath.
+     * Loads and returns the AWS Java SDK internal configuration: the default
+     * configuration, precompiled from {@value #DEFAULT_CONFIG_RESOURCE} into
+     * {@link BundledInternalConfig}, merged with the override configuration
+     * {@value #CONFIG_OVERRIDE_RESOURCE}, if found in the classpath. Only the
+     * latter needs to be parsed from JSON.
      */
     static InternalConfig load() throws JsonParseException,
         JsonMappingException, IOException {
-        URL url = ClassLoaderHelper.getResource("/" + DEFAULT_CONFIG_RESOURCE,
-                InternalConfig.class);
-        if (url == null) { // Try without a leading "/"
-            url = ClassLoaderHelper.getResource(DEFAULT_CONFIG_RESOURCE,
-                    InternalConfig.class);
-        }
-        InternalConfigJsonHelper config = loadfrom(url);
+        InternalConfigJsonHelper config = BundledInternalConfig.load();
         InternalConfigJsonHelper configOverride;
         URL overrideUrl = ClassLoaderHelper.getResource(
                 "/" + CONFIG_OVERRIDE_RESOURCE, InternalConfig.class);
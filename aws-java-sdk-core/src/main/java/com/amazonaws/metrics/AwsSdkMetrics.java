@@ -15,6 +15,7 @@
 
 package com.amazonaws.metrics;
 import static com.amazonaws.SDKGlobalConfiguration.DEFAULT_METRICS_SYSTEM_PROPERTY;
+import static com.amazonaws.SDKGlobalConfiguration.DISABLE_METRIC_ADMIN_MBEAN_SYSTEM_PROPERTY;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -310,10 +311,11 @@ public enum AwsSdkMetrics {
      * Used to disallow re-entrancy in enabling the default metric collection system. 
      */
     private static boolean dirtyEnabling;
-    /** Exports AwsSdkMetrics for JMX access. */
+    /** Exports AwsSdkMetrics for JMX access, unless disabled. */
     static {
         try {
-            registerMetricAdminMBean();
+            if (System.getProperty(DISABLE_METRIC_ADMIN_MBEAN_SYSTEM_PROPERTY) == null)
+                registerMetricAdminMBean();
         } catch(Exception ex) {
             LogFactory.getLog(AwsSdkMetrics.class).warn("", ex);
         }
@@ -828,6 +830,9 @@ public enum AwsSdkMetrics {
             metricTypes.add(Field.HttpClientPoolAvailableCount);
             metricTypes.add(Field.HttpClientPoolLeasedCount);
             metricTypes.add(Field.HttpClientPoolPendingCount);
+            metricTypes.add(Field.HttpClientTlsHandshakeCount);
+            metricTypes.add(Field.HttpClientTlsResumedHandshakeCount);
+            metricTypes.add(Field.HttpClientTlsHandshakeTime);
             metricTypes.add(AWSServiceMetrics.HttpClientGetConnectionTime);
             syncReadOnly();
         }
@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.MetricAware;
 
 /**
@@ -74,8 +75,8 @@ public class MetricInputStreamEntity extends InputStreamEntity {
         final InputStream content = getContent();
         final long length = getContentLength();
         InputStream instream = content;
+        byte[] buffer = BufferPool.acquire(BUFFER_SIZE);
         try {
-            byte[] buffer = new byte[BUFFER_SIZE];
             int l;
             if (length < 0) {
                 // consume until EOF
@@ -99,6 +100,7 @@ public class MetricInputStreamEntity extends InputStreamEntity {
                 }
             }
         } finally {
+            BufferPool.release(buffer);
             helper.reportMetrics();
             instream.close();
         }
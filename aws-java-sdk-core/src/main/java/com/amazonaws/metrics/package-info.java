@@ -53,6 +53,12 @@
  * This metric is collected from the respective <a 
  * href="https://hc.apache.org/httpcomponents-core-ga/httpcore/apidocs/org/apache/http/pool/PoolStats.html"
  * >PoolStats</a>. before the connection of a request is obtained</li>
+ * <li>HttpClientTlsHandshakeCount - Number of TLS handshakes performed to open
+ * new connections for a request.</li>
+ * <li>HttpClientTlsResumedHandshakeCount - Number of TLS handshakes performed
+ * for a request that resumed a previously cached TLS session.</li>
+ * <li>HttpClientTlsHandshakeTime - Number of milliseconds taken by each TLS
+ * handshake performed for a request.</li>
  * <li>HttpRequestTime - Number of milliseconds taken for a logical request/response 
  * round trip to AWS. Captured on a per request type level.</li>
  * <li>HttpClientSendRequestTime - Number of milliseconds taken for a physical request
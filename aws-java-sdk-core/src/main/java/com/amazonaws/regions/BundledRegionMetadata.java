@@ -0,0 +1,425 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The region metadata bundled with the SDK in
+ * /com/amazonaws/regions/regions.xml, compiled into Java so that loading it
+ * doesn't require parsing XML.
+ * <p>
+ * Generated by BundledRegionMetadataGenerator; do not edit.
+ */
+final class BundledRegionMetadata {
+
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+    private static final String HTTP_HTTPS = "http,https";
+
+    /**
+     * One row per region: its name and domain, followed by the service
+     * name, host name and supported protocols of each of its endpoints.
+     */
+    private static final String[][] REGIONS = {
+        { "us-east-1", "amazonaws.com",
+            "autoscaling", "autoscaling.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.us-east-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.us-east-1.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.us-east-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.us-east-1.amazonaws.com", HTTPS,
+            "codedeploy", "codedeploy.us-east-1.amazonaws.com", HTTPS,
+            "cognito-identity", "cognito-identity.us-east-1.amazonaws.com", HTTPS,
+            "cognito-sync", "cognito-sync.us-east-1.amazonaws.com", HTTPS,
+            "config", "config.us-east-1.amazonaws.com", HTTPS,
+            "datapipeline", "datapipeline.us-east-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.us-east-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "ecs", "ecs.us-east-1.amazonaws.com", HTTPS,
+            "elasticache", "elasticache.us-east-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.us-east-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "elastictranscoder", "elastictranscoder.us-east-1.amazonaws.com", HTTPS,
+            "email", "email.us-east-1.amazonaws.com", HTTPS,
+            "glacier", "glacier.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.us-east-1.amazonaws.com", HTTPS,
+            "kms", "kms.us-east-1.amazonaws.com", HTTPS,
+            "lambda", "lambda.us-east-1.amazonaws.com", HTTPS,
+            "logs", "logs.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "machinelearning", "machinelearning.us-east-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "opsworks", "opsworks.us-east-1.amazonaws.com", HTTPS,
+            "rds", "rds.us-east-1.amazonaws.com", HTTPS,
+            "redshift", "redshift.us-east-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.us-east-1.amazonaws.com", HTTP_HTTPS,
+            "ssm", "ssm.us-east-1.amazonaws.com", HTTPS,
+            "storagegateway", "storagegateway.us-east-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "support", "support.us-east-1.amazonaws.com", HTTPS,
+            "swf", "swf.us-east-1.amazonaws.com", HTTPS,
+            "workspaces", "workspaces.us-east-1.amazonaws.com", HTTPS,
+        },
+        { "us-west-1", "amazonaws.com",
+            "autoscaling", "autoscaling.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.us-west-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudsearch", "cloudsearch.us-west-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.us-west-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.us-west-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "elasticache", "elasticache.us-west-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.us-west-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "elastictranscoder", "elastictranscoder.us-west-1.amazonaws.com", HTTPS,
+            "glacier", "glacier.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kms", "kms.us-west-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.us-west-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-us-west-1.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.us-west-1.amazonaws.com", HTTP_HTTPS,
+            "storagegateway", "storagegateway.us-west-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.us-west-1.amazonaws.com", HTTPS,
+        },
+        { "us-west-2", "amazonaws.com",
+            "autoscaling", "autoscaling.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.us-west-2.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.us-west-2.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.us-west-2.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.us-west-2.amazonaws.com", HTTPS,
+            "codedeploy", "codedeploy.us-west-2.amazonaws.com", HTTPS,
+            "datapipeline", "datapipeline.us-west-2.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.us-west-2.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "ecs", "ecs.us-west-2.amazonaws.com", HTTPS,
+            "elasticache", "elasticache.us-west-2.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.us-west-2.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "elastictranscoder", "elastictranscoder.us-west-2.amazonaws.com", HTTPS,
+            "email", "email.us-west-2.amazonaws.com", HTTPS,
+            "glacier", "glacier.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.us-west-2.amazonaws.com", HTTPS,
+            "kms", "kms.us-west-2.amazonaws.com", HTTPS,
+            "lambda", "lambda.us-west-2.amazonaws.com", HTTPS,
+            "logs", "logs.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "monitoring", "monitoring.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.us-west-2.amazonaws.com", HTTPS,
+            "redshift", "redshift.us-west-2.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-us-west-2.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.us-west-2.amazonaws.com", HTTP_HTTPS,
+            "ssm", "ssm.us-west-2.amazonaws.com", HTTPS,
+            "storagegateway", "storagegateway.us-west-2.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.us-west-2.amazonaws.com", HTTPS,
+            "workspaces", "workspaces.us-west-2.amazonaws.com", HTTPS,
+        },
+        { "ap-northeast-1", "amazonaws.com",
+            "autoscaling", "autoscaling.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.ap-northeast-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.ap-northeast-1.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.ap-northeast-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.ap-northeast-1.amazonaws.com", HTTPS,
+            "datapipeline", "datapipeline.ap-northeast-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.ap-northeast-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "ecs", "ecs.ap-northeast-1.amazonaws.com", HTTPS,
+            "elasticache", "elasticache.ap-northeast-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.ap-northeast-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "elastictranscoder", "elastictranscoder.ap-northeast-1.amazonaws.com", HTTPS,
+            "glacier", "glacier.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.ap-northeast-1.amazonaws.com", HTTPS,
+            "kms", "kms.ap-northeast-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.ap-northeast-1.amazonaws.com", HTTPS,
+            "redshift", "redshift.ap-northeast-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.ap-northeast-1.amazonaws.com", HTTP_HTTPS,
+            "storagegateway", "storagegateway.ap-northeast-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.ap-northeast-1.amazonaws.com", HTTPS,
+            "workspaces", "workspaces.ap-northeast-1.amazonaws.com", HTTPS,
+        },
+        { "ap-southeast-1", "amazonaws.com",
+            "autoscaling", "autoscaling.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.ap-southeast-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.ap-southeast-1.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.ap-southeast-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.ap-southeast-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.ap-southeast-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "elasticache", "elasticache.ap-southeast-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.ap-southeast-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "elastictranscoder", "elastictranscoder.ap-southeast-1.amazonaws.com", HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.ap-southeast-1.amazonaws.com", HTTPS,
+            "kms", "kms.ap-southeast-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.ap-southeast-1.amazonaws.com", HTTPS,
+            "redshift", "redshift.ap-southeast-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.ap-southeast-1.amazonaws.com", HTTP_HTTPS,
+            "storagegateway", "storagegateway.ap-southeast-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.ap-southeast-1.amazonaws.com", HTTPS,
+            "workspaces", "workspaces.ap-southeast-1.amazonaws.com", HTTPS,
+        },
+        { "ap-southeast-2", "amazonaws.com",
+            "autoscaling", "autoscaling.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.ap-southeast-2.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.ap-southeast-2.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.ap-southeast-2.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.ap-southeast-2.amazonaws.com", HTTPS,
+            "codedeploy", "codedeploy.ap-southeast-2.amazonaws.com", HTTPS,
+            "datapipeline", "datapipeline.ap-southeast-2.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.ap-southeast-2.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "elasticache", "elasticache.ap-southeast-2.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.ap-southeast-2.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "glacier", "glacier.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.ap-southeast-2.amazonaws.com", HTTPS,
+            "kms", "kms.ap-southeast-2.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.ap-southeast-2.amazonaws.com", HTTPS,
+            "redshift", "redshift.ap-southeast-2.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.ap-southeast-2.amazonaws.com", HTTP_HTTPS,
+            "storagegateway", "storagegateway.ap-southeast-2.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.ap-southeast-2.amazonaws.com", HTTPS,
+            "workspaces", "workspaces.ap-southeast-2.amazonaws.com", HTTPS,
+        },
+        { "sa-east-1", "amazonaws.com",
+            "autoscaling", "autoscaling.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.sa-east-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudsearch", "cloudsearch.sa-east-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.sa-east-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.sa-east-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "elasticache", "elasticache.sa-east-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.sa-east-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kms", "kms.sa-east-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.sa-east-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.sa-east-1.amazonaws.com", HTTP_HTTPS,
+            "storagegateway", "storagegateway.sa-east-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.sa-east-1.amazonaws.com", HTTPS,
+        },
+        { "eu-west-1", "amazonaws.com",
+            "autoscaling", "autoscaling.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.eu-west-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.eu-west-1.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.eu-west-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.eu-west-1.amazonaws.com", HTTPS,
+            "codedeploy", "codedeploy.eu-west-1.amazonaws.com", HTTPS,
+            "cognito-identity", "cognito-identity.eu-west-1.amazonaws.com", HTTPS,
+            "cognito-sync", "cognito-sync.eu-west-1.amazonaws.com", HTTPS,
+            "datapipeline", "datapipeline.eu-west-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.eu-west-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "ecs", "ecs.eu-west-1.amazonaws.com", HTTPS,
+            "elasticache", "elasticache.eu-west-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.eu-west-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "elastictranscoder", "elastictranscoder.eu-west-1.amazonaws.com", HTTPS,
+            "email", "email.eu-west-1.amazonaws.com", HTTPS,
+            "glacier", "glacier.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "importexport", "importexport.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.eu-west-1.amazonaws.com", HTTPS,
+            "kms", "kms.eu-west-1.amazonaws.com", HTTPS,
+            "lambda", "lambda.eu-west-1.amazonaws.com", HTTPS,
+            "logs", "logs.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "monitoring", "monitoring.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.eu-west-1.amazonaws.com", HTTPS,
+            "redshift", "redshift.eu-west-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3-eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "sdb", "sdb.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.eu-west-1.amazonaws.com", HTTP_HTTPS,
+            "ssm", "ssm.eu-west-1.amazonaws.com", HTTPS,
+            "storagegateway", "storagegateway.eu-west-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.eu-west-1.amazonaws.com", HTTPS,
+            "workspaces", "workspaces.eu-west-1.amazonaws.com", HTTPS,
+        },
+        { "eu-central-1", "amazonaws.com",
+            "autoscaling", "autoscaling.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "cloudformation", "cloudformation.eu-central-1.amazonaws.com", HTTPS,
+            "cloudfront", "cloudfront.amazonaws.com", HTTP_HTTPS,
+            "cloudhsm", "cloudhsm.eu-central-1.amazonaws.com", HTTPS,
+            "cloudsearch", "cloudsearch.eu-central-1.amazonaws.com", HTTPS,
+            "cloudtrail", "cloudtrail.eu-central-1.amazonaws.com", HTTPS,
+            "directconnect", "directconnect.eu-central-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "ec2", "ec2.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "elasticache", "elasticache.eu-central-1.amazonaws.com", HTTPS,
+            "elasticbeanstalk", "elasticbeanstalk.eu-central-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "glacier", "glacier.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.amazonaws.com", HTTPS,
+            "kinesis", "kinesis.eu-central-1.amazonaws.com", HTTPS,
+            "kms", "kms.eu-central-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "rds", "rds.eu-central-1.amazonaws.com", HTTPS,
+            "redshift", "redshift.eu-central-1.amazonaws.com", HTTPS,
+            "route53", "route53.amazonaws.com", HTTPS,
+            "route53domains", "route53domains.us-east-1.amazonaws.com", HTTPS,
+            "s3", "s3.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.eu-central-1.amazonaws.com", HTTP_HTTPS,
+            "storagegateway", "storagegateway.eu-central-1.amazonaws.com", HTTPS,
+            "sts", "sts.amazonaws.com", HTTPS,
+            "swf", "swf.eu-central-1.amazonaws.com", HTTPS,
+        },
+        { "cn-north-1", "amazonaws.com.cn",
+            "autoscaling", "autoscaling.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "cloudformation", "cloudformation.cn-north-1.amazonaws.com.cn", HTTPS,
+            "cloudtrail", "cloudtrail.cn-north-1.amazonaws.com.cn", HTTPS,
+            "directconnect", "directconnect.cn-north-1.amazonaws.com.cn", HTTPS,
+            "dynamodb", "dynamodb.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "ec2", "ec2.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "elasticache", "elasticache.cn-north-1.amazonaws.com.cn", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "glacier", "glacier.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "iam", "iam.cn-north-1.amazonaws.com.cn", HTTPS,
+            "monitoring", "monitoring.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "rds", "rds.cn-north-1.amazonaws.com.cn", HTTPS,
+            "s3", "s3.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "sns", "sns.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "sqs", "sqs.cn-north-1.amazonaws.com.cn", HTTP_HTTPS,
+            "storagegateway", "storagegateway.cn-north-1.amazonaws.com.cn", HTTPS,
+            "sts", "sts.cn-north-1.amazonaws.com.cn", HTTPS,
+            "support", "support.cn-north-1.amazonaws.com.cn", HTTPS,
+            "swf", "swf.cn-north-1.amazonaws.com.cn", HTTPS,
+        },
+        { "us-gov-west-1", "amazonaws.com",
+            "autoscaling", "autoscaling.us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "cloudtrail", "cloudtrail.us-gov-west-1.amazonaws.com", HTTPS,
+            "dynamodb", "dynamodb.us-gov-west-1.amazonaws.com", HTTPS,
+            "ec2", "ec2.us-gov-west-1.amazonaws.com", HTTPS,
+            "elasticloadbalancing", "elasticloadbalancing.us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "elasticmapreduce", "elasticmapreduce.us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "glacier", "glacier.us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "iam", "iam.us-gov.amazonaws.com", HTTPS,
+            "kms", "kms.us-gov-west-1.amazonaws.com", HTTPS,
+            "monitoring", "monitoring.us-gov-west-1.amazonaws.com", HTTPS,
+            "rds", "rds.us-gov-west-1.amazonaws.com", HTTPS,
+            "redshift", "redshift.us-gov-west-1.amazonaws.com", HTTPS,
+            "s3", "s3-us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "sns", "sns.us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "sqs", "sqs.us-gov-west-1.amazonaws.com", HTTP_HTTPS,
+            "sts", "sts.us-gov-west-1.amazonaws.com", HTTPS,
+            "swf", "swf.us-gov-west-1.amazonaws.com", HTTPS,
+        },
+    };
+
+    private BundledRegionMetadata() {}
+
+    /**
+     * Returns a new copy of the bundled region metadata, as it would be
+     * parsed from /com/amazonaws/regions/regions.xml.
+     */
+    static RegionMetadata create() {
+        List<Region> regions = new ArrayList<Region>(REGIONS.length);
+        for (String[] row : REGIONS) {
+            Region region = new Region(row[0], row[1]);
+            for (int i = 2; i < row.length; i += 3) {
+                String serviceName = row[i];
+                String protocols = row[i + 2];
+                region.getServiceEndpoints().put(serviceName, row[i + 1]);
+                region.getHttpSupport().put(serviceName, HTTP.equals(protocols) || HTTP_HTTPS.equals(protocols));
+                region.getHttpsSupport().put(serviceName, HTTPS.equals(protocols) || HTTP_HTTPS.equals(protocols));
+            }
+            regions.add(region);
+        }
+        return new RegionMetadata(regions);
+    }
+}
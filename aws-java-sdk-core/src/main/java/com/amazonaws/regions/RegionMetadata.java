@@ -18,12 +18,17 @@ import java.net.URI;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A collection of metadata about a set of regions and the services they
  * contain.
+ * <p>
+ * Regions are looked up by name, service and endpoint host in indexes built
+ * when the metadata is created. The metadata is immutable and can be shared
+ * across threads.
  *
  * @see RegionUtils
  */
@@ -31,6 +36,15 @@ public class RegionMetadata {
 
     private final List<Region> regions;
 
+    /** The regions by name */
+    private final Map<String, Region> regionsByName;
+
+    /** The regions supporting each service, in the order of the regions */
+    private final Map<String, List<Region>> regionsByService;
+
+    /** The first region with any service at each endpoint host name */
+    private final Map<String, Region> regionsByHost;
+
     /**
      * Creates a new RegionMetadata object from the given list of regions.
      *
@@ -43,6 +57,36 @@ public class RegionMetadata {
 
         this.regions =
             Collections.unmodifiableList(new ArrayList<Region>(regions));
+
+        Map<String, Region> byName = new HashMap<String, Region>();
+        Map<String, List<Region>> byService = new HashMap<String, List<Region>>();
+        Map<String, Region> byHost = new HashMap<String, Region>();
+        for (Region region : this.regions) {
+            if (!byName.containsKey(region.getName())) {
+                byName.put(region.getName(), region);
+            }
+            for (Map.Entry<String, String> endpoint
+                     : region.getServiceEndpoints().entrySet()) {
+
+                List<Region> serviceRegions = byService.get(endpoint.getKey());
+                if (serviceRegions == null) {
+                    serviceRegions = new ArrayList<Region>();
+                    byService.put(endpoint.getKey(), serviceRegions);
+                }
+                serviceRegions.add(region);
+
+                String host = getHostOrNull(endpoint.getValue());
+                if (host != null && !byHost.containsKey(host)) {
+                    byHost.put(host, region);
+                }
+            }
+        }
+        for (Map.Entry<String, List<Region>> entry : byService.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.regionsByName = byName;
+        this.regionsByService = byService;
+        this.regionsByHost = byHost;
     }
 
     /**
@@ -63,31 +107,20 @@ public class RegionMetadata {
      * @return the corresponding region, if it exists
      */
     public Region getRegion(final String name) {
-        for (Region region : regions) {
-            if (region.getName().equals(name)) {
-                return region;
-            }
-        }
-        return null;
+        return regionsByName.get(name);
     }
 
     /**
      * Returns a list of the regions that support the service given.
      *
      * @param service the service abbreviation to search for
-     * @return the list of regions with support for the given service
+     * @return an immutable list of the regions with support for the given
+     *         service
      * @see ServiceAbbreviations
      */
     public List<Region> getRegionsForService(final String service) {
-        List<Region> results = new LinkedList<Region>();
-
-        for (Region region : regions) {
-            if (region.isServiceSupported(service)) {
-                results.add(region);
-            }
-        }
-
-        return results;
+        List<Region> results = regionsByService.get(service);
+        return results == null ? Collections.<Region>emptyList() : results;
     }
 
     /**
@@ -101,24 +134,21 @@ public class RegionMetadata {
      *         endpoint, otherwise an exception is thrown if no region is found
      *         with a service at the specified endpoint.
      * @throws IllegalArgumentException
-     *             If the given URL is malformed, or if the one of the service
-     *             URLs on record is malformed.
+     *             If the given URL is malformed, or if no region is found with
+     *             a service at its host; service URLs on record that are
+     *             malformed never match.
      */
     public Region getRegionByEndpoint(final String endpoint) {
-        String host = getHost(endpoint);
-
-        for (Region region : regions) {
-            for (String serviceEndpoint
-                     : region.getServiceEndpoints().values()) {
-
-                if (host.equals(getHost(serviceEndpoint))) {
-                    return region;
-                }
-            }
+        // Most callers pass a bare host name, which needn't be parsed
+        Region region = regionsByHost.get(endpoint);
+        if (region == null) {
+            region = regionsByHost.get(getHost(endpoint));
         }
-
-        throw new IllegalArgumentException(
-            "No region found with any service for endpoint " + endpoint);
+        if (region == null) {
+            throw new IllegalArgumentException(
+                "No region found with any service for endpoint " + endpoint);
+        }
+        return region;
     }
 
     /**
@@ -136,6 +166,18 @@ public class RegionMetadata {
         return host;
     }
 
+    /**
+     * Returns the host portion of the given service endpoint, or null if it
+     * is malformed.
+     */
+    private static String getHostOrNull(final String endpoint) {
+        try {
+            return getHost(endpoint);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
     @Override
     public String toString() {
         return regions.toString();
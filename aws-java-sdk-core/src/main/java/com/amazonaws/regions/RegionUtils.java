@@ -316,8 +316,8 @@ public class RegionUtils {
             }
         }
 
-        doInitializeFromResource(RegionUtils.class,
-                                 BUNDLED_ENDPOINTS_RESOURCE_PATH);
+        // The bundled metadata is precompiled, so it needn't be parsed
+        regionMetadata = BundledRegionMetadata.create();
         source = BUNDLED_ENDPOINTS_RESOURCE_PATH;
     }
 
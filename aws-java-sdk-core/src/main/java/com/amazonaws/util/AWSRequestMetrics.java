@@ -130,6 +130,49 @@ public class AWSRequestMetrics {
          * /apidocs/org/apache/http/pool/PoolStats.html
          */
         HttpClientPoolPendingCount,
+        /**
+         * The number of idle persistent connections of the route to the
+         * endpoint of the request. Only captured for the SDK's default
+         * connection manager.
+         */
+        HttpClientPoolRouteAvailableCount,
+        /**
+         * The number of persistent connections of the route to the endpoint of
+         * the request currently being used to execute requests.
+         */
+        HttpClientPoolRouteLeasedCount,
+        /**
+         * The number of connection requests to the endpoint of the request
+         * being blocked awaiting a free connection of the route.
+         */
+        HttpClientPoolRoutePendingCount,
+        /**
+         * The number of physical connections opened while executing the
+         * request, which reflects the connection churn. Only captured for the
+         * SDK's default connection manager.
+         */
+        HttpClientPoolRouteOpenedCount,
+        /**
+         * The time in milliseconds the request spent waiting to lease a
+         * connection from the pool. Only captured for the SDK's default
+         * connection manager.
+         */
+        HttpClientPoolRouteLeaseWaitTime,
+        /**
+         * The number of TLS handshakes performed to open new connections while
+         * executing the request.
+         */
+        HttpClientTlsHandshakeCount,
+        /**
+         * The number of TLS handshakes, performed while executing the request,
+         * that resumed a previously cached TLS session.
+         */
+        HttpClientTlsResumedHandshakeCount,
+        /**
+         * Time taken by each TLS handshake performed while executing the
+         * request.
+         */
+        HttpClientTlsHandshakeTime,
         RetryPauseTime,
 //      S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint library
 //      S3UploadThroughput,   // migrated to S3RequestMetric in the S3 clint library
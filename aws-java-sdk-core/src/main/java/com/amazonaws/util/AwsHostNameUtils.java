@@ -16,6 +16,8 @@ package com.amazonaws.util;
 
 import java.net.InetAddress;
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +36,16 @@ public class AwsHostNameUtils {
     private static final Pattern EXTENDED_CLOUDSEARCH_ENDPOINT_PATTERN =
         Pattern.compile("^(?:.+\\.)?([a-z0-9-]+)\\.cloudsearch\\..+");
 
+    /** Maximum number of host names whose region name is cached */
+    private static final int MAX_CACHED_REGION_NAMES = 1024;
+
+    /**
+     * Region names returned by {@link #parseRegionName(String, String)}, by
+     * service hint and host name
+     */
+    private static final ConcurrentMap<String, String> REGION_NAMES =
+        new ConcurrentHashMap<String, String>();
+
     /**
      * @deprecated in favor of {@link #parseRegionName(String, String)}.
      */
@@ -54,6 +66,23 @@ public class AwsHostNameUtils {
      */
     public static String parseRegionName(final String host,
                                          final String serviceHint) {
+        // The host name is matched against several regular expressions, so
+        // the result is cached: it only depends on the arguments and the
+        // internal config, which doesn't change
+        final String key = serviceHint == null ? host : serviceHint + " " + host;
+        String regionName = REGION_NAMES.get(key);
+        if (regionName == null) {
+            regionName = computeRegionName(host, serviceHint);
+            if (REGION_NAMES.size() >= MAX_CACHED_REGION_NAMES) {
+                REGION_NAMES.clear();
+            }
+            REGION_NAMES.put(key, regionName);
+        }
+        return regionName;
+    }
+
+    private static String computeRegionName(final String host,
+                                            final String serviceHint) {
 
         String regionNameInInternalConfig = parseRegionNameByInternalConfig(host);
         if (regionNameInInternalConfig != null) {
@@ -150,8 +179,7 @@ public class AwsHostNameUtils {
         InternalConfig internConfig = InternalConfig.Factory.getInternalConfig();
 
         for (HostRegexToRegionMapping mapping : internConfig.getHostRegexToRegionMappings()) {
-            String hostNameRegex = mapping.getHostNameRegex();
-            if (host.matches(hostNameRegex)) {
+            if (mapping.matches(host)) {
                 return mapping.getRegionName();
             }
         }
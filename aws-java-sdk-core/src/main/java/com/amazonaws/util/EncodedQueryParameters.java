@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.SignableRequest;
+import com.amazonaws.annotation.NotThreadSafe;
+
+/**
+ * The parameters of a request, each name and value URL-encoded once as
+ * specified by RFC 3986, from which both the query string sent on the wire
+ * and the canonical query string used by the signers are built.
+ * <p>
+ * The query string keeps the parameters in the order they were added, so
+ * that members of a list parameter are still ordered by their indices. The
+ * canonical query string sorts them by encoded name, then by encoded value.
+ * Both strings are built on first use, in a single pass.
+ * <p>
+ * Since request parameters are mutable, the encoded parameters remember the
+ * names and values they were built from, and
+ * {@link #of(SignableRequest)} only reuses them while the request still holds
+ * the very same strings, which is checked by reference.
+ * <p>
+ * This class is only intended for internal use inside the AWS client libraries.
+ */
+@NotThreadSafe
+public final class EncodedQueryParameters {
+
+    /** Names and values the parameters were encoded from, in order */
+    private final String[] sources;
+
+    /**
+     * Encoded names and values, in the same order as the sources; a null
+     * value is encoded as an empty string
+     */
+    private final String[] encoded;
+
+    /** Whether any of the values is null */
+    private boolean hasNullValues;
+
+    private String queryString;
+
+    private String canonicalQueryString;
+
+    /**
+     * Encodes the given parameters.
+     *
+     * @param parameters
+     *            The parameters to encode, by name; a null value stands for a
+     *            parameter without value.
+     */
+    public EncodedQueryParameters(Map<String, List<String>> parameters) {
+        int count = 0;
+        for (List<String> values : parameters.values()) {
+            count += values.size();
+        }
+        sources = new String[count * 2];
+        encoded = new String[count * 2];
+        int i = 0;
+        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+            final String name = entry.getKey();
+            final String encodedName = SdkHttpUtils.urlEncode(name, false);
+            for (String value : entry.getValue()) {
+                sources[i] = name;
+                encoded[i++] = encodedName;
+                sources[i] = value;
+                encoded[i++] = SdkHttpUtils.urlEncode(value, false);
+                hasNullValues |= value == null;
+            }
+        }
+    }
+
+    /**
+     * Returns the encoded parameters of the given request, reusing the ones
+     * computed earlier for the same request when its parameters haven't
+     * changed since.
+     */
+    public static EncodedQueryParameters of(SignableRequest<?> request) {
+        final Map<String, List<String>> parameters = request.getParameters();
+        if (!(request instanceof DefaultRequest)) {
+            return new EncodedQueryParameters(parameters);
+        }
+        final DefaultRequest<?> defaultRequest = (DefaultRequest<?>) request;
+        EncodedQueryParameters encodedParameters = defaultRequest.getEncodedParameters();
+        if (encodedParameters == null || !encodedParameters.isEncodingOf(parameters)) {
+            encodedParameters = new EncodedQueryParameters(parameters);
+            defaultRequest.setEncodedParameters(encodedParameters);
+        }
+        return encodedParameters;
+    }
+
+    /**
+     * Returns true if these are the encoded parameters of the given ones,
+     * which is true when they hold the same string instances in the same
+     * order.
+     */
+    public boolean isEncodingOf(Map<String, List<String>> parameters) {
+        int i = 0;
+        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+            final String name = entry.getKey();
+            for (String value : entry.getValue()) {
+                if (i == sources.length || sources[i] != name || sources[i + 1] != value) {
+                    return false;
+                }
+                i += 2;
+            }
+        }
+        return i == sources.length;
+    }
+
+    /**
+     * @return The number of name and value pairs.
+     */
+    public int size() {
+        return encoded.length / 2;
+    }
+
+    /**
+     * @return The parameters joined as "name=value" pairs, or "name" for a
+     *         null value, separated by '&amp;', in the order they were added;
+     *         an empty string if there are none.
+     */
+    public String getQueryString() {
+        if (queryString == null) {
+            final StringBuilder buffer = new StringBuilder(length());
+            for (int i = 0; i < encoded.length; i += 2) {
+                if (i > 0) {
+                    buffer.append('&');
+                }
+                buffer.append(encoded[i]);
+                if (sources[i + 1] != null) {
+                    buffer.append('=').append(encoded[i + 1]);
+                }
+            }
+            queryString = buffer.toString();
+        }
+        return queryString;
+    }
+
+    /**
+     * @return The parameters joined as "name=value" pairs separated by '&amp;',
+     *         sorted by encoded name then encoded value, as expected by the
+     *         AWS signature versions 2, 3 and 4, with "name=" for a null value;
+     *         an empty string if there are none.
+     */
+    public String getCanonicalQueryString() {
+        if (canonicalQueryString == null) {
+            final Integer[] order = new Integer[size()];
+            boolean sorted = !hasNullValues;
+            for (int i = 0; i < order.length; i++) {
+                order[i] = Integer.valueOf(i * 2);
+                if (i > 0 && compare(i * 2 - 2, i * 2) > 0) {
+                    sorted = false;
+                }
+            }
+            if (sorted) {
+                canonicalQueryString = getQueryString();
+            } else {
+                Arrays.sort(order, new Comparator<Integer>() {
+                    public int compare(Integer left, Integer right) {
+                        return EncodedQueryParameters.this.compare(left.intValue(), right.intValue());
+                    }
+                });
+                final StringBuilder buffer = new StringBuilder(length());
+                for (int i = 0; i < order.length; i++) {
+                    if (i > 0) {
+                        buffer.append('&');
+                    }
+                    final int pair = order[i].intValue();
+                    buffer.append(encoded[pair]).append('=').append(encoded[pair + 1]);
+                }
+                canonicalQueryString = buffer.toString();
+            }
+        }
+        return canonicalQueryString;
+    }
+
+    private int compare(int left, int right) {
+        final int result = encoded[left].compareTo(encoded[right]);
+        return result != 0 ? result : encoded[left + 1].compareTo(encoded[right + 1]);
+    }
+
+    /**
+     * @return The length of the query strings.
+     */
+    private int length() {
+        int length = Math.max(0, encoded.length - 1);
+        for (String s : encoded) {
+            length += s.length();
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return getQueryString();
+    }
+}
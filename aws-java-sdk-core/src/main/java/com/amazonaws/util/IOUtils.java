@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.Releasable;
 
 
@@ -40,14 +41,15 @@ public enum IOUtils {
      */
     public static byte[] toByteArray(InputStream is) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] b = BufferPool.acquire(BUFFER_SIZE);
         try {
-            byte[] b = new byte[BUFFER_SIZE];
             int n = 0;
             while ((n = is.read(b)) != -1) {
                 output.write(b, 0, n);
             }
             return output.toByteArray();
         } finally {
+            BufferPool.release(b);
             output.close();
         }
     }
@@ -110,13 +112,17 @@ public enum IOUtils {
      */
     public static long copy(InputStream in, OutputStream out)
             throws IOException {
-        byte[] buf = new byte[BUFFER_SIZE];
-        long count = 0;
-        int n = 0;
-        while ((n = in.read(buf)) > -1) {
-            out.write(buf, 0, n);
-            count += n;
+        byte[] buf = BufferPool.acquire(BUFFER_SIZE);
+        try {
+            long count = 0;
+            int n = 0;
+            while ((n = in.read(buf)) > -1) {
+                out.write(buf, 0, n);
+                count += n;
+            }
+            return count;
+        } finally {
+            BufferPool.release(buf);
         }
-        return count;
     }
 }
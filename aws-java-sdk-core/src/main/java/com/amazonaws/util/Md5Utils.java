@@ -28,6 +28,8 @@ import java.security.NoSuchAlgorithmException;
 
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.internal.BufferPool;
+
 /**
  * Utility methods for computing MD5 sums.
  */
@@ -40,9 +42,9 @@ public class Md5Utils {
      */
     public static byte[] computeMD5Hash(InputStream is) throws IOException {
         BufferedInputStream bis = new BufferedInputStream(is);
+        byte[] buffer = BufferPool.acquire(SIXTEEN_K);
         try {
             MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            byte[] buffer = new byte[SIXTEEN_K];
             int bytesRead;
             while ( (bytesRead = bis.read(buffer, 0, buffer.length)) != -1 ) {
                 messageDigest.update(buffer, 0, bytesRead);
@@ -52,6 +54,7 @@ public class Md5Utils {
             // should never get here
             throw new IllegalStateException(e);
         } finally {
+            BufferPool.release(buffer);
             try {
                 bis.close();
             } catch (Exception e) {
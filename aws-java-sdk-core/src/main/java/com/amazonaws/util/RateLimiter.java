@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out events evenly so that no more than a given number of them start
+ * per second, such as to stay within the maximum send rate of an account.
+ * Callers reserve the next free slot and sleep until it comes. This class is
+ * thread safe.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private long nextSlotNanos;
+
+    /**
+     * @param permitsPerSecond
+     *            the maximum number of events per second, which may be
+     *            fractional; or 0 for no limit
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond)
+                : 0;
+        this.nextSlotNanos = System.nanoTime();
+    }
+
+    /**
+     * Waits until the next event may start.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0)
+            return;
+        long waitNanos = reserve();
+        if (waitNanos > 0)
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    /**
+     * Reserves the next free slot, and returns the time (nanoseconds) until
+     * it starts. Slots left unused while idle are not accumulated, so a burst
+     * after an idle period is still paced.
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        long slot = Math.max(now, nextSlotNanos);
+        nextSlotNanos = slot + intervalNanos;
+        return slot - now;
+    }
+}
@@ -14,8 +14,9 @@
  */
 package com.amazonaws.util;
 
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.amazonaws.ResponseMetadata;
 
@@ -23,10 +24,20 @@ import com.amazonaws.ResponseMetadata;
  * Cache of response metadata for recently executed requests for diagnostic
  * purposes. This cache has a max size and as entries are added, the oldest
  * entry is aged out once the max size has been reached.
+ * <p>
+ * Entries are keyed by the identity of the request object, which is only
+ * weakly referenced, so an entry can no longer be found once its request has
+ * been garbage collected. Adding an entry is lock-free: the cache is split
+ * into a number of stripes, each of which is a ring buffer in which the
+ * newest entry overwrites the oldest one. A cache with a max size of zero
+ * doesn't allocate anything and ignores all additions.
  */
 public class ResponseMetadataCache {
-    private final InternalCache internalCache;
+    /** Minimum number of entries per stripe before the cache is striped. */
+    private static final int MIN_STRIPE_SIZE = 16;
 
+    /** The stripes of this cache; or null if the cache is disabled. */
+    private final Stripe[] stripes;
 
     /**
      * Creates a new cache that will contain, at most the specified number of
@@ -36,7 +47,22 @@ public class ResponseMetadataCache {
      *            The maximum size of this cache.
      */
     public ResponseMetadataCache(int maxEntries) {
-        internalCache = new InternalCache(maxEntries);
+        if (maxEntries <= 0) {
+            stripes = null;
+            return;
+        }
+        int numStripes = 1;
+        int maxStripes = Math.min(Runtime.getRuntime().availableProcessors(),
+                                  maxEntries / MIN_STRIPE_SIZE);
+        while (numStripes * 2 <= maxStripes)
+            numStripes *= 2;
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            // Spread the remainder over the first stripes so the total
+            // capacity is exactly maxEntries
+            int size = maxEntries / numStripes + (i < maxEntries % numStripes ? 1 : 0);
+            stripes[i] = new Stripe(size);
+        }
     }
 
     /**
@@ -48,9 +74,9 @@ public class ResponseMetadataCache {
      * @param metadata
      *            The metadata for this entry.
      */
-    public synchronized void add(Object obj, ResponseMetadata metadata) {
-        if (obj == null) return;
-        internalCache.put(System.identityHashCode(obj), metadata);
+    public void add(Object obj, ResponseMetadata metadata) {
+        if (stripes == null || obj == null) return;
+        stripeOf(obj).add(new Entry(obj, metadata));
     }
 
     /**
@@ -64,30 +90,58 @@ public class ResponseMetadataCache {
      *         otherwise null if no metadata is associated with that object.
      */
     public ResponseMetadata get(Object obj) {
-        // System.identityHashCode isn't guaranteed to be unique
-        // on all platforms, but should be reasonable enough to use
-        // for a few requests at a time.  We can always easily move
-        // to our own unique IDs if needed.
-        return internalCache.get(System.identityHashCode(obj));
+        if (stripes == null || obj == null) return null;
+        return stripeOf(obj).get(obj);
     }
 
+    private Stripe stripeOf(Object obj) {
+        int h = System.identityHashCode(obj);
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
 
     /**
-     * Simple implementation of LinkedHashMap that overrides the
-     * <code>removeEldestEntry</code> method to turn LinkedHashMap into a
-     * LRU(ish) cache that automatically evicts old entries.
+     * A fixed size ring buffer of entries, in which the newest entry
+     * overwrites the oldest one.
      */
-    private static final class InternalCache extends LinkedHashMap<Integer, ResponseMetadata> {
-        private int maxSize;
+    private static final class Stripe {
+        private final AtomicReferenceArray<Entry> entries;
+        private final AtomicLong next = new AtomicLong();
+
+        Stripe(int size) {
+            entries = new AtomicReferenceArray<Entry>(size);
+        }
 
-        public InternalCache(int maxSize) {
-            super(maxSize);
-            this.maxSize = maxSize;
+        void add(Entry entry) {
+            int size = entries.length();
+            entries.set((int) (next.getAndIncrement() % size), entry);
         }
 
-        @Override
-        protected boolean removeEldestEntry(Entry eldest) {
-            return size() > maxSize;
+        ResponseMetadata get(Object key) {
+            int size = entries.length();
+            long last = next.get() - 1;
+            // Newest first, so the latest metadata of a reused request wins
+            for (long i = last; i >= 0 && i > last - size; i--) {
+                int index = (int) (i % size);
+                Entry entry = entries.get(index);
+                if (entry == null) continue;
+                Object referent = entry.get();
+                if (referent == key) return entry.metadata;
+                if (referent == null) {
+                    // The request has been collected; drop its metadata
+                    entries.compareAndSet(index, entry, null);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Entry extends WeakReference<Object> {
+        private final ResponseMetadata metadata;
+
+        Entry(Object key, ResponseMetadata metadata) {
+            super(key);
+            this.metadata = metadata;
         }
     }
 }
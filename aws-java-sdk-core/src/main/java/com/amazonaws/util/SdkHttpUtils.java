@@ -14,49 +14,41 @@
  */
 package com.amazonaws.util;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URLEncoder;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.amazonaws.SignableRequest;
 import com.amazonaws.http.HttpMethodName;
 
 public class SdkHttpUtils {
 
-    private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
     /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
+     * The characters left as they are by {@link #urlEncode(String, boolean)}:
+     * the unreserved characters of RFC 3986, and '/' in a path.
      */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
+    private static final boolean[] UNRESERVED = new boolean[128];
     static {
-        StringBuilder pattern = new StringBuilder();
-
-        pattern
-            .append(Pattern.quote("+"))
-            .append("|")
-            .append(Pattern.quote("*"))
-            .append("|")
-            .append(Pattern.quote("%7E"))
-            .append("|")
-            .append(Pattern.quote("%2F"));
-
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['~'] = true;
     }
 
     /**
-     * Encode a string for use in the path of a URL; uses URLEncoder.encode,
-     * (which encodes a string for use in the query portion of a URL), then
-     * applies some postfilters to fix things up per the RFC. Can optionally
-     * handle strings which are meant to encode a path (ie include '/'es
-     * which should NOT be escaped).
+     * Encode a string for use in the path or the query of a URL, as specified
+     * by RFC 3986: every character but the unreserved ones is UTF-8 encoded
+     * and percent-encoded. Can optionally handle strings which are meant to
+     * encode a path (ie include '/'es which should NOT be escaped).
      *
      * @param value the value to encode
      * @param path true if the value is intended to represent a path
@@ -66,37 +58,80 @@ public class SdkHttpUtils {
         if (value == null) {
             return "";
         }
+        int start = indexOfEncodedCharacter(value, path);
+        if (start < 0) {
+            return value;
+        }
+        StringBuilder buffer = new StringBuilder(value.length() + 16);
+        buffer.append(value, 0, start);
+        appendUrlEncoded(buffer, value, start, path);
+        return buffer.toString();
+    }
 
-        try {
-            String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            StringBuffer buffer = new StringBuffer(encoded.length());
+    /**
+     * Appends a string encoded as by {@link #urlEncode(String, boolean)} to
+     * the given buffer, without any intermediate string.
+     *
+     * @param buffer the buffer to append to
+     * @param value the value to encode; null appends nothing
+     * @param path true if the value is intended to represent a path
+     * @return the given buffer
+     */
+    public static StringBuilder appendUrlEncoded(final StringBuilder buffer, final String value, final boolean path) {
+        if (value != null) {
+            appendUrlEncoded(buffer, value, 0, path);
+        }
+        return buffer;
+    }
 
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
+    private static int indexOfEncodedCharacter(String value, boolean path) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 128 || !UNRESERVED[c] && !(path && c == '/')) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-                if ("+".equals(replacement)) {
-                    replacement = "%20";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
+    private static void appendUrlEncoded(StringBuilder buffer, String value, int start, boolean path) {
+        final int length = value.length();
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 128) {
+                if (UNRESERVED[c] || path && c == '/') {
+                    buffer.append(c);
+                } else {
+                    appendPercentEncoded(buffer, c);
                 }
-
-                matcher.appendReplacement(buffer, replacement);
+            } else if (c < 0x800) {
+                appendPercentEncoded(buffer, 0xC0 | c >> 6);
+                appendPercentEncoded(buffer, 0x80 | c & 0x3F);
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                appendPercentEncoded(buffer, 0xE0 | c >> 12);
+                appendPercentEncoded(buffer, 0x80 | c >> 6 & 0x3F);
+                appendPercentEncoded(buffer, 0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendPercentEncoded(buffer, 0xF0 | codePoint >> 18);
+                appendPercentEncoded(buffer, 0x80 | codePoint >> 12 & 0x3F);
+                appendPercentEncoded(buffer, 0x80 | codePoint >> 6 & 0x3F);
+                appendPercentEncoded(buffer, 0x80 | codePoint & 0x3F);
+            } else {
+                // An unpaired surrogate can't be encoded in UTF-8; it is
+                // replaced by '?', as URLEncoder does
+                appendPercentEncoded(buffer, '?');
             }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
         }
     }
 
+    private static void appendPercentEncoded(StringBuilder buffer, int b) {
+        buffer.append('%')
+              .append(HEX_DIGITS[b >> 4 & 0xF])
+              .append(HEX_DIGITS[b & 0xF]);
+    }
+
     /**
      * Returns true if the specified URI is using a non-standard port (i.e. any
      * port other than 80 for HTTP URIs or any port other than 443 for HTTPS
@@ -127,7 +162,10 @@ public class SdkHttpUtils {
 
     /**
      * Creates an encoded query string from all the parameters in the specified
-     * request.
+     * request, in the order they were added. Names and values are encoded as
+     * by {@link #urlEncode(String, boolean)}, once per request: the result is
+     * shared with the canonical query string computed by the signers, see
+     * {@link EncodedQueryParameters#of(SignableRequest)}.
      *
      * @param request
      *            The request containing the parameters to encode.
@@ -136,22 +174,9 @@ public class SdkHttpUtils {
      *         string for the parameters present in the specified request.
      */
     public static String encodeParameters(SignableRequest<?> request) {
+        if (request.getParameters().isEmpty()) return null;
 
-        final Map<String, List<String>> requestParams = request.getParameters();
-
-        if (requestParams.isEmpty()) return null;
-
-        final List<NameValuePair> nameValuePairs = new ArrayList<NameValuePair>();
-
-        for (Entry<String, List<String>> entry : requestParams.entrySet()) {
-            String parameterName = entry.getKey();
-            for (String value : entry.getValue()) {
-                nameValuePairs
-                    .add(new BasicNameValuePair(parameterName, value));
-            }
-        }
-
-        return URLEncodedUtils.format(nameValuePairs, DEFAULT_ENCODING);
+        return EncodedQueryParameters.of(request).getQueryString();
     }
 
     /**
@@ -16,6 +16,9 @@ package com.amazonaws;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -64,6 +67,28 @@ public class AmazonWebServiceClientTest {
         assertEquals(serviceNameOverride, client.getServiceName());
     }
 
+    @Test
+    public void testSignerByURIIsSharedPerHost() throws Exception {
+        AmazonTestClient client = new AmazonTestClient();
+        URI west = new URI("https://test.us-west-2.amazonaws.com/queue/1");
+        AWS4Signer signer = (AWS4Signer) client.getSignerByURI(west);
+        assertEquals("us-west-2", signer.getRegionName());
+        assertEquals("test", signer.getServiceName());
+        assertSame(signer, client.getSignerByURI(new URI("https://test.us-west-2.amazonaws.com/queue/2")));
+
+        AWS4Signer east = (AWS4Signer) client.getSignerByURI(new URI("https://test.us-east-1.amazonaws.com/"));
+        assertEquals("us-east-1", east.getRegionName());
+
+        client.setSignerRegionOverride("eu-west-1");
+        AWS4Signer overridden = (AWS4Signer) client.getSignerByURI(west);
+        assertEquals("eu-west-1", overridden.getRegionName());
+        client.setSignerRegionOverride(null);
+        assertEquals("us-west-2", ((AWS4Signer) client.getSignerByURI(west)).getRegionName());
+
+        client.setServiceNameIntern("foo");
+        assertEquals("foo", ((AWS4Signer) client.getSignerByURI(west)).getServiceName());
+    }
+
     private static class AmazonTestClient extends AmazonWebServiceClient {
         public AmazonTestClient() {
             this(new ClientConfiguration());
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.RegionAwareSigner;
+import com.amazonaws.auth.Signer;
+import com.amazonaws.auth.SignerFactory;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.HttpResponseHandler;
+import com.amazonaws.internal.config.HostRegexToRegionMapping;
+import com.amazonaws.internal.config.InternalConfig;
+import com.amazonaws.util.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the per-request overhead of resolving the signer of a request,
+ * with {@link AmazonWebServiceClient#getSignerByURI(URI)}, which computes the
+ * signer once per host, and with the previous implementation, which parsed
+ * the region out of the host name with regular expressions and created a
+ * signer for every request. Both are measured on their own and as part of
+ * signed Query requests sent to a local stub server.
+ * <p>
+ * Usage: <code>SignerResolutionBenchmark [iterations] [requests]</code>
+ * (defaults: 1000000 resolutions and 20000 requests).
+ */
+public class SignerResolutionBenchmark {
+
+    private static final Pattern S3_ENDPOINT_PATTERN =
+        Pattern.compile("^(?:.+\\.)?s3[.-]([a-z0-9-]+)$");
+
+    private static final Pattern STANDARD_CLOUDSEARCH_ENDPOINT_PATTERN =
+        Pattern.compile("^(?:.+\\.)?([a-z0-9-]+)\\.cloudsearch$");
+
+    /** Keeps the resolved signers from being optimized away */
+    static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        // Otherwise Nagle's algorithm delays every response by ~40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                IOUtils.toByteArray(in);
+                in.close();
+                byte[] body = "<GetQueueUrlResponse/>".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        try {
+            URI endpoint = new URI("http://localhost:" + server.getAddress().getPort());
+            StubClient cached = new StubClient(endpoint, false);
+            StubClient legacy = new StubClient(endpoint, true);
+            URI queueUri = new URI("https://sqs.us-west-2.amazonaws.com/123456789012/queue");
+
+            for (int round = 0; round < 3; round++) {
+                System.out.println(String.format("round %d   getSignerByURI: legacy %6.0f ns   cached %6.0f ns", round,
+                        timeResolution(legacy, queueUri, iterations), timeResolution(cached, queueUri, iterations)));
+                System.out.println(String.format("          stub request:   legacy %6.1f us   cached %6.1f us",
+                        timeRequests(legacy, requests), timeRequests(cached, requests)));
+            }
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    private static double timeResolution(StubClient client, URI uri, int iterations) {
+        int hash = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            hash += System.identityHashCode(client.getSignerByURI(uri));
+        }
+        long nanos = System.nanoTime() - start;
+        sink = hash;
+        return (double) nanos / iterations;
+    }
+
+    private static double timeRequests(StubClient client, int requests) {
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            client.getQueueUrl("queue-" + i);
+        }
+        return (System.nanoTime() - start) / 1000.0 / requests;
+    }
+
+    /**
+     * A minimal Query client whose requests are signed with SigV4; in legacy
+     * mode its signers are resolved as before.
+     */
+    static class StubClient extends AmazonWebServiceClient {
+
+        private final boolean legacy;
+
+        private final BasicAWSCredentials credentials = new BasicAWSCredentials("akid", "skid");
+
+        StubClient(URI endpoint, boolean legacy) {
+            super(new ClientConfiguration().withMaxErrorRetry(0));
+            this.legacy = legacy;
+            setServiceNameIntern("sqs");
+            setEndpoint(endpoint.toString());
+        }
+
+        @Override
+        public Signer getSignerByURI(URI uri) {
+            if (!legacy) {
+                return super.getSignerByURI(uri);
+            }
+            String regionName = legacyParseRegionName(uri.getHost());
+            Signer signer = SignerFactory.getSigner("sqs", regionName);
+            if (signer instanceof RegionAwareSigner) {
+                ((RegionAwareSigner) signer).setRegionName(regionName);
+            }
+            return signer;
+        }
+
+        String getQueueUrl(String queueName) {
+            Request<Void> request = new DefaultRequest<Void>("AmazonSQS");
+            request.addParameter("Action", "GetQueueUrl");
+            request.addParameter("Version", "2012-11-05");
+            request.addParameter("QueueName", queueName);
+            request.setEndpoint(endpoint);
+            ExecutionContext executionContext = createExecutionContext(request);
+            executionContext.setCredentials(credentials);
+            return client.execute(request, new HttpResponseHandler<AmazonWebServiceResponse<String>>() {
+                public AmazonWebServiceResponse<String> handle(HttpResponse response) throws Exception {
+                    AmazonWebServiceResponse<String> result = new AmazonWebServiceResponse<String>();
+                    result.setResult(IOUtils.toString(response.getContent()));
+                    return result;
+                }
+
+                public boolean needsConnectionLeftOpen() {
+                    return false;
+                }
+            }, new HttpResponseHandler<AmazonServiceException>() {
+                public AmazonServiceException handle(HttpResponse response) throws Exception {
+                    return new AmazonServiceException("status " + response.getStatusCode());
+                }
+
+                public boolean needsConnectionLeftOpen() {
+                    return false;
+                }
+            }, executionContext).getAwsResponse();
+        }
+    }
+
+    /**
+     * The previous implementation of
+     * {@link com.amazonaws.util.AwsHostNameUtils#parseRegionName(String, String)}
+     * for standard endpoints, without a service hint.
+     */
+    private static String legacyParseRegionName(String host) {
+        for (HostRegexToRegionMapping mapping : InternalConfig.Factory.getInternalConfig().getHostRegexToRegionMappings()) {
+            if (host.matches(mapping.getHostNameRegex())) {
+                return mapping.getRegionName();
+            }
+        }
+        if (!host.endsWith(".amazonaws.com")) {
+            return "us-east-1";
+        }
+        String fragment = host.substring(0, host.length() - ".amazonaws.com".length());
+        Matcher matcher = S3_ENDPOINT_PATTERN.matcher(fragment);
+        if (matcher.matches()) {
+            return matcher.group(1);
+        }
+        matcher = STANDARD_CLOUDSEARCH_ENDPOINT_PATTERN.matcher(fragment);
+        if (matcher.matches()) {
+            return matcher.group(1);
+        }
+        int index = fragment.lastIndexOf('.');
+        return index == -1 ? "us-east-1" : fragment.substring(index + 1);
+    }
+}
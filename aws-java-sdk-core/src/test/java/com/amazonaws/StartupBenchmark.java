@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.util.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the time a new JVM takes to construct a client and complete its
+ * first request against a local stub endpoint, as a short-lived process
+ * would. Each run is a fresh JVM started with the current class path; both
+ * the time from main() to the first response and the wall time of the whole
+ * process are reported, as medians, with the default settings and with
+ * {@link SDKGlobalConfiguration#DISABLE_METRIC_ADMIN_MBEAN_SYSTEM_PROPERTY}
+ * set.
+ * <p>
+ * Usage: <code>StartupBenchmark [runs]</code> (default: 10 runs per setting).
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--child")) {
+            child(Integer.parseInt(args[1]));
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                IOUtils.toByteArray(in);
+                in.close();
+                byte[] body = "<GetQueueUrlResponse/>".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        try {
+            int port = server.getAddress().getPort();
+            measure("default", runs, port);
+            measure(SDKGlobalConfiguration.DISABLE_METRIC_ADMIN_MBEAN_SYSTEM_PROPERTY, runs, port,
+                    "-D" + SDKGlobalConfiguration.DISABLE_METRIC_ADMIN_MBEAN_SYSTEM_PROPERTY);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void measure(String name, int runs, int port, String... jvmArgs) throws Exception {
+        List<Double> firstRequest = new ArrayList<Double>();
+        List<Double> process = new ArrayList<Double>();
+        for (int i = 0; i < runs; i++) {
+            List<String> command = new ArrayList<String>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.addAll(Arrays.asList(jvmArgs));
+            command.add(StartupBenchmark.class.getName());
+            command.add("--child");
+            command.add(String.valueOf(port));
+
+            long start = System.nanoTime();
+            Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream(), "UTF-8"));
+            String result = null;
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (line.startsWith("first request ")) {
+                    result = line.substring("first request ".length());
+                }
+            }
+            if (child.waitFor() != 0 || result == null) {
+                throw new IllegalStateException("Run " + i + " failed with exit code " + child.exitValue());
+            }
+            process.add((System.nanoTime() - start) / 1000000.0);
+            firstRequest.add(Double.valueOf(result));
+        }
+        System.out.println(String.format("%-45s main() to first response %7.1f ms   process %7.1f ms",
+                name, median(firstRequest), median(process)));
+    }
+
+    private static double median(List<Double> values) {
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+
+    /**
+     * Runs in the child JVM: resolves the region of the client, as most
+     * applications do when constructing one, then sends a single request to
+     * the stub endpoint.
+     */
+    private static void child(int port) throws Exception {
+        long start = System.nanoTime();
+        Region.getRegion(Regions.US_WEST_2).getServiceEndpoint("sqs");
+        SignerResolutionBenchmark.StubClient client =
+                new SignerResolutionBenchmark.StubClient(new URI("http://localhost:" + port), false);
+        client.getQueueUrl("queue");
+        System.out.println("first request " + (System.nanoTime() - start) / 1000000.0);
+        client.shutdown();
+    }
+}
@@ -176,4 +176,17 @@ public class AWS4SignerTest {
         String old = getOldDateStamp(now);
         assertEquals(old, dateStamp);
     }
+
+    @Test
+    public void getTimeStampAcrossDaysAndLeapYears() {
+        long[] times = {
+                0L, -1L, 951782399999L, 951782400000L, 951868800000L, 1330473600000L,
+                1416863450581L, 4107542399999L, 4107542400000L, 253402300799000L
+        };
+        for (long time : times) {
+            Date date = new Date(time);
+            assertEquals(getOldTimeStamp(date), AWS4SignerUtils.formatTimestamp(time));
+            assertEquals(getOldDateStamp(date), AWS4SignerUtils.formatDateStamp(time));
+        }
+    }
 }
@@ -27,6 +27,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -88,6 +90,43 @@ public class InstanceProfileCredentialsProviderTest {
     }
 
     private static class TestInstanceProfileCredentialsProvider extends InstanceProfileCredentialsProvider {
+        public TestInstanceProfileCredentialsProvider() {
+        }
+
+        public TestInstanceProfileCredentialsProvider(boolean refreshCredentialsAsync) {
+            super(refreshCredentialsAsync);
+        }
+
+        /**
+         * Counted down at the end of the next background refresh; not
+         * initialized in its declaration, as a refresh may end before the
+         * super constructor returns.
+         */
+        private CountDownLatch refreshed;
+
+        private synchronized CountDownLatch refreshed() {
+            if (refreshed == null)
+                refreshed = new CountDownLatch(1);
+            return refreshed;
+        }
+
+        @Override
+        void refreshInBackground() {
+            try {
+                super.refreshInBackground();
+            } finally {
+                refreshed().countDown();
+            }
+        }
+
+        /** Waits for the end of the next background refresh */
+        void awaitRefresh() throws InterruptedException {
+            assertTrue(refreshed().await(5, TimeUnit.SECONDS));
+            synchronized (this) {
+                refreshed = null;
+            }
+        }
+
         public AWSCredentials getCurrentCredentials() {
             return this.credentials;
         }
@@ -216,6 +255,91 @@ public class InstanceProfileCredentialsProviderTest {
         }
     }
 
+    /**
+     * Tests that credentials close to expiring keep being served while new
+     * ones are loaded in the background.
+     */
+    @Test
+    public void testCredentialsRefreshedAheadOfExpiration() throws Exception {
+        mockServer.setResponseFileName("sessionResponse");
+        mockServer.setAvailableSecurityCredentials("test-credentials");
+
+        TestInstanceProfileCredentialsProvider credentialsProvider = new TestInstanceProfileCredentialsProvider();
+        credentialsProvider.setCredentials(new BasicAWSCredentials("foo", "bar"));
+        credentialsProvider.setCredentialsExpiration(new Date(System.currentTimeMillis() + ONE_MINUTE * 10));
+        credentialsProvider.setLastInstanceProfileCheck(new Date());
+
+        // Served right away, while the refresh runs in the background
+        assertEquals("foo", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        credentialsProvider.awaitRefresh();
+        assertEquals("ACCESS_KEY_ID", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        assertFalse(credentialsProvider.needsToLoadCredentials());
+    }
+
+    /**
+     * Tests that the current credentials keep being served, rather than
+     * discarded, when refreshing them fails.
+     */
+    @Test
+    public void testFailedRefreshKeepsServingCurrentCredentials() throws Exception {
+        mockServer.stop();
+        TestInstanceProfileCredentialsProvider credentialsProvider = new TestInstanceProfileCredentialsProvider();
+        credentialsProvider.setCredentials(new BasicAWSCredentials("foo", "bar"));
+        credentialsProvider.setLastInstanceProfileCheck(new Date());
+
+        // Background refresh
+        credentialsProvider.setCredentialsExpiration(new Date(System.currentTimeMillis() + ONE_MINUTE * 10));
+        assertEquals("foo", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        credentialsProvider.awaitRefresh();
+        assertEquals("foo", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        assertTrue(credentialsProvider.needsToLoadCredentials());
+
+        // Blocking refresh, as the credentials are about to expire
+        credentialsProvider.setCredentialsExpiration(new Date(System.currentTimeMillis() + ONE_MINUTE / 2));
+        assertEquals("foo", credentialsProvider.getCredentials().getAWSAccessKeyId());
+    }
+
+    /**
+     * Tests that subclasses overriding needsToLoadCredentials decide when the
+     * credentials are refreshed.
+     */
+    @Test
+    public void testOverriddenNeedsToLoadCredentialsIsHonoured() throws Exception {
+        mockServer.setResponseFileName("sessionResponse");
+        mockServer.setAvailableSecurityCredentials("test-credentials");
+
+        TestInstanceProfileCredentialsProvider credentialsProvider = new TestInstanceProfileCredentialsProvider() {
+            @Override
+            protected boolean needsToLoadCredentials() {
+                return !"ACCESS_KEY_ID".equals(credentials.getAWSAccessKeyId());
+            }
+        };
+        credentialsProvider.setCredentials(new BasicAWSCredentials("foo", "bar"));
+        credentialsProvider.setCredentialsExpiration(new Date(System.currentTimeMillis() + ONE_MINUTE * 60 * 24));
+        credentialsProvider.setLastInstanceProfileCheck(new Date());
+
+        assertEquals("foo", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        credentialsProvider.awaitRefresh();
+        assertEquals("ACCESS_KEY_ID", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        assertEquals("ACCESS_KEY_ID", credentialsProvider.getCurrentCredentials().getAWSAccessKeyId());
+    }
+
+    /**
+     * Tests that the credentials are loaded in the background right away when
+     * refreshCredentialsAsync is set, without calling getCredentials.
+     */
+    @Test
+    public void testAsyncRefreshLoadsCredentialsInBackground() throws Exception {
+        mockServer.setResponseFileName("sessionResponse");
+        mockServer.setAvailableSecurityCredentials("test-credentials");
+
+        TestInstanceProfileCredentialsProvider credentialsProvider = new TestInstanceProfileCredentialsProvider(true);
+        credentialsProvider.awaitRefresh();
+        assertNotNull(credentialsProvider.getLastInstanceProfileCheck());
+        assertEquals("ACCESS_KEY_ID", credentialsProvider.getCurrentCredentials().getAWSAccessKeyId());
+        assertFalse(credentialsProvider.needsToLoadCredentials());
+    }
+
     /**
      * Tests by initiating a refresh thread in parallel which refreshes the
      * credentials. Next call to credentials provider will result in refreshing
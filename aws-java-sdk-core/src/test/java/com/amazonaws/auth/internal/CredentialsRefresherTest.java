@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CredentialsRefresherTest {
+
+    @Test
+    public void onlyOneRefreshInFlight() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        CredentialsRefresher refresher = new CredentialsRefresher(new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        });
+
+        assertTrue(refresher.refreshAsync());
+        assertFalse(refresher.refreshAsync());
+        assertTrue(refresher.isRefreshing());
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitUntilIdle(refresher);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void refreshesAreSpacedApart() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        CredentialsRefresher refresher = new CredentialsRefresher(new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+                throw new IllegalStateException("service unavailable");
+            }
+        });
+
+        assertTrue(refresher.refreshAsync());
+        waitUntilIdle(refresher);
+        // A failed refresh is not retried right away
+        assertFalse(refresher.refreshAsync());
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void prefetchRunsAheadOfExpiration() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        CredentialsRefresher refresher = new CredentialsRefresher(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        Date expiration = new Date(System.currentTimeMillis() + 60 * 1000);
+        refresher.schedulePrefetch(expiration, 60 * 1000 - 50);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledPrefetchDoesNotRun() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        CredentialsRefresher refresher = new CredentialsRefresher(new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+            }
+        });
+
+        Date expiration = new Date(System.currentTimeMillis() + 60 * 1000);
+        refresher.schedulePrefetch(expiration, 60 * 1000 - 100);
+        refresher.cancelPrefetch();
+        Thread.sleep(300);
+        assertEquals(0, count.get());
+        // Nothing is scheduled once the prefetch time has passed
+        refresher.schedulePrefetch(new Date(), 1000);
+        Thread.sleep(100);
+        assertEquals(0, count.get());
+    }
+
+    private static void waitUntilIdle(CredentialsRefresher refresher)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && refresher.isRefreshing(); i++)
+            Thread.sleep(10);
+        assertFalse(refresher.isRefreshing());
+    }
+}
@@ -37,6 +37,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceClient;
 import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.DefaultRequest;
@@ -201,6 +202,81 @@ public class AmazonHttpClientTest {
         testRetries(request, 100);
     }
 
+    @Test
+    public void testRequestCompressedForConfiguredService() {
+        ClientConfiguration config = compressionConfig();
+        Request<?> request = newCompressibleRequest();
+
+        Assert.assertTrue(new AmazonHttpClient(config, httpClient, null)
+                .compressRequest(request, newCompressionContext(config, "monitoring")));
+        Assert.assertEquals("gzip", request.getHeaders().get("Content-Encoding"));
+        Assert.assertTrue(request.getParameters().isEmpty());
+    }
+
+    @Test
+    public void testRequestNotCompressedForOtherService() {
+        ClientConfiguration config = compressionConfig();
+        Request<?> request = newCompressibleRequest();
+
+        Assert.assertFalse(new AmazonHttpClient(config, httpClient, null)
+                .compressRequest(request, newCompressionContext(config, "sns")));
+        Assert.assertNull(request.getHeaders().get("Content-Encoding"));
+        Assert.assertEquals(100, request.getParameters().size());
+        Assert.assertNull(request.getContent());
+    }
+
+    @Test
+    public void testRequestNotCompressedWithoutServiceNames() {
+        ClientConfiguration config = compressionConfig()
+                .withRequestCompressionServiceNames();
+        Request<?> request = newCompressibleRequest();
+
+        Assert.assertFalse(new AmazonHttpClient(config, httpClient, null)
+                .compressRequest(request, newCompressionContext(config, "monitoring")));
+        Assert.assertEquals(100, request.getParameters().size());
+    }
+
+    @Test
+    public void testRequestNotCompressedWithoutSigV4() {
+        ClientConfiguration config = compressionConfig();
+        config.setSignerOverride("QueryStringSignerType");
+        Request<?> request = newCompressibleRequest();
+
+        Assert.assertFalse(new AmazonHttpClient(config, httpClient, null)
+                .compressRequest(request, newCompressionContext(config, "monitoring")));
+        Assert.assertEquals(100, request.getParameters().size());
+    }
+
+    private static ClientConfiguration compressionConfig() {
+        return new ClientConfiguration()
+                .withRequestCompression(true)
+                .withRequestCompressionThreshold(1024)
+                .withRequestCompressionServiceNames("monitoring", "logs");
+    }
+
+    private static Request<?> newCompressibleRequest() {
+        Request<?> request = new DefaultRequest<Object>(null, "testsvc");
+        request.setHttpMethod(HttpMethodName.POST);
+        request.setEndpoint(URI.create("https://testsvc.us-east-1.amazonaws.com"));
+        for (int i = 0; i < 100; i++) {
+            request.addParameter("MetricData.member." + i + ".MetricName", "Latency");
+        }
+        return request;
+    }
+
+    private static ExecutionContext newCompressionContext(
+            ClientConfiguration config, String serviceName) {
+        AmazonWebServiceClient awsClient = new AmazonTestClient(config);
+        awsClient.setServiceNameIntern(serviceName);
+        return new ExecutionContext(null, false, awsClient);
+    }
+
+    private static class AmazonTestClient extends AmazonWebServiceClient {
+        AmazonTestClient(ClientConfiguration config) {
+            super(config);
+        }
+    }
+
     private void testRetries(Request<?> request, int contentLength)
             throws IOException {
 
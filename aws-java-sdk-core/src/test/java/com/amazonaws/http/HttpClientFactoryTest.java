@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import org.junit.Test;
+
+import com.amazonaws.ClientConfiguration;
+
+public class HttpClientFactoryTest {
+
+    @Test
+    public void defaultContextIsUsedWithoutTlsSessionSettings() throws Exception {
+        assertSame(SSLContext.getDefault(),
+                HttpClientFactory.sslContextFor(new ClientConfiguration()));
+    }
+
+    @Test
+    public void tlsSessionSettingsDoNotChangeDefaultContext() throws Exception {
+        SSLSessionContext defaultSessions = SSLContext.getDefault().getClientSessionContext();
+        int cacheSize = defaultSessions.getSessionCacheSize();
+        int timeout = defaultSessions.getSessionTimeout();
+
+        SSLContext context = HttpClientFactory.sslContextFor(new ClientConfiguration()
+                .withTlsSessionCacheSize(cacheSize + 7)
+                .withTlsSessionTimeout(timeout + 11));
+        assertNotSame(SSLContext.getDefault(), context);
+        assertEquals(cacheSize + 7, context.getClientSessionContext().getSessionCacheSize());
+        assertEquals(timeout + 11, context.getClientSessionContext().getSessionTimeout());
+        assertEquals(cacheSize, defaultSessions.getSessionCacheSize());
+        assertEquals(timeout, defaultSessions.getSessionTimeout());
+    }
+
+    @Test
+    public void contextIsSharedBySameTlsSessionSettings() throws Exception {
+        SSLContext context = HttpClientFactory.sslContextFor(
+                new ClientConfiguration().withTlsSessionCacheSize(100));
+        assertSame(context, HttpClientFactory.sslContextFor(
+                new ClientConfiguration().withTlsSessionCacheSize(100)));
+        assertNotSame(context, HttpClientFactory.sslContextFor(
+                new ClientConfiguration().withTlsSessionCacheSize(200)));
+        assertNotSame(context, HttpClientFactory.sslContextFor(
+                new ClientConfiguration().withTlsSessionCacheSize(100).withTlsSessionTimeout(60)));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringInputStream;
+
+public class RequestCompressorTest {
+
+    @Test
+    public void testQueryParametersMovedIntoCompressedPayload() throws IOException {
+        Request<?> request = newRequest();
+        for (int i = 0; i < 100; i++) {
+            request.addParameter("MetricData.member." + i + ".MetricName", "Latency");
+        }
+        assertTrue(RequestCompressor.compress(request, 1024));
+        assertTrue(request.getParameters().isEmpty());
+        assertEquals("gzip", request.getHeaders().get("Content-Encoding"));
+        String payload = gunzip(request);
+        assertTrue(payload.startsWith("MetricData.member.0.MetricName=Latency&"));
+        assertEquals(Integer.toString(compressedLength(request)),
+                request.getHeaders().get("Content-Length"));
+    }
+
+    @Test
+    public void testJsonPayloadCompressed() throws IOException {
+        Request<?> request = newRequest();
+        StringBuilder json = new StringBuilder("{\"logEvents\":[");
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"message\":\"event ").append(i).append("\"},");
+        }
+        json.append("{}]}");
+        request.setContent(new StringInputStream(json.toString()));
+        request.addHeader("Content-Length", Integer.toString(json.length()));
+        assertTrue(RequestCompressor.compress(request, 1024));
+        assertEquals(json.toString(), gunzip(request));
+    }
+
+    @Test
+    public void testBelowThresholdLeftAlone() {
+        Request<?> request = newRequest();
+        request.addParameter("Action", "Publish");
+        assertFalse(RequestCompressor.compress(request, 1024));
+        assertEquals("Publish", request.getParameters().get("Action").get(0));
+        assertNull(request.getContent());
+        assertNull(request.getHeaders().get("Content-Encoding"));
+    }
+
+    @Test
+    public void testExistingContentEncodingLeftAlone() throws IOException {
+        Request<?> request = newRequest();
+        request.setContent(new StringInputStream("abc"));
+        request.addHeader("Content-Length", "3");
+        request.addHeader("Content-Encoding", "identity");
+        assertFalse(RequestCompressor.compress(request, 0));
+    }
+
+    @Test
+    public void testUnknownContentLengthLeftAlone() throws IOException {
+        Request<?> request = newRequest();
+        request.setContent(new StringInputStream("abc"));
+        assertFalse(RequestCompressor.compress(request, 0));
+    }
+
+    @Test
+    public void testNonPostLeftAlone() {
+        Request<?> request = newRequest();
+        request.setHttpMethod(HttpMethodName.GET);
+        request.addParameter("Action", "Publish");
+        assertFalse(RequestCompressor.compress(request, 0));
+    }
+
+    private static Request<?> newRequest() {
+        return new DefaultRequest<Object>(new AmazonWebServiceRequest() {}, "test");
+    }
+
+    private static int compressedLength(Request<?> request) throws IOException {
+        request.getContent().reset();
+        int length = IOUtils.toByteArray(request.getContent()).length;
+        request.getContent().reset();
+        return length;
+    }
+
+    private static String gunzip(Request<?> request) throws IOException {
+        request.getContent().reset();
+        String s = IOUtils.toString(new GZIPInputStream(request.getContent()));
+        request.getContent().reset();
+        return s;
+    }
+}
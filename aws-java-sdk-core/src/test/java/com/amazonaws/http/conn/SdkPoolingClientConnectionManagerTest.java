@@ -0,0 +1,342 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.conn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.http.conn.ssl.SdkTLSSocketFactory;
+
+public class SdkPoolingClientConnectionManagerTest {
+    private static final HttpRoute ROUTE_A =
+        new HttpRoute(new HttpHost("a.amazonaws.com", 443, "https"));
+    private static final HttpRoute ROUTE_B =
+        new HttpRoute(new HttpHost("b.amazonaws.com", 443, "https"));
+    /** Password of the localhost.jks test key store and its key */
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private SdkPoolingClientConnectionManager cm;
+
+    @After
+    public void tearDown() {
+        if (cm != null)
+            cm.shutdown();
+    }
+
+    @Test
+    public void routeLimitedByMaxPerRoute() {
+        cm = newManager(10, 4, false, null);
+        assertEquals(4, cm.getMaxPerRoute(ROUTE_A));
+        assertEquals(10, cm.getMaxTotal());
+    }
+
+    @Test
+    public void fairSharingSplitsPoolByWeight() throws Exception {
+        Map<String, Integer> weights = new HashMap<String, Integer>();
+        weights.put("b.amazonaws.com", 3);
+        cm = newManager(20, 20, true, weights);
+
+        lease(ROUTE_A);
+        assertEquals(20, cm.getMaxPerRoute(ROUTE_A));
+        lease(ROUTE_B);
+        assertEquals(5, cm.getMaxPerRoute(ROUTE_A));
+        assertEquals(15, cm.getMaxPerRoute(ROUTE_B));
+    }
+
+    @Test
+    public void fairShareBoundedByMaxPerRoute() throws Exception {
+        cm = newManager(20, 8, true, null);
+        lease(ROUTE_A);
+        assertEquals(8, cm.getMaxPerRoute(ROUTE_A));
+    }
+
+    @Test
+    public void routeStatsCountLeases() throws Exception {
+        cm = newManager(10, 10, false, null);
+        assertNull(cm.getRouteStats(ROUTE_A.getTargetHost()));
+
+        ManagedClientConnection conn = lease(ROUTE_A);
+        RouteStats stats = cm.getRouteStats(new HttpHost("A.amazonaws.com", -1, "https"));
+        assertNotNull(stats);
+        assertEquals(1, stats.getLeased());
+        assertEquals(1, stats.getLeaseCount());
+        assertEquals(0, stats.getOpenedCount());
+        assertEquals(1, cm.getAllRouteStats().size());
+
+        cm.releaseConnection(conn, -1, TimeUnit.MILLISECONDS);
+        assertEquals(0, cm.getRouteStats(ROUTE_A.getTargetHost()).getLeased());
+    }
+
+    @Test
+    public void leaseWaitIsTakenOncePerLease() throws Exception {
+        cm = newManager(10, 10, false, null);
+        assertEquals(-1, cm.takeLeaseWaitNanos());
+        lease(ROUTE_A);
+        assertTrue(cm.takeLeaseWaitNanos() >= 0);
+        assertEquals(-1, cm.takeLeaseWaitNanos());
+    }
+
+    @Test
+    public void idleRoutesArePruned() throws Exception {
+        cm = newManager(10, 10, true, null);
+        cm.releaseConnection(lease(ROUTE_A), -1, TimeUnit.MILLISECONDS);
+        lease(ROUTE_B);
+        assertEquals(5, cm.getMaxPerRoute(ROUTE_B));
+
+        cm.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        assertNull(cm.getRouteStats(ROUTE_A.getTargetHost()));
+        assertEquals(10, cm.getMaxPerRoute(ROUTE_B));
+    }
+
+    @Test
+    public void warmUpOpensConnections() throws Exception {
+        ServerSocket server = new ServerSocket(0);
+        try {
+            HttpRoute route = new HttpRoute(
+                    new HttpHost("localhost", server.getLocalPort(), "http"));
+            cm = newManager(10, 10, false, null);
+            HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, 1000);
+
+            assertEquals(3, cm.warmUp(route, 3, params));
+            RouteStats stats = cm.getRouteStats(route.getTargetHost());
+            assertEquals(3, stats.getAvailable());
+            assertEquals(0, stats.getLeased());
+            assertEquals(3, stats.getOpenedCount());
+            // The idle connections are reused rather than opening new ones
+            assertEquals(0, cm.warmUp(route, 3, params));
+            assertEquals(3, cm.getRouteStats(route.getTargetHost()).getAvailable());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void keepWarmSurvivesIdleReaping() throws Exception {
+        ServerSocket server = new ServerSocket(0);
+        try {
+            HttpRoute route = new HttpRoute(
+                    new HttpHost("localhost", server.getLocalPort(), "http"));
+            cm = newManager(10, 10, false, null);
+            HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, 1000);
+            cm.setKeepWarm(2, params);
+
+            assertEquals(3, cm.warmUp(route, 3, params));
+            Thread.sleep(10);
+            cm.closeIdleConnections(5, TimeUnit.MILLISECONDS);
+            cm.getKeepWarmTask().get(5, TimeUnit.SECONDS);
+            RouteStats stats = cm.getRouteStats(route.getTargetHost());
+            assertNotNull(stats);
+            assertEquals(2, stats.getAvailable());
+            assertEquals(3, stats.getOpenedCount());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void warmUpLeasesOneConnectionAtATime() throws Exception {
+        ServerSocket server = new ServerSocket(0);
+        try {
+            final HttpRoute route = new HttpRoute(
+                    new HttpHost("localhost", server.getLocalPort(), "http"));
+            final List<Integer> leasedWhileOpening = new CopyOnWriteArrayList<Integer>();
+            SchemeRegistry schemeRegistry = new SchemeRegistry();
+            schemeRegistry.register(new Scheme("http", 80, new PlainSocketFactory() {
+                @Override
+                public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress,
+                        InetSocketAddress localAddress, HttpParams params) throws IOException {
+                    leasedWhileOpening.add(cm.getStats(route).getLeased());
+                    return super.connectSocket(socket, remoteAddress, localAddress, params);
+                }
+            }));
+            cm = new SdkPoolingClientConnectionManager(schemeRegistry, -1,
+                    TimeUnit.MILLISECONDS, 10, 10, false, null);
+            HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, 1000);
+
+            assertEquals(3, cm.warmUp(route, 3, params));
+            assertEquals(Arrays.asList(1, 1, 1), leasedWhileOpening);
+            // The warm connections are handed out to the requests
+            for (int i = 0; i < 3; i++)
+                assertTrue(lease(route).isOpen());
+            assertEquals(3, cm.getRouteStats(route.getTargetHost()).getOpenedCount());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void keepWarmOnlyMakesUpForLeasedConnections() throws Exception {
+        ServerSocket server = new ServerSocket(0);
+        try {
+            HttpRoute route = new HttpRoute(
+                    new HttpHost("localhost", server.getLocalPort(), "http"));
+            cm = newManager(10, 10, false, null);
+            HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, 1000);
+            cm.setKeepWarm(2, params);
+
+            assertEquals(3, cm.warmUp(route, 3, params));
+            ManagedClientConnection leased = lease(route);
+            Thread.sleep(10);
+            cm.closeIdleConnections(5, TimeUnit.MILLISECONDS);
+            cm.getKeepWarmTask().get(5, TimeUnit.SECONDS);
+            // The leased connection counts towards the two kept warm
+            RouteStats stats = cm.getRouteStats(route.getTargetHost());
+            assertEquals(1, stats.getLeased());
+            assertEquals(1, stats.getAvailable());
+            assertEquals(3, stats.getOpenedCount());
+            cm.releaseConnection(leased, -1, TimeUnit.MILLISECONDS);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void keepWarmReplacesClosedTlsConnections() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = getClass().getResourceAsStream("localhost.jks");
+        try {
+            keyStore.load(in, PASSWORD);
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        final SSLServerSocket server = (SSLServerSocket) serverContext
+            .getServerSocketFactory().createServerSocket(0);
+        // TLS 1.3 sessions have no master secret, which SdkTLSSocketFactory checks
+        server.setEnabledProtocols(new String[] { "TLSv1.2" });
+        final List<Socket> accepted = new CopyOnWriteArrayList<Socket>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (;;) {
+                        SSLSocket socket = (SSLSocket) server.accept();
+                        socket.startHandshake();
+                        accepted.add(socket);
+                    }
+                } catch (IOException e) {
+                    // the server socket is closed
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+        try {
+            SchemeRegistry schemeRegistry = new SchemeRegistry();
+            schemeRegistry.register(new Scheme("https", 443, new SdkTLSSocketFactory(
+                    clientContext, SSLSocketFactory.STRICT_HOSTNAME_VERIFIER)));
+            cm = new SdkPoolingClientConnectionManager(schemeRegistry, -1,
+                    TimeUnit.MILLISECONDS, 10, 10, false, null);
+            HttpRoute route = new HttpRoute(
+                    new HttpHost("localhost", server.getLocalPort(), "https"), null, true);
+            HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, 5000);
+            HttpConnectionParams.setSoTimeout(params, 5000);
+            cm.setKeepWarm(2, params);
+
+            assertEquals(3, cm.warmUp(route, 3, params));
+            // The server closes two of the three connections
+            waitForAccepted(accepted, 3);
+            accepted.get(0).close();
+            accepted.get(1).close();
+            Thread.sleep(300);
+
+            cm.closeIdleConnections(200, TimeUnit.MILLISECONDS);
+            cm.getKeepWarmTask().get(10, TimeUnit.SECONDS);
+            RouteStats stats = cm.getRouteStats(route.getTargetHost());
+            assertEquals(2, stats.getAvailable());
+            // The surviving connection is kept, and one is re-opened
+            assertEquals(4, stats.getOpenedCount());
+            waitForAccepted(accepted, 4);
+        } finally {
+            server.close();
+            for (Socket socket : accepted)
+                socket.close();
+        }
+    }
+
+    private static void waitForAccepted(List<Socket> accepted, int count)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && accepted.size() < count; i++)
+            Thread.sleep(10);
+        assertEquals(count, accepted.size());
+    }
+
+    @Test
+    public void wrappedManagerExposesRouteStats() {
+        cm = newManager(10, 10, false, null);
+        ClientConnectionManager wrapped = ClientConnectionManagerFactory.wrap(cm);
+        assertTrue(wrapped instanceof SdkConnPoolControl);
+    }
+
+    private SdkPoolingClientConnectionManager newManager(int maxTotal,
+            int maxPerRoute, boolean fairSharing, Map<String, Integer> weights) {
+        return new SdkPoolingClientConnectionManager(
+                SchemeRegistryFactory.createDefault(), -1, TimeUnit.MILLISECONDS,
+                maxTotal, maxPerRoute, fairSharing, weights);
+    }
+
+    private ManagedClientConnection lease(HttpRoute route) throws Exception {
+        return cm.requestConnection(route, null).getConnection(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Compares the time taken and the bytes allocated per response body by
+ * {@link IOUtils#toByteArray(InputStream)}, {@link IOUtils#copy(InputStream, OutputStream)}
+ * and {@link SdkBufferedInputStream}, which draw their buffers from the
+ * {@link BufferPool}, with the previous implementations, which allocated a
+ * new buffer per call or stream. Bodies are read in chunks of at most 1460
+ * bytes, as from a socket.
+ * <p>
+ * Usage: <code>BufferPoolBenchmark [body size] [iterations]</code>
+ * (defaults: 2048 bytes, as a typical JSON response, and 200000 iterations).
+ * Allocations are measured with the HotSpot specific
+ * com.sun.management.ThreadMXBean.
+ */
+public class BufferPoolBenchmark {
+
+    private static final int LEGACY_BUFFER_SIZE = 1024 * 4;
+
+    /** Keeps the results from being optimized away */
+    static volatile long sink;
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int bodySize = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        byte[] body = new byte[bodySize];
+        new Random(42).nextBytes(body);
+        System.out.println("Reading a body of " + bodySize + " bytes " + iterations + " times");
+
+        for (int round = 0; round < 3; round++) {
+            System.out.println("round " + round);
+            report("toByteArray", new Workload(body, iterations) {
+                long run(InputStream in) throws IOException {
+                    return legacyToByteArray(in).length;
+                }
+            }.measure(), new Workload(body, iterations) {
+                long run(InputStream in) throws IOException {
+                    return IOUtils.toByteArray(in).length;
+                }
+            }.measure());
+            report("copy", new Workload(body, iterations) {
+                long run(InputStream in) throws IOException {
+                    return legacyCopy(in, NULL_OUTPUT);
+                }
+            }.measure(), new Workload(body, iterations) {
+                long run(InputStream in) throws IOException {
+                    return IOUtils.copy(in, NULL_OUTPUT);
+                }
+            }.measure());
+            report("buffered read", new Workload(body, iterations) {
+                long run(InputStream in) throws IOException {
+                    return drain(new BufferedInputStream(in));
+                }
+            }.measure(), new Workload(body, iterations) {
+                long run(InputStream in) throws IOException {
+                    return drain(new SdkBufferedInputStream(in));
+                }
+            }.measure());
+        }
+    }
+
+    private static void report(String name, long[] legacy, long[] pooled) {
+        System.out.println(String.format("  %-14s legacy %8.0f ns %8d B/op   pooled %8.0f ns %8d B/op",
+                name, legacy[0] / 1.0, legacy[1], pooled[0] / 1.0, pooled[1]));
+    }
+
+    /**
+     * Times the given operation over fresh socket-like streams of the body;
+     * returns the nanoseconds and bytes allocated per iteration.
+     */
+    private abstract static class Workload {
+        private final byte[] body;
+        private final int iterations;
+
+        Workload(byte[] body, int iterations) {
+            this.body = body;
+            this.iterations = iterations;
+        }
+
+        abstract long run(InputStream in) throws IOException;
+
+        long[] measure() throws IOException {
+            long threadId = Thread.currentThread().getId();
+            long total = 0;
+            long allocated = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                total += run(new SocketLikeInputStream(body));
+            }
+            long nanos = System.nanoTime() - start;
+            allocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+            sink = total;
+            return new long[] { nanos / iterations, allocated / iterations };
+        }
+    }
+
+    private static final byte[] scratch = new byte[512];
+
+    /** Reads the stream in small chunks, as a parser would */
+    private static long drain(InputStream in) throws IOException {
+        long count = 0;
+        int n;
+        while ((n = in.read(scratch)) != -1) {
+            count += n;
+        }
+        in.close();
+        return count;
+    }
+
+    /** The previous implementation of IOUtils.toByteArray */
+    private static byte[] legacyToByteArray(InputStream is) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            byte[] b = new byte[LEGACY_BUFFER_SIZE];
+            int n = 0;
+            while ((n = is.read(b)) != -1) {
+                output.write(b, 0, n);
+            }
+            return output.toByteArray();
+        } finally {
+            output.close();
+        }
+    }
+
+    /** The previous implementation of IOUtils.copy */
+    private static long legacyCopy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[LEGACY_BUFFER_SIZE];
+        long count = 0;
+        int n = 0;
+        while ((n = in.read(buf)) > -1) {
+            out.write(buf, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
+    private static final OutputStream NULL_OUTPUT = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    /**
+     * Returns at most one TCP segment's worth of data per read.
+     */
+    private static class SocketLikeInputStream extends ByteArrayInputStream {
+        SocketLikeInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1460));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Before
+    public void drain() {
+        // Empty the current thread's cache, which other tests may have filled
+        for (int size = 4096; size <= BufferPool.MAX_POOLED_SIZE; size *= 2) {
+            for (int i = 0; i < BufferPool.BUFFERS_PER_SIZE_CLASS; i++) {
+                BufferPool.acquire(size);
+            }
+        }
+        assertEquals(0, BufferPool.idleCount());
+    }
+
+    @Test
+    public void testSizeClasses() {
+        assertEquals(4096, BufferPool.acquire(0).length);
+        assertEquals(4096, BufferPool.acquire(1).length);
+        assertEquals(4096, BufferPool.acquire(4096).length);
+        assertEquals(8192, BufferPool.acquire(4097).length);
+        assertEquals(16384, BufferPool.acquire(10240).length);
+        assertEquals(BufferPool.MAX_POOLED_SIZE,
+                BufferPool.acquire(BufferPool.MAX_POOLED_SIZE).length);
+        assertEquals(BufferPool.MAX_POOLED_SIZE + 1,
+                BufferPool.acquire(BufferPool.MAX_POOLED_SIZE + 1).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSize() {
+        BufferPool.acquire(-1);
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        byte[] buffer = BufferPool.acquire(5000);
+        BufferPool.release(buffer);
+        assertEquals(1, BufferPool.idleCount());
+        assertSame(buffer, BufferPool.acquire(8192));
+        assertEquals(0, BufferPool.idleCount());
+        assertNotSame(buffer, BufferPool.acquire(8192));
+    }
+
+    @Test
+    public void testRetentionIsBounded() {
+        for (int i = 0; i < BufferPool.BUFFERS_PER_SIZE_CLASS + 2; i++) {
+            BufferPool.release(new byte[4096]);
+        }
+        assertEquals(BufferPool.BUFFERS_PER_SIZE_CLASS, BufferPool.idleCount());
+    }
+
+    @Test
+    public void testRetainedBytesAreBounded() {
+        for (int size = 4096; size <= BufferPool.MAX_POOLED_SIZE; size *= 2) {
+            for (int i = 0; i < BufferPool.BUFFERS_PER_SIZE_CLASS; i++) {
+                BufferPool.release(new byte[size]);
+            }
+        }
+        assertTrue(BufferPool.retainedBytes() > 0);
+        assertTrue(BufferPool.retainedBytes() <= BufferPool.MAX_RETAINED_BYTES);
+        int count = BufferPool.idleCount();
+        BufferPool.acquire(4096);
+        assertEquals(count - 1, BufferPool.idleCount());
+    }
+
+    @Test
+    public void testDoubleReleaseIsIgnored() {
+        byte[] buffer = BufferPool.acquire(4096);
+        BufferPool.release(buffer);
+        BufferPool.release(buffer);
+        assertEquals(1, BufferPool.idleCount());
+        assertSame(buffer, BufferPool.acquire(4096));
+        assertNotSame(buffer, BufferPool.acquire(4096));
+    }
+
+    @Test
+    public void testOddSizesAreNotPooled() {
+        BufferPool.release(new byte[5000]);
+        BufferPool.release(new byte[BufferPool.MAX_POOLED_SIZE * 2]);
+        BufferPool.release(null);
+        assertEquals(0, BufferPool.idleCount());
+    }
+
+    @Test
+    public void testBuffersAreCachedPerThread() throws Exception {
+        final byte[] buffer = BufferPool.acquire(4096);
+        BufferPool.release(buffer);
+        final AtomicReference<byte[]> acquired = new AtomicReference<byte[]>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                acquired.set(BufferPool.acquire(4096));
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotSame(buffer, acquired.get());
+        assertSame(buffer, BufferPool.acquire(4096));
+    }
+
+    @Test
+    public void testBufferedInputStreamReleasesOnClose() throws IOException {
+        byte[] data = new byte[100 * 1024];
+        new Random(42).nextBytes(data);
+        SdkBufferedInputStream in = new SdkBufferedInputStream(
+                new ByteArrayInputStream(data));
+        byte[] read = new byte[data.length];
+        int n = 0;
+        while (n < read.length) {
+            n += in.read(read, n, Math.min(1000, read.length - n));
+        }
+        assertArrayEquals(data, read);
+        assertEquals(0, BufferPool.idleCount());
+        in.close();
+        assertEquals(1, BufferPool.idleCount());
+        in.close();
+        assertEquals(1, BufferPool.idleCount());
+    }
+
+    @Test
+    public void testBufferInUseIsNotReleasedOnClose() throws Exception {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final SdkBufferedInputStream in = new SdkBufferedInputStream(new InputStream() {
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                reading.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e.toString());
+                }
+                return len;
+            }
+        });
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    in.read(new byte[100], 0, 100);
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        reader.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        // Closed, e.g. to abort, while the other thread is filling the buffer
+        in.close();
+        assertEquals(0, BufferPool.idleCount());
+        proceed.countDown();
+        reader.join();
+        assertTrue(failure.get() instanceof IOException);
+        in.close();
+        assertEquals(0, BufferPool.idleCount());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+
+public class PooledGzipInputStreamTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] data = randomText(100 * 1024);
+        PooledGzipInputStream in = new PooledGzipInputStream(
+                new ByteArrayInputStream(gzip(data)));
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+        in.close();
+    }
+
+    @Test
+    public void testEmptyPayload() throws IOException {
+        PooledGzipInputStream in = new PooledGzipInputStream(
+                new ByteArrayInputStream(gzip(new byte[0])));
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    @Test
+    public void testOptionalHeaderFields() throws IOException {
+        byte[] data = "hello world".getBytes("UTF-8");
+        byte[] gzipped = gzip(data);
+        // Insert FEXTRA, FNAME and FCOMMENT fields after the fixed header
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(gzipped, 0, 3);
+        out.write(4 | 8 | 16);
+        out.write(gzipped, 4, 6);
+        out.write(new byte[] {2, 0, 'x', 'y'});
+        out.write("name\0".getBytes("UTF-8"));
+        out.write("comment\0".getBytes("UTF-8"));
+        out.write(gzipped, 10, gzipped.length - 10);
+        PooledGzipInputStream in = new PooledGzipInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+        in.close();
+    }
+
+    @Test(expected = ZipException.class)
+    public void testCorruptTrailer() throws IOException {
+        byte[] gzipped = gzip(randomText(1024));
+        gzipped[gzipped.length - 8] ^= 0xff;
+        PooledGzipInputStream in = new PooledGzipInputStream(
+                new ByteArrayInputStream(gzipped));
+        try {
+            IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void testNotGzip() throws IOException {
+        new PooledGzipInputStream(new ByteArrayInputStream(new byte[16]));
+    }
+
+    @Test
+    public void testInflaterReturnedToPool() throws IOException {
+        byte[] data = randomText(1024);
+        byte[] gzipped = gzip(data);
+        for (int i = 0; i < 3; i++) {
+            PooledGzipInputStream in = new PooledGzipInputStream(
+                    new ByteArrayInputStream(gzipped));
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+            in.close();
+            in.close();
+        }
+        int idle = PooledGzipInputStream.pool().idleCount();
+        assertTrue(idle >= 1);
+        assertTrue(idle <= PooledGzipInputStream.MAX_POOLED_INFLATERS);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] randomText(int size) {
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+}
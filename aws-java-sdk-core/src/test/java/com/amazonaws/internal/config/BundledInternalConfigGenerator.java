@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal.config;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+
+import com.amazonaws.util.ClassLoaderHelper;
+
+/**
+ * Generates {@link BundledInternalConfig} from the bundled
+ * awssdk_config_default.json. Run it whenever that file changes;
+ * {@link BundledInternalConfigTest} fails until the two are back in sync.
+ * <p>
+ * Usage: <code>BundledInternalConfigGenerator [output file]</code> (default:
+ * standard output), e.g. from the module directory:
+ * <code>BundledInternalConfigGenerator src/main/java/com/amazonaws/internal/config/BundledInternalConfig.java</code>
+ */
+public class BundledInternalConfigGenerator {
+
+    public static void main(String[] args) throws Exception {
+        URL url = ClassLoaderHelper.getResource(InternalConfig.DEFAULT_CONFIG_RESOURCE);
+        String source = generate(InternalConfig.loadfrom(url));
+        if (args.length == 0) {
+            System.out.print(source);
+            return;
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(args[0]), "UTF-8");
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+    static String generate(InternalConfigJsonHelper config) {
+        StringBuilder out = new StringBuilder();
+        out.append("/*\n"
+                + " * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.\n"
+                + " *\n"
+                + " * Licensed under the Apache License, Version 2.0 (the \"License\").\n"
+                + " * You may not use this file except in compliance with the License.\n"
+                + " * A copy of the License is located at\n"
+                + " *\n"
+                + " *  http://aws.amazon.com/apache2.0\n"
+                + " *\n"
+                + " * or in the \"license\" file accompanying this file. This file is distributed\n"
+                + " * on an \"AS IS\" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either\n"
+                + " * express or implied. See the License for the specific language governing\n"
+                + " * permissions and limitations under the License.\n"
+                + " */\n"
+                + "package com.amazonaws.internal.config;\n"
+                + "\n"
+                + "/**\n"
+                + " * The internal configuration bundled with the SDK in\n"
+                + " * awssdk_config_default.json, compiled into Java so that loading it doesn't\n"
+                + " * require initializing Jackson and parsing JSON.\n"
+                + " * <p>\n"
+                + " * Generated by BundledInternalConfigGenerator; do not edit.\n"
+                + " */\n"
+                + "final class BundledInternalConfig {\n"
+                + "\n"
+                + "    private BundledInternalConfig() {}\n"
+                + "\n"
+                + "    /**\n"
+                + "     * Returns a new copy of the bundled configuration, as it would be\n"
+                + "     * unmarshalled from awssdk_config_default.json.\n"
+                + "     */\n"
+                + "    @SuppressWarnings(\"unchecked\")\n"
+                + "    static InternalConfigJsonHelper load() {\n"
+                + "        InternalConfigJsonHelper config = new InternalConfigJsonHelper();\n");
+        if (config.getDefaultSigner() != null) {
+            out.append("        config.setDefaultSigner(new SignerConfigJsonHelper(")
+               .append(literal(config.getDefaultSigner().getSignerType())).append("));\n");
+        }
+        appendSigners(out, "setServiceSigners", config.getServiceSigners());
+        appendSigners(out, "setRegionSigners", config.getRegionSigners());
+        appendSigners(out, "setServiceRegionSigners", config.getServiceRegionSigners());
+        if (config.getHttpClients() != null) {
+            out.append("        config.setHttpClients(");
+            String separator = "";
+            for (JsonIndex<HttpClientConfigJsonHelper, HttpClientConfig> index : config.getHttpClients()) {
+                out.append(separator).append("\n                httpClient(")
+                   .append(literal(index.getKey())).append(", ")
+                   .append(literal(index.getConfig().getServiceName())).append(")");
+                separator = ",";
+            }
+            out.append(");\n");
+        }
+        if (config.getHostRegexToRegionMappings() != null) {
+            out.append("        config.setHostRegexToRegionMappings(new HostRegexToRegionMappingJsonHelper[] {");
+            String separator = "";
+            for (HostRegexToRegionMappingJsonHelper mapping : config.getHostRegexToRegionMappings()) {
+                out.append(separator).append("\n                hostRegexToRegion(")
+                   .append(literal(mapping.getHostNameRegex())).append(", ")
+                   .append(literal(mapping.getRegionName())).append(")");
+                separator = ",";
+            }
+            out.append(" });\n");
+        }
+        if (config.getUserAgentTemplate() != null) {
+            out.append("        config.setUserAgentTemplate(\n                ")
+               .append(literal(config.getUserAgentTemplate())).append(");\n");
+        }
+        out.append("        return config;\n"
+                + "    }\n"
+                + "\n"
+                + "    private static JsonIndex<SignerConfigJsonHelper, SignerConfig> signer(String key, String signerType) {\n"
+                + "        return new JsonIndex<SignerConfigJsonHelper, SignerConfig>(key, new SignerConfigJsonHelper(signerType));\n"
+                + "    }\n"
+                + "\n"
+                + "    private static JsonIndex<HttpClientConfigJsonHelper, HttpClientConfig> httpClient(String key, String serviceName) {\n"
+                + "        return new JsonIndex<HttpClientConfigJsonHelper, HttpClientConfig>(key, new HttpClientConfigJsonHelper(serviceName));\n"
+                + "    }\n"
+                + "\n"
+                + "    private static HostRegexToRegionMappingJsonHelper hostRegexToRegion(String hostNameRegex, String regionName) {\n"
+                + "        HostRegexToRegionMappingJsonHelper mapping = new HostRegexToRegionMappingJsonHelper();\n"
+                + "        mapping.setHostNameRegex(hostNameRegex);\n"
+                + "        mapping.setRegionName(regionName);\n"
+                + "        return mapping;\n"
+                + "    }\n"
+                + "}\n");
+        return out.toString();
+    }
+
+    private static void appendSigners(StringBuilder out, String setter,
+            JsonIndex<SignerConfigJsonHelper, SignerConfig>[] signers) {
+        if (signers == null) {
+            return;
+        }
+        out.append("        config.").append(setter).append("(");
+        String separator = "";
+        for (JsonIndex<SignerConfigJsonHelper, SignerConfig> index : signers) {
+            out.append(separator).append("\n                signer(")
+               .append(literal(index.getKey())).append(", ")
+               .append(literal(index.getConfig().getSignerType())).append(")");
+            separator = ",";
+        }
+        out.append(");\n");
+    }
+
+    /**
+     * Returns the given string as a Java string literal.
+     */
+    static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
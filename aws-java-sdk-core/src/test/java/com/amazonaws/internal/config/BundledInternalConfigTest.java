@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal.config;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URL;
+
+import org.junit.Test;
+
+import com.amazonaws.util.ClassLoaderHelper;
+
+public class BundledInternalConfigTest {
+
+    /**
+     * Fails when awssdk_config_default.json has been changed without
+     * regenerating BundledInternalConfig with BundledInternalConfigGenerator.
+     */
+    @Test
+    public void testInSyncWithDefaultConfigResource() throws Exception {
+        URL url = ClassLoaderHelper.getResource(InternalConfig.DEFAULT_CONFIG_RESOURCE);
+        assertEquals(BundledInternalConfigGenerator.generate(InternalConfig.loadfrom(url)),
+                BundledInternalConfigGenerator.generate(BundledInternalConfig.load()));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates {@link BundledRegionMetadata} from the bundled
+ * /com/amazonaws/regions/regions.xml. Run it whenever that file changes;
+ * {@link BundledRegionMetadataTest} fails until the two are back in sync.
+ * <p>
+ * Usage: <code>BundledRegionMetadataGenerator [output file]</code> (default:
+ * standard output), e.g. from the module directory:
+ * <code>BundledRegionMetadataGenerator src/main/java/com/amazonaws/regions/BundledRegionMetadata.java</code>
+ */
+public class BundledRegionMetadataGenerator {
+
+    private static final String RESOURCE_PATH = "/com/amazonaws/regions/regions.xml";
+
+    public static void main(String[] args) throws Exception {
+        String source = generate(RegionUtils.loadMetadataFromResource(RESOURCE_PATH));
+        if (args.length == 0) {
+            System.out.print(source);
+            return;
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(args[0]), "UTF-8");
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+    static String generate(RegionMetadata metadata) {
+        StringBuilder out = new StringBuilder();
+        out.append("/*\n"
+                + " * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.\n"
+                + " *\n"
+                + " * Licensed under the Apache License, Version 2.0 (the \"License\").\n"
+                + " * You may not use this file except in compliance with the License.\n"
+                + " * A copy of the License is located at\n"
+                + " *\n"
+                + " *  http://aws.amazon.com/apache2.0\n"
+                + " *\n"
+                + " * or in the \"license\" file accompanying this file. This file is distributed\n"
+                + " * on an \"AS IS\" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either\n"
+                + " * express or implied. See the License for the specific language governing\n"
+                + " * permissions and limitations under the License.\n"
+                + " */\n"
+                + "package com.amazonaws.regions;\n"
+                + "\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "/**\n"
+                + " * The region metadata bundled with the SDK in\n"
+                + " * /com/amazonaws/regions/regions.xml, compiled into Java so that loading it\n"
+                + " * doesn't require parsing XML.\n"
+                + " * <p>\n"
+                + " * Generated by BundledRegionMetadataGenerator; do not edit.\n"
+                + " */\n"
+                + "final class BundledRegionMetadata {\n"
+                + "\n"
+                + "    private static final String HTTP = \"http\";\n"
+                + "    private static final String HTTPS = \"https\";\n"
+                + "    private static final String HTTP_HTTPS = \"http,https\";\n"
+                + "\n"
+                + "    /**\n"
+                + "     * One row per region: its name and domain, followed by the service\n"
+                + "     * name, host name and supported protocols of each of its endpoints.\n"
+                + "     */\n"
+                + "    private static final String[][] REGIONS = {\n");
+        for (Region region : metadata.getRegions()) {
+            out.append("        { ").append(literal(region.getName())).append(", ")
+               .append(literal(region.getDomain())).append(",\n");
+            List<String> services = new ArrayList<String>(region.getServiceEndpoints().keySet());
+            Collections.sort(services);
+            for (String service : services) {
+                out.append("            ").append(literal(service)).append(", ")
+                   .append(literal(region.getServiceEndpoint(service))).append(", ")
+                   .append(protocols(region.hasHttpEndpoint(service), region.hasHttpsEndpoint(service)))
+                   .append(",\n");
+            }
+            out.append("        },\n");
+        }
+        out.append("    };\n"
+                + "\n"
+                + "    private BundledRegionMetadata() {}\n"
+                + "\n"
+                + "    /**\n"
+                + "     * Returns a new copy of the bundled region metadata, as it would be\n"
+                + "     * parsed from /com/amazonaws/regions/regions.xml.\n"
+                + "     */\n"
+                + "    static RegionMetadata create() {\n"
+                + "        List<Region> regions = new ArrayList<Region>(REGIONS.length);\n"
+                + "        for (String[] row : REGIONS) {\n"
+                + "            Region region = new Region(row[0], row[1]);\n"
+                + "            for (int i = 2; i < row.length; i += 3) {\n"
+                + "                String serviceName = row[i];\n"
+                + "                String protocols = row[i + 2];\n"
+                + "                region.getServiceEndpoints().put(serviceName, row[i + 1]);\n"
+                + "                region.getHttpSupport().put(serviceName, HTTP.equals(protocols) || HTTP_HTTPS.equals(protocols));\n"
+                + "                region.getHttpsSupport().put(serviceName, HTTPS.equals(protocols) || HTTP_HTTPS.equals(protocols));\n"
+                + "            }\n"
+                + "            regions.add(region);\n"
+                + "        }\n"
+                + "        return new RegionMetadata(regions);\n"
+                + "    }\n"
+                + "}\n");
+        return out.toString();
+    }
+
+    private static String protocols(boolean http, boolean https) {
+        if (http) {
+            return https ? "HTTP_HTTPS" : "HTTP";
+        }
+        return https ? "HTTPS" : "\"\"";
+    }
+
+    private static String literal(String value) {
+        return value == null ? "null" : "\"" + value + "\"";
+    }
+}
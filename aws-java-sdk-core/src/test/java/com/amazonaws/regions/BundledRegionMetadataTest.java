@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BundledRegionMetadataTest {
+
+    /**
+     * Fails when regions.xml has been changed without regenerating
+     * BundledRegionMetadata with BundledRegionMetadataGenerator.
+     */
+    @Test
+    public void testInSyncWithBundledRegionsXml() throws Exception {
+        RegionMetadata parsed = RegionUtils.loadMetadataFromResource("/com/amazonaws/regions/regions.xml");
+        assertEquals(BundledRegionMetadataGenerator.generate(parsed),
+                BundledRegionMetadataGenerator.generate(BundledRegionMetadata.create()));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares endpoint-to-region resolution with the indexes of
+ * {@link RegionMetadata#getRegionByEndpoint(String)} against the previous
+ * implementation, which parsed every service endpoint of every region until
+ * one had the same host. The endpoints resolved are those of every service in
+ * every bundled region, half as bare host names and half as URLs.
+ * <p>
+ * Usage: <code>RegionLookupBenchmark [iterations]</code> (default: 200
+ * passes over all endpoints).
+ */
+public class RegionLookupBenchmark {
+
+    static volatile int sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        RegionMetadata metadata = RegionUtils.getRegionMetadata();
+        List<String> endpoints = new ArrayList<String>();
+        for (Region region : metadata.getRegions()) {
+            for (String host : region.getServiceEndpoints().values()) {
+                endpoints.add(endpoints.size() % 2 == 0 ? host : "https://" + host + "/");
+            }
+        }
+        for (String endpoint : endpoints) {
+            if (legacyGetRegionByEndpoint(metadata, endpoint) != metadata.getRegionByEndpoint(endpoint)) {
+                throw new AssertionError("Regions differ for " + endpoint);
+            }
+        }
+        System.out.println("Resolving " + endpoints.size() + " endpoints of "
+                + metadata.getRegions().size() + " regions " + iterations + " times");
+
+        for (int round = 0; round < 3; round++) {
+            int hash = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (String endpoint : endpoints) {
+                    hash += legacyGetRegionByEndpoint(metadata, endpoint).hashCode();
+                }
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (String endpoint : endpoints) {
+                    hash += metadata.getRegionByEndpoint(endpoint).hashCode();
+                }
+            }
+            long indexedNanos = System.nanoTime() - start;
+            sink = hash;
+
+            long lookups = (long) iterations * endpoints.size();
+            System.out.println(String.format("round %d   linear scan %9.1f ns/lookup   indexed %7.1f ns/lookup",
+                    round, (double) legacyNanos / lookups, (double) indexedNanos / lookups));
+        }
+    }
+
+    private static Region legacyGetRegionByEndpoint(RegionMetadata metadata, String endpoint) {
+        String host = getHost(endpoint);
+        for (Region region : metadata.getRegions()) {
+            for (String serviceEndpoint : region.getServiceEndpoints().values()) {
+                if (host.equals(getHost(serviceEndpoint))) {
+                    return region;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No region found with any service for endpoint " + endpoint);
+    }
+
+    private static String getHost(String endpoint) {
+        String host = URI.create(endpoint).getHost();
+        if (host == null) {
+            host = URI.create("http://" + endpoint).getHost();
+        }
+        return host;
+    }
+}
@@ -92,4 +92,38 @@ public class RegionMetadataTest {
         } catch (IllegalArgumentException e) {
         }
     }
+
+    @Test
+    public void testGetRegionByEndpointWithSchemeAndPath() {
+        Assert.assertEquals("us-east-1",
+            metadata.getRegionByEndpoint("https://s3.amazonaws.com/bucket").getName());
+        Assert.assertEquals("us-west-1",
+            metadata.getRegionByEndpoint("http://s3-us-west-1.amazonaws.com:80").getName());
+    }
+
+    @Test
+    public void testIndexesKeepScanOrder() {
+        List<Region> regions = new LinkedList<Region>();
+
+        Region first = new Region("first", null);
+        first.getServiceEndpoints().put("sqs", "sqs.shared.amazonaws.com");
+        first.getServiceEndpoints().put("bogus", "http://bad host/");
+        regions.add(first);
+
+        Region second = new Region("second", null);
+        second.getServiceEndpoints().put("sns", "https://sqs.shared.amazonaws.com");
+        regions.add(second);
+        regions.add(new Region("first", null));
+
+        RegionMetadata shared = new RegionMetadata(regions);
+        Assert.assertSame(first, shared.getRegion("first"));
+        Assert.assertSame(first, shared.getRegionByEndpoint("sqs.shared.amazonaws.com"));
+        Assert.assertEquals(1, shared.getRegionsForService("sns").size());
+        Assert.assertSame(second, shared.getRegionsForService("sns").get(0));
+        try {
+            shared.getRegionsForService("sqs").add(second);
+            Assert.fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
 }
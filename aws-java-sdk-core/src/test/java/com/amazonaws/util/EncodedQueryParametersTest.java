@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+
+public class EncodedQueryParametersTest {
+
+    @Test
+    public void testQueryStringKeepsInsertionOrder() {
+        Request<?> request = new DefaultRequest<Void>("test");
+        request.addParameter("Action", "DescribeInstances");
+        request.addParameter("Filter.2.Name", "tag:Name");
+        request.addParameter("Filter.10.Name", "a b*c~");
+        EncodedQueryParameters parameters = EncodedQueryParameters.of(request);
+        assertEquals("Action=DescribeInstances&Filter.2.Name=tag%3AName&Filter.10.Name=a%20b%2Ac~",
+                parameters.getQueryString());
+        assertEquals("Action=DescribeInstances&Filter.10.Name=a%20b%2Ac~&Filter.2.Name=tag%3AName",
+                parameters.getCanonicalQueryString());
+        assertEquals(parameters.getQueryString(), SdkHttpUtils.encodeParameters(request));
+    }
+
+    @Test
+    public void testRepeatedNamesAndNullValues() {
+        Request<?> request = new DefaultRequest<Void>("test");
+        request.addParameter("versions", null);
+        request.addParameter("b", "2");
+        request.addParameter("b", "1");
+        request.addParameter("a", "");
+        EncodedQueryParameters parameters = EncodedQueryParameters.of(request);
+        assertEquals("versions&b=2&b=1&a=", parameters.getQueryString());
+        assertEquals("a=&b=1&b=2&versions=", parameters.getCanonicalQueryString());
+    }
+
+    @Test
+    public void testEmpty() {
+        Request<?> request = new DefaultRequest<Void>("test");
+        assertEquals("", EncodedQueryParameters.of(request).getQueryString());
+        assertEquals("", EncodedQueryParameters.of(request).getCanonicalQueryString());
+        assertNull(SdkHttpUtils.encodeParameters(request));
+    }
+
+    @Test
+    public void testReusedUntilParametersChange() {
+        Request<?> request = new DefaultRequest<Void>("test");
+        request.addParameter("Action", "SendMessage");
+        request.addParameter("MessageBody", "hello");
+        EncodedQueryParameters parameters = EncodedQueryParameters.of(request);
+        assertSame(parameters, EncodedQueryParameters.of(request));
+
+        // restoring the same parameters, as done before a retry
+        request.setParameters(new LinkedHashMap<String, List<String>>(request.getParameters()));
+        assertSame(parameters, EncodedQueryParameters.of(request));
+
+        request.addParameter("Signature", "abc");
+        EncodedQueryParameters signed = EncodedQueryParameters.of(request);
+        assertNotSame(parameters, signed);
+        assertEquals("Action=SendMessage&MessageBody=hello&Signature=abc", signed.getQueryString());
+
+        request.getParameters().get("MessageBody").set(0, "bye");
+        assertEquals("Action=SendMessage&MessageBody=bye&Signature=abc",
+                EncodedQueryParameters.of(request).getQueryString());
+
+        request.getParameters().remove("Signature");
+        assertEquals("Action=SendMessage&MessageBody=bye", SdkHttpUtils.encodeParameters(request));
+    }
+
+    @Test
+    public void testUrlEncodeMatchesUrlEncoder() throws Exception {
+        String[] values = {
+                "caf\u00e9", "\u20ac100", "\u65e5\u672c\u8a9e", "\ud83d\ude00 smile", "lone \ud83d surrogate",
+                "trailing \ude00", "\u007f\u0080\u07ff\u0800\uffff", "100% ~done~"
+        };
+        for (String value : values) {
+            String expected = URLEncoder.encode(value, "UTF-8")
+                    .replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+            assertEquals(expected, SdkHttpUtils.urlEncode(value, false));
+            assertEquals(expected, SdkHttpUtils.appendUrlEncoded(new StringBuilder(), value, false).toString());
+        }
+        assertEquals("a/b%20c/", SdkHttpUtils.urlEncode("a/b c/", true));
+        assertEquals("a%2Fb%20c%2F", SdkHttpUtils.urlEncode("a/b c/", false));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.DefaultRequest;
+
+/**
+ * Compares the time taken to build the canonical query string and the query
+ * string of a Query protocol request, as a signer and the HTTP request
+ * factory do, with {@link EncodedQueryParameters} and with the previous
+ * implementation, which encoded every parameter twice with URLEncoder and a
+ * regular expression and sorted them in a TreeMap.
+ * <p>
+ * Usage: <code>QueryEncodingBenchmark [parameters] [iterations]</code>
+ * (defaults: 200 parameters, as an EC2 RunInstances or DescribeInstances
+ * request with many filters, and 20000 iterations).
+ */
+public class QueryEncodingBenchmark {
+
+    private static final Pattern ENCODED_CHARACTERS_PATTERN = Pattern.compile(
+            Pattern.quote("+") + "|" + Pattern.quote("*") + "|" + Pattern.quote("%7E") + "|" + Pattern.quote("%2F"));
+
+    public static void main(String[] args) throws Exception {
+        int parameterCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        DefaultRequest<?> request = createRequest(parameterCount);
+        String expected = legacyCanonicalQueryString(request.getParameters());
+        if (!expected.equals(EncodedQueryParameters.of(request).getCanonicalQueryString())) {
+            throw new AssertionError("Canonical query strings differ");
+        }
+        System.out.println("Encoding a request of " + parameterCount + " parameters ("
+                + expected.length() + " characters) " + iterations + " times");
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long length = 0;
+            for (int i = 0; i < iterations; i++) {
+                length += legacyCanonicalQueryString(request.getParameters()).length();
+                length += URLEncodedUtils.format(legacyPairs(request.getParameters()), "UTF-8").length();
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                // start over as a new request would
+                request.setEncodedParameters(null);
+                length += EncodedQueryParameters.of(request).getCanonicalQueryString().length();
+                length += SdkHttpUtils.encodeParameters(request).length();
+            }
+            long encodedNanos = System.nanoTime() - start;
+
+            System.out.println(String.format("round %d   legacy %8.1f us/request   encoded once %8.1f us/request   (%d chars)",
+                    round, legacyNanos / 1000.0 / iterations, encodedNanos / 1000.0 / iterations, length));
+        }
+    }
+
+    private static DefaultRequest<?> createRequest(int parameterCount) {
+        DefaultRequest<?> request = new DefaultRequest<Void>("AmazonEC2");
+        request.addParameter("Action", "DescribeInstances");
+        request.addParameter("Version", "2015-04-15");
+        for (int i = 1; request.getParameters().size() < parameterCount; i++) {
+            request.addParameter("Filter." + i + ".Name", "tag:aws:cloudformation:stack-name");
+            request.addParameter("Filter." + i + ".Value.1", "my stack/" + i + " (production)*");
+            request.addParameter("InstanceId." + i, "i-" + Integer.toHexString(0x1000000 + i * 7919));
+        }
+        return request;
+    }
+
+    private static List<NameValuePair> legacyPairs(Map<String, List<String>> parameters) {
+        List<NameValuePair> pairs = new ArrayList<NameValuePair>();
+        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+            for (String value : entry.getValue()) {
+                pairs.add(new BasicNameValuePair(entry.getKey(), value));
+            }
+        }
+        return pairs;
+    }
+
+    private static String legacyCanonicalQueryString(Map<String, List<String>> parameters) {
+        SortedMap<String, List<String>> sorted = new TreeMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+            List<String> encodedValues = new ArrayList<String>(entry.getValue().size());
+            for (String value : entry.getValue()) {
+                encodedValues.add(legacyUrlEncode(value));
+            }
+            Collections.sort(encodedValues);
+            sorted.put(legacyUrlEncode(entry.getKey()), encodedValues);
+        }
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, List<String>> entry : sorted.entrySet()) {
+            for (String value : entry.getValue()) {
+                if (result.length() > 0) {
+                    result.append("&");
+                }
+                result.append(entry.getKey()).append("=").append(value);
+            }
+        }
+        return result.toString();
+    }
+
+    private static String legacyUrlEncode(String value) {
+        try {
+            String encoded = URLEncoder.encode(value, "UTF-8");
+            Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
+            StringBuffer buffer = new StringBuffer(encoded.length());
+            while (matcher.find()) {
+                String replacement = matcher.group(0);
+                if ("+".equals(replacement)) {
+                    replacement = "%20";
+                } else if ("*".equals(replacement)) {
+                    replacement = "%2A";
+                } else if ("%7E".equals(replacement)) {
+                    replacement = "~";
+                }
+                matcher.appendReplacement(buffer, replacement);
+            }
+            matcher.appendTail(buffer);
+            return buffer.toString();
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testSlotsAreSpacedByInterval() {
+        RateLimiter limiter = new RateLimiter(4);
+        long interval = TimeUnit.MILLISECONDS.toNanos(250);
+        assertTrue(limiter.reserve() <= 0);
+        long second = limiter.reserve();
+        long third = limiter.reserve();
+        assertTrue(second > interval - TimeUnit.MILLISECONDS.toNanos(50) && second <= interval);
+        assertTrue(third > 2 * interval - TimeUnit.MILLISECONDS.toNanos(50) && third <= 2 * interval);
+    }
+
+    @Test
+    public void testFractionalRate() {
+        RateLimiter limiter = new RateLimiter(0.5);
+        limiter.reserve();
+        long wait = limiter.reserve();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(1950) && wait <= TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void testUnlimited() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testAcquireWaitsForSlot() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(20);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        // Four intervals of 50ms separate the five acquisitions
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+}
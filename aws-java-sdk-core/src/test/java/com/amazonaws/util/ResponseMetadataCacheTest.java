@@ -20,8 +20,11 @@ package com.amazonaws.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Test;
@@ -78,6 +81,68 @@ public class ResponseMetadataCacheTest {
         assertNull(cache.get(key));
     }
 
+    /** Tests that the metadata of a request is found in a striped cache. */
+    @Test
+    public void testStriped() {
+        ResponseMetadataCache cache = new ResponseMetadataCache(1000);
+        List<AmazonWebServiceRequest> keys = new ArrayList<AmazonWebServiceRequest>();
+        List<ResponseMetadata> values = new ArrayList<ResponseMetadata>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(new TestRequest());
+            values.add(newResponseMetadata());
+            cache.add(keys.get(i), values.get(i));
+        }
+        for (int i = 0; i < 100; i++)
+            assertSame(values.get(i), cache.get(keys.get(i)));
+        assertNull(cache.get(new TestRequest()));
+    }
+
+    /** Tests that the latest metadata of a reused request is returned. */
+    @Test
+    public void testReusedRequest() {
+        ResponseMetadataCache cache = new ResponseMetadataCache(3);
+        AmazonWebServiceRequest key = new TestRequest();
+        ResponseMetadata metadata1 = newResponseMetadata();
+        ResponseMetadata metadata2 = newResponseMetadata();
+
+        cache.add(key, metadata1);
+        cache.add(key, metadata2);
+        assertSame(metadata2, cache.get(key));
+    }
+
+    /** Tests that concurrent additions are all retained. */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final int threads = 4, perThread = 100;
+        final ResponseMetadataCache cache = new ResponseMetadataCache(4 * threads * perThread);
+        final AmazonWebServiceRequest[][] keys = new AmazonWebServiceRequest[threads][perThread];
+        final ResponseMetadata metadata = newResponseMetadata();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int n = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        keys[n][i] = new TestRequest();
+                        cache.add(keys[n][i], metadata);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        int found = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            for (int i = 0; i < perThread; i++) {
+                if (cache.get(keys[t][i]) != null)
+                    found++;
+            }
+        }
+        // Each stripe evicts on its own, hence the headroom in the cache size
+        assertEquals(threads * perThread, found);
+    }
+
     private class TestRequest extends AmazonWebServiceRequest {}
 
     private ResponseMetadata newResponseMetadata() {
@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.net.URL;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.internal.BucketNameUtils;
@@ -346,8 +347,8 @@ public class S3Link {
         S3Object s3Object = getAmazonS3Client().getObject(req);
         S3ObjectInputStream objectContent = s3Object.getObjectContent();
 
+        byte[] buffer = BufferPool.acquire(1024 * 10);
         try {
-            byte[] buffer = new byte[1024 * 10];
             int bytesRead = -1;
             while ((bytesRead = objectContent.read(buffer)) > -1) {
                 output.write(buffer, 0, bytesRead);
@@ -356,6 +357,7 @@ public class S3Link {
             objectContent.abort();
             throw new AmazonClientException("Unable to transfer content from Amazon S3 to the output stream", ioe);
         } finally {
+            BufferPool.release(buffer);
             try { objectContent.close(); } catch (IOException ioe) {}
         }
 
@@ -1,161 +1,279 @@
-/*
- * Copyright 2012-2015 Amazon Technologies, Inc.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at:
- *
- *    http://aws.amazon.com/apache2.0
- *
- * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
- * OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.amazonaws.services.glacier;
-
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.List;
-
-import com.amazonaws.AmazonClientException;
-import com.amazonaws.internal.ResettableInputStream;
-import com.amazonaws.services.glacier.internal.TreeHashInputStream;
-import com.amazonaws.util.BinaryUtils;
-
-/**
- * Utility class for calculating tree hashes.
- * <p>
- * For more information on tree hashing, see 
- * <a href="http://en.wikipedia.org/wiki/Hash_tree">http://en.wikipedia.org/wiki/Hash_tree</a>. 
- */
-public class TreeHashGenerator {
-
-	/**
-	 * Calculates a hex encoded binary hash using a tree hashing algorithm for
-	 * the data in the specified file.
-	 * 
-	 * @param file
-	 *            The file containing the data to hash.
-	 * 
-	 * @return The hex encoded binary tree hash for the data in the specified
-	 *         file.
-	 * 
-	 * @throws AmazonClientException
-	 *             If any problems were encountered reading the data or
-	 *             computing the hash.
-	 */
-    public static String calculateTreeHash(File file)
-            throws AmazonClientException {
-        ResettableInputStream is = null;
-        try {
-            is = new ResettableInputStream(file);
-            return calculateTreeHash(is);
-        } catch (IOException e) {
-            throw new AmazonClientException("Unable to compute hash for file: "
-                    + file.getAbsolutePath(), e);
-        } finally {
-            if (is != null)
-                is.release();
-        }
-    }
-
-	/**
-	 * Calculates a hex encoded binary hash using a tree hashing algorithm for
-	 * the data in the specified input stream. The method will consume all the
-	 * inputStream and close it when returned.
-	 * 
-	 * @param input
-	 *            The input stream containing the data to hash.
-	 * 
-	 * @return The hex encoded binary tree hash for the data in the specified
-	 *         input stream.
-	 * 
-	 * @throws AmazonClientException
-	 *             If problems were encountered reading the data or calculating
-	 *             the hash.
-	 */
-    public static String calculateTreeHash(InputStream input)
-            throws AmazonClientException {
-        try {
-            TreeHashInputStream treeHashInputStream =
-                new TreeHashInputStream(input);
-            byte[] buffer = new byte[1024];
-            while (treeHashInputStream.read(buffer, 0, buffer.length) != -1);
-            // closing is currently required to compute the checksum 
-            treeHashInputStream.close();
-            return calculateTreeHash(treeHashInputStream.getChecksums());
-        } catch (Exception e) {
-            throw new AmazonClientException("Unable to compute hash", e);
-        }
-    }
-
-	/**
-	 * Returns the hex encoded binary tree hash for the individual checksums
-	 * given. The sums are assumed to have been generated from sequential 1MB
-	 * portions of a larger file, with the possible exception of the last part,
-	 * which may be less than a full MB.
-	 * 
-	 * @return The combined hex encoded binary tree hash for the individual
-	 *         checksums specified.
-	 * 
-	 * @throws AmazonClientException
-	 *             If problems were encountered reading the data or calculating
-	 *             the hash.
-	 */
-    public static String calculateTreeHash(List<byte[]> checksums) throws AmazonClientException {
-
-        /*
-         * The tree hash algorithm involves concatenating adjacent pairs of
-         * individual checksums, then taking the checksum of the resulting bytes
-         * and storing it, then recursing on this new list until there is only
-         * one element. Any final odd-numbered parts at each step are carried
-         * over to the next iteration as-is.
-         */
-        List<byte[]> hashes = new ArrayList<byte[]>();
-        hashes.addAll(checksums);
-        while ( hashes.size() > 1 ) {
-            List<byte[]> treeHashes = new ArrayList<byte[]>();
-            for ( int i = 0; i < hashes.size() / 2; i++ ) {
-                byte[] firstPart = hashes.get(2 * i);
-                byte[] secondPart = hashes.get(2 * i + 1);
-                byte[] concatenation = new byte[firstPart.length + secondPart.length];
-                System.arraycopy(firstPart, 0, concatenation, 0, firstPart.length);
-                System.arraycopy(secondPart, 0, concatenation, firstPart.length, secondPart.length);
-                try {
-					treeHashes.add(computeSHA256Hash(concatenation));
-				} catch (Exception e) {
-					throw new AmazonClientException("Unable to compute hash", e);
-				}
-            }
-            if ( hashes.size() % 2 == 1 ) {
-                treeHashes.add(hashes.get(hashes.size() - 1));
-            }
-            hashes = treeHashes;
-        }
-
-        return BinaryUtils.toHex(hashes.get(0));
-    }
-    
-
-    private static byte[] computeSHA256Hash(byte[] data) throws NoSuchAlgorithmException, IOException {
-        BufferedInputStream bis = new BufferedInputStream(new ByteArrayInputStream(data));
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[16384];
-            int bytesRead = -1;
-            while ( (bytesRead = bis.read(buffer, 0, buffer.length)) != -1 ) {
-                messageDigest.update(buffer, 0, bytesRead);
-            }
-            return messageDigest.digest();
-        } finally {
-            try { bis.close(); } catch ( Exception e ) {}
-        }
-    }
-}
+/*
+ * Copyright 2012-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.internal.TreeHasher;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Utility class for calculating tree hashes.
+ * <p>
+ * For more information on tree hashing, see 
+ * <a href="http://en.wikipedia.org/wiki/Hash_tree">http://en.wikipedia.org/wiki/Hash_tree</a>. 
+ * <p>
+ * Files are hashed in parallel: the megabyte-sized leaves are read with
+ * positional reads and hashed by a shared pool of one thread per processor,
+ * then the levels of the tree are combined in place.
+ */
+public class TreeHashGenerator {
+    private static final Log log = LogFactory.getLog(TreeHashGenerator.class);
+
+    /** The number of leaves hashed by each task when hashing a file. */
+    private static final int LEAVES_PER_TASK = 8;
+
+    /** The number of threads hashing files. */
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Calculates a hex encoded binary hash using a tree hashing algorithm for
+	 * the data in the specified file.
+	 * 
+	 * @param file
+	 *            The file containing the data to hash.
+	 * 
+	 * @return The hex encoded binary tree hash for the data in the specified
+	 *         file.
+	 * 
+	 * @throws AmazonClientException
+	 *             If any problems were encountered reading the data or
+	 *             computing the hash.
+	 */
+    public static String calculateTreeHash(File file)
+            throws AmazonClientException {
+        return calculateTreeHash(file, 0, file.length());
+    }
+
+    /**
+     * Calculates a hex encoded binary hash using a tree hashing algorithm for
+     * the specified range of the data in the specified file, such as one part
+     * of a multipart upload.
+     *
+     * @param file
+     *            The file containing the data to hash.
+     * @param offset
+     *            The position of the first byte to hash.
+     * @param length
+     *            The number of bytes to hash.
+     *
+     * @return The hex encoded binary tree hash for the data in the specified
+     *         range of the file.
+     *
+     * @throws AmazonClientException
+     *             If any problems were encountered reading the data or
+     *             computing the hash.
+     */
+    public static String calculateTreeHash(File file, long offset, long length)
+            throws AmazonClientException {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            return BinaryUtils.toHex(calculateTreeHash(raf.getChannel(), offset, length));
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to compute hash for file: "
+                    + file.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(raf, log);
+        }
+    }
+
+	/**
+	 * Calculates a hex encoded binary hash using a tree hashing algorithm for
+	 * the data in the specified input stream. The method will consume all the
+	 * inputStream and close it when returned.
+	 * 
+	 * @param input
+	 *            The input stream containing the data to hash.
+	 * 
+	 * @return The hex encoded binary tree hash for the data in the specified
+	 *         input stream.
+	 * 
+	 * @throws AmazonClientException
+	 *             If problems were encountered reading the data or calculating
+	 *             the hash.
+	 */
+    public static String calculateTreeHash(InputStream input)
+            throws AmazonClientException {
+        try {
+            TreeHasher treeHasher = new TreeHasher();
+            byte[] buffer = new byte[64 * 1024];
+            int bytesRead;
+            while ((bytesRead = input.read(buffer, 0, buffer.length)) != -1)
+                treeHasher.update(buffer, 0, bytesRead);
+            input.close();
+            treeHasher.finish();
+            return BinaryUtils.toHex(treeHasher.getTreeHash());
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to compute hash", e);
+        }
+    }
+
+	/**
+	 * Returns the hex encoded binary tree hash for the individual checksums
+	 * given. The sums are assumed to have been generated from sequential 1MB
+	 * portions of a larger file, with the possible exception of the last part,
+	 * which may be less than a full MB.
+	 * 
+	 * @return The combined hex encoded binary tree hash for the individual
+	 *         checksums specified.
+	 * 
+	 * @throws AmazonClientException
+	 *             If problems were encountered reading the data or calculating
+	 *             the hash.
+	 */
+    public static String calculateTreeHash(List<byte[]> checksums) throws AmazonClientException {
+
+        /*
+         * The tree hash algorithm involves concatenating adjacent pairs of
+         * individual checksums, then taking the checksum of the resulting bytes
+         * and storing it, then recursing on this new list until there is only
+         * one element. Any final odd-numbered parts at each step are carried
+         * over to the next iteration as-is. The checksums are copied once into
+         * a flat array, and each level is computed in place in that array.
+         */
+        byte[] hashes = new byte[checksums.size() * TreeHasher.HASH_LENGTH];
+        int i = 0;
+        for (byte[] checksum : checksums) {
+            if (checksum.length != TreeHasher.HASH_LENGTH)
+                throw new AmazonClientException("Invalid SHA-256 checksum length: " + checksum.length);
+            System.arraycopy(checksum, 0, hashes, i++ * TreeHasher.HASH_LENGTH, TreeHasher.HASH_LENGTH);
+        }
+        try {
+            return BinaryUtils.toHex(TreeHasher.combine(hashes, checksums.size(), newDigest()));
+        } catch (IllegalArgumentException e) {
+            throw new AmazonClientException("Unable to compute hash", e);
+        }
+    }
+
+    /**
+     * Returns the binary tree hash of the given range of the given channel.
+     * The leaves are hashed in blocks of {@link #LEAVES_PER_TASK} on the
+     * shared hashing pool, the first block by the calling thread.
+     */
+    private static byte[] calculateTreeHash(final FileChannel channel, final long offset, final long length)
+            throws IOException {
+        final int leafCount = (int) ((length + TreeHasher.LEAF_SIZE - 1) / TreeHasher.LEAF_SIZE);
+        if (leafCount == 0)
+            throw new AmazonClientException("Unable to compute the tree hash of no data");
+        final byte[] leaves = new byte[leafCount * TreeHasher.HASH_LENGTH];
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        try {
+            if (PARALLELISM > 1) {
+                for (int first = LEAVES_PER_TASK; first < leafCount; first += LEAVES_PER_TASK) {
+                    final int start = first;
+                    final int end = Math.min(first + LEAVES_PER_TASK, leafCount);
+                    futures.add(HashPool.EXECUTOR.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            hashLeaves(channel, offset, length, start, end, leaves);
+                            return null;
+                        }
+                    }));
+                }
+                hashLeaves(channel, offset, length, 0, Math.min(LEAVES_PER_TASK, leafCount), leaves);
+            } else {
+                hashLeaves(channel, offset, length, 0, leafCount, leaves);
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException)
+                        throw (IOException) e.getCause();
+                    throw new AmazonClientException("Unable to compute hash", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while computing hash", e);
+        } finally {
+            // Only effective after a failure; not interrupting, as that would
+            // close the channel
+            for (Future<Void> future : futures)
+                future.cancel(false);
+        }
+        return TreeHasher.combine(leaves, leafCount, newDigest());
+    }
+
+    /**
+     * Hashes the leaves [start, end) of the given range of the given channel
+     * into the given leaf hash array.
+     */
+    private static void hashLeaves(FileChannel channel, long offset, long length,
+            int start, int end, byte[] leaves) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TreeHasher.LEAF_SIZE, length));
+        for (int leaf = start; leaf < end; leaf++) {
+            long position = offset + (long) leaf * TreeHasher.LEAF_SIZE;
+            int size = (int) Math.min(TreeHasher.LEAF_SIZE, offset + length - position);
+            buffer.clear();
+            buffer.limit(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new EOFException("Unexpected end of file at position " + (position + buffer.position()));
+            }
+            digest.update(buffer.array(), 0, size);
+            TreeHasher.digest(digest, leaves, leaf * TreeHasher.HASH_LENGTH);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AmazonClientException("Unable to compute hash", e);
+        }
+    }
+
+    /**
+     * The threads hashing files, created on first use.
+     */
+    private static final class HashPool {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "glacier-tree-hash-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
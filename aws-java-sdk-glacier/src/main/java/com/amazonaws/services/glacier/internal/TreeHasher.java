@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.internal;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Incremental tree hash computation. Bytes are fed in order with
+ * {@link #update(byte[], int, int)}, as they are read or written, and each
+ * complete megabyte is hashed into a leaf right away; {@link #finish()}
+ * hashes the last, partial leaf.
+ * <p>
+ * Leaf hashes are kept in a single flat array, and the levels of the tree
+ * are combined in place in that array by {@link #combine(byte[], int, MessageDigest)}.
+ * Instances are not thread safe.
+ */
+public class TreeHasher {
+
+    /** The size of the leaves of the tree, in bytes. */
+    public static final int LEAF_SIZE = 1024 * 1024;
+
+    /** The length of a SHA-256 hash, in bytes. */
+    public static final int HASH_LENGTH = 32;
+
+    private final MessageDigest digest;
+
+    /** The leaf hashes, HASH_LENGTH bytes each. */
+    private byte[] leaves = new byte[16 * HASH_LENGTH];
+    private int leafCount;
+
+    /** The number of bytes hashed into the current leaf. */
+    private int leafBytes;
+
+    private boolean finished;
+
+    public TreeHasher() throws NoSuchAlgorithmException {
+        digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    public void update(byte b) {
+        checkNotFinished();
+        digest.update(b);
+        if (++leafBytes == LEAF_SIZE)
+            endLeaf();
+    }
+
+    public void update(byte[] b, int off, int len) {
+        checkNotFinished();
+        while (len > 0) {
+            int n = Math.min(len, LEAF_SIZE - leafBytes);
+            digest.update(b, off, n);
+            off += n;
+            len -= n;
+            leafBytes += n;
+            if (leafBytes == LEAF_SIZE)
+                endLeaf();
+        }
+    }
+
+    /**
+     * Hashes the last, partial leaf, if any. No more bytes can be added
+     * afterwards.
+     */
+    public void finish() {
+        if (finished)
+            return;
+        if (leafBytes > 0)
+            endLeaf();
+        finished = true;
+    }
+
+    /**
+     * Returns the number of leaves hashed so far.
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Returns the hashes of the megabyte-sized leaves. Only valid once
+     * {@link #finish()} has been called.
+     */
+    public List<byte[]> getChecksums() {
+        checkFinished();
+        List<byte[]> checksums = new ArrayList<byte[]>(leafCount);
+        for (int i = 0; i < leafCount; i++)
+            checksums.add(Arrays.copyOfRange(leaves, i * HASH_LENGTH, (i + 1) * HASH_LENGTH));
+        return checksums;
+    }
+
+    /**
+     * Returns the binary tree hash of all the bytes. Only valid once
+     * {@link #finish()} has been called.
+     */
+    public byte[] getTreeHash() {
+        checkFinished();
+        if (leafCount == 0)
+            throw new AmazonClientException("Unable to compute the tree hash of no data");
+        return combine(Arrays.copyOf(leaves, leafCount * HASH_LENGTH), leafCount, digest);
+    }
+
+    private void endLeaf() {
+        if ((leafCount + 1) * HASH_LENGTH > leaves.length)
+            leaves = Arrays.copyOf(leaves, leaves.length * 2);
+        digest(digest, leaves, leafCount++ * HASH_LENGTH);
+        leafBytes = 0;
+    }
+
+    private void checkNotFinished() {
+        if (finished)
+            throw new IllegalStateException("The tree hash has already been finished");
+    }
+
+    private void checkFinished() {
+        if (!finished)
+            throw new IllegalStateException("The tree hash hasn't been finished");
+    }
+
+    /**
+     * Combines the given leaf hashes into the tree hash, in place: each level
+     * overwrites the beginning of the array, so no memory is allocated. Pairs
+     * of adjacent hashes are hashed together, and a final odd hash is carried
+     * over to the next level as-is, until a single hash remains.
+     *
+     * @param hashes
+     *            The leaf hashes, {@link #HASH_LENGTH} bytes each; overwritten.
+     * @param count
+     *            The number of leaf hashes, at least one.
+     * @param digest
+     *            The SHA-256 digest to use; reset before returning.
+     *
+     * @return The binary tree hash.
+     */
+    public static byte[] combine(byte[] hashes, int count, MessageDigest digest) {
+        if (count < 1)
+            throw new IllegalArgumentException("No hashes to combine");
+        digest.reset();
+        while (count > 1) {
+            int next = 0;
+            for (int i = 0; i + 1 < count; i += 2) {
+                digest.update(hashes, i * HASH_LENGTH, 2 * HASH_LENGTH);
+                digest(digest, hashes, next++ * HASH_LENGTH);
+            }
+            if (count % 2 == 1) {
+                System.arraycopy(hashes, (count - 1) * HASH_LENGTH, hashes, next++ * HASH_LENGTH, HASH_LENGTH);
+            }
+            count = next;
+        }
+        return Arrays.copyOf(hashes, HASH_LENGTH);
+    }
+
+    /**
+     * Completes the given digest into the given array at the given offset,
+     * which resets the digest.
+     */
+    public static void digest(MessageDigest digest, byte[] buf, int offset) {
+        try {
+            digest.digest(buf, offset, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new AmazonClientException("Unable to compute hash", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.io.File;
+
+/**
+ * Configuration options for how {@link ArchiveTransferManager} uploads and
+ * downloads archives.
+ * <p>
+ * The default configuration settings are suitable for most applications, but
+ * this class enables developers to tune the number of concurrent requests and
+ * the size of the ranges downloaded, and to make long transfers resumable.
+ */
+public class ArchiveTransferConfiguration {
+
+    /** Default number of parts or chunks transferred concurrently. */
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    /** Default chunk size, in bytes, when downloading job output in ranges. */
+    private static final long DEFAULT_DOWNLOAD_CHUNK_SIZE = 1024L * 1024 * 128;
+
+    /**
+     * The maximum number of upload parts or download chunks transferred at
+     * the same time by a single upload or download. Each concurrent transfer
+     * uses its own HTTP connection, so this should not exceed the maximum
+     * number of connections of the Glacier client.
+     */
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    /**
+     * The size, in bytes, of the ranges requested when downloading job
+     * output. The size must be a power of two, and should be a multiple of
+     * 1MB so that every range is tree-hash aligned and can be verified.
+     */
+    private long downloadChunkSize = DEFAULT_DOWNLOAD_CHUNK_SIZE;
+
+    /**
+     * The directory in which the progress of multipart uploads and of
+     * downloads is recorded, or null if transfers are not resumable.
+     */
+    private File checkpointDirectory;
+
+    /**
+     * Returns the maximum number of upload parts or download chunks
+     * transferred at the same time by a single upload or download.
+     *
+     * @return The maximum number of concurrent part or chunk transfers.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of upload parts or download chunks transferred
+     * at the same time by a single upload or download. Each concurrent
+     * transfer uses its own HTTP connection, so this should not exceed the
+     * maximum number of connections of the Glacier client.
+     *
+     * @param maxConcurrency
+     *            The maximum number of concurrent part or chunk transfers; 1
+     *            transfers them one at a time.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Returns the size, in bytes, of the ranges requested when downloading
+     * job output.
+     *
+     * @return The download chunk size in bytes.
+     */
+    public long getDownloadChunkSize() {
+        return downloadChunkSize;
+    }
+
+    /**
+     * Sets the size, in bytes, of the ranges requested when downloading job
+     * output. The size must be a power of two, and should be a multiple of
+     * 1MB so that every range is tree-hash aligned and can be verified. The
+     * system property
+     * <code>com.amazonaws.services.glacier.transfer.downloadChunkSizeInMB</code>,
+     * if set, takes precedence over this setting.
+     *
+     * @param downloadChunkSize
+     *            The download chunk size in bytes.
+     */
+    public void setDownloadChunkSize(long downloadChunkSize) {
+        this.downloadChunkSize = downloadChunkSize;
+    }
+
+    /**
+     * Returns the directory in which the progress of transfers is recorded,
+     * or null if transfers are not resumable.
+     *
+     * @return The checkpoint directory, or null.
+     */
+    public File getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    /**
+     * Sets the directory in which the progress of multipart uploads and of
+     * downloads is recorded. When set, an interrupted transfer of the same
+     * file (or of the same job output) picks up where it left off: completed
+     * upload parts are not uploaded again, the multipart upload is not
+     * aborted on failure, and completed download chunks are not downloaded
+     * again. The checkpoint is deleted once the transfer completes.
+     * <p>
+     * Glacier keeps multipart uploads for 24 hours, and job output for at
+     * least 24 hours, after which the transfer restarts from the beginning.
+     *
+     * @param checkpointDirectory
+     *            The checkpoint directory, or null to disable resuming.
+     */
+    public void setCheckpointDirectory(File checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+}
@@ -27,9 +27,22 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -59,6 +72,8 @@ import com.amazonaws.services.glacier.model.InitiateJobResult;
 import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.glacier.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.glacier.model.JobParameters;
+import com.amazonaws.services.glacier.model.ListPartsRequest;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
 import com.amazonaws.services.glacier.model.UploadArchiveRequest;
 import com.amazonaws.services.glacier.model.UploadArchiveResult;
 import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
@@ -75,9 +90,6 @@ public class ArchiveTransferManager {
     /** The maximum part size, in bytes, for a Glacier multipart upload. */
     private static final long MAXIMUM_UPLOAD_PART_SIZE = 1024L * 1024 * 1024 * 4;
 
-    /** The default chunk size, in bytes, when downloading in multiple chunks using range retrieval. */
-    private static final long DEFAULT_DOWNLOAD_CHUNK_SIZE = 1024L * 1024 * 128;
-
     /** The minimum part size, in bytes, for a Glacier multipart upload. */
     private static final long MINIMUM_PART_SIZE = 1024L * 1024;
 
@@ -98,6 +110,9 @@ public class ArchiveTransferManager {
 
     private final AmazonSNSClient sns;
 
+    /** Configuration for how uploads and downloads are carried out. */
+    private ArchiveTransferConfiguration configuration = new ArchiveTransferConfiguration();
+
     private static final Log log = LogFactory.getLog(ArchiveTransferManager.class);
 
     /**
@@ -197,6 +212,29 @@ public class ArchiveTransferManager {
         this.sns = sns;
     }
 
+    /**
+     * Sets the configuration which specifies how this
+     * <code>ArchiveTransferManager</code> uploads and downloads archives,
+     * such as the number of parts or chunks transferred concurrently.
+     *
+     * @param configuration
+     *            The new configuration.
+     */
+    public void setConfiguration(ArchiveTransferConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns the configuration which specifies how this
+     * <code>ArchiveTransferManager</code> uploads and downloads archives.
+     *
+     * @return The configuration settings for this
+     *         <code>ArchiveTransferManager</code>.
+     */
+    public ArchiveTransferConfiguration getConfiguration() {
+        return configuration;
+    }
+
     /**
      * Uploads the specified file to Amazon Glacier for archival storage in the
      * specified vault for the user's current account. For small archives, this
@@ -460,7 +498,7 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
+     * individual chunks of the data, several at a time, in order to handle any
      * transient errors along the way.
      *
      * @param accountId
@@ -482,7 +520,7 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
+     * individual chunks of the data, several at a time, in order to handle any
      * transient errors along the way. You can also add an optional progress
      * listener for receiving updates about the download status.
      *
@@ -500,19 +538,16 @@ public class ArchiveTransferManager {
      *            The optional progress listener for receiving updates about the
      *            download status.
      */
-    public void downloadJobOutput(String accountId, String vaultName,
-            String jobId, File file, ProgressListener progressListener) {
-        long archiveSize = 0;
-        long chunkSize = DEFAULT_DOWNLOAD_CHUNK_SIZE;
-        long currentPosition = 0;
-        long endPosition = 0;
+    public void downloadJobOutput(final String accountId, final String vaultName,
+            final String jobId, File file, final ProgressListener progressListener) {
+        long chunkSize = configuration.getDownloadChunkSize();
 
         RandomAccessFile output = null;
         String customizedChunkSize = null;
         customizedChunkSize = System.getProperty("com.amazonaws.services.glacier.transfer.downloadChunkSizeInMB");
 
         DescribeJobResult describeJobResult = glacier.describeJob(new DescribeJobRequest(accountId, vaultName, jobId));
-        archiveSize = describeJobResult.getArchiveSizeInBytes();
+        final long archiveSize = describeJobResult.getArchiveSizeInBytes();
 
         if (customizedChunkSize != null) {
             try {
@@ -521,7 +556,19 @@ public class ArchiveTransferManager {
                 publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
                 throw new AmazonClientException("Invalid chunk size: " + e.getMessage());
             }
-            validateChunkSize(chunkSize);
+        }
+        validateChunkSize(chunkSize);
+
+        // Chunks already downloaded by an earlier, interrupted attempt
+        final TransferCheckpoint checkpoint = TransferCheckpoint.load(configuration.getCheckpointDirectory(),
+                "download", accountId + "/" + vaultName + "/" + jobId + "/" + file.getAbsolutePath());
+        boolean resuming = checkpoint != null && file.exists()
+                && String.valueOf(archiveSize).equals(checkpoint.get("archiveSize"))
+                && String.valueOf(chunkSize).equals(checkpoint.get("chunkSize"));
+        if (checkpoint != null && !resuming) {
+            checkpoint.clear();
+            checkpoint.put("archiveSize", String.valueOf(archiveSize));
+            checkpoint.put("chunkSize", String.valueOf(chunkSize));
         }
 
         try {
@@ -532,30 +579,73 @@ public class ArchiveTransferManager {
         }
 
         try {
+            if (!resuming)
+                output.setLength(archiveSize);
             publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            while (currentPosition < archiveSize) {
-                if (currentPosition + chunkSize > archiveSize) {
-                    endPosition = archiveSize - 1;
-                } else {
-                    endPosition = currentPosition + chunkSize - 1;
-                }
-    
-                // Download the chunk
-                try {
-                    downloadOneChunk(accountId, vaultName, jobId, output,
-                            currentPosition, endPosition, progressListener);
-                } catch (Throwable t) {
-                    publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-                    throw failure(t);
+
+            // Each chunk is written at its own offset, so chunks can be
+            // downloaded, hashed and written concurrently in any order
+            final FileChannel channel = output.getChannel();
+            final int numChunks = (int) ((archiveSize + chunkSize - 1) / chunkSize);
+            final String[] chunkTreeHashes = new String[numChunks];
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numChunks);
+            for (int i = 0; i < numChunks; i++) {
+                final int chunk = i;
+                final long startPosition = i * chunkSize;
+                final long endPosition = Math.min(startPosition + chunkSize, archiveSize) - 1;
+                if (resuming && isChunkOnDisk(file, checkpoint.get("chunk." + i), startPosition, endPosition)) {
+                    chunkTreeHashes[i] = checkpoint.get("chunk." + i);
+                    continue;
                 }
-                currentPosition += chunkSize;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        chunkTreeHashes[chunk] = downloadOneChunk(accountId, vaultName, jobId,
+                                channel, startPosition, endPosition, progressListener);
+                        if (checkpoint != null) {
+                            // The chunk must be on disk before the checkpoint
+                            // says so, should the machine crash
+                            channel.force(false);
+                            checkpoint.put("chunk." + chunk, chunkTreeHashes[chunk]);
+                            checkpoint.save();
+                        }
+                        return null;
+                    }
+                });
             }
+            if (checkpoint != null)
+                checkpoint.save();
+            runConcurrently(tasks);
+            verifyArchiveTreeHash(describeJobResult.getSHA256TreeHash(), chunkTreeHashes, chunkSize, checkpoint);
+
+            if (checkpoint != null)
+                checkpoint.delete();
             publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        } catch (Throwable t) {
+            publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw failure(t);
         } finally {
             closeQuietly(output, log);
         }
     }
 
+    /**
+     * Returns true if the given range of the file, recorded as downloaded by
+     * an earlier attempt, still has the recorded tree hash. The range is read
+     * again rather than trusted, in case it was never written to disk or has
+     * been modified since.
+     */
+    private boolean isChunkOnDisk(File file, String recordedTreeHash, long startPosition, long endPosition) {
+        if (recordedTreeHash == null)
+            return false;
+        if (recordedTreeHash.equalsIgnoreCase(
+                TreeHashGenerator.calculateTreeHash(file, startPosition, endPosition - startPosition + 1)))
+            return true;
+        log.warn("Downloading again the bytes " + startPosition + "-" + endPosition + " of " + file
+                + ", which don't match the checkpoint");
+        return false;
+    }
+
     private void validateChunkSize(long chunkSize) {
         if (chunkSize <= 0) {
             throw new AmazonClientException("Invalid chunk size, chunk size must be great than 0");
@@ -568,11 +658,36 @@ public class ArchiveTransferManager {
     }
 
     /**
-     * Download one chunk from Amazon Glacier. It will do the retry if any
-     * errors are encountered while streaming the data from Amazon Glacier.
+     * Checks the tree hash of the whole archive, combined from the tree
+     * hashes of its chunks, against the one returned by Glacier. Chunks
+     * aligned on 2^n MB boundaries are whole subtrees of the archive's tree
+     * hash, so the archive doesn't need to be read again.
+     */
+    private void verifyArchiveTreeHash(String expectedTreeHash, String[] chunkTreeHashes,
+            long chunkSize, TransferCheckpoint checkpoint) {
+        if (expectedTreeHash == null || chunkSize % MINIMUM_PART_SIZE != 0)
+            return;
+        List<byte[]> checksums = new ArrayList<byte[]>(chunkTreeHashes.length);
+        for (String chunkTreeHash : chunkTreeHashes)
+            checksums.add(BinaryUtils.fromHex(chunkTreeHash));
+        if (!TreeHashGenerator.calculateTreeHash(checksums).equalsIgnoreCase(expectedTreeHash)) {
+            // The chunks on disk can't be trusted, so don't resume from them
+            if (checkpoint != null)
+                checkpoint.delete();
+            throw new AmazonClientException(
+                    "Client side computed hash of the archive doesn't match server side hash; possible data corruption");
+        }
+    }
+
+    /**
+     * Download one chunk from Amazon Glacier and write it at its position in
+     * the output file. It will do the retry if any errors are encountered
+     * while streaming the data from Amazon Glacier.
+     *
+     * @return The hex encoded tree hash of the chunk.
      */
-    private void downloadOneChunk(String accountId, String vaultName,
-            String jobId, RandomAccessFile output, long currentPosition,
+    private String downloadOneChunk(String accountId, String vaultName,
+            String jobId, FileChannel output, long currentPosition,
             long endPosition, ProgressListener progressListener) {
         final long chunkSize = endPosition - currentPosition + 1;
         TreeHashInputStream input = null;
@@ -589,17 +704,18 @@ public class ArchiveTransferManager {
                 GetJobOutputResult jobOutputResult = glacier.getJobOutput(req);
                 try {
                     input = new TreeHashInputStream(new BufferedInputStream(jobOutputResult.getBody()));
-                    appendToFile(output, input);
+                    writeToFile(output, currentPosition, input);
                 } catch (NoSuchAlgorithmException e) {
                     throw failure(e, "Unable to compute hash for data integrity");
                 } finally {
                     closeQuietly(input, log);
                 }
 
+                String treeHash = input.getTreeHash();
                 // Only do tree-hash check when the output checksum is returned from Glacier
                 if (null != jobOutputResult.getChecksum()) {
                     // Checksum does not match
-                    if (!input.getTreeHash().equalsIgnoreCase(jobOutputResult.getChecksum())) {
+                    if (!treeHash.equalsIgnoreCase(jobOutputResult.getChecksum())) {
                         // Discard the chunk of bytes received 
                         publishResponseBytesDiscarded(progressListener, chunkSize);
                         if (log.isDebugEnabled())
@@ -611,7 +727,7 @@ public class ArchiveTransferManager {
                             + "Make sure the InitiateJob and GetJobOutput requests use tree-hash-aligned ranges.");
                 }
                 // Successfully download
-                return;
+                return treeHash;
                 // We will retry IO exception
             } catch (IOException ioe) {
                 if (retries < DEFAULT_MAX_RETRIES) {
@@ -624,11 +740,7 @@ public class ArchiveTransferManager {
                                 + currentPosition + " endPosition="
                                 + endPosition);
                     }
-                    try {
-                        output.seek(currentPosition);
-                    } catch (IOException e) {
-                        throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), e);
-                    }
+                    // The retry overwrites the chunk from its start position
                 } else {
                     throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), ioe);
                 }
@@ -637,9 +749,10 @@ public class ArchiveTransferManager {
     }
 
     /**
-     * Writes the data from the given input stream to the given output stream.
+     * Writes the data from the given input stream to the given file channel,
+     * starting at the given position.
      */
-    private void appendToFile(RandomAccessFile output, InputStream input)
+    private void writeToFile(FileChannel output, long position, InputStream input)
             throws IOException {
         byte[] buffer = new byte[1024 * 1024];
         int bytesRead = 0;
@@ -647,11 +760,65 @@ public class ArchiveTransferManager {
             bytesRead = input.read(buffer);
             if (bytesRead < 0)
                 break;
-            output.write(buffer, 0, bytesRead);
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, bytesRead);
+            while (bb.hasRemaining())
+                position += output.write(bb, position);
         } while (bytesRead > 0);
         return;
     }
 
+    /**
+     * Runs the given tasks, at most {@link ArchiveTransferConfiguration#getMaxConcurrency()}
+     * at a time, and returns once all of them have completed. The first
+     * failure cancels the tasks that haven't started yet and is rethrown once
+     * the tasks in progress have finished, so that their progress is
+     * recorded and they don't write to a file that has been closed.
+     */
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        int threads = Math.min(configuration.getMaxConcurrency(), tasks.size());
+        if (threads <= 1) {
+            for (Callable<Void> task : tasks)
+                task.call();
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "glacier-transfer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+            for (Callable<Void> task : tasks)
+                futures.add(completionService.submit(task));
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception)
+                        throw (Exception) cause;
+                    throw (Error) cause;
+                }
+            }
+        } finally {
+            // Interrupting the tasks would close the file channel they share
+            for (Future<Void> future : futures)
+                future.cancel(false);
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Calculates the part size to use when uploading an archive of the
      * specified size using Glacier's multipart upload APIs. Because of the tree
@@ -676,78 +843,75 @@ public class ArchiveTransferManager {
 
     private UploadResult uploadInMultipleParts(final String accountId,
             final String vaultName, final String archiveDescription,
-            final File file, ProgressListener progressListener) {
-        final long partSize = calculatePartSize(file.length());
+            final File file, final ProgressListener progressListener) {
+        final long fileLength = file.length();
+        final long partSize = calculatePartSize(fileLength);
         String partSizeString = Long.toString(partSize);
 
+        // Parts already uploaded by an earlier, interrupted attempt
+        final TransferCheckpoint checkpoint = TransferCheckpoint.load(configuration.getCheckpointDirectory(),
+                "upload", accountId + "/" + vaultName + "/" + file.getAbsolutePath());
+
         publishProgress(progressListener, ProgressEventType.TRANSFER_PREPARING_EVENT);
-        String uploadId = null;
+        String initiatedUploadId = null;
         try {
-            InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
-                .withAccountId(accountId)
-                .withArchiveDescription(archiveDescription)
-                .withVaultName(vaultName)
-                .withPartSize(partSizeString));
-            uploadId = initiateResult.getUploadId();
+            if (checkpoint != null)
+                initiatedUploadId = resumableUploadId(accountId, vaultName, file, partSize, checkpoint);
+            if (initiatedUploadId == null) {
+                InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
+                    .withAccountId(accountId)
+                    .withArchiveDescription(archiveDescription)
+                    .withVaultName(vaultName)
+                    .withPartSize(partSizeString));
+                initiatedUploadId = initiateResult.getUploadId();
+                if (checkpoint != null) {
+                    checkpoint.clear();
+                    checkpoint.put("uploadId", initiatedUploadId);
+                    checkpoint.put("fileLength", String.valueOf(fileLength));
+                    checkpoint.put("lastModified", String.valueOf(file.lastModified()));
+                    checkpoint.put("partSize", partSizeString);
+                    checkpoint.save();
+                }
+            }
         } catch (Throwable t) {
             publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
             throw failure(t);
         }
+        final String uploadId = initiatedUploadId;
         publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-        final String fileNotFoundMsg = "Unable to find file '"
-                + file.getAbsolutePath() + "'";
         try {
-            List<byte[]> binaryChecksums = new LinkedList<byte[]>();
-
-            long currentPosition = 0;
-            while (currentPosition < file.length()) {
-                long length = partSize;
-                if (currentPosition + partSize > file.length()) {
-                    length = file.length() - currentPosition;
+            // Each part is hashed and uploaded by its own task, so hashing
+            // one part overlaps with the upload of the others
+            final int numParts = (int) ((fileLength + partSize - 1) / partSize);
+            final byte[][] binaryChecksums = new byte[numParts][];
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numParts);
+            for (int i = 0; i < numParts; i++) {
+                final int part = i;
+                final long currentPosition = i * partSize;
+                final long length = Math.min(partSize, fileLength - currentPosition);
+                String uploadedChecksum = checkpoint == null ? null : checkpoint.get("part." + i);
+                if (uploadedChecksum != null) {
+                    binaryChecksums[i] = BinaryUtils.fromHex(uploadedChecksum);
+                    continue;
                 }
-
-                Exception failedException = null;
-                boolean completed = false;
-                int tries = 0;
-                    while (!completed && tries < 5){
-                        tries++;
-                        InputSubstream inputSubStream = null;
-                        try {
-                            inputSubStream = new InputSubstream(
-                                    newResettableInputStream(file, fileNotFoundMsg)
-                                        .disableClose(), // requires explicit release
-                                    currentPosition, length, true);
-                            String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
-                            byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
-                            inputSubStream.reset();
-                            UploadMultipartPartRequest req = new UploadMultipartPartRequest()
-                                .withAccountId(accountId)
-                                .withChecksum(checksum)
-                                .withBody(inputSubStream)
-                                .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
-                                .withUploadId(uploadId)
-                                .withVaultName(vaultName)
-                                .withGeneralProgressListener(progressListener)
-                                ;
-                            
-                            glacier.uploadMultipartPart(req);
-                            completed = true;
-                            binaryChecksums.add(binaryChecksum);
-                        } catch (Exception e){
-                            failedException = e;
-                        } finally {
-                            // We opened the file underneath; so need to release it
-                            release(inputSubStream, log);
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        binaryChecksums[part] = uploadOnePart(accountId, vaultName, uploadId, file,
+                                currentPosition, length, progressListener);
+                        if (checkpoint != null) {
+                            checkpoint.put("part." + part, BinaryUtils.toHex(binaryChecksums[part]));
+                            checkpoint.save();
                         }
-                    } // end inner while
-                if (!completed && failedException!=null)
-                    throw failedException;
-                currentPosition += partSize;
-            } // end outer while
+                        return null;
+                    }
+                });
+            }
+            runConcurrently(tasks);
 
-            String checksum = TreeHashGenerator.calculateTreeHash(binaryChecksums);
+            String checksum = TreeHashGenerator.calculateTreeHash(Arrays.asList(binaryChecksums));
 
-            String archiveSize = Long.toString(file.length());
+            String archiveSize = Long.toString(fileLength);
             CompleteMultipartUploadResult completeMultipartUploadResult =
                 glacier.completeMultipartUpload(new CompleteMultipartUploadRequest()
                     .withAccountId(accountId)
@@ -756,16 +920,93 @@ public class ArchiveTransferManager {
                     .withChecksum(checksum)
                     .withUploadId(uploadId));
 
+            if (checkpoint != null)
+                checkpoint.delete();
             String artifactId = completeMultipartUploadResult.getArchiveId();
             publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
             return new UploadResult(artifactId);
         } catch (Throwable t) {
             publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            glacier.abortMultipartUpload(new AbortMultipartUploadRequest(accountId, vaultName, uploadId));
+            if (checkpoint == null) {
+                glacier.abortMultipartUpload(new AbortMultipartUploadRequest(accountId, vaultName, uploadId));
+            } else {
+                log.info("Keeping multipart upload " + uploadId + " of " + file + " to resume it later");
+            }
             throw failure(t, "Unable to finish the upload");
         }
     }
 
+    /**
+     * Returns the ID of the multipart upload recorded in the given
+     * checkpoint, if it was started for the current content of the given file
+     * and Glacier still has it; or null if a new upload must be initiated.
+     */
+    private String resumableUploadId(String accountId, String vaultName, File file,
+            long partSize, TransferCheckpoint checkpoint) {
+        String uploadId = checkpoint.get("uploadId");
+        if (uploadId == null
+                || !String.valueOf(file.length()).equals(checkpoint.get("fileLength"))
+                || !String.valueOf(file.lastModified()).equals(checkpoint.get("lastModified"))
+                || !String.valueOf(partSize).equals(checkpoint.get("partSize")))
+            return null;
+        try {
+            glacier.listParts(new ListPartsRequest()
+                .withAccountId(accountId)
+                .withVaultName(vaultName)
+                .withUploadId(uploadId)
+                .withLimit("1"));
+            return uploadId;
+        } catch (ResourceNotFoundException e) {
+            // Expired or aborted
+            return null;
+        }
+    }
+
+    /**
+     * Uploads one part of a multipart upload, trying up to five times.
+     *
+     * @return The binary tree hash of the part.
+     */
+    private byte[] uploadOnePart(String accountId, String vaultName, String uploadId,
+            File file, long currentPosition, long length,
+            ProgressListener progressListener) throws Exception {
+        final String fileNotFoundMsg = "Unable to find file '"
+                + file.getAbsolutePath() + "'";
+        // Hashed once, with positional reads, and verified by Glacier on each try
+        String checksum = TreeHashGenerator.calculateTreeHash(file, currentPosition, length);
+        byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
+        Exception failedException = null;
+        int tries = 0;
+        while (tries < 5) {
+            tries++;
+            InputSubstream inputSubStream = null;
+            try {
+                inputSubStream = new InputSubstream(
+                        newResettableInputStream(file, fileNotFoundMsg)
+                            .disableClose(), // requires explicit release
+                        currentPosition, length, true);
+                UploadMultipartPartRequest req = new UploadMultipartPartRequest()
+                    .withAccountId(accountId)
+                    .withChecksum(checksum)
+                    .withBody(inputSubStream)
+                    .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
+                    .withUploadId(uploadId)
+                    .withVaultName(vaultName)
+                    .withGeneralProgressListener(progressListener)
+                    ;
+
+                glacier.uploadMultipartPart(req);
+                return binaryChecksum;
+            } catch (Exception e) {
+                failedException = e;
+            } finally {
+                // We opened the file underneath; so need to release it
+                release(inputSubStream, log);
+            }
+        }
+        throw failedException;
+    }
+
     private UploadResult uploadInSinglePart(final String accountId,
             final String vaultName, final String archiveDescription,
             final File file, ProgressListener progressListener) {
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import static com.amazonaws.util.IOUtils.closeQuietly;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Progress of a resumable upload or download, kept as a properties file in
+ * the checkpoint directory of an {@link ArchiveTransferConfiguration}. The
+ * file is named after a hash of the transfer's identity, and rewritten
+ * through a temporary file so that a crash never leaves it half written.
+ */
+class TransferCheckpoint {
+    private static final Log log = LogFactory.getLog(TransferCheckpoint.class);
+
+    private final File file;
+    private final Properties properties = new Properties();
+
+    private TransferCheckpoint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the checkpoint of the transfer with the given identity, loaded
+     * from the given directory if it was saved before; or null if the
+     * directory is null.
+     */
+    static TransferCheckpoint load(File directory, String kind, String identity) {
+        if (directory == null)
+            return null;
+        String name = "glacier-" + kind + "-"
+                + BinaryUtils.toHex(Md5Utils.computeMD5Hash(identity.getBytes(StringUtils.UTF8)))
+                + ".properties";
+        TransferCheckpoint checkpoint = new TransferCheckpoint(new File(directory, name));
+        if (checkpoint.file.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(checkpoint.file);
+                checkpoint.properties.load(in);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable checkpoint " + checkpoint.file, e);
+                checkpoint.properties.clear();
+            } finally {
+                closeQuietly(in, log);
+            }
+        }
+        return checkpoint;
+    }
+
+    synchronized String get(String key) {
+        return properties.getProperty(key);
+    }
+
+    synchronized void put(String key, String value) {
+        properties.setProperty(key, value);
+    }
+
+    synchronized void clear() {
+        properties.clear();
+    }
+
+    /**
+     * Writes the checkpoint to disk. Failing to do so only makes the
+     * transfer less resumable, so errors are logged rather than thrown.
+     */
+    synchronized void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            properties.store(out, null);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) {
+                // Not atomic, but some platforms can't rename over a file
+                file.delete();
+                if (!tmp.renameTo(file))
+                    throw new IOException("Unable to rename " + tmp + " to " + file);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to save checkpoint " + file, e);
+        } finally {
+            closeQuietly(out, log);
+        }
+    }
+
+    /**
+     * Deletes the checkpoint once the transfer has completed.
+     */
+    synchronized void delete() {
+        if (file.exists() && !file.delete())
+            log.warn("Unable to delete checkpoint " + file);
+    }
+}
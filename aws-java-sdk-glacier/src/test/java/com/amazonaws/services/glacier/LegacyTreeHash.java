@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * The previous implementation of {@link TreeHashGenerator}: per-MB digests of
+ * a stream read 1KB at a time, then the levels combined by concatenating
+ * pairs of hashes into new lists. Kept as the reference the current
+ * implementation is tested and benchmarked against.
+ */
+final class LegacyTreeHash {
+
+    private static final int MB = 1024 * 1024;
+
+    private LegacyTreeHash() {
+    }
+
+    static String treeHash(File file) throws IOException {
+        return treeHash(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * Returns the tree hash of the given stream, which is closed. Like the
+     * previous implementation, fails for an empty stream.
+     */
+    static String treeHash(InputStream in) throws IOException {
+        List<byte[]> checksums = new ArrayList<byte[]>();
+        try {
+            MessageDigest digest = newDigest();
+            byte[] buffer = new byte[1024];
+            int offset = 0;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer, 0, Math.min(buffer.length, MB - offset))) != -1) {
+                digest.update(buffer, 0, bytesRead);
+                offset += bytesRead;
+                if (offset == MB) {
+                    checksums.add(digest.digest());
+                    offset = 0;
+                }
+            }
+            if (offset > 0)
+                checksums.add(digest.digest());
+        } finally {
+            in.close();
+        }
+        return combine(checksums);
+    }
+
+    static String combine(List<byte[]> checksums) {
+        if (checksums.isEmpty())
+            throw new AmazonClientException("Unable to compute hash",
+                    new IndexOutOfBoundsException("Index: 0, Size: 0"));
+        List<byte[]> hashes = new ArrayList<byte[]>();
+        hashes.addAll(checksums);
+        while (hashes.size() > 1) {
+            List<byte[]> treeHashes = new ArrayList<byte[]>();
+            for (int i = 0; i < hashes.size() / 2; i++) {
+                byte[] firstPart = hashes.get(2 * i);
+                byte[] secondPart = hashes.get(2 * i + 1);
+                byte[] concatenation = new byte[firstPart.length + secondPart.length];
+                System.arraycopy(firstPart, 0, concatenation, 0, firstPart.length);
+                System.arraycopy(secondPart, 0, concatenation, firstPart.length, secondPart.length);
+                treeHashes.add(newDigest().digest(concatenation));
+            }
+            if (hashes.size() % 2 == 1)
+                treeHashes.add(hashes.get(hashes.size() - 1));
+            hashes = treeHashes;
+        }
+        return BinaryUtils.toHex(hashes.get(0));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the tree hash of a file computed by {@link TreeHashGenerator}
+ * with the previous implementation, {@link LegacyTreeHash}, which streamed
+ * the file through a 1KB buffer on one thread and combined each level of the
+ * tree into new lists of concatenated hashes.
+ * <p>
+ * Usage: <code>TreeHashBenchmark [file size in MB] [iterations]</code>
+ * (defaults: 1024 MB, 5 iterations). The file is created in the temporary
+ * directory and deleted afterwards; use a size larger than the page cache to
+ * measure disk-bound rather than CPU-bound hashing.
+ */
+public class TreeHashBenchmark {
+
+    private static final int MB = 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int sizeInMb = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File file = File.createTempFile("tree-hash-benchmark", ".bin");
+        file.deleteOnExit();
+        try {
+            writeRandomFile(file, sizeInMb);
+            System.out.println("Hashing " + sizeInMb + " MB with "
+                    + Runtime.getRuntime().availableProcessors() + " processors");
+
+            String expected = LegacyTreeHash.treeHash(file);
+            if (!expected.equals(TreeHashGenerator.calculateTreeHash(file)))
+                throw new AssertionError("Tree hashes differ");
+            if (!expected.equals(TreeHashGenerator.calculateTreeHash(new BufferedInputStream(new FileInputStream(file)))))
+                throw new AssertionError("Streamed tree hashes differ");
+
+            for (int i = 0; i < iterations; i++) {
+                long legacy = time(new Task() { public void run(File f) throws Exception { LegacyTreeHash.treeHash(f); } }, file);
+                long stream = time(new Task() { public void run(File f) throws Exception {
+                    TreeHashGenerator.calculateTreeHash(new FileInputStream(f)); } }, file);
+                long parallel = time(new Task() { public void run(File f) throws Exception {
+                    TreeHashGenerator.calculateTreeHash(f); } }, file);
+                System.out.println(String.format(
+                        "iteration %d: legacy %6d ms (%5.0f MB/s)   streamed %6d ms (%5.0f MB/s)   parallel %6d ms (%5.0f MB/s)",
+                        i, legacy, throughput(sizeInMb, legacy), stream, throughput(sizeInMb, stream),
+                        parallel, throughput(sizeInMb, parallel)));
+            }
+
+            // Combining the leaves of a 100GB archive, without reading it
+            List<byte[]> leaves = new ArrayList<byte[]>();
+            Random random = new Random(42);
+            for (int i = 0; i < 100 * 1024; i++) {
+                byte[] leaf = new byte[32];
+                random.nextBytes(leaf);
+                leaves.add(leaf);
+            }
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                String legacy = LegacyTreeHash.combine(leaves);
+                long legacyNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                String combined = TreeHashGenerator.calculateTreeHash(leaves);
+                long combinedNanos = System.nanoTime() - start;
+                if (!legacy.equals(combined))
+                    throw new AssertionError("Combined tree hashes differ");
+                System.out.println(String.format("combine %d leaves: legacy %4d ms   in place %4d ms",
+                        leaves.size(), legacyNanos / 1000000, combinedNanos / 1000000));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private interface Task {
+        void run(File file) throws Exception;
+    }
+
+    private static long time(Task task, File file) throws Exception {
+        long start = System.nanoTime();
+        task.run(file);
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private static double throughput(int sizeInMb, long millis) {
+        return millis == 0 ? Double.POSITIVE_INFINITY : sizeInMb * 1000.0 / millis;
+    }
+
+    private static void writeRandomFile(File file, int sizeInMb) throws IOException {
+        byte[] buffer = new byte[MB];
+        Random random = new Random(0);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < sizeInMb; i++) {
+                random.nextBytes(buffer);
+                out.write(buffer);
+            }
+            // A partial last leaf
+            out.write(buffer, 0, 12345);
+        } finally {
+            out.close();
+        }
+    }
+}
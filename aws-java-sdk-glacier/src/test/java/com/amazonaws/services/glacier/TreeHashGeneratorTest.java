@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.internal.TreeHasher;
+
+/**
+ * Checks that {@link TreeHashGenerator} computes the same tree hashes as the
+ * previous implementation, {@link LegacyTreeHash}.
+ */
+public class TreeHashGeneratorTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("tree-hash", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testEmptyInputIsRejected() throws IOException {
+        try {
+            LegacyTreeHash.treeHash(new ByteArrayInputStream(new byte[0]));
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+        }
+        try {
+            TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(new byte[0]));
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+        }
+        try {
+            TreeHashGenerator.calculateTreeHash(file);
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+        }
+        try {
+            TreeHashGenerator.calculateTreeHash(Collections.<byte[]>emptyList());
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+        }
+    }
+
+    @Test
+    public void testSingleByte() throws Exception {
+        assertSameAsLegacy(1);
+    }
+
+    @Test
+    public void testSubMegabyte() throws Exception {
+        assertSameAsLegacy(1000);
+        assertSameAsLegacy(MB - 1);
+    }
+
+    @Test
+    public void testExactMegabytes() throws Exception {
+        assertSameAsLegacy(MB);
+        assertSameAsLegacy(2 * MB);
+        assertSameAsLegacy(3 * MB);
+    }
+
+    @Test
+    public void testMultipleMegabytesWithRaggedTail() throws Exception {
+        assertSameAsLegacy(MB + 1);
+        assertSameAsLegacy(3 * MB + 12345);
+        assertSameAsLegacy(5 * MB + 1);
+    }
+
+    @Test
+    public void testFileHashedInParallelBlocks() throws Exception {
+        // Several blocks of leaves, hashed by different threads
+        assertSameAsLegacy(17 * MB + 12345);
+    }
+
+    @Test
+    public void testFileRange() throws Exception {
+        byte[] data = randomBytes(4 * MB + 100);
+        write(data);
+        int offset = MB / 2;
+        int length = 2 * MB + 7;
+        assertEquals(LegacyTreeHash.treeHash(new ByteArrayInputStream(data, offset, length)),
+                TreeHashGenerator.calculateTreeHash(file, offset, length));
+    }
+
+    /**
+     * Compares the tree hashes of the given number of random bytes computed
+     * from a file, from a stream, byte by byte and from the leaf checksums
+     * with the legacy tree hash.
+     */
+    private void assertSameAsLegacy(int size) throws Exception {
+        byte[] data = randomBytes(size);
+        write(data);
+        String expected = LegacyTreeHash.treeHash(new ByteArrayInputStream(data));
+        assertEquals(expected, TreeHashGenerator.calculateTreeHash(file));
+        assertEquals(expected, TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(data)));
+
+        TreeHasher hasher = new TreeHasher();
+        if (size < 2 * MB) {
+            for (byte b : data)
+                hasher.update(b);
+        } else {
+            hasher.update(data, 0, data.length);
+        }
+        hasher.finish();
+        assertEquals((size + MB - 1) / MB, hasher.getLeafCount());
+        assertEquals(expected, LegacyTreeHash.combine(hasher.getChecksums()));
+        assertEquals(expected, TreeHashGenerator.calculateTreeHash(hasher.getChecksums()));
+    }
+
+    private void write(byte[] data) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
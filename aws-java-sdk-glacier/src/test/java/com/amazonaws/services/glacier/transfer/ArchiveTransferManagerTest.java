@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.glacier.AmazonGlacierClient;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.util.IOUtils;
+
+public class ArchiveTransferManagerTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private static final String JOB_ID = "job";
+
+    private final byte[] archive = new byte[5 * MB + 12345];
+
+    private File directory;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(archive);
+        directory = File.createTempFile("checkpoints", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        file = File.createTempFile("archive", ".bin");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        for (File f : directory.listFiles())
+            f.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void testConcurrentDownload() throws IOException {
+        StubGlacier glacier = new StubGlacier();
+        manager(glacier, 4).downloadJobOutput(null, "vault", JOB_ID, file);
+        assertArrayEquals(archive, readFile());
+        assertEquals(6, glacier.ranges.size());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void testResumeAfterFailure() throws IOException {
+        StubGlacier glacier = new StubGlacier() {
+            @Override
+            public GetJobOutputResult getJobOutput(GetJobOutputRequest request) {
+                if (request.getRange().startsWith("bytes=" + 3 * MB + "-"))
+                    throw new AmazonServiceException("Service unavailable");
+                return super.getJobOutput(request);
+            }
+        };
+        try {
+            manager(glacier, 1).downloadJobOutput(null, "vault", JOB_ID, file);
+            fail("Expected AmazonServiceException");
+        } catch (AmazonServiceException e) {
+            // The checkpoint records the chunks downloaded before the failure
+        }
+        assertEquals(1, directory.listFiles().length);
+
+        glacier = new StubGlacier();
+        manager(glacier, 1).downloadJobOutput(null, "vault", JOB_ID, file);
+        assertEquals(Arrays.asList(range(3), range(4), range(5)), glacier.ranges);
+        assertArrayEquals(archive, readFile());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void testCorruptedChunkIsDownloadedAgain() throws IOException {
+        // An earlier attempt recorded chunks 0 to 2 as downloaded, but chunk 1
+        // never made it to disk intact
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(archive, 0, 3 * MB);
+        out.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(archive.length);
+        raf.seek(MB + 100);
+        raf.write(archive[MB + 100] ^ 1);
+        raf.close();
+        TransferCheckpoint checkpoint = TransferCheckpoint.load(directory, "download",
+                "null/vault/" + JOB_ID + "/" + file.getAbsolutePath());
+        checkpoint.put("archiveSize", String.valueOf(archive.length));
+        checkpoint.put("chunkSize", String.valueOf(MB));
+        for (int i = 0; i < 3; i++)
+            checkpoint.put("chunk." + i, treeHash(i * MB, MB));
+        checkpoint.save();
+
+        StubGlacier glacier = new StubGlacier();
+        manager(glacier, 2).downloadJobOutput(null, "vault", JOB_ID, file);
+        Collections.sort(glacier.ranges);
+        assertEquals(Arrays.asList(range(1), range(3), range(4), range(5)), glacier.ranges);
+        assertArrayEquals(archive, readFile());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    private ArchiveTransferManager manager(StubGlacier glacier, int maxConcurrency) {
+        ArchiveTransferConfiguration configuration = new ArchiveTransferConfiguration();
+        configuration.setMaxConcurrency(maxConcurrency);
+        configuration.setDownloadChunkSize(MB);
+        configuration.setCheckpointDirectory(directory);
+        ArchiveTransferManager manager = new ArchiveTransferManager(glacier, new BasicAWSCredentials("akid", "skid"));
+        manager.setConfiguration(configuration);
+        return manager;
+    }
+
+    private byte[] readFile() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /** The range header of the given chunk */
+    private String range(int chunk) {
+        long start = (long) chunk * MB;
+        return "bytes=" + start + "-" + (Math.min(start + MB, archive.length) - 1);
+    }
+
+    private String treeHash(int offset, int length) {
+        return TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(archive, offset, length));
+    }
+
+    /**
+     * Serves the output of a single archive retrieval job.
+     */
+    private class StubGlacier extends AmazonGlacierClient {
+
+        final List<String> ranges = new CopyOnWriteArrayList<String>();
+
+        StubGlacier() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public DescribeJobResult describeJob(DescribeJobRequest request) {
+            assertEquals(JOB_ID, request.getJobId());
+            return new DescribeJobResult()
+                    .withArchiveSizeInBytes((long) archive.length)
+                    .withSHA256TreeHash(treeHash(0, archive.length));
+        }
+
+        @Override
+        public GetJobOutputResult getJobOutput(GetJobOutputRequest request) {
+            assertEquals(JOB_ID, request.getJobId());
+            ranges.add(request.getRange());
+            String[] range = request.getRange().substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(range[0]);
+            int length = Integer.parseInt(range[1]) - start + 1;
+            return new GetJobOutputResult()
+                    .withBody(new ByteArrayInputStream(archive, start, length))
+                    .withChecksum(treeHash(start, length));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+/**
+ * Stores the position up to which the records of each shard have been
+ * processed, so that a {@link KinesisConsumer} can resume from there.
+ * Implementations must be thread safe.
+ *
+ * @see FileCheckpointStore
+ */
+public interface CheckpointStore {
+
+    /**
+     * The checkpoint of a shard all the records of which have been processed.
+     */
+    String SHARD_END = "SHARD_END";
+
+    /**
+     * Returns the sequence number of the last processed record of the given
+     * shard, {@link #SHARD_END}, or null if the shard has no checkpoint.
+     *
+     * @param shardId the id of the shard
+     */
+    String getCheckpoint(String shardId);
+
+    /**
+     * Records the sequence number of the last processed record of the given
+     * shard, or {@link #SHARD_END}.
+     *
+     * @param shardId the id of the shard
+     * @param checkpoint the checkpoint of the shard
+     */
+    void setCheckpoint(String shardId, String checkpoint);
+}
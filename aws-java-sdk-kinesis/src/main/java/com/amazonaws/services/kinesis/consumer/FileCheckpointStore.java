@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Stores the checkpoints of the shards of a stream in a local properties
+ * file. Every checkpoint rewrites the whole file through a temporary file, so
+ * that a crash never leaves it half written. Mostly useful for a single
+ * consumer process, and for testing.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+    private static final Log log = LogFactory.getLog(FileCheckpointStore.class);
+
+    private final File file;
+    private final Properties checkpoints = new Properties();
+
+    /**
+     * Constructs a new store backed by the given file, loading the
+     * checkpoints it holds if it exists.
+     *
+     * @param file the file holding the checkpoints
+     */
+    public FileCheckpointStore(File file) {
+        this.file = file;
+        if (file.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                checkpoints.load(in);
+            } catch (IOException e) {
+                throw new AmazonClientException("Unable to load the checkpoints from " + file, e);
+            } finally {
+                IOUtils.closeQuietly(in, log);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String getCheckpoint(String shardId) {
+        return checkpoints.getProperty(shardId);
+    }
+
+    @Override
+    public synchronized void setCheckpoint(String shardId, String checkpoint) {
+        if (checkpoint.equals(checkpoints.getProperty(shardId)))
+            return;
+        // Only remember the checkpoint once stored, so that a retry after a
+        // failure stores it again
+        Properties updated = new Properties();
+        updated.putAll(checkpoints);
+        updated.setProperty(shardId, checkpoint);
+        File tmp = new File(file.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            updated.store(out, null);
+            out.close();
+            out = null;
+            // renameTo doesn't replace an existing file on all platforms
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+                throw new IOException("Unable to rename " + tmp + " to " + file);
+            checkpoints.setProperty(shardId, checkpoint);
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to store the checkpoints to " + file, e);
+        } finally {
+            IOUtils.closeQuietly(out, log);
+        }
+    }
+}
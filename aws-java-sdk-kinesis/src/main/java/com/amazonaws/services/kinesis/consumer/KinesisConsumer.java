@@ -0,0 +1,496 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
+import com.amazonaws.services.kinesis.model.ExpiredIteratorException;
+import com.amazonaws.services.kinesis.model.GetRecordsRequest;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.GetShardIteratorRequest;
+import com.amazonaws.services.kinesis.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+import com.amazonaws.services.kinesis.model.StreamDescription;
+import com.amazonaws.services.kinesis.producer.RecordAggregator;
+
+/**
+ * Reads all the shards of a Kinesis stream in parallel, and hands their
+ * records to a {@link RecordHandler}.
+ * <p>
+ * Each shard being read has a dedicated fetch loop, which renews its shard
+ * iterator as needed and paces its GetRecords requests to stay within the
+ * per-shard read limits of the service. Fetched pages of records are queued
+ * in a bounded per-shard look-ahead queue, from which they are delivered to
+ * the handler by a pool of threads, one page at a time per shard, so that the
+ * records of a shard are processed in order while the next pages are already
+ * being fetched.
+ * <p>
+ * The position up to which each shard has been processed is checkpointed to
+ * a {@link CheckpointStore}, and reading resumes from there on restart. The
+ * shards created by splitting or merging shards are only read once their
+ * parents have been fully processed. Records are processed at least once:
+ * the records processed after the last checkpoint are delivered again after
+ * a restart. Only one consumer should read a stream with a given checkpoint
+ * store at a time.
+ */
+public class KinesisConsumer {
+    private static final Log log = LogFactory.getLog(KinesisConsumer.class);
+
+    private final AmazonKinesis kinesis;
+    private final String streamName;
+    private final RecordHandler handler;
+    private final CheckpointStore checkpointStore;
+    private final KinesisConsumerConfig config;
+
+    /** The consumers of the shards being read, by shard id. */
+    private final ConcurrentMap<String, ShardConsumer> consumers = new ConcurrentHashMap<String, ShardConsumer>();
+
+    /** The shards that have been fully processed. */
+    private final Set<String> finishedShards =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private ExecutorService fetchers;
+    private ExecutorService handlers;
+    private ScheduledExecutorService timer;
+    private volatile boolean running;
+
+    /**
+     * Constructs a new consumer of the given stream, with the default
+     * configuration.
+     *
+     * @param kinesis the client used to read the stream
+     * @param streamName the name of the stream to read
+     * @param handler the handler of the records
+     * @param checkpointStore the store of the checkpoints of the shards
+     */
+    public KinesisConsumer(AmazonKinesis kinesis, String streamName, RecordHandler handler,
+            CheckpointStore checkpointStore) {
+        this(kinesis, streamName, handler, checkpointStore, new KinesisConsumerConfig());
+    }
+
+    /**
+     * Constructs a new consumer of the given stream.
+     *
+     * @param kinesis the client used to read the stream
+     * @param streamName the name of the stream to read
+     * @param handler the handler of the records
+     * @param checkpointStore the store of the checkpoints of the shards
+     * @param config the configuration of the consumer, which is copied
+     */
+    public KinesisConsumer(AmazonKinesis kinesis, String streamName, RecordHandler handler,
+            CheckpointStore checkpointStore, KinesisConsumerConfig config) {
+        this.kinesis = kinesis;
+        this.streamName = streamName;
+        this.handler = handler;
+        this.checkpointStore = checkpointStore;
+        this.config = new KinesisConsumerConfig(config);
+    }
+
+    /**
+     * Starts reading the stream in the background.
+     */
+    public synchronized void start() {
+        if (running)
+            throw new IllegalStateException("The consumer has already been started");
+        running = true;
+        fetchers = Executors.newCachedThreadPool(threadFactory("fetcher"));
+        handlers = Executors.newFixedThreadPool(config.getHandlerThreads(), threadFactory("handler"));
+        timer = Executors.newSingleThreadScheduledExecutor(threadFactory("timer"));
+        timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                syncShards();
+            }
+        }, 0, config.getShardSyncIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reading the stream, waits up to the given time for the records
+     * being processed, and checkpoints the last processed record of each
+     * shard. The records fetched but not yet processed are discarded.
+     *
+     * @param timeout the maximum time to wait for the handler
+     * @param unit the unit of the timeout
+     */
+    public synchronized void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!running)
+            return;
+        running = false;
+        timer.shutdownNow();
+        for (ShardConsumer consumer : consumers.values())
+            consumer.stop();
+        fetchers.shutdownNow();
+        handlers.shutdown();
+        handlers.awaitTermination(timeout, unit);
+        for (ShardConsumer consumer : consumers.values())
+            consumer.checkpoint(true);
+        consumers.clear();
+    }
+
+    /**
+     * Returns the ids of the shards currently being read.
+     */
+    public Set<String> getActiveShardIds() {
+        return Collections.unmodifiableSet(new HashSet<String>(consumers.keySet()));
+    }
+
+    /**
+     * Starts reading the shards that are not being read yet, and whose
+     * parents (if any) have been fully processed.
+     */
+    void syncShards() {
+        if (!running)
+            return;
+        List<Shard> shards;
+        try {
+            shards = listShards();
+        } catch (AmazonClientException e) {
+            log.warn("Unable to list the shards of stream " + streamName, e);
+            return;
+        }
+        Map<String, Shard> shardsById = new HashMap<String, Shard>();
+        for (Shard shard : shards)
+            shardsById.put(shard.getShardId(), shard);
+        for (Shard shard : shards) {
+            String shardId = shard.getShardId();
+            if (consumers.containsKey(shardId) || isFinished(shardId))
+                continue;
+            if (!isParentFinished(shard.getParentShardId(), shardsById)
+                    || !isParentFinished(shard.getAdjacentParentShardId(), shardsById))
+                continue;
+            ShardConsumer consumer = new ShardConsumer(shardId);
+            if (consumers.putIfAbsent(shardId, consumer) == null) {
+                try {
+                    consumer.start();
+                } catch (RejectedExecutionException e) {
+                    consumers.remove(shardId);
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<Shard> listShards() {
+        List<Shard> shards = new ArrayList<Shard>();
+        String exclusiveStartShardId = null;
+        while (true) {
+            StreamDescription description = kinesis.describeStream(new DescribeStreamRequest()
+                    .withStreamName(streamName)
+                    .withExclusiveStartShardId(exclusiveStartShardId))
+                    .getStreamDescription();
+            List<Shard> page = description.getShards();
+            shards.addAll(page);
+            if (!Boolean.TRUE.equals(description.getHasMoreShards()) || page.isEmpty())
+                return shards;
+            exclusiveStartShardId = page.get(page.size() - 1).getShardId();
+        }
+    }
+
+    private boolean isFinished(String shardId) {
+        if (finishedShards.contains(shardId))
+            return true;
+        if (CheckpointStore.SHARD_END.equals(checkpointStore.getCheckpoint(shardId))) {
+            finishedShards.add(shardId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if there is no such parent shard, either because the shard
+     * has no parent or because the parent has expired, or if it has been
+     * fully processed.
+     */
+    private boolean isParentFinished(String parentShardId, Map<String, Shard> shardsById) {
+        return parentShardId == null || !shardsById.containsKey(parentShardId) || isFinished(parentShardId);
+    }
+
+    private void scheduleSyncShards() {
+        try {
+            timer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    syncShards();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("kinesis-consumer-" + streamName + "-" + name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining > 0)
+            TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+
+    /**
+     * Reads a single shard: a fetch loop filling a bounded queue of pages,
+     * and the delivery of those pages to the handler, one at a time.
+     */
+    private final class ShardConsumer implements Runnable {
+        private final String shardId;
+        private final BlockingQueue<GetRecordsResult> pages;
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        private volatile boolean stopped;
+        private volatile Future<?> fetchLoop;
+
+        /** The sequence number of the last fetched record; fetch loop only. */
+        private String lastFetched;
+
+        /** The sequence number of the last processed record. */
+        private volatile String lastProcessed;
+        /** The last page processed, so that it isn't processed twice. */
+        private GetRecordsResult lastProcessedPage;
+        private String lastCheckpoint;
+        private long lastCheckpointMillis = System.currentTimeMillis();
+
+        ShardConsumer(String shardId) {
+            this.shardId = shardId;
+            this.pages = new ArrayBlockingQueue<GetRecordsResult>(config.getMaxLookAheadPages());
+        }
+
+        void start() {
+            fetchLoop = fetchers.submit(this);
+        }
+
+        void stop() {
+            stopped = true;
+            Future<?> f = fetchLoop;
+            if (f != null)
+                f.cancel(true);
+        }
+
+        /** The fetch loop. */
+        @Override
+        public void run() {
+            String iterator = null;
+            long nextGetNanos = System.nanoTime();
+            while (!stopped) {
+                try {
+                    if (iterator == null)
+                        iterator = getShardIterator();
+                    sleepUntil(nextGetNanos);
+                    GetRecordsResult result = kinesis.getRecords(new GetRecordsRequest()
+                            .withShardIterator(iterator)
+                            .withLimit(config.getMaxRecordsPerGet()));
+                    nextGetNanos = nextGetNanos(result);
+                    List<Record> records = result.getRecords();
+                    if (!records.isEmpty())
+                        lastFetched = records.get(records.size() - 1).getSequenceNumber();
+                    iterator = result.getNextShardIterator();
+                    if (!records.isEmpty() || iterator == null) {
+                        // Blocks while the handler is too far behind
+                        pages.put(result);
+                        scheduleDelivery();
+                    }
+                    if (iterator == null)
+                        return; // The shard has been closed and fully read
+                } catch (ExpiredIteratorException e) {
+                    iterator = null;
+                } catch (ProvisionedThroughputExceededException e) {
+                    nextGetNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getRetryDelayMillis());
+                } catch (RuntimeException e) {
+                    // Any failure, not only of the service, is retried, as the
+                    // shard would otherwise never be read again
+                    log.warn("Unable to get records from shard " + shardId + " of stream " + streamName, e);
+                    nextGetNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getRetryDelayMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the earliest time of the next GetRecords request, given the
+         * last result, to stay within the per-shard limits of the service.
+         */
+        private long nextGetNanos(GetRecordsResult result) {
+            long bytes = 0;
+            for (Record record : result.getRecords()) {
+                ByteBuffer data = record.getData();
+                if (data != null)
+                    bytes += data.remaining();
+            }
+            long delayMillis = Math.max(config.getMinGetIntervalMillis(),
+                    bytes * 1000 / KinesisConsumerConfig.SERVICE_MAX_BYTES_PER_SECOND);
+            Long behind = result.getMillisBehindLatest();
+            if (result.getRecords().isEmpty() && (behind == null || behind.longValue() == 0))
+                delayMillis = Math.max(delayMillis, config.getIdleGetIntervalMillis());
+            return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+
+        private String getShardIterator() {
+            GetShardIteratorRequest request = new GetShardIteratorRequest()
+                    .withStreamName(streamName)
+                    .withShardId(shardId);
+            String after = lastFetched != null ? lastFetched : checkpointStore.getCheckpoint(shardId);
+            if (after != null) {
+                request.withShardIteratorType(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                       .withStartingSequenceNumber(after);
+            } else {
+                request.withShardIteratorType(config.getInitialPosition());
+            }
+            return kinesis.getShardIterator(request).getShardIterator();
+        }
+
+        private void scheduleDelivery() {
+            if (stopped || pages.isEmpty() || !delivering.compareAndSet(false, true))
+                return;
+            try {
+                handlers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                delivering.set(false);
+            }
+        }
+
+        /**
+         * Delivers the next page to the handler. Only a single delivery of a
+         * shard runs at any time.
+         */
+        private void deliver() {
+            boolean failed = false;
+            try {
+                GetRecordsResult page = pages.peek();
+                if (page == null || stopped)
+                    return;
+                List<Record> records = page.getRecords();
+                if (!records.isEmpty() && page != lastProcessedPage) {
+                    handler.processRecords(shardId, config.isDeaggregationEnabled() ? deaggregate(records) : records);
+                    lastProcessedPage = page;
+                    lastProcessed = records.get(records.size() - 1).getSequenceNumber();
+                    checkpoint(false);
+                }
+                if (page.getNextShardIterator() == null)
+                    finish();
+                pages.poll();
+            } catch (RuntimeException e) {
+                failed = true;
+                log.warn("Unable to process records of shard " + shardId + " of stream " + streamName, e);
+            } finally {
+                delivering.set(false);
+                if (failed)
+                    scheduleRedelivery();
+                else
+                    scheduleDelivery();
+            }
+        }
+
+        private void scheduleRedelivery() {
+            try {
+                timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        scheduleDelivery();
+                    }
+                }, config.getRetryDelayMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+
+        private List<Record> deaggregate(List<Record> records) {
+            List<Record> result = null;
+            for (int i = 0; i < records.size(); i++) {
+                Record record = records.get(i);
+                if (record.getData() != null && RecordAggregator.isAggregated(record.getData())) {
+                    if (result == null)
+                        result = new ArrayList<Record>(records.subList(0, i));
+                    result.addAll(RecordAggregator.deaggregate(record));
+                } else if (result != null) {
+                    result.add(record);
+                }
+            }
+            return result == null ? records : result;
+        }
+
+        /**
+         * Checkpoints the last processed record, unless it has been
+         * checkpointed already or, when not forced, the last checkpoint is
+         * recent.
+         */
+        synchronized void checkpoint(boolean force) {
+            String sequenceNumber = lastProcessed;
+            if (sequenceNumber == null || sequenceNumber.equals(lastCheckpoint))
+                return;
+            long now = System.currentTimeMillis();
+            if (!force && now - lastCheckpointMillis < config.getCheckpointIntervalMillis())
+                return;
+            try {
+                checkpointStore.setCheckpoint(shardId, sequenceNumber);
+                lastCheckpoint = sequenceNumber;
+                lastCheckpointMillis = now;
+            } catch (AmazonClientException e) {
+                log.warn("Unable to checkpoint shard " + shardId + " of stream " + streamName, e);
+            }
+        }
+
+        /**
+         * Marks the shard as fully processed, and looks for its children.
+         */
+        private void finish() {
+            checkpointStore.setCheckpoint(shardId, CheckpointStore.SHARD_END);
+            finishedShards.add(shardId);
+            consumers.remove(shardId);
+            scheduleSyncShards();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+
+/**
+ * Configuration of a {@link KinesisConsumer}.
+ */
+public class KinesisConsumerConfig {
+
+    /** The maximum number of records the service returns by a GetRecords request. */
+    public static final int SERVICE_MAX_RECORDS_PER_GET = 10000;
+
+    /** The maximum number of GetRecords requests per second the service allows per shard. */
+    public static final int SERVICE_MAX_GETS_PER_SECOND = 5;
+
+    /** The maximum read throughput the service allows per shard, in bytes per second. */
+    public static final long SERVICE_MAX_BYTES_PER_SECOND = 2 * 1024 * 1024;
+
+    /** LATEST */
+    public static final ShardIteratorType INITIAL_POSITION_DEFAULT = ShardIteratorType.LATEST;
+
+    /** 10000 records */
+    public static final int MAX_RECORDS_PER_GET_DEFAULT = SERVICE_MAX_RECORDS_PER_GET;
+
+    /** 3 pages */
+    public static final int MAX_LOOK_AHEAD_PAGES_DEFAULT = 3;
+
+    /** 200 milliseconds, which is the per-shard limit of 5 requests per second */
+    public static final long MIN_GET_INTERVAL_MILLIS_DEFAULT = 1000 / SERVICE_MAX_GETS_PER_SECOND;
+
+    /** 1 second */
+    public static final long IDLE_GET_INTERVAL_MILLIS_DEFAULT = 1000;
+
+    /** 1 second */
+    public static final long RETRY_DELAY_MILLIS_DEFAULT = 1000;
+
+    /** 1 minute */
+    public static final long SHARD_SYNC_INTERVAL_MILLIS_DEFAULT = 60 * 1000;
+
+    /** 10 seconds */
+    public static final long CHECKPOINT_INTERVAL_MILLIS_DEFAULT = 10 * 1000;
+
+    /**
+     * Where to start reading the shards that have no checkpoint yet: either
+     * TRIM_HORIZON (the oldest record) or LATEST (only new records).
+     */
+    private ShardIteratorType initialPosition = INITIAL_POSITION_DEFAULT;
+
+    /** The maximum number of records retrieved by each GetRecords request. */
+    private int maxRecordsPerGet = MAX_RECORDS_PER_GET_DEFAULT;
+
+    /**
+     * The maximum number of pages of records retrieved ahead of the handler
+     * for each shard. The fetch loop of a shard stops when that many pages
+     * are waiting to be processed.
+     */
+    private int maxLookAheadPages = MAX_LOOK_AHEAD_PAGES_DEFAULT;
+
+    /** The minimum time (milliseconds) between two GetRecords requests of a shard. */
+    private long minGetIntervalMillis = MIN_GET_INTERVAL_MILLIS_DEFAULT;
+
+    /**
+     * The time (milliseconds) to wait before the next GetRecords request of a
+     * shard after one that returned no records for a shard that is caught up.
+     */
+    private long idleGetIntervalMillis = IDLE_GET_INTERVAL_MILLIS_DEFAULT;
+
+    /**
+     * The time (milliseconds) to wait before retrying a request that failed
+     * or was throttled, or before delivering again records the handler failed
+     * to process.
+     */
+    private long retryDelayMillis = RETRY_DELAY_MILLIS_DEFAULT;
+
+    /** The time (milliseconds) between two lookups of the shards of the stream. */
+    private long shardSyncIntervalMillis = SHARD_SYNC_INTERVAL_MILLIS_DEFAULT;
+
+    /** The minimum time (milliseconds) between two checkpoints of a shard. */
+    private long checkpointIntervalMillis = CHECKPOINT_INTERVAL_MILLIS_DEFAULT;
+
+    /** The number of threads processing the records of the shards. */
+    private int handlerThreads = Runtime.getRuntime().availableProcessors();
+
+    /** Whether aggregated records are unpacked before being handled. */
+    private boolean deaggregationEnabled = true;
+
+    public KinesisConsumerConfig() {
+    }
+
+    /** copy constructor */
+    public KinesisConsumerConfig(KinesisConsumerConfig other) {
+        initialPosition = other.initialPosition;
+        maxRecordsPerGet = other.maxRecordsPerGet;
+        maxLookAheadPages = other.maxLookAheadPages;
+        minGetIntervalMillis = other.minGetIntervalMillis;
+        idleGetIntervalMillis = other.idleGetIntervalMillis;
+        retryDelayMillis = other.retryDelayMillis;
+        shardSyncIntervalMillis = other.shardSyncIntervalMillis;
+        checkpointIntervalMillis = other.checkpointIntervalMillis;
+        handlerThreads = other.handlerThreads;
+        deaggregationEnabled = other.deaggregationEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return "KinesisConsumerConfig [initialPosition=" + initialPosition + ", maxRecordsPerGet="
+                + maxRecordsPerGet + ", maxLookAheadPages=" + maxLookAheadPages + ", minGetIntervalMillis="
+                + minGetIntervalMillis + ", idleGetIntervalMillis=" + idleGetIntervalMillis
+                + ", retryDelayMillis=" + retryDelayMillis + ", shardSyncIntervalMillis=" + shardSyncIntervalMillis
+                + ", checkpointIntervalMillis=" + checkpointIntervalMillis + ", handlerThreads=" + handlerThreads
+                + ", deaggregationEnabled=" + deaggregationEnabled + "]";
+    }
+
+    /**
+     * Where to start reading the shards that have no checkpoint yet: either
+     * TRIM_HORIZON (the oldest record) or LATEST (only new records).
+     */
+    public ShardIteratorType getInitialPosition() {
+        return initialPosition;
+    }
+
+    /**
+     * Where to start reading the shards that have no checkpoint yet: either
+     * TRIM_HORIZON (the oldest record) or LATEST (only new records).
+     */
+    public void setInitialPosition(ShardIteratorType initialPosition) {
+        if (initialPosition != ShardIteratorType.TRIM_HORIZON && initialPosition != ShardIteratorType.LATEST)
+            throw new IllegalArgumentException("initialPosition must be either TRIM_HORIZON or LATEST");
+        this.initialPosition = initialPosition;
+    }
+
+    public KinesisConsumerConfig withInitialPosition(ShardIteratorType initialPosition) {
+        setInitialPosition(initialPosition);
+        return this;
+    }
+
+    /**
+     * The maximum number of records retrieved by each GetRecords request; at
+     * most {@value #SERVICE_MAX_RECORDS_PER_GET}.
+     */
+    public int getMaxRecordsPerGet() {
+        return maxRecordsPerGet;
+    }
+
+    /**
+     * The maximum number of records retrieved by each GetRecords request; at
+     * most {@value #SERVICE_MAX_RECORDS_PER_GET}.
+     */
+    public void setMaxRecordsPerGet(int maxRecordsPerGet) {
+        if (maxRecordsPerGet < 1 || maxRecordsPerGet > SERVICE_MAX_RECORDS_PER_GET) {
+            throw new IllegalArgumentException("maxRecordsPerGet must be between 1 and "
+                    + SERVICE_MAX_RECORDS_PER_GET);
+        }
+        this.maxRecordsPerGet = maxRecordsPerGet;
+    }
+
+    public KinesisConsumerConfig withMaxRecordsPerGet(int maxRecordsPerGet) {
+        setMaxRecordsPerGet(maxRecordsPerGet);
+        return this;
+    }
+
+    /**
+     * The maximum number of pages of records retrieved ahead of the handler
+     * for each shard. The fetch loop of a shard stops when that many pages
+     * are waiting to be processed, which bounds the memory used by the
+     * consumer when the handler can't keep up.
+     */
+    public int getMaxLookAheadPages() {
+        return maxLookAheadPages;
+    }
+
+    /**
+     * The maximum number of pages of records retrieved ahead of the handler
+     * for each shard. The fetch loop of a shard stops when that many pages
+     * are waiting to be processed, which bounds the memory used by the
+     * consumer when the handler can't keep up.
+     */
+    public void setMaxLookAheadPages(int maxLookAheadPages) {
+        if (maxLookAheadPages < 1)
+            throw new IllegalArgumentException("maxLookAheadPages must be positive");
+        this.maxLookAheadPages = maxLookAheadPages;
+    }
+
+    public KinesisConsumerConfig withMaxLookAheadPages(int maxLookAheadPages) {
+        setMaxLookAheadPages(maxLookAheadPages);
+        return this;
+    }
+
+    /**
+     * The minimum time (milliseconds) between two GetRecords requests of a
+     * shard. The next request of a shard is further delayed so as to stay
+     * within the per-shard read throughput of
+     * {@value #SERVICE_MAX_BYTES_PER_SECOND} bytes per second.
+     */
+    public long getMinGetIntervalMillis() {
+        return minGetIntervalMillis;
+    }
+
+    /**
+     * The minimum time (milliseconds) between two GetRecords requests of a
+     * shard. The next request of a shard is further delayed so as to stay
+     * within the per-shard read throughput of
+     * {@value #SERVICE_MAX_BYTES_PER_SECOND} bytes per second.
+     */
+    public void setMinGetIntervalMillis(long minGetIntervalMillis) {
+        this.minGetIntervalMillis = minGetIntervalMillis;
+    }
+
+    public KinesisConsumerConfig withMinGetIntervalMillis(long minGetIntervalMillis) {
+        setMinGetIntervalMillis(minGetIntervalMillis);
+        return this;
+    }
+
+    /**
+     * The time (milliseconds) to wait before the next GetRecords request of a
+     * shard after one that returned no records for a shard that is caught up.
+     */
+    public long getIdleGetIntervalMillis() {
+        return idleGetIntervalMillis;
+    }
+
+    /**
+     * The time (milliseconds) to wait before the next GetRecords request of a
+     * shard after one that returned no records for a shard that is caught up.
+     */
+    public void setIdleGetIntervalMillis(long idleGetIntervalMillis) {
+        this.idleGetIntervalMillis = idleGetIntervalMillis;
+    }
+
+    public KinesisConsumerConfig withIdleGetIntervalMillis(long idleGetIntervalMillis) {
+        setIdleGetIntervalMillis(idleGetIntervalMillis);
+        return this;
+    }
+
+    /**
+     * The time (milliseconds) to wait before retrying a request that failed
+     * or was throttled, or before delivering again records the handler failed
+     * to process.
+     */
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    /**
+     * The time (milliseconds) to wait before retrying a request that failed
+     * or was throttled, or before delivering again records the handler failed
+     * to process.
+     */
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public KinesisConsumerConfig withRetryDelayMillis(long retryDelayMillis) {
+        setRetryDelayMillis(retryDelayMillis);
+        return this;
+    }
+
+    /**
+     * The time (milliseconds) between two lookups of the shards of the
+     * stream. The shards created by a split or merge are also looked up as
+     * soon as their parent shards have been fully processed.
+     */
+    public long getShardSyncIntervalMillis() {
+        return shardSyncIntervalMillis;
+    }
+
+    /**
+     * The time (milliseconds) between two lookups of the shards of the
+     * stream. The shards created by a split or merge are also looked up as
+     * soon as their parent shards have been fully processed.
+     */
+    public void setShardSyncIntervalMillis(long shardSyncIntervalMillis) {
+        this.shardSyncIntervalMillis = shardSyncIntervalMillis;
+    }
+
+    public KinesisConsumerConfig withShardSyncIntervalMillis(long shardSyncIntervalMillis) {
+        setShardSyncIntervalMillis(shardSyncIntervalMillis);
+        return this;
+    }
+
+    /**
+     * The minimum time (milliseconds) between two checkpoints of a shard. The
+     * latest processed record of each shard is also checkpointed on shutdown.
+     */
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    /**
+     * The minimum time (milliseconds) between two checkpoints of a shard. The
+     * latest processed record of each shard is also checkpointed on shutdown.
+     */
+    public void setCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    public KinesisConsumerConfig withCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        setCheckpointIntervalMillis(checkpointIntervalMillis);
+        return this;
+    }
+
+    /**
+     * The number of threads processing the records of the shards. Defaults
+     * to the number of available processors.
+     */
+    public int getHandlerThreads() {
+        return handlerThreads;
+    }
+
+    /**
+     * The number of threads processing the records of the shards. Defaults
+     * to the number of available processors.
+     */
+    public void setHandlerThreads(int handlerThreads) {
+        if (handlerThreads < 1)
+            throw new IllegalArgumentException("handlerThreads must be positive");
+        this.handlerThreads = handlerThreads;
+    }
+
+    public KinesisConsumerConfig withHandlerThreads(int handlerThreads) {
+        setHandlerThreads(handlerThreads);
+        return this;
+    }
+
+    /**
+     * @return true if aggregated records are unpacked before being handled;
+     *         false otherwise.
+     */
+    public boolean isDeaggregationEnabled() {
+        return deaggregationEnabled;
+    }
+
+    /**
+     * Specify "true" to unpack the records aggregated by a
+     * {@link com.amazonaws.services.kinesis.producer.KinesisProducer} (or the
+     * Kinesis Producer Library) before handing them to the handler.
+     */
+    public void setDeaggregationEnabled(boolean deaggregationEnabled) {
+        this.deaggregationEnabled = deaggregationEnabled;
+    }
+
+    public KinesisConsumerConfig withDeaggregationEnabled(boolean deaggregationEnabled) {
+        setDeaggregationEnabled(deaggregationEnabled);
+        return this;
+    }
+}
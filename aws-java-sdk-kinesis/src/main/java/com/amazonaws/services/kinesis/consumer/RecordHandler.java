@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+import java.util.List;
+
+import com.amazonaws.services.kinesis.model.Record;
+
+/**
+ * Processes the records retrieved by a {@link KinesisConsumer}.
+ */
+public interface RecordHandler {
+
+    /**
+     * Processes records of the given shard. The records of a shard are
+     * delivered in order, by one call at a time, although the records of
+     * different shards are processed concurrently.
+     * <p>
+     * If this method throws an exception, the same records are delivered
+     * again after a delay; records are only checkpointed once this method has
+     * returned normally.
+     *
+     * @param shardId the id of the shard the records were retrieved from
+     * @param records the records, never empty
+     */
+    void processRecords(String shardId, List<Record> records);
+}
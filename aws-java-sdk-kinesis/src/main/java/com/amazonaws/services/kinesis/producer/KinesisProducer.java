@@ -0,0 +1,723 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.kinesis.model.PutRecordsRequest;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.services.kinesis.model.PutRecordsResultEntry;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Puts records to a Kinesis stream asynchronously, in large batches.
+ * <p>
+ * Records are buffered per shard they are predicted to go to, using a cached
+ * map of the hash key ranges of the shards of the stream, and sent with
+ * PutRecords requests of up to 500 records or 5 MB. Many requests are kept in
+ * flight at the same time, and only the records that failed within a request
+ * are retried, with exponential backoff. Optionally, small records predicted
+ * to go to the same shard are aggregated into a single Kinesis record, which
+ * saves on the per-shard record quota (see {@link RecordAggregator}).
+ * <p>
+ * Adding a record returns a future that completes once the record has been
+ * put to the stream, with the shard id and sequence number assigned to it
+ * (which aggregated records share). Adding a record blocks while the records
+ * buffered or in flight reach {@link KinesisProducerConfig#getMaxBufferedBytes()}.
+ * <p>
+ * This class is thread safe. {@link #close()} must be called to send the
+ * buffered records and release the threads of the producer.
+ */
+public class KinesisProducer {
+    private static final Log log = LogFactory.getLog(KinesisProducer.class);
+
+    /** Key of the buffer of the records whose shard can't be predicted. */
+    private static final String UNKNOWN_SHARD = "";
+
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new AmazonClientException("Unable to compute the hash keys of records", e);
+            }
+        }
+    };
+
+    private final AmazonKinesis kinesis;
+    private final String streamName;
+    private final KinesisProducerConfig config;
+    private final ShardMap shardMap;
+    private final ConcurrentMap<String, ShardBuffer> buffers = new ConcurrentHashMap<String, ShardBuffer>();
+
+    /** Permits for the bytes of the records buffered or in flight. */
+    private final Semaphore bufferedBytes;
+
+    /** Permits for the PutRecords requests in flight. */
+    private final Semaphore inflightRequests;
+
+    private final AtomicInteger outstandingRecords = new AtomicInteger();
+    private final Object outstandingLock = new Object();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Random random = new Random();
+
+    /**
+     * The requests packed by a drain that are waiting for a permit to be sent;
+     * only ever accessed on the timer thread.
+     */
+    private final LinkedList<List<KinesisRecord>> pendingRequests = new LinkedList<List<KinesisRecord>>();
+
+    /**
+     * Whether a forced drain couldn't take all the buffered records because
+     * requests were pending; only ever accessed on the timer thread.
+     */
+    private boolean forcePending;
+
+    /** Drains the buffers and schedules the retries. */
+    private final ScheduledExecutorService timer;
+
+    /** Sends the PutRecords requests and reloads the shard map. */
+    private final ExecutorService sender;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new producer putting records to the given stream, with the
+     * default configuration.
+     *
+     * @param kinesis the client used to put the records
+     * @param streamName the name of the stream to put the records to
+     */
+    public KinesisProducer(AmazonKinesis kinesis, String streamName) {
+        this(kinesis, streamName, new KinesisProducerConfig());
+    }
+
+    /**
+     * Constructs a new producer putting records to the given stream.
+     *
+     * @param kinesis the client used to put the records
+     * @param streamName the name of the stream to put the records to
+     * @param config the configuration of the producer, which is copied
+     */
+    public KinesisProducer(AmazonKinesis kinesis, String streamName, KinesisProducerConfig config) {
+        this.kinesis = kinesis;
+        this.streamName = streamName;
+        this.config = new KinesisProducerConfig(config);
+        this.shardMap = new ShardMap(kinesis, streamName);
+        this.bufferedBytes = new Semaphore((int) this.config.getMaxBufferedBytes());
+        this.inflightRequests = new Semaphore(this.config.getMaxInflightRequests());
+        this.timer = Executors.newSingleThreadScheduledExecutor(threadFactory("timer"));
+        // One more thread than requests in flight, for reloading the shard map
+        this.sender = Executors.newFixedThreadPool(
+                this.config.getMaxInflightRequests() + 1, threadFactory("sender"));
+
+        long period = Math.max(1, this.config.getMaxBufferTimeMillis() / 4);
+        timer.scheduleWithFixedDelay(new DrainTask(false), period, period, TimeUnit.MILLISECONDS);
+        shardMap.refreshAsync(sender);
+    }
+
+    /**
+     * Adds a record to be put to the stream.
+     *
+     * @param partitionKey the partition key of the record
+     * @param data the data of the record, which must not be modified until
+     *        the returned future is done
+     *
+     * @return the future result of putting the record to the stream
+     */
+    public Future<PutRecordsResultEntry> addRecord(String partitionKey, ByteBuffer data) {
+        return addRecord(partitionKey, null, data);
+    }
+
+    /**
+     * Adds a record to be put to the stream.
+     *
+     * @param partitionKey the partition key of the record
+     * @param explicitHashKey the hash key that determines the shard of the
+     *        record, overriding the hash of the partition key; or null
+     * @param data the data of the record, which must not be modified until
+     *        the returned future is done
+     *
+     * @return the future result of putting the record to the stream
+     */
+    public Future<PutRecordsResultEntry> addRecord(String partitionKey, String explicitHashKey,
+            ByteBuffer data) {
+        if (partitionKey == null || partitionKey.length() == 0)
+            throw new IllegalArgumentException("partitionKey must not be empty");
+        if (data == null)
+            throw new IllegalArgumentException("data must not be null");
+        if (closed)
+            throw new IllegalStateException("The producer has been closed");
+
+        byte[] partitionKeyBytes = partitionKey.getBytes(StringUtils.UTF8);
+        int size = partitionKeyBytes.length + data.remaining();
+        if (size > KinesisProducerConfig.SERVICE_MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Record of " + size + " bytes exceeds the maximum of "
+                    + KinesisProducerConfig.SERVICE_MAX_RECORD_BYTES + " bytes");
+        }
+        BigInteger hashKey = explicitHashKey == null
+                ? new BigInteger(1, MD5.get().digest(partitionKeyBytes))
+                : new BigInteger(explicitHashKey);
+
+        bufferedBytes.acquireUninterruptibly(size);
+        outstandingRecords.incrementAndGet();
+        UserRecord record = new UserRecord(partitionKey, explicitHashKey, data.duplicate(), hashKey, size);
+        bufferFor(hashKey).add(record);
+        return record.future;
+    }
+
+    /**
+     * Sends all the buffered records right away, without waiting for them to
+     * be put.
+     */
+    public void flush() {
+        try {
+            timer.execute(new DrainTask(true));
+        } catch (RejectedExecutionException e) {
+            log.debug("Unable to flush the records, the producer has been closed", e);
+        }
+    }
+
+    /**
+     * Sends all the buffered records right away, and waits until all the
+     * records added so far (or while waiting) have been put or have failed.
+     */
+    public void flushSync() {
+        flush();
+        synchronized (outstandingLock) {
+            try {
+                while (outstandingRecords.get() > 0)
+                    outstandingLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records added but not yet put or failed.
+     */
+    public int getOutstandingRecordsCount() {
+        return outstandingRecords.get();
+    }
+
+    /**
+     * Sends all the buffered records, waits until they have been put or have
+     * failed, and then releases the threads of this producer. No record can be
+     * added once this method has been called. The Kinesis client is not shut
+     * down.
+     */
+    public void close() {
+        closed = true;
+        flushSync();
+        timer.shutdownNow();
+        sender.shutdown();
+    }
+
+    private ShardBuffer bufferFor(BigInteger hashKey) {
+        String shardId = shardMap.shardFor(hashKey);
+        if (shardId == null) {
+            shardMap.refreshAsync(sender);
+            shardId = UNKNOWN_SHARD;
+        }
+        ShardBuffer buffer = buffers.get(shardId);
+        if (buffer == null) {
+            ShardBuffer newBuffer = new ShardBuffer(shardId);
+            buffer = buffers.putIfAbsent(shardId, newBuffer);
+            if (buffer == null)
+                buffer = newBuffer;
+        }
+        return buffer;
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                timer.execute(new DrainTask(false));
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Sends the records of the buffers that are due, packed into as few
+     * requests as possible. Only ever runs on the timer thread, which must
+     * never block: while the requests packed earlier are still waiting for a
+     * permit, the buffers are left alone, and the drain is rescheduled as soon
+     * as a request completes.
+     */
+    private void drain(boolean force) {
+        drainScheduled.set(false);
+        force |= forcePending;
+        forcePending = false;
+        sendPending();
+        if (!pendingRequests.isEmpty()) {
+            forcePending = force;
+            return;
+        }
+        long now = System.nanoTime();
+        Batch batch = new Batch();
+        for (ShardBuffer buffer : buffers.values()) {
+            for (KinesisRecord record : buffer.take(force, now)) {
+                if (!batch.fits(record)) {
+                    send(batch.records);
+                    batch = new Batch();
+                }
+                batch.add(record);
+            }
+        }
+        if (batch.records.isEmpty())
+            return;
+        // Top up the last request with the records of the shards that aren't
+        // due yet, rather than sending it half empty
+        for (ShardBuffer buffer : buffers.values()) {
+            int remaining = config.getMaxBatchRecords() - batch.records.size();
+            if (remaining <= 0)
+                break;
+            for (KinesisRecord record : buffer.takeReady(remaining, config.getMaxBatchBytes() - batch.bytes))
+                batch.add(record);
+        }
+        send(batch.records);
+    }
+
+    private void send(List<KinesisRecord> records) {
+        pendingRequests.add(records);
+        sendPending();
+    }
+
+    /**
+     * Hands the pending requests to the sender threads, for as long as
+     * permits are available.
+     */
+    private void sendPending() {
+        while (!pendingRequests.isEmpty() && inflightRequests.tryAcquire()) {
+            List<KinesisRecord> records = pendingRequests.removeFirst();
+            try {
+                sender.execute(new PutRecordsTask(records));
+            } catch (RejectedExecutionException e) {
+                inflightRequests.release();
+                for (KinesisRecord record : records)
+                    complete(record, null, new AmazonClientException("The producer has been closed", e));
+            }
+        }
+    }
+
+    /**
+     * Completes or retries the given record according to its entry in a
+     * PutRecords result; returns true if the record landed on another shard
+     * than predicted.
+     */
+    private boolean handleResult(KinesisRecord record, PutRecordsResultEntry entry) {
+        if (entry.getErrorCode() == null) {
+            boolean stale = !UNKNOWN_SHARD.equals(record.shardId) && !record.shardId.equals(entry.getShardId());
+            complete(record, entry, null);
+            return stale;
+        }
+        AmazonServiceException e = new AmazonServiceException(entry.getErrorMessage());
+        e.setErrorCode(entry.getErrorCode());
+        e.setErrorType(ErrorType.Service);
+        e.setServiceName("AmazonKinesis");
+        // Both throttling and internal failures are worth retrying
+        retryOrFail(record, e, true);
+        return false;
+    }
+
+    private void retryOrFail(final KinesisRecord record, AmazonClientException e, boolean retryable) {
+        if (!retryable || record.attempts >= config.getMaxRetries()) {
+            complete(record, null, e);
+            return;
+        }
+        record.attempts++;
+        try {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    bufferFor(record.hashKey).requeue(record);
+                }
+            }, backoffMillis(record.attempts), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ree) {
+            complete(record, null, e);
+        }
+    }
+
+    /**
+     * Returns the delay before the given retry attempt: exponential backoff
+     * with "equal jitter".
+     */
+    private long backoffMillis(int attempt) {
+        long delay = config.getRetryBaseDelayMillis() << Math.min(attempt - 1, 20);
+        delay = Math.max(0, Math.min(config.getRetryMaxDelayMillis(), delay));
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2 + 1));
+    }
+
+    private static boolean isRetryable(AmazonClientException e) {
+        if (e instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException) e;
+            return ase.getErrorType() != ErrorType.Client
+                    || ase instanceof ProvisionedThroughputExceededException
+                    || RetryUtils.isThrottlingException(ase);
+        }
+        return e.isRetryable();
+    }
+
+    /**
+     * Completes the futures of the user records of the given record, and
+     * releases their resources. Never throws.
+     */
+    private void complete(KinesisRecord record, PutRecordsResultEntry entry, AmazonClientException e) {
+        if (e != null && log.isDebugEnabled())
+            log.debug("Unable to put " + record.userRecords.size() + " records to stream " + streamName, e);
+        for (UserRecord userRecord : record.userRecords) {
+            try {
+                if (e == null)
+                    userRecord.future.setSuccess(entry);
+                else
+                    userRecord.future.setFailure(e);
+            } catch (RuntimeException re) {
+                log.warn("Unable to complete the future of a record put to stream " + streamName, re);
+            } finally {
+                bufferedBytes.release(userRecord.size);
+            }
+        }
+        if (outstandingRecords.addAndGet(-record.userRecords.size()) == 0) {
+            synchronized (outstandingLock) {
+                outstandingLock.notifyAll();
+            }
+        }
+    }
+
+    private ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("kinesis-producer-" + streamName + "-" + name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    private final class DrainTask implements Runnable {
+        private final boolean force;
+
+        DrainTask(boolean force) {
+            this.force = force;
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain(force);
+            } catch (RuntimeException e) {
+                // Keep the periodic drain going
+                log.warn("Unable to send the records buffered for stream " + streamName, e);
+            }
+        }
+    }
+
+    private final class PutRecordsTask implements Runnable {
+        private final List<KinesisRecord> records;
+
+        PutRecordsTask(List<KinesisRecord> records) {
+            this.records = records;
+        }
+
+        /**
+         * Every record is either completed or scheduled for a retry exactly
+         * once, whatever is thrown, and the permit of the request is always
+         * released.
+         */
+        @Override
+        public void run() {
+            // The number of records completed or scheduled for a retry
+            int handled = 0;
+            try {
+                List<PutRecordsRequestEntry> entries = new ArrayList<PutRecordsRequestEntry>(records.size());
+                for (KinesisRecord record : records) {
+                    entries.add(new PutRecordsRequestEntry()
+                            .withPartitionKey(record.partitionKey)
+                            .withExplicitHashKey(record.explicitHashKey)
+                            .withData(record.data.duplicate()));
+                }
+                PutRecordsRequest request = new PutRecordsRequest()
+                        .withStreamName(streamName)
+                        .withRecords(entries);
+                List<PutRecordsResultEntry> results = kinesis.putRecords(request).getRecords();
+                if (results == null || results.size() != records.size()) {
+                    throw new AmazonClientException("Expected " + records.size()
+                            + " entries in the PutRecords result but got "
+                            + (results == null ? 0 : results.size()));
+                }
+                boolean stale = false;
+                while (handled < records.size()) {
+                    stale |= handleResult(records.get(handled), results.get(handled));
+                    handled++;
+                }
+                if (stale) {
+                    // The shards have been split or merged since the map was loaded
+                    shardMap.refreshAsync(sender);
+                }
+            } catch (AmazonClientException e) {
+                boolean retryable = isRetryable(e);
+                for (; handled < records.size(); handled++)
+                    retryOrFail(records.get(handled), e, retryable);
+            } catch (RuntimeException e) {
+                log.warn("Unable to put records to stream " + streamName, e);
+                fail(handled, new AmazonClientException("Unable to put records: " + e.getMessage(), e));
+                handled = records.size();
+            } finally {
+                if (handled < records.size()) {
+                    // An Error was thrown
+                    fail(handled, new AmazonClientException("Unable to put records to stream " + streamName));
+                }
+                inflightRequests.release();
+                scheduleDrain();
+            }
+        }
+
+        private void fail(int from, AmazonClientException e) {
+            for (int i = from; i < records.size(); i++)
+                complete(records.get(i), null, e);
+        }
+    }
+
+    /**
+     * The records predicted to go to a shard, waiting to be sent. With
+     * aggregation enabled, small records are packed into the current
+     * aggregated record until it is full or due.
+     */
+    private final class ShardBuffer {
+        private final String shardId;
+        private final LinkedList<KinesisRecord> ready = new LinkedList<KinesisRecord>();
+        private long readyBytes;
+        private RecordAggregator aggregator;
+        private final List<UserRecord> aggregated = new ArrayList<UserRecord>();
+        /** The time the oldest record of this buffer was added. */
+        private long oldestNanos;
+
+        ShardBuffer(String shardId) {
+            this.shardId = shardId;
+        }
+
+        void add(UserRecord record) {
+            boolean full;
+            synchronized (this) {
+                if (isEmpty())
+                    oldestNanos = System.nanoTime();
+                if (!aggregate(record))
+                    addReady(new KinesisRecord(record));
+                full = ready.size() >= config.getMaxBatchRecords() || readyBytes >= config.getMaxBatchBytes();
+            }
+            if (full)
+                scheduleDrain();
+        }
+
+        /**
+         * Puts back a record to be retried, ahead of the others, and makes
+         * the buffer due.
+         */
+        void requeue(KinesisRecord record) {
+            synchronized (this) {
+                long due = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(config.getMaxBufferTimeMillis());
+                if (isEmpty() || oldestNanos - due > 0)
+                    oldestNanos = due;
+                record.shardId = shardId;
+                ready.addFirst(record);
+                readyBytes += record.size;
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Returns all the records of this buffer if it is due: forced, full,
+         * or holding a record for longer than the max buffer time.
+         */
+        synchronized List<KinesisRecord> take(boolean force, long now) {
+            if (isEmpty())
+                return Collections.emptyList();
+            boolean due = force
+                    || now - oldestNanos >= TimeUnit.MILLISECONDS.toNanos(config.getMaxBufferTimeMillis())
+                    || ready.size() >= config.getMaxBatchRecords()
+                    || readyBytes >= config.getMaxBatchBytes();
+            if (!due)
+                return Collections.emptyList();
+            seal();
+            List<KinesisRecord> records = new ArrayList<KinesisRecord>(ready);
+            ready.clear();
+            readyBytes = 0;
+            return records;
+        }
+
+        /**
+         * Returns up to the given number and size of the ready records of this
+         * buffer, leaving the current aggregated record alone.
+         */
+        synchronized List<KinesisRecord> takeReady(int maxRecords, long maxBytes) {
+            if (ready.isEmpty())
+                return Collections.emptyList();
+            List<KinesisRecord> records = new ArrayList<KinesisRecord>();
+            while (!ready.isEmpty() && records.size() < maxRecords && ready.getFirst().size <= maxBytes) {
+                KinesisRecord record = ready.removeFirst();
+                records.add(record);
+                readyBytes -= record.size;
+                maxBytes -= record.size;
+            }
+            return records;
+        }
+
+        private boolean isEmpty() {
+            return ready.isEmpty() && aggregated.isEmpty();
+        }
+
+        private void addReady(KinesisRecord record) {
+            record.shardId = shardId;
+            ready.add(record);
+            readyBytes += record.size;
+        }
+
+        /**
+         * Packs the given record into the current aggregated record if
+         * possible; returns false if it is to be sent on its own.
+         */
+        private boolean aggregate(UserRecord record) {
+            if (!config.isAggregationEnabled() || UNKNOWN_SHARD.equals(shardId))
+                return false;
+            int max = config.getAggregationMaxBytes();
+            int dataLength = record.data.remaining();
+            if (aggregator != null
+                    && aggregator.sizeWith(record.partitionKey, record.explicitHashKey, dataLength) > max)
+                seal();
+            if (aggregator == null)
+                aggregator = new RecordAggregator();
+            if (aggregator.sizeWith(record.partitionKey, record.explicitHashKey, dataLength) > max)
+                return false;
+            aggregator.add(record.partitionKey, record.explicitHashKey, record.data);
+            aggregated.add(record);
+            return true;
+        }
+
+        /** Moves the current aggregated record to the ready records. */
+        private void seal() {
+            if (aggregated.isEmpty())
+                return;
+            if (aggregated.size() == 1) {
+                addReady(new KinesisRecord(aggregated.get(0)));
+            } else {
+                // The hash key of the first record keeps the aggregated record
+                // on the shard all of its records were predicted to go to
+                UserRecord first = aggregated.get(0);
+                addReady(new KinesisRecord(aggregator.getPartitionKey(), first.hashKey.toString(),
+                        aggregator.toByteBuffer(), first.hashKey, aggregator.getSize(),
+                        new ArrayList<UserRecord>(aggregated)));
+            }
+            aggregator = null;
+            aggregated.clear();
+        }
+    }
+
+    /** The records of a PutRecords request being packed. */
+    private final class Batch {
+        final List<KinesisRecord> records = new ArrayList<KinesisRecord>();
+        long bytes;
+
+        boolean fits(KinesisRecord record) {
+            return records.size() < config.getMaxBatchRecords() && bytes + record.size <= config.getMaxBatchBytes();
+        }
+
+        void add(KinesisRecord record) {
+            records.add(record);
+            bytes += record.size;
+        }
+    }
+
+    /** A record added to the producer. */
+    private static final class UserRecord {
+        final String partitionKey;
+        final String explicitHashKey;
+        final ByteBuffer data;
+        final BigInteger hashKey;
+        final int size;
+        final RecordFuture future = new RecordFuture();
+
+        UserRecord(String partitionKey, String explicitHashKey, ByteBuffer data, BigInteger hashKey, int size) {
+            this.partitionKey = partitionKey;
+            this.explicitHashKey = explicitHashKey;
+            this.data = data;
+            this.hashKey = hashKey;
+            this.size = size;
+        }
+    }
+
+    /** A record as put to Kinesis: either a user record, or an aggregate of them. */
+    private static final class KinesisRecord {
+        final String partitionKey;
+        final String explicitHashKey;
+        final ByteBuffer data;
+        final BigInteger hashKey;
+        final int size;
+        final List<UserRecord> userRecords;
+        /** The predicted shard. */
+        volatile String shardId;
+        volatile int attempts;
+
+        KinesisRecord(UserRecord record) {
+            this(record.partitionKey, record.explicitHashKey, record.data, record.hashKey, record.size,
+                    Collections.singletonList(record));
+        }
+
+        KinesisRecord(String partitionKey, String explicitHashKey, ByteBuffer data, BigInteger hashKey,
+                int size, List<UserRecord> userRecords) {
+            this.partitionKey = partitionKey;
+            this.explicitHashKey = explicitHashKey;
+            this.data = data;
+            this.hashKey = hashKey;
+            this.size = size;
+            this.userRecords = userRecords;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+/**
+ * Configuration of a {@link KinesisProducer}.
+ */
+public class KinesisProducerConfig {
+
+    /** The maximum number of records the service accepts in a PutRecords request. */
+    public static final int SERVICE_MAX_BATCH_RECORDS = 500;
+
+    /** The maximum size the service accepts for a PutRecords request, in bytes. */
+    public static final long SERVICE_MAX_BATCH_BYTES = 5 * 1024 * 1024;
+
+    /**
+     * The maximum size the service accepts for a single record, including its
+     * partition key, in bytes.
+     */
+    public static final int SERVICE_MAX_RECORD_BYTES = 1024 * 1024;
+
+    /** 500 records */
+    public static final int MAX_BATCH_RECORDS_DEFAULT = SERVICE_MAX_BATCH_RECORDS;
+
+    /** 5 megabytes */
+    public static final long MAX_BATCH_BYTES_DEFAULT = SERVICE_MAX_BATCH_BYTES;
+
+    /** 100 milliseconds */
+    public static final long MAX_BUFFER_TIME_MILLIS_DEFAULT = 100;
+
+    /** 32 requests */
+    public static final int MAX_INFLIGHT_REQUESTS_DEFAULT = 32;
+
+    /** 64 megabytes */
+    public static final long MAX_BUFFERED_BYTES_DEFAULT = 64 * 1024 * 1024;
+
+    /** 10 retries */
+    public static final int MAX_RETRIES_DEFAULT = 10;
+
+    /** 100 milliseconds */
+    public static final long RETRY_BASE_DELAY_MILLIS_DEFAULT = 100;
+
+    /** 5 seconds */
+    public static final long RETRY_MAX_DELAY_MILLIS_DEFAULT = 5000;
+
+    /** 50 kilobytes */
+    public static final int AGGREGATION_MAX_BYTES_DEFAULT = 50 * 1024;
+
+    /** The maximum number of records sent in a single PutRecords request. */
+    private int maxBatchRecords = MAX_BATCH_RECORDS_DEFAULT;
+
+    /** The maximum size of a single PutRecords request, in bytes. */
+    private long maxBatchBytes = MAX_BATCH_BYTES_DEFAULT;
+
+    /**
+     * The maximum time (milliseconds) a record is buffered waiting for other
+     * records to be sent along with it. The longer this time, the fuller the
+     * PutRecords requests (and aggregated records), which increases throughput
+     * but also increases the average latency of the records.
+     */
+    private long maxBufferTimeMillis = MAX_BUFFER_TIME_MILLIS_DEFAULT;
+
+    /**
+     * The maximum number of concurrent PutRecords requests. The greater the
+     * number, the greater the throughput that can be achieved (at the expense
+     * of consuming more threads and connections).
+     */
+    private int maxInflightRequests = MAX_INFLIGHT_REQUESTS_DEFAULT;
+
+    /**
+     * The maximum total size of the records buffered or in flight, in bytes.
+     * Adding a record blocks while this limit is reached, which bounds the
+     * memory used by the producer when the stream can't keep up.
+     */
+    private long maxBufferedBytes = MAX_BUFFERED_BYTES_DEFAULT;
+
+    /**
+     * The maximum number of times a record that failed to be put is retried
+     * before its future is failed.
+     */
+    private int maxRetries = MAX_RETRIES_DEFAULT;
+
+    /** The initial delay (milliseconds) before retrying a failed record. */
+    private long retryBaseDelayMillis = RETRY_BASE_DELAY_MILLIS_DEFAULT;
+
+    /** The maximum delay (milliseconds) before retrying a failed record. */
+    private long retryMaxDelayMillis = RETRY_MAX_DELAY_MILLIS_DEFAULT;
+
+    /**
+     * Whether small records predicted to go to the same shard are packed
+     * together into a single Kinesis record, using the format understood by
+     * {@link RecordAggregator} and the Kinesis Client Library.
+     */
+    private boolean aggregationEnabled;
+
+    /** The maximum size of an aggregated Kinesis record, in bytes. */
+    private int aggregationMaxBytes = AGGREGATION_MAX_BYTES_DEFAULT;
+
+    public KinesisProducerConfig() {
+    }
+
+    /** copy constructor */
+    public KinesisProducerConfig(KinesisProducerConfig other) {
+        maxBatchRecords = other.maxBatchRecords;
+        maxBatchBytes = other.maxBatchBytes;
+        maxBufferTimeMillis = other.maxBufferTimeMillis;
+        maxInflightRequests = other.maxInflightRequests;
+        maxBufferedBytes = other.maxBufferedBytes;
+        maxRetries = other.maxRetries;
+        retryBaseDelayMillis = other.retryBaseDelayMillis;
+        retryMaxDelayMillis = other.retryMaxDelayMillis;
+        aggregationEnabled = other.aggregationEnabled;
+        aggregationMaxBytes = other.aggregationMaxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "KinesisProducerConfig [maxBatchRecords=" + maxBatchRecords + ", maxBatchBytes=" + maxBatchBytes
+                + ", maxBufferTimeMillis=" + maxBufferTimeMillis + ", maxInflightRequests=" + maxInflightRequests
+                + ", maxBufferedBytes=" + maxBufferedBytes + ", maxRetries=" + maxRetries
+                + ", retryBaseDelayMillis=" + retryBaseDelayMillis + ", retryMaxDelayMillis=" + retryMaxDelayMillis
+                + ", aggregationEnabled=" + aggregationEnabled + ", aggregationMaxBytes=" + aggregationMaxBytes + "]";
+    }
+
+    /**
+     * The maximum number of records sent in a single PutRecords request; at
+     * most {@value #SERVICE_MAX_BATCH_RECORDS}.
+     */
+    public int getMaxBatchRecords() {
+        return maxBatchRecords;
+    }
+
+    /**
+     * The maximum number of records sent in a single PutRecords request; at
+     * most {@value #SERVICE_MAX_BATCH_RECORDS}.
+     */
+    public void setMaxBatchRecords(int maxBatchRecords) {
+        if (maxBatchRecords < 1 || maxBatchRecords > SERVICE_MAX_BATCH_RECORDS) {
+            throw new IllegalArgumentException("maxBatchRecords must be between 1 and "
+                    + SERVICE_MAX_BATCH_RECORDS);
+        }
+        this.maxBatchRecords = maxBatchRecords;
+    }
+
+    public KinesisProducerConfig withMaxBatchRecords(int maxBatchRecords) {
+        setMaxBatchRecords(maxBatchRecords);
+        return this;
+    }
+
+    /**
+     * The maximum size of a single PutRecords request, in bytes; at most
+     * {@value #SERVICE_MAX_BATCH_BYTES}.
+     */
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * The maximum size of a single PutRecords request, in bytes; at most
+     * {@value #SERVICE_MAX_BATCH_BYTES}.
+     */
+    public void setMaxBatchBytes(long maxBatchBytes) {
+        if (maxBatchBytes < SERVICE_MAX_RECORD_BYTES || maxBatchBytes > SERVICE_MAX_BATCH_BYTES) {
+            throw new IllegalArgumentException("maxBatchBytes must be between " + SERVICE_MAX_RECORD_BYTES
+                    + " and " + SERVICE_MAX_BATCH_BYTES);
+        }
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public KinesisProducerConfig withMaxBatchBytes(long maxBatchBytes) {
+        setMaxBatchBytes(maxBatchBytes);
+        return this;
+    }
+
+    /**
+     * The maximum time (milliseconds) a record is buffered waiting for other
+     * records to be sent along with it. The longer this time, the fuller the
+     * PutRecords requests (and aggregated records), which increases throughput
+     * but also increases the average latency of the records.
+     */
+    public long getMaxBufferTimeMillis() {
+        return maxBufferTimeMillis;
+    }
+
+    /**
+     * The maximum time (milliseconds) a record is buffered waiting for other
+     * records to be sent along with it. The longer this time, the fuller the
+     * PutRecords requests (and aggregated records), which increases throughput
+     * but also increases the average latency of the records.
+     */
+    public void setMaxBufferTimeMillis(long maxBufferTimeMillis) {
+        this.maxBufferTimeMillis = maxBufferTimeMillis;
+    }
+
+    public KinesisProducerConfig withMaxBufferTimeMillis(long maxBufferTimeMillis) {
+        setMaxBufferTimeMillis(maxBufferTimeMillis);
+        return this;
+    }
+
+    /**
+     * The maximum number of concurrent PutRecords requests. The greater the
+     * number, the greater the throughput that can be achieved (at the expense
+     * of consuming more threads and connections). The connection pool of the
+     * Kinesis client should allow at least as many connections.
+     */
+    public int getMaxInflightRequests() {
+        return maxInflightRequests;
+    }
+
+    /**
+     * The maximum number of concurrent PutRecords requests. The greater the
+     * number, the greater the throughput that can be achieved (at the expense
+     * of consuming more threads and connections). The connection pool of the
+     * Kinesis client should allow at least as many connections.
+     */
+    public void setMaxInflightRequests(int maxInflightRequests) {
+        if (maxInflightRequests < 1)
+            throw new IllegalArgumentException("maxInflightRequests must be positive");
+        this.maxInflightRequests = maxInflightRequests;
+    }
+
+    public KinesisProducerConfig withMaxInflightRequests(int maxInflightRequests) {
+        setMaxInflightRequests(maxInflightRequests);
+        return this;
+    }
+
+    /**
+     * The maximum total size of the records buffered or in flight, in bytes.
+     * Adding a record blocks while this limit is reached, which bounds the
+     * memory used by the producer when the stream can't keep up.
+     */
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    /**
+     * The maximum total size of the records buffered or in flight, in bytes;
+     * at least {@value #SERVICE_MAX_RECORD_BYTES} and at most
+     * {@link Integer#MAX_VALUE}. Adding a record blocks while this limit is
+     * reached, which bounds the memory used by the producer when the stream
+     * can't keep up.
+     */
+    public void setMaxBufferedBytes(long maxBufferedBytes) {
+        if (maxBufferedBytes < SERVICE_MAX_RECORD_BYTES || maxBufferedBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBufferedBytes must be between " + SERVICE_MAX_RECORD_BYTES
+                    + " and " + Integer.MAX_VALUE);
+        }
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    public KinesisProducerConfig withMaxBufferedBytes(long maxBufferedBytes) {
+        setMaxBufferedBytes(maxBufferedBytes);
+        return this;
+    }
+
+    /**
+     * The maximum number of times a record that failed to be put is retried
+     * before its future is failed.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * The maximum number of times a record that failed to be put is retried
+     * before its future is failed.
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public KinesisProducerConfig withMaxRetries(int maxRetries) {
+        setMaxRetries(maxRetries);
+        return this;
+    }
+
+    /**
+     * The initial delay (milliseconds) before retrying a failed record. The
+     * delay doubles with each further attempt, with some random jitter, up to
+     * {@link #getRetryMaxDelayMillis()}.
+     */
+    public long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    /**
+     * The initial delay (milliseconds) before retrying a failed record. The
+     * delay doubles with each further attempt, with some random jitter, up to
+     * {@link #getRetryMaxDelayMillis()}.
+     */
+    public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
+    public KinesisProducerConfig withRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        setRetryBaseDelayMillis(retryBaseDelayMillis);
+        return this;
+    }
+
+    /**
+     * The maximum delay (milliseconds) before retrying a failed record.
+     */
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    /**
+     * The maximum delay (milliseconds) before retrying a failed record.
+     */
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    public KinesisProducerConfig withRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        setRetryMaxDelayMillis(retryMaxDelayMillis);
+        return this;
+    }
+
+    /**
+     * @return true if small records predicted to go to the same shard are
+     *         packed together into a single Kinesis record; false otherwise.
+     */
+    public boolean isAggregationEnabled() {
+        return aggregationEnabled;
+    }
+
+    /**
+     * Specify "true" to pack small records predicted to go to the same shard
+     * together into a single Kinesis record. This greatly reduces the use of
+     * the per-shard record quota for records much smaller than the maximum
+     * aggregated size. The consumers must be able to deaggregate the records,
+     * for example with {@link RecordAggregator#deaggregate(com.amazonaws.services.kinesis.model.Record)}
+     * or the Kinesis Client Library.
+     */
+    public void setAggregationEnabled(boolean aggregationEnabled) {
+        this.aggregationEnabled = aggregationEnabled;
+    }
+
+    public KinesisProducerConfig withAggregationEnabled(boolean aggregationEnabled) {
+        setAggregationEnabled(aggregationEnabled);
+        return this;
+    }
+
+    /**
+     * The maximum size of an aggregated Kinesis record, including its
+     * partition key, in bytes. Records larger than this are never aggregated.
+     */
+    public int getAggregationMaxBytes() {
+        return aggregationMaxBytes;
+    }
+
+    /**
+     * The maximum size of an aggregated Kinesis record, including its
+     * partition key, in bytes; at most {@value #SERVICE_MAX_RECORD_BYTES}.
+     * Records larger than this are never aggregated.
+     */
+    public void setAggregationMaxBytes(int aggregationMaxBytes) {
+        if (aggregationMaxBytes < 1 || aggregationMaxBytes > SERVICE_MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("aggregationMaxBytes must be between 1 and "
+                    + SERVICE_MAX_RECORD_BYTES);
+        }
+        this.aggregationMaxBytes = aggregationMaxBytes;
+    }
+
+    public KinesisProducerConfig withAggregationMaxBytes(int aggregationMaxBytes) {
+        setAggregationMaxBytes(aggregationMaxBytes);
+        return this;
+    }
+}
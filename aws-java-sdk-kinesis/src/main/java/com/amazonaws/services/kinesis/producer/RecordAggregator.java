@@ -0,0 +1,405 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Packs a number of small records into a single Kinesis record, and unpacks
+ * them again on the consumer side.
+ * <p>
+ * The aggregated record uses the same format as the Kinesis Producer and
+ * Client Libraries: a 4 byte magic number, followed by a protocol buffers
+ * encoded <code>AggregatedRecord</code> message holding the partition key
+ * table, the explicit hash key table and the records, followed by the MD5
+ * digest of that message. This class is not thread safe.
+ */
+public class RecordAggregator {
+
+    /** The magic number at the start of every aggregated record. */
+    private static final byte[] MAGIC = { (byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2 };
+
+    private static final int DIGEST_LENGTH = 16;
+
+    // Protocol buffers tags (field number << 3 | wire type)
+    private static final int TAG_PARTITION_KEY_TABLE = 0x0A;
+    private static final int TAG_EXPLICIT_HASH_KEY_TABLE = 0x12;
+    private static final int TAG_RECORDS = 0x1A;
+    private static final int TAG_PARTITION_KEY_INDEX = 0x08;
+    private static final int TAG_EXPLICIT_HASH_KEY_INDEX = 0x10;
+    private static final int TAG_DATA = 0x1A;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final Map<String, Integer> partitionKeys = new LinkedHashMap<String, Integer>();
+    private final Map<String, Integer> explicitHashKeys = new LinkedHashMap<String, Integer>();
+    private final List<byte[]> partitionKeyBytes = new ArrayList<byte[]>();
+    private final List<byte[]> explicitHashKeyBytes = new ArrayList<byte[]>();
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /** The size of the encoded AggregatedRecord message so far. */
+    private int messageSize;
+
+    /** The size of the partition key of the aggregated record. */
+    private int partitionKeySize;
+
+    /**
+     * Returns the number of records added to this aggregator.
+     */
+    public int getRecordCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the partition key of the aggregated record, which is the one of
+     * the first record added; or null if no record has been added yet.
+     */
+    public String getPartitionKey() {
+        return entries.isEmpty() ? null : partitionKeys.keySet().iterator().next();
+    }
+
+    /**
+     * Returns the size of the aggregated record, including its partition key,
+     * in bytes.
+     */
+    public int getSize() {
+        return MAGIC.length + messageSize + DIGEST_LENGTH + partitionKeySize;
+    }
+
+    /**
+     * Returns the size the aggregated record would have, including its
+     * partition key, if the given record were added to it.
+     *
+     * @param partitionKey the partition key of the record
+     * @param explicitHashKey the explicit hash key of the record; or null
+     * @param dataLength the length of the data of the record
+     */
+    public int sizeWith(String partitionKey, String explicitHashKey, int dataLength) {
+        int size = getSize();
+        int partitionKeyIndex;
+        Integer index = partitionKeys.get(partitionKey);
+        if (index == null) {
+            int length = utf8Length(partitionKey);
+            size += fieldSize(length);
+            if (entries.isEmpty())
+                size += length;
+            partitionKeyIndex = partitionKeys.size();
+        } else {
+            partitionKeyIndex = index;
+        }
+        int explicitHashKeyIndex = -1;
+        if (explicitHashKey != null) {
+            index = explicitHashKeys.get(explicitHashKey);
+            if (index == null) {
+                size += fieldSize(utf8Length(explicitHashKey));
+                explicitHashKeyIndex = explicitHashKeys.size();
+            } else {
+                explicitHashKeyIndex = index;
+            }
+        }
+        return size + fieldSize(recordSize(partitionKeyIndex, explicitHashKeyIndex, dataLength));
+    }
+
+    /**
+     * Adds the given record to the aggregated record.
+     *
+     * @param partitionKey the partition key of the record
+     * @param explicitHashKey the explicit hash key of the record; or null
+     * @param data the data of the record, which is not copied until
+     *        {@link #toByteBuffer()} is called
+     */
+    public void add(String partitionKey, String explicitHashKey, ByteBuffer data) {
+        Integer partitionKeyIndex = partitionKeys.get(partitionKey);
+        if (partitionKeyIndex == null) {
+            byte[] bytes = partitionKey.getBytes(StringUtils.UTF8);
+            partitionKeyIndex = partitionKeys.size();
+            partitionKeys.put(partitionKey, partitionKeyIndex);
+            partitionKeyBytes.add(bytes);
+            messageSize += fieldSize(bytes.length);
+            if (entries.isEmpty())
+                partitionKeySize = bytes.length;
+        }
+        int explicitHashKeyIndex = -1;
+        if (explicitHashKey != null) {
+            Integer index = explicitHashKeys.get(explicitHashKey);
+            if (index == null) {
+                byte[] bytes = explicitHashKey.getBytes(StringUtils.UTF8);
+                index = explicitHashKeys.size();
+                explicitHashKeys.put(explicitHashKey, index);
+                explicitHashKeyBytes.add(bytes);
+                messageSize += fieldSize(bytes.length);
+            }
+            explicitHashKeyIndex = index;
+        }
+        Entry entry = new Entry(partitionKeyIndex, explicitHashKeyIndex, data.duplicate());
+        entries.add(entry);
+        messageSize += fieldSize(entry.size());
+    }
+
+    /**
+     * Returns the data of the aggregated record.
+     */
+    public ByteBuffer toByteBuffer() {
+        byte[] out = new byte[MAGIC.length + messageSize + DIGEST_LENGTH];
+        int pos = 0;
+        System.arraycopy(MAGIC, 0, out, pos, MAGIC.length);
+        pos += MAGIC.length;
+        for (byte[] key : partitionKeyBytes)
+            pos = writeBytes(out, pos, TAG_PARTITION_KEY_TABLE, key, 0, key.length);
+        for (byte[] key : explicitHashKeyBytes)
+            pos = writeBytes(out, pos, TAG_EXPLICIT_HASH_KEY_TABLE, key, 0, key.length);
+        for (Entry entry : entries) {
+            out[pos++] = (byte) TAG_RECORDS;
+            pos = writeVarint(out, pos, entry.size());
+            out[pos++] = (byte) TAG_PARTITION_KEY_INDEX;
+            pos = writeVarint(out, pos, entry.partitionKeyIndex);
+            if (entry.explicitHashKeyIndex >= 0) {
+                out[pos++] = (byte) TAG_EXPLICIT_HASH_KEY_INDEX;
+                pos = writeVarint(out, pos, entry.explicitHashKeyIndex);
+            }
+            out[pos++] = (byte) TAG_DATA;
+            pos = writeVarint(out, pos, entry.data.remaining());
+            entry.data.duplicate().get(out, pos, entry.data.remaining());
+            pos += entry.data.remaining();
+        }
+        byte[] digest = Md5Utils.computeMD5Hash(
+                Arrays.copyOfRange(out, MAGIC.length, MAGIC.length + messageSize));
+        System.arraycopy(digest, 0, out, pos, DIGEST_LENGTH);
+        return ByteBuffer.wrap(out);
+    }
+
+    /**
+     * Returns true if the given data is that of an aggregated record.
+     */
+    public static boolean isAggregated(ByteBuffer data) {
+        if (data.remaining() < MAGIC.length + DIGEST_LENGTH)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data.get(data.position() + i) != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unpacks the records of the given aggregated record. Each of them is a
+     * {@link DeaggregatedRecord}, which has the sequence number of the
+     * aggregated record. A record that is not an aggregated record, or whose
+     * digest doesn't match its content, is returned as is.
+     *
+     * @param record the record retrieved from the stream
+     *
+     * @return the records packed into the given record
+     */
+    public static List<Record> deaggregate(Record record) {
+        ByteBuffer data = record.getData();
+        if (data == null || !isAggregated(data))
+            return Collections.singletonList(record);
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        int end = bytes.length - DIGEST_LENGTH;
+        byte[] digest = Md5Utils.computeMD5Hash(Arrays.copyOfRange(bytes, MAGIC.length, end));
+        if (!Arrays.equals(digest, Arrays.copyOfRange(bytes, end, bytes.length)))
+            return Collections.singletonList(record);
+
+        try {
+            List<String> keys = new ArrayList<String>();
+            List<String> explicitHashKeys = new ArrayList<String>();
+            List<Record> records = new ArrayList<Record>();
+            int[] pos = { MAGIC.length };
+            while (pos[0] < end) {
+                int tag = (int) readVarint(bytes, pos);
+                if (tag == TAG_PARTITION_KEY_TABLE) {
+                    int length = (int) readVarint(bytes, pos);
+                    keys.add(new String(bytes, pos[0], length, StringUtils.UTF8));
+                    pos[0] += length;
+                } else if (tag == TAG_EXPLICIT_HASH_KEY_TABLE) {
+                    int length = (int) readVarint(bytes, pos);
+                    explicitHashKeys.add(new String(bytes, pos[0], length, StringUtils.UTF8));
+                    pos[0] += length;
+                } else if (tag == TAG_RECORDS) {
+                    int length = (int) readVarint(bytes, pos);
+                    records.add(readRecord(bytes, pos[0], pos[0] + length, keys, explicitHashKeys, record));
+                    pos[0] += length;
+                } else {
+                    skipField(bytes, pos, tag);
+                }
+            }
+            return records;
+        } catch (RuntimeException e) {
+            // Not a well formed aggregated record after all
+            return Collections.singletonList(record);
+        }
+    }
+
+    private static Record readRecord(byte[] bytes, int start, int end, List<String> keys,
+            List<String> explicitHashKeys, Record parent) {
+        int[] pos = { start };
+        int partitionKeyIndex = -1;
+        int explicitHashKeyIndex = -1;
+        ByteBuffer data = null;
+        while (pos[0] < end) {
+            int tag = (int) readVarint(bytes, pos);
+            if (tag == TAG_PARTITION_KEY_INDEX) {
+                partitionKeyIndex = (int) readVarint(bytes, pos);
+            } else if (tag == TAG_EXPLICIT_HASH_KEY_INDEX) {
+                explicitHashKeyIndex = (int) readVarint(bytes, pos);
+            } else if (tag == TAG_DATA) {
+                int length = (int) readVarint(bytes, pos);
+                data = ByteBuffer.wrap(bytes, pos[0], length).slice();
+                pos[0] += length;
+            } else {
+                skipField(bytes, pos, tag);
+            }
+        }
+        if (data == null || partitionKeyIndex < 0 || partitionKeyIndex >= keys.size()
+                || explicitHashKeyIndex >= explicitHashKeys.size())
+            throw new IllegalArgumentException("Malformed aggregated record");
+        return new DeaggregatedRecord(explicitHashKeyIndex < 0 ? null : explicitHashKeys.get(explicitHashKeyIndex))
+                .withPartitionKey(keys.get(partitionKeyIndex))
+                .withSequenceNumber(parent.getSequenceNumber())
+                .withData(data);
+    }
+
+    private static void skipField(byte[] bytes, int[] pos, int tag) {
+        switch (tag & 0x7) {
+        case WIRE_VARINT:
+            readVarint(bytes, pos);
+            break;
+        case WIRE_FIXED64:
+            pos[0] += 8;
+            break;
+        case WIRE_LENGTH_DELIMITED:
+            int length = (int) readVarint(bytes, pos);
+            pos[0] += length;
+            break;
+        case WIRE_FIXED32:
+            pos[0] += 4;
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported wire type: " + (tag & 0x7));
+        }
+    }
+
+    private static long readVarint(byte[] bytes, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int writeBytes(byte[] out, int pos, int tag, byte[] bytes, int offset, int length) {
+        out[pos++] = (byte) tag;
+        pos = writeVarint(out, pos, length);
+        System.arraycopy(bytes, offset, out, pos, length);
+        return pos + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /** Returns the encoded size of a length delimited field. */
+    private static int fieldSize(int length) {
+        return 1 + varintSize(length) + length;
+    }
+
+    private static int recordSize(int partitionKeyIndex, int explicitHashKeyIndex, int dataLength) {
+        int size = 1 + varintSize(partitionKeyIndex) + fieldSize(dataLength);
+        if (explicitHashKeyIndex >= 0)
+            size += 1 + varintSize(explicitHashKeyIndex);
+        return size;
+    }
+
+    private static int utf8Length(String s) {
+        int length = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // Not worth counting surrogates and such by hand
+                return s.getBytes(StringUtils.UTF8).length;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A record unpacked from an aggregated record, which also carries the
+     * explicit hash key it was added with.
+     */
+    public static class DeaggregatedRecord extends Record {
+        private static final long serialVersionUID = 1L;
+
+        private final String explicitHashKey;
+
+        DeaggregatedRecord(String explicitHashKey) {
+            this.explicitHashKey = explicitHashKey;
+        }
+
+        /**
+         * Returns the explicit hash key the record was added with; or null.
+         */
+        public String getExplicitHashKey() {
+            return explicitHashKey;
+        }
+    }
+
+    private static final class Entry {
+        final int partitionKeyIndex;
+        final int explicitHashKeyIndex;
+        final ByteBuffer data;
+
+        Entry(int partitionKeyIndex, int explicitHashKeyIndex, ByteBuffer data) {
+            this.partitionKeyIndex = partitionKeyIndex;
+            this.explicitHashKeyIndex = explicitHashKeyIndex;
+            this.data = data;
+        }
+
+        int size() {
+            return recordSize(partitionKeyIndex, explicitHashKeyIndex, data.remaining());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.amazonaws.services.kinesis.model.PutRecordsResultEntry;
+
+/**
+ * Future of a record added to a {@link KinesisProducer}. RecordFutures are
+ * not cancellable.
+ */
+class RecordFuture implements Future<PutRecordsResultEntry> {
+    private PutRecordsResultEntry result;
+    private Exception e;
+    private boolean done;
+
+    /**
+     * Report that the record has been put to the stream.
+     */
+    synchronized void setSuccess(PutRecordsResultEntry paramResult) {
+        if (done)
+            return;
+        result = paramResult;
+        done = true;
+        notifyAll();
+    }
+
+    /**
+     * Report that the record could not be put to the stream.
+     */
+    synchronized void setFailure(Exception paramE) {
+        if (done)
+            return;
+        e = paramE;
+        done = true;
+        notifyAll();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        // not cancellable
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized PutRecordsResultEntry get() throws InterruptedException, ExecutionException {
+        while (!done)
+            wait();
+        return getResult();
+    }
+
+    @Override
+    public synchronized PutRecordsResultEntry get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                throw new TimeoutException("Timed out waiting for the record to be put after " + timeout + " " + unit);
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private PutRecordsResultEntry getResult() throws ExecutionException {
+        if (e != null)
+            throw new ExecutionException(e);
+        return result;
+    }
+}
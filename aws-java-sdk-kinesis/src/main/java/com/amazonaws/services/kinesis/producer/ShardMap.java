@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.StreamDescription;
+
+/**
+ * Cached map from hash keys to the open shards of a stream, used to predict
+ * the shard each record will be put to. The map is loaded with DescribeStream
+ * and reloaded in the background whenever it is found to be stale, for
+ * example after a shard has been split or merged.
+ */
+class ShardMap {
+    private static final Log log = LogFactory.getLog(ShardMap.class);
+
+    /** Minimum time between two reloads of the map, in milliseconds. */
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 1000;
+
+    private final AmazonKinesis kinesis;
+    private final String streamName;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long lastRefreshMillis;
+
+    /** The open shards, sorted by hash key range; or null if not loaded. */
+    private volatile Snapshot snapshot;
+
+    ShardMap(AmazonKinesis kinesis, String streamName) {
+        this.kinesis = kinesis;
+        this.streamName = streamName;
+    }
+
+    /**
+     * Returns the id of the shard the given hash key maps to; or null if the
+     * map isn't loaded or has no such shard.
+     */
+    String shardFor(BigInteger hashKey) {
+        Snapshot s = snapshot;
+        if (s == null)
+            return null;
+        int low = 0, high = s.shardIds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (s.endingHashKeys[mid].compareTo(hashKey) < 0) {
+                low = mid + 1;
+            } else if (s.startingHashKeys[mid].compareTo(hashKey) > 0) {
+                high = mid - 1;
+            } else {
+                return s.shardIds[mid];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the map has been loaded.
+     */
+    boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Reloads the map using the given executor, unless a reload is already in
+     * progress or the last one started less than a second ago.
+     */
+    void refreshAsync(Executor executor) {
+        if (System.currentTimeMillis() - lastRefreshMillis < MIN_REFRESH_INTERVAL_MILLIS)
+            return;
+        if (!refreshing.compareAndSet(false, true))
+            return;
+        lastRefreshMillis = System.currentTimeMillis();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (AmazonClientException e) {
+                        log.warn("Unable to load the shards of stream " + streamName, e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * Loads the open shards of the stream.
+     */
+    void refresh() {
+        List<Shard> shards = new ArrayList<Shard>();
+        String exclusiveStartShardId = null;
+        while (true) {
+            StreamDescription description = kinesis.describeStream(new DescribeStreamRequest()
+                    .withStreamName(streamName)
+                    .withExclusiveStartShardId(exclusiveStartShardId))
+                    .getStreamDescription();
+            List<Shard> page = description.getShards();
+            for (Shard shard : page) {
+                // Closed shards have an ending sequence number
+                if (shard.getSequenceNumberRange() == null
+                        || shard.getSequenceNumberRange().getEndingSequenceNumber() == null) {
+                    shards.add(shard);
+                }
+            }
+            if (!Boolean.TRUE.equals(description.getHasMoreShards()) || page.isEmpty())
+                break;
+            exclusiveStartShardId = page.get(page.size() - 1).getShardId();
+        }
+        snapshot = new Snapshot(shards);
+        if (log.isDebugEnabled())
+            log.debug("Loaded " + shards.size() + " open shards of stream " + streamName);
+    }
+
+    private static final class Snapshot {
+        final BigInteger[] startingHashKeys;
+        final BigInteger[] endingHashKeys;
+        final String[] shardIds;
+
+        Snapshot(List<Shard> shards) {
+            Collections.sort(shards, new Comparator<Shard>() {
+                @Override
+                public int compare(Shard a, Shard b) {
+                    return new BigInteger(a.getHashKeyRange().getStartingHashKey()).compareTo(
+                           new BigInteger(b.getHashKeyRange().getStartingHashKey()));
+                }
+            });
+            int n = shards.size();
+            startingHashKeys = new BigInteger[n];
+            endingHashKeys = new BigInteger[n];
+            shardIds = new String[n];
+            for (int i = 0; i < n; i++) {
+                Shard shard = shards.get(i);
+                startingHashKeys[i] = new BigInteger(shard.getHashKeyRange().getStartingHashKey());
+                endingHashKeys[i] = new BigInteger(shard.getHashKeyRange().getEndingHashKey());
+                shardIds[i] = shard.getShardId();
+            }
+        }
+    }
+}
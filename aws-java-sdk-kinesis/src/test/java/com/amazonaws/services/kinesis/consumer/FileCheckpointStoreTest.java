@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+
+public class FileCheckpointStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("checkpoints", ".properties");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void testNoCheckpointsWithoutFile() {
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        assertNull(store.getCheckpoint("shardId-000000000000"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCheckpointsAreReloadedOnRestart() {
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        store.setCheckpoint("shardId-000000000000", "49545115243490985018280067714973144582180062593244200961");
+        store.setCheckpoint("shardId-000000000001", CheckpointStore.SHARD_END);
+        assertTrue(file.exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        FileCheckpointStore reloaded = new FileCheckpointStore(file);
+        assertEquals("49545115243490985018280067714973144582180062593244200961",
+                reloaded.getCheckpoint("shardId-000000000000"));
+        assertEquals(CheckpointStore.SHARD_END, reloaded.getCheckpoint("shardId-000000000001"));
+        assertNull(reloaded.getCheckpoint("shardId-000000000002"));
+
+        // Later checkpoints replace the stored ones
+        reloaded.setCheckpoint("shardId-000000000000", "49545115243490985018280067714973144582180062593244200962");
+        reloaded.setCheckpoint("shardId-000000000002", "1");
+        FileCheckpointStore restarted = new FileCheckpointStore(file);
+        assertEquals("49545115243490985018280067714973144582180062593244200962",
+                restarted.getCheckpoint("shardId-000000000000"));
+        assertEquals(CheckpointStore.SHARD_END, restarted.getCheckpoint("shardId-000000000001"));
+        assertEquals("1", restarted.getCheckpoint("shardId-000000000002"));
+    }
+
+    @Test
+    public void testUnchangedCheckpointIsNotStored() {
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        store.setCheckpoint("shardId-000000000000", "1");
+        assertTrue(file.delete());
+        store.setCheckpoint("shardId-000000000000", "1");
+        assertFalse(file.exists());
+        store.setCheckpoint("shardId-000000000000", "2");
+        assertEquals("2", new FileCheckpointStore(file).getCheckpoint("shardId-000000000000"));
+    }
+
+    @Test
+    public void testFailedCheckpointIsStoredOnRetry() {
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        store.setCheckpoint("shardId-000000000000", "1");
+        // A directory in the way of the temporary file fails the write
+        File tmp = new File(file.getPath() + ".tmp");
+        assertTrue(tmp.mkdir());
+        try {
+            store.setCheckpoint("shardId-000000000000", CheckpointStore.SHARD_END);
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals("1", store.getCheckpoint("shardId-000000000000"));
+        assertEquals("1", new FileCheckpointStore(file).getCheckpoint("shardId-000000000000"));
+
+        assertTrue(tmp.delete());
+        store.setCheckpoint("shardId-000000000000", CheckpointStore.SHARD_END);
+        assertEquals(CheckpointStore.SHARD_END, new FileCheckpointStore(file).getCheckpoint("shardId-000000000000"));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
+import com.amazonaws.services.kinesis.model.DescribeStreamResult;
+import com.amazonaws.services.kinesis.model.GetRecordsRequest;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.GetShardIteratorRequest;
+import com.amazonaws.services.kinesis.model.GetShardIteratorResult;
+import com.amazonaws.services.kinesis.model.HashKeyRange;
+import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+import com.amazonaws.services.kinesis.model.StreamDescription;
+
+public class KinesisConsumerTest {
+
+    private static final String SHARD_ID = "shardId-000000000000";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("checkpoints", ".properties");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test(timeout = 20000)
+    public void testResumesFromCheckpointAfterRestart() throws Exception {
+        StubKinesis kinesis = new StubKinesis();
+        kinesis.append(10);
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        store.setCheckpoint(SHARD_ID, "5");
+
+        CollectingHandler handler = new CollectingHandler();
+        KinesisConsumer consumer = new KinesisConsumer(kinesis, "stream", handler,
+                new FileCheckpointStore(file), config());
+        consumer.start();
+        handler.await(5);
+        consumer.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("6", "7", "8", "9", "10"), handler.sequenceNumbers);
+        assertEquals(Arrays.asList("5"), kinesis.startingSequenceNumbers);
+        assertEquals("10", new FileCheckpointStore(file).getCheckpoint(SHARD_ID));
+
+        // A new consumer, as after a restart, only reads the records added since
+        kinesis.append(2);
+        handler = new CollectingHandler();
+        consumer = new KinesisConsumer(kinesis, "stream", handler, new FileCheckpointStore(file), config());
+        consumer.start();
+        handler.await(2);
+        consumer.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("11", "12"), handler.sequenceNumbers);
+        assertEquals(Arrays.asList("5", "10"), kinesis.startingSequenceNumbers);
+        assertEquals("12", new FileCheckpointStore(file).getCheckpoint(SHARD_ID));
+    }
+
+    @Test(timeout = 20000)
+    public void testFinishedShardIsNotReadAgain() throws Exception {
+        StubKinesis kinesis = new StubKinesis();
+        kinesis.append(3);
+        kinesis.closed = true;
+
+        CollectingHandler handler = new CollectingHandler();
+        KinesisConsumer consumer = new KinesisConsumer(kinesis, "stream", handler,
+                new FileCheckpointStore(file), config());
+        consumer.start();
+        handler.await(3);
+        while (!consumer.getActiveShardIds().isEmpty())
+            Thread.sleep(10);
+        consumer.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("1", "2", "3"), handler.sequenceNumbers);
+        assertEquals(CheckpointStore.SHARD_END, new FileCheckpointStore(file).getCheckpoint(SHARD_ID));
+
+        int iterators = kinesis.iteratorRequests;
+        consumer = new KinesisConsumer(kinesis, "stream", handler, new FileCheckpointStore(file), config());
+        consumer.start();
+        Thread.sleep(200);
+        consumer.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(iterators, kinesis.iteratorRequests);
+        assertEquals(3, handler.sequenceNumbers.size());
+    }
+
+    @Test(timeout = 20000)
+    public void testFetchLoopSurvivesUnexpectedExceptions() throws Exception {
+        StubKinesis kinesis = new StubKinesis() {
+            int iteratorCalls;
+            int getCalls;
+
+            @Override
+            public GetShardIteratorResult getShardIterator(GetShardIteratorRequest request) {
+                if (++iteratorCalls == 1)
+                    throw new NullPointerException("boom");
+                return super.getShardIterator(request);
+            }
+
+            @Override
+            public GetRecordsResult getRecords(GetRecordsRequest request) {
+                if (++getCalls == 2)
+                    throw new IllegalStateException("boom");
+                return super.getRecords(request);
+            }
+        };
+        kinesis.append(5);
+
+        CollectingHandler handler = new CollectingHandler();
+        KinesisConsumer consumer = new KinesisConsumer(kinesis, "stream", handler,
+                new FileCheckpointStore(file), config());
+        consumer.start();
+        handler.await(5);
+        assertEquals(Collections.singleton(SHARD_ID), consumer.getActiveShardIds());
+        kinesis.append(1);
+        handler.await(6);
+        consumer.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6"), handler.sequenceNumbers);
+    }
+
+    private static KinesisConsumerConfig config() {
+        return new KinesisConsumerConfig()
+                .withInitialPosition(ShardIteratorType.TRIM_HORIZON)
+                .withMinGetIntervalMillis(1)
+                .withIdleGetIntervalMillis(10)
+                .withRetryDelayMillis(10);
+    }
+
+    private static class CollectingHandler implements RecordHandler {
+        final List<String> sequenceNumbers = new CopyOnWriteArrayList<String>();
+
+        @Override
+        public void processRecords(String shardId, List<Record> records) {
+            assertEquals(SHARD_ID, shardId);
+            for (Record record : records)
+                sequenceNumbers.add(record.getSequenceNumber());
+        }
+
+        void await(int count) throws InterruptedException {
+            while (sequenceNumbers.size() < count)
+                Thread.sleep(10);
+        }
+    }
+
+    /**
+     * A stream of a single shard, the records of which have the sequence
+     * numbers 1, 2, 3... Shard iterators are the index of the next record.
+     */
+    private static class StubKinesis extends AmazonKinesisClient {
+        private final List<Record> records = new CopyOnWriteArrayList<Record>();
+        final List<String> startingSequenceNumbers = new CopyOnWriteArrayList<String>();
+        volatile int iteratorRequests;
+        volatile boolean closed;
+
+        StubKinesis() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        void append(int count) {
+            for (int i = 0; i < count; i++) {
+                String sequenceNumber = String.valueOf(records.size() + 1);
+                records.add(new Record()
+                        .withPartitionKey("key")
+                        .withSequenceNumber(sequenceNumber)
+                        .withData(ByteBuffer.wrap(("record " + sequenceNumber).getBytes())));
+            }
+        }
+
+        @Override
+        public DescribeStreamResult describeStream(DescribeStreamRequest request) {
+            Shard shard = new Shard()
+                    .withShardId(SHARD_ID)
+                    .withHashKeyRange(new HashKeyRange()
+                        .withStartingHashKey("0")
+                        .withEndingHashKey(BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE).toString()));
+            return new DescribeStreamResult().withStreamDescription(new StreamDescription()
+                    .withStreamName(request.getStreamName())
+                    .withShards(shard)
+                    .withHasMoreShards(false));
+        }
+
+        @Override
+        public GetShardIteratorResult getShardIterator(GetShardIteratorRequest request) {
+            assertEquals(SHARD_ID, request.getShardId());
+            iteratorRequests++;
+            int next;
+            if (ShardIteratorType.AFTER_SEQUENCE_NUMBER.toString().equals(request.getShardIteratorType())) {
+                startingSequenceNumbers.add(request.getStartingSequenceNumber());
+                next = Integer.parseInt(request.getStartingSequenceNumber());
+            } else if (ShardIteratorType.TRIM_HORIZON.toString().equals(request.getShardIteratorType())) {
+                next = 0;
+            } else {
+                next = records.size();
+            }
+            return new GetShardIteratorResult().withShardIterator(String.valueOf(next));
+        }
+
+        @Override
+        public GetRecordsResult getRecords(GetRecordsRequest request) {
+            int from = Integer.parseInt(request.getShardIterator());
+            int to = Math.min(records.size(), from + Math.min(request.getLimit(), 2));
+            List<Record> page = new ArrayList<Record>(records.subList(from, to));
+            return new GetRecordsResult()
+                    .withRecords(page)
+                    .withMillisBehindLatest((long) (records.size() - to))
+                    .withNextShardIterator(closed && to == records.size() ? null : String.valueOf(to));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.services.kinesis.model.DescribeStreamRequest;
+import com.amazonaws.services.kinesis.model.DescribeStreamResult;
+import com.amazonaws.services.kinesis.model.HashKeyRange;
+import com.amazonaws.services.kinesis.model.PutRecordsRequest;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.services.kinesis.model.PutRecordsResult;
+import com.amazonaws.services.kinesis.model.PutRecordsResultEntry;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.StreamDescription;
+
+public class KinesisProducerTest {
+
+    private static final String SHARD_ID = "shardId-000000000000";
+
+    @Test(timeout = 10000)
+    public void testUnexpectedExceptionFailsRecordsAndReleasesPermit() throws Exception {
+        StubKinesis kinesis = new StubKinesis() {
+            @Override
+            public PutRecordsResult putRecords(PutRecordsRequest request) {
+                if (calls.incrementAndGet() == 1)
+                    throw new NullPointerException("boom");
+                return super.putRecords(request);
+            }
+        };
+        KinesisProducer producer = new KinesisProducer(kinesis, "stream",
+                new KinesisProducerConfig().withMaxInflightRequests(1));
+        Future<PutRecordsResultEntry> failed = producer.addRecord("key", data("first"));
+        producer.flushSync();
+        try {
+            failed.get();
+            fail("Expected the record to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AmazonClientException);
+            assertTrue(e.getCause().getCause() instanceof NullPointerException);
+        }
+
+        // The permit of the failed request has been released
+        Future<PutRecordsResultEntry> put = producer.addRecord("key", data("second"));
+        producer.close();
+        assertEquals(SHARD_ID, put.get().getShardId());
+        assertEquals(0, producer.getOutstandingRecordsCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testRequestsWaitingForPermitsAreSentOnCompletion() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        StubKinesis kinesis = new StubKinesis() {
+            @Override
+            public PutRecordsResult putRecords(PutRecordsRequest request) {
+                int call = calls.incrementAndGet();
+                if (call == 1) {
+                    // Throttle the first record to have it retried
+                    return new PutRecordsResult().withFailedRecordCount(1).withRecords(
+                            new PutRecordsResultEntry()
+                                .withErrorCode("ProvisionedThroughputExceededException")
+                                .withErrorMessage("Rate exceeded"));
+                }
+                if (call == 2) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.putRecords(request);
+            }
+        };
+        KinesisProducer producer = new KinesisProducer(kinesis, "stream",
+                new KinesisProducerConfig()
+                    .withMaxInflightRequests(1)
+                    .withMaxBatchRecords(1)
+                    .withRetryBaseDelayMillis(1)
+                    .withRetryMaxDelayMillis(1));
+        Future<PutRecordsResultEntry> retried = producer.addRecord("key", data("retried"));
+        producer.flush();
+        // While the retry is blocked in flight, the requests of the records
+        // flushed meanwhile wait for the permit without blocking the timer,
+        // and are sent once it is released
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        List<Future<PutRecordsResultEntry>> futures = new ArrayList<Future<PutRecordsResultEntry>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(producer.addRecord("key-" + i, data("record " + i)));
+            producer.flush();
+        }
+        release.countDown();
+        producer.close();
+        assertEquals(SHARD_ID, retried.get().getShardId());
+        for (Future<PutRecordsResultEntry> future : futures)
+            assertEquals(SHARD_ID, future.get().getShardId());
+        assertEquals(12, kinesis.calls.get());
+    }
+
+    private static ByteBuffer data(String s) {
+        return ByteBuffer.wrap(s.getBytes());
+    }
+
+    /**
+     * A stream of a single shard which accepts all records.
+     */
+    private static class StubKinesis extends AmazonKinesisClient {
+        final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger sequenceNumber = new AtomicInteger();
+
+        StubKinesis() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public DescribeStreamResult describeStream(DescribeStreamRequest request) {
+            Shard shard = new Shard()
+                    .withShardId(SHARD_ID)
+                    .withHashKeyRange(new HashKeyRange()
+                        .withStartingHashKey("0")
+                        .withEndingHashKey(BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE).toString()));
+            return new DescribeStreamResult().withStreamDescription(new StreamDescription()
+                    .withStreamName(request.getStreamName())
+                    .withShards(shard)
+                    .withHasMoreShards(false));
+        }
+
+        @Override
+        public PutRecordsResult putRecords(PutRecordsRequest request) {
+            List<PutRecordsResultEntry> entries = new ArrayList<PutRecordsResultEntry>();
+            for (PutRecordsRequestEntry entry : request.getRecords()) {
+                entries.add(new PutRecordsResultEntry()
+                        .withShardId(SHARD_ID)
+                        .withSequenceNumber(String.valueOf(sequenceNumber.incrementAndGet())));
+            }
+            return new PutRecordsResult().withFailedRecordCount(0).withRecords(entries);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.kinesis.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.services.kinesis.producer.RecordAggregator.DeaggregatedRecord;
+import com.amazonaws.util.StringUtils;
+
+public class RecordAggregatorTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testRoundTrip() {
+        RecordAggregator aggregator = new RecordAggregator();
+        List<String> partitionKeys = new ArrayList<String>();
+        List<String> explicitHashKeys = new ArrayList<String>();
+        List<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i < 50; i++) {
+            // Repeated keys share their entry of the key tables
+            String partitionKey = "key-" + (i % 7) + (i % 11 == 0 ? "-été" : "");
+            String explicitHashKey = i % 3 == 0 ? null : String.valueOf(1000L * (i % 5));
+            byte[] bytes = randomBytes(i * 13);
+            aggregator.add(partitionKey, explicitHashKey, ByteBuffer.wrap(bytes));
+            partitionKeys.add(partitionKey);
+            explicitHashKeys.add(explicitHashKey);
+            data.add(bytes);
+        }
+        assertEquals(50, aggregator.getRecordCount());
+        assertEquals("key-0-été", aggregator.getPartitionKey());
+
+        Record aggregated = new Record()
+                .withPartitionKey(aggregator.getPartitionKey())
+                .withSequenceNumber("49545115243490985018280067714973144582180062593244200961")
+                .withData(aggregator.toByteBuffer());
+        assertTrue(RecordAggregator.isAggregated(aggregated.getData()));
+
+        List<Record> records = RecordAggregator.deaggregate(aggregated);
+        assertEquals(50, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            DeaggregatedRecord record = (DeaggregatedRecord) records.get(i);
+            assertEquals(partitionKeys.get(i), record.getPartitionKey());
+            assertEquals(explicitHashKeys.get(i), record.getExplicitHashKey());
+            assertEquals(ByteBuffer.wrap(data.get(i)), record.getData());
+            assertEquals(aggregated.getSequenceNumber(), record.getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void testSizeLimit() {
+        int max = 50 * 1024;
+        RecordAggregator aggregator = new RecordAggregator();
+        int added = 0;
+        while (true) {
+            String partitionKey = "partition-" + random.nextInt(100);
+            String explicitHashKey = random.nextBoolean() ? null : String.valueOf(random.nextInt(1000));
+            byte[] bytes = randomBytes(random.nextInt(300));
+            int predicted = aggregator.sizeWith(partitionKey, explicitHashKey, bytes.length);
+            if (predicted > max)
+                break;
+            aggregator.add(partitionKey, explicitHashKey, ByteBuffer.wrap(bytes));
+            added++;
+            // The prediction is exact, so that the limit is never exceeded
+            assertEquals(predicted, aggregator.getSize());
+        }
+        assertTrue(aggregator.getSize() <= max);
+        int partitionKeyLength = aggregator.getPartitionKey().getBytes(StringUtils.UTF8).length;
+        assertEquals(aggregator.getSize(), aggregator.toByteBuffer().remaining() + partitionKeyLength);
+        assertEquals(added, RecordAggregator.deaggregate(new Record()
+                .withPartitionKey(aggregator.getPartitionKey())
+                .withData(aggregator.toByteBuffer())).size());
+    }
+
+    @Test
+    public void testEmptyData() {
+        RecordAggregator aggregator = new RecordAggregator();
+        aggregator.add("a", null, ByteBuffer.allocate(0));
+        aggregator.add("b", null, ByteBuffer.allocate(0));
+        List<Record> records = RecordAggregator.deaggregate(new Record().withData(aggregator.toByteBuffer()));
+        assertEquals(2, records.size());
+        assertEquals("b", records.get(1).getPartitionKey());
+        assertEquals(0, records.get(1).getData().remaining());
+        assertNull(((DeaggregatedRecord) records.get(1)).getExplicitHashKey());
+    }
+
+    @Test
+    public void testPlainRecordIsReturnedAsIs() {
+        Record record = new Record().withPartitionKey("key").withData(ByteBuffer.wrap(randomBytes(100)));
+        assertFalse(RecordAggregator.isAggregated(record.getData()));
+        List<Record> records = RecordAggregator.deaggregate(record);
+        assertEquals(1, records.size());
+        assertSame(record, records.get(0));
+    }
+
+    @Test
+    public void testCorruptRecordIsReturnedAsIs() {
+        RecordAggregator aggregator = new RecordAggregator();
+        aggregator.add("a", null, ByteBuffer.wrap(randomBytes(10)));
+        aggregator.add("b", null, ByteBuffer.wrap(randomBytes(10)));
+        ByteBuffer data = aggregator.toByteBuffer();
+        data.put(10, (byte) (data.get(10) ^ 1));
+        Record record = new Record().withData(data);
+        List<Record> records = RecordAggregator.deaggregate(record);
+        assertEquals(1, records.size());
+        assertSame(record, records.get(0));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.lambda.invoke;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Invokes a Lambda function once for each of a batch of inputs, at most a
+ * given number at a time, and gathers the results in the order of the
+ * inputs. A failed invocation doesn't affect the others; what it threw, be
+ * it an exception or an error, is returned in place of its result.
+ * <p>
+ * <code>
+ * LambdaFunctions functions = LambdaInvokerFactory.build(
+ *         LambdaFunctions.class,
+ *         new AWSLambdaClient(clientConfiguration));
+ * LambdaBatchInvoker batchInvoker = new LambdaBatchInvoker(32);
+ *
+ * List&lt;LambdaBatchInvoker.Result&lt;Result&gt;&gt; results = batchInvoker.invokeAll(
+ *         requests,
+ *         new LambdaBatchInvoker.Invocation&lt;Request, Result&gt;() {
+ *             public Result invoke(Request request) {
+ *                 return functions.doSomeStuff(request);
+ *             }
+ *         });
+ * </code>
+ * <p>
+ * Each concurrent invocation holds one HTTP connection, so the client's
+ * maximum number of connections should be at least the maximum concurrency.
+ * A batch invoker can be shared by several threads; its threads are reused
+ * across batches until {@link #shutdown()} is called.
+ */
+public class LambdaBatchInvoker {
+
+    /**
+     * One invocation of a Lambda function, typically a call to a method of
+     * an interface built by {@link LambdaInvokerFactory}.
+     */
+    public interface Invocation<I, O> {
+        O invoke(I input) throws Exception;
+    }
+
+    /**
+     * The outcome of the invocation for one input: its result, or what it
+     * threw.
+     */
+    public static final class Result<O> {
+        private final O value;
+        private final Throwable failure;
+
+        private Result(O value, Throwable failure) {
+            this.value = value;
+            this.failure = failure;
+        }
+
+        /**
+         * Returns true if the invocation succeeded.
+         */
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+        /**
+         * Returns the result of the invocation, or null if it failed.
+         */
+        public O getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the exception or error the invocation failed with, or null
+         * if it succeeded.
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return failure == null ? "Result[" + value + "]" : "Failure[" + failure + "]";
+        }
+    }
+
+    private final int maxConcurrency;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a batch invoker running at most the given number of
+     * invocations of each batch at a time.
+     *
+     * @param maxConcurrency
+     *            The maximum number of concurrent invocations per batch.
+     */
+    public LambdaBatchInvoker(int maxConcurrency) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        this.maxConcurrency = maxConcurrency;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lambda-batch-invoker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Invokes the given invocation once for each input, with at most the
+     * maximum concurrency in flight, and waits for all of them to complete.
+     *
+     * @param inputs
+     *            The inputs, one per invocation.
+     * @param invocation
+     *            The invocation to make for each input.
+     *
+     * @return The outcome of each invocation, in the order of the inputs.
+     *
+     * @throws InterruptedException
+     *             If interrupted while waiting; inputs not yet started are
+     *             then not invoked.
+     */
+    public <I, O> List<Result<O>> invokeAll(List<? extends I> inputs, final Invocation<I, O> invocation)
+            throws InterruptedException {
+        // Each worker takes the next input until there are none left, so no
+        // task is queued per input and memory only grows with the results
+        final Object[] in = inputs.toArray();
+        final Result<?>[] results = new Result<?>[in.length];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        int workers = Math.min(maxConcurrency, in.length);
+        final CountDownLatch done = new CountDownLatch(workers);
+        for (int w = 0; w < workers; w++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int i;
+                        while (!cancelled.get() && (i = next.getAndIncrement()) < in.length) {
+                            results[i] = invoke(invocation, in[i]);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            throw e;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Result<O>> list = (List<Result<O>>) (List<?>) new ArrayList<Result<?>>(Arrays.asList(results));
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <I, O> Result<O> invoke(Invocation<I, O> invocation, Object input) {
+        try {
+            return new Result<O>(invocation.invoke((I) input), null);
+        } catch (Throwable t) {
+            // Errors too, so that every input gets its result and the worker
+            // goes on with the next one
+            return new Result<O>(null, t);
+        }
+    }
+
+    /**
+     * Stops the threads of this batch invoker once the batches in progress
+     * have completed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
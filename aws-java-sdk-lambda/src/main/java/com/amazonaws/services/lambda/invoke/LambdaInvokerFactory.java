@@ -18,15 +18,24 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.AWSLambdaAsync;
 import com.amazonaws.services.lambda.model.InvocationType;
 import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
@@ -37,6 +46,8 @@ import com.amazonaws.util.StringUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * A factory for objects that implement a user-supplied interface by invoking
@@ -65,14 +76,30 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * Request request = new Request(...);
  * Result result = functions.doSomeStuff(request);
  * </code>
+ * <p>
+ * Methods may also return a {@code Future} of their result, in which case
+ * they are invoked through {@link AWSLambdaAsync#invokeAsync(InvokeRequest)}
+ * and return without waiting for the function; the client must then be an
+ * {@code AWSLambdaAsync}. To invoke a function for many inputs at once, see
+ * {@link LambdaBatchInvoker}.
+ * <p>
+ * The annotation, function name and JSON reader of each method are resolved
+ * once, when the invoker is built, rather than on every call.
  */
 public final class LambdaInvokerFactory {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    /** Writes request objects; serializes each by its runtime type. */
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    /** Reads the error payload of failed invocations. */
+    private static final ObjectReader ERROR_READER = MAPPER.reader(LambdaFunctionError.class);
+
     /**
      * Creates a new Lambda invoker implementing the given interface and
-     * wrapping the given {@code AWSLambda} client.
+     * wrapping the given {@code AWSLambda} client. Methods returning a
+     * {@code Future} require the client to be an {@code AWSLambdaAsync}.
      *
      * @param interfaceClass the interface to implement
      * @param awsLambda the lambda client to use for making remote calls
@@ -95,241 +122,311 @@ public final class LambdaInvokerFactory {
         private final AWSLambda awsLambda;
         private final Log log;
 
+        /**
+         * The invokers of the valid methods of the interface, and the reason
+         * the others can't be invoked; both read-only once built.
+         */
+        private final Map<Method, MethodInvoker> invokers =
+                new HashMap<Method, MethodInvoker>();
+        private final Map<Method, String> invalidMethods =
+                new HashMap<Method, String>();
+
         public LambdaInvocationHandler(
                 Class<?> interfaceClass,
                 AWSLambda awsLambda) {
 
             this.awsLambda = awsLambda;
             this.log = LogFactory.getLog(interfaceClass);
+
+            for (Method method : interfaceClass.getMethods()) {
+                try {
+                    invokers.put(method, new MethodInvoker(method));
+                } catch (LambdaSerializationException ex) {
+                    invalidMethods.put(method, ex.getMessage());
+                }
+            }
         }
 
         @Override
         public Object invoke(Object proxy, Method method, Object[] args)
                 throws Throwable {
 
-            LambdaFunction annotation = validateInterfaceMethod(method, args);
+            final MethodInvoker invoker = getInvoker(method);
 
-            InvokeRequest invokeRequest = buildInvokeRequest(
-                    method,
-                    annotation,
+            InvokeRequest invokeRequest = invoker.buildInvokeRequest(
                     args == null ? null : args[0]);
 
-            InvokeResult invokeResult = awsLambda.invoke(invokeRequest);
+            if (!invoker.returnsFuture) {
+                InvokeResult invokeResult = awsLambda.invoke(invokeRequest);
+                return invoker.processInvokeResult(invokeResult);
+            }
 
-            return processInvokeResult(method, invokeResult);
+            return new ResultFuture(
+                    ((AWSLambdaAsync) awsLambda).invokeAsync(invokeRequest),
+                    invoker);
         }
 
         /**
-         * Verifies that the given method is annotated appropriately.
+         * Returns the invoker of the given method, or throws the reason it
+         * can't be invoked.
          */
-        private LambdaFunction validateInterfaceMethod(
-                Method method,
-                Object[] args) {
-
-            LambdaFunction annotation =
-                method.getAnnotation(LambdaFunction.class);
-
-            if (annotation == null) {
-                throw new LambdaSerializationException(
-                        "No LambdaFunction annotation for method "
-                        + method.getName());
+        private MethodInvoker getInvoker(Method method) {
+            MethodInvoker invoker = invokers.get(method);
+            if (invoker != null) {
+                return invoker;
             }
 
-            if (annotation.invocationType() != InvocationType.RequestResponse
-                    && annotation.logType() != LogType.None) {
-                throw new LambdaSerializationException(
-                        "InvocationType must be RequestResponse if LogType "
-                        + "is set");
+            String reason = invalidMethods.get(method);
+            if (reason == null) {
+                reason = "No LambdaFunction annotation for method "
+                        + method.getName();
             }
-
-            if (args != null && args.length > 1) {
-                throw new LambdaSerializationException(
-                        "LambdaFunctions take either 0 or 1 arguments");
-            }
-
-            return annotation;
+            throw new LambdaSerializationException(reason);
         }
 
         /**
-         * Builds an InvokeRequest from the given method, its
-         * {@code LambdaFunction} annotation, and the input parameter (if any).
+         * Everything needed to invoke the function behind one method of the
+         * interface, resolved from its annotation and signature.
          */
-        private InvokeRequest buildInvokeRequest(
-                Method method,
-                LambdaFunction annotation,
-                Object input) {
+        private class MethodInvoker {
 
-            InvokeRequest invokeRequest = new InvokeRequest();
+            private final Method method;
+            private final String functionName;
+            private final InvocationType invocationType;
+            private final LogType logType;
+            private final boolean returnsFuture;
 
-            String functionName = annotation.functionName();
-            if (functionName.isEmpty()) {
-                functionName = method.getName();
-            }
+            /** Reads the result, or null if the method returns nothing. */
+            private final ObjectReader resultReader;
 
-            invokeRequest.setFunctionName(functionName);
-            invokeRequest.setInvocationType(annotation.invocationType());
-            invokeRequest.setLogType(annotation.logType());
+            /** The exception types of the method with a String constructor. */
+            private final List<Constructor<?>> exceptionConstructors =
+                    new ArrayList<Constructor<?>>();
 
-            if (input != null) {
-                try {
+            /**
+             * Verifies that the given method is annotated appropriately, and
+             * resolves how to invoke it.
+             */
+            MethodInvoker(Method method) {
+                this.method = method;
 
-                    String payload = MAPPER.writer().writeValueAsString(input);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Serialized request object to '" + payload
-                                + "'");
-                    }
-                    invokeRequest.setPayload(payload);
+                LambdaFunction annotation =
+                    method.getAnnotation(LambdaFunction.class);
 
-                } catch (JsonProcessingException ex) {
+                if (annotation == null) {
                     throw new LambdaSerializationException(
-                            "Failed to serialize request object to JSON",
-                            ex);
+                            "No LambdaFunction annotation for method "
+                            + method.getName());
+                }
+
+                if (annotation.invocationType() != InvocationType.RequestResponse
+                        && annotation.logType() != LogType.None) {
+                    throw new LambdaSerializationException(
+                            "InvocationType must be RequestResponse if LogType "
+                            + "is set");
+                }
+
+                if (method.getParameterTypes().length > 1) {
+                    throw new LambdaSerializationException(
+                            "LambdaFunctions take either 0 or 1 arguments");
+                }
+
+                String name = annotation.functionName();
+                if (name.isEmpty()) {
+                    name = method.getName();
+                }
+                this.functionName = name;
+                this.invocationType = annotation.invocationType();
+                this.logType = annotation.logType();
+
+                Type resultType = method.getGenericReturnType();
+                this.returnsFuture = Future.class.equals(method.getReturnType());
+                if (returnsFuture) {
+                    if (!(awsLambda instanceof AWSLambdaAsync)) {
+                        throw new LambdaSerializationException(
+                                "Method " + method.getName() + " returns a "
+                                + "Future and requires an AWSLambdaAsync "
+                                + "client");
+                    }
+                    resultType = resultType instanceof ParameterizedType
+                            ? ((ParameterizedType) resultType).getActualTypeArguments()[0]
+                            : Object.class;
+                }
+
+                if (resultType == void.class || resultType == Void.class) {
+                    this.resultReader = null;
+                } else {
+                    JavaType javaType =
+                            MAPPER.getTypeFactory().constructType(resultType);
+                    this.resultReader = MAPPER.reader(javaType);
+                }
+
+                for (Class<?> exceptionType : method.getExceptionTypes()) {
+                    Constructor<?> constructor = findConstructor(exceptionType);
+                    if (constructor != null) {
+                        exceptionConstructors.add(constructor);
+                    }
                 }
             }
 
-            return invokeRequest;
-        }
+            /**
+             * Builds an InvokeRequest for the input parameter (if any).
+             */
+            InvokeRequest buildInvokeRequest(Object input) {
 
-        /**
-         * Process the result of invoking a remote function. If the response
-         * includes server-side logs, dump them into our logs; if it includes
-         * a server-side error indication, parse it into a corresponding
-         * {@code Exception} type, otherwise parse the result payload into
-         * a Java object suitable for returning from this method.
-         */
-        private Object processInvokeResult(
-                Method method,
-                InvokeResult invokeResult) throws Throwable {
+                InvokeRequest invokeRequest = new InvokeRequest();
 
-            if (invokeResult.getLogResult() != null && log.isInfoEnabled()) {
-                try {
+                invokeRequest.setFunctionName(functionName);
+                invokeRequest.setInvocationType(invocationType);
+                invokeRequest.setLogType(logType);
 
-                    String decoded = new String(
-                            Base64.decode(invokeResult.getLogResult()),
-                            StringUtils.UTF8);
+                if (input != null) {
+                    try {
 
-                    log.info(method.getName() + " log:\n\t"
-                            + decoded.replaceAll("\n", "\n\t"));
+                        byte[] payload = WRITER.writeValueAsBytes(input);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Serialized request object to '"
+                                    + new String(payload, StringUtils.UTF8)
+                                    + "'");
+                        }
+                        invokeRequest.setPayload(ByteBuffer.wrap(payload));
 
-                } catch (Exception ex) {
-                    log.warn("Error decoding log result '"
-                            + invokeResult.getLogResult() + "'",
-                            ex);
+                    } catch (JsonProcessingException ex) {
+                        throw new LambdaSerializationException(
+                                "Failed to serialize request object to JSON",
+                                ex);
+                    }
                 }
+
+                return invokeRequest;
             }
 
-            String functionError = invokeResult.getFunctionError();
+            /**
+             * Process the result of invoking a remote function. If the response
+             * includes server-side logs, dump them into our logs; if it includes
+             * a server-side error indication, parse it into a corresponding
+             * {@code Exception} type, otherwise parse the result payload into
+             * a Java object suitable for returning from this method.
+             */
+            Object processInvokeResult(InvokeResult invokeResult)
+                    throws Throwable {
+
+                if (invokeResult.getLogResult() != null && log.isInfoEnabled()) {
+                    try {
+
+                        String decoded = new String(
+                                Base64.decode(invokeResult.getLogResult()),
+                                StringUtils.UTF8);
+
+                        log.info(method.getName() + " log:\n\t"
+                                + decoded.replaceAll("\n", "\n\t"));
+
+                    } catch (Exception ex) {
+                        log.warn("Error decoding log result '"
+                                + invokeResult.getLogResult() + "'",
+                                ex);
+                    }
+                }
+
+                String functionError = invokeResult.getFunctionError();
 
-            if (functionError == null) {
-                // Success.
-                return getObjectFromPayload(method, invokeResult);
-            } else {
-                throw getExceptionFromPayload(method, invokeResult);
+                if (functionError == null) {
+                    // Success.
+                    return getObjectFromPayload(invokeResult);
+                } else {
+                    throw getExceptionFromPayload(invokeResult);
+                }
             }
-        }
 
-        /**
-         * Reads a Java object suitable for returning from the given method
-         * from the payload of the given {@code InvokeResult} (or returns
-         * {@code null} if the method has no return value or the response
-         * contains no payload).
-         *
-         * @throws LambdaSerializationException on error deserializing
-         */
-        private Object getObjectFromPayload(
-                Method method,
-                InvokeResult invokeResult) {
+            /**
+             * Reads a Java object suitable for returning from the method
+             * from the payload of the given {@code InvokeResult} (or returns
+             * {@code null} if the method has no return value or the response
+             * contains no payload).
+             *
+             * @throws LambdaSerializationException on error deserializing
+             */
+            private Object getObjectFromPayload(InvokeResult invokeResult) {
 
-            try {
+                try {
 
-                return getObjectFromPayload(
-                        method.getGenericReturnType(),
-                        invokeResult.getPayload());
+                    return readPayload(resultReader, invokeResult.getPayload());
 
-            } catch (IOException ex) {
-                throw new LambdaSerializationException(
-                        "Failed to parse Lambda function result",
-                        ex);
+                } catch (IOException ex) {
+                    throw new LambdaSerializationException(
+                            "Failed to parse Lambda function result",
+                            ex);
+                }
             }
-        }
 
-        private Throwable getExceptionFromPayload(
-                Method method,
-                InvokeResult invokeResult) {
+            private Throwable getExceptionFromPayload(InvokeResult invokeResult) {
 
-            Throwable throwable = null;
+                Throwable throwable = null;
 
-            String message = "Unexpected error executing Lambda function";
-            String type = null;
-            List<String> stackTrace = null;
+                String message = "Unexpected error executing Lambda function";
+                String type = null;
+                List<String> stackTrace = null;
 
-            try {
+                try {
 
-                LambdaFunctionError error = getObjectFromPayload(
-                        LambdaFunctionError.class,
-                        invokeResult.getPayload());
+                    LambdaFunctionError error = (LambdaFunctionError) readPayload(
+                            ERROR_READER,
+                            invokeResult.getPayload());
 
-                if (error != null) {
-                    message = error.getErrorMessage();
-                    type = error.getErrorType();
-                    stackTrace = error.getStackTrace();
+                    if (error != null) {
+                        message = error.getErrorMessage();
+                        type = error.getErrorType();
+                        stackTrace = error.getStackTrace();
 
-                    throwable = getCustomException(method, error);
+                        throwable = getCustomException(error);
+                    }
+
+                } catch (Exception ex) {
+                    log.warn("Error parsing exception information from response "
+                            + "payload",
+                            ex);
                 }
 
-            } catch (Exception ex) {
-                log.warn("Error parsing exception information from response "
-                        + "payload",
-                        ex);
-            }
+                if (throwable == null) {
+                    throwable = new LambdaFunctionException(
+                            message,
+                            "Handled".equals(invokeResult.getFunctionError()),
+                            type);
+                }
 
-            if (throwable == null) {
-                throwable = new LambdaFunctionException(
-                        message,
-                        "Handled".equals(invokeResult.getFunctionError()),
-                        type);
-            }
+                if (stackTrace != null) {
+                    fillStackTrace(
+                            throwable,
+                            stackTrace,
+                            method.getDeclaringClass());
+                }
 
-            if (stackTrace != null) {
-                fillStackTrace(
-                        throwable,
-                        stackTrace,
-                        method.getDeclaringClass());
+                return throwable;
             }
 
-            return throwable;
-        }
+            private Throwable getCustomException(LambdaFunctionError error) {
 
-        private Throwable getCustomException(
-                Method method,
-                LambdaFunctionError error) {
+                String type = error.getErrorType();
+                if (type == null) {
+                    return null;
+                }
 
-            String type = error.getErrorType();
-            Constructor<?> constructor = null;
+                for (Constructor<?> constructor : exceptionConstructors) {
+                    if (constructor.getDeclaringClass().getSimpleName().startsWith(type)) {
+                        try {
 
-            if (type != null) {
-                for (Class<?> exceptionType : method.getExceptionTypes()) {
-                    if (exceptionType.getSimpleName().startsWith(type)) {
-                        constructor = findConstructor(exceptionType);
-                        if (constructor != null) {
-                            break;
+                            return (Throwable) constructor.newInstance(
+                                    error.getErrorMessage());
+
+                        } catch (Exception ex) {
+                            log.warn("Error constructing custom exception", ex);
+                            return null;
                         }
                     }
                 }
-            }
 
-            if (constructor != null) {
-                try {
-
-                    return (Throwable) constructor.newInstance(
-                            error.getErrorMessage());
-
-                } catch (Exception ex) {
-                    log.warn("Error constructing custom exception", ex);
-                }
+                return null;
             }
-
-            return null;
         }
 
         private Constructor<?> findConstructor(Class<?> type) {
@@ -367,24 +464,84 @@ public final class LambdaInvokerFactory {
             throwable.setStackTrace(elements);
         }
 
-        private <T> T getObjectFromPayload(Class<T> type, ByteBuffer payload)
-                throws IOException {
+        private Object readPayload(
+                ObjectReader reader,
+                ByteBuffer payload) throws IOException {
+
+            if (reader == null || payload == null || payload.remaining() == 0) {
+                return null;
+            }
+
+            if (payload.hasArray()) {
+                return reader.readValue(
+                        payload.array(),
+                        payload.arrayOffset() + payload.position(),
+                        payload.remaining());
+            }
 
-            return type.cast(getObjectFromPayload((Type) type, payload));
+            return reader.readValue(BinaryUtils.copyAllBytesFrom(payload));
         }
 
-        private Object getObjectFromPayload(
-                Type type,
-                ByteBuffer payload) throws IOException {
+        /**
+         * The future result of a method returning a {@code Future}. The
+         * result is processed once, by the first call to {@code get}.
+         */
+        private static class ResultFuture implements Future<Object> {
 
-            if (type == void.class || payload.remaining() == 0) {
-                return null;
+            private final Future<InvokeResult> future;
+            private final MethodInvoker invoker;
+
+            private boolean processed;
+            private Object result;
+            private Throwable failure;
+
+            ResultFuture(Future<InvokeResult> future, MethodInvoker invoker) {
+                this.future = future;
+                this.invoker = invoker;
             }
 
-            JavaType javaType = MAPPER.getTypeFactory().constructType(type);
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return future.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return future.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return future.isDone();
+            }
+
+            @Override
+            public Object get() throws InterruptedException, ExecutionException {
+                return process(future.get());
+            }
 
-            return MAPPER.reader(javaType).readValue(
-                    BinaryUtils.copyAllBytesFrom(payload));
+            @Override
+            public Object get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException,
+                    TimeoutException {
+                return process(future.get(timeout, unit));
+            }
+
+            private synchronized Object process(InvokeResult invokeResult)
+                    throws ExecutionException {
+                if (!processed) {
+                    try {
+                        result = invoker.processInvokeResult(invokeResult);
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                    processed = true;
+                }
+                if (failure != null) {
+                    throw new ExecutionException(failure);
+                }
+                return result;
+            }
         }
     }
 }
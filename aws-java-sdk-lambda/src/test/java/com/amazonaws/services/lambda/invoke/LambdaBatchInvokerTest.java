@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.lambda.invoke;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.services.lambda.invoke.LambdaBatchInvoker.Invocation;
+import com.amazonaws.services.lambda.invoke.LambdaBatchInvoker.Result;
+
+public class LambdaBatchInvokerTest {
+
+    private final StubLambda lambda = new StubLambda();
+
+    private final Functions functions = LambdaInvokerFactory.build(Functions.class, lambda);
+
+    private final LambdaBatchInvoker batchInvoker = new LambdaBatchInvoker(4);
+
+    @After
+    public void tearDown() {
+        batchInvoker.shutdown();
+        lambda.shutdown();
+    }
+
+    @Test
+    public void testResultsAreInInputOrder() throws Exception {
+        List<Result<String>> results = batchInvoker.invokeAll(inputs(50), new Invocation<String, String>() {
+            @Override
+            public String invoke(String input) {
+                return functions.echo(input);
+            }
+        });
+
+        assertEquals(50, results.size());
+        assertEquals(50, lambda.requests.size());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(results.get(i).isSuccessful());
+            assertEquals("input " + i, results.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testFunctionErrorIsReturnedInPlaceOfResult() throws Exception {
+        List<Result<String>> results = batchInvoker.invokeAll(inputs(10), new Invocation<String, String>() {
+            @Override
+            public String invoke(String input) {
+                return input.endsWith("3") ? functions.fail(input) : functions.echo(input);
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            Result<String> result = results.get(i);
+            if (i == 3) {
+                assertFalse(result.isSuccessful());
+                assertNull(result.getValue());
+                assertEquals("input 3", result.getFailure().getMessage());
+                assertTrue(result.getFailure() instanceof LambdaFunctionException);
+            } else {
+                assertEquals("input " + i, result.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testErrorIsReturnedInPlaceOfResult() throws Exception {
+        // A single worker, which has to go on after the error for the other
+        // inputs to get their results
+        LambdaBatchInvoker batchInvoker = new LambdaBatchInvoker(1);
+        try {
+            List<Result<String>> results = batchInvoker.invokeAll(inputs(5), new Invocation<String, String>() {
+                @Override
+                public String invoke(String input) {
+                    if (input.endsWith("1")) {
+                        throw new StackOverflowError();
+                    }
+                    return functions.echo(input);
+                }
+            });
+
+            assertEquals(5, results.size());
+            assertTrue(results.get(1).getFailure() instanceof StackOverflowError);
+            for (int i = 0; i < 5; i++) {
+                if (i != 1) {
+                    assertEquals("input " + i, results.get(i).getValue());
+                }
+            }
+        } finally {
+            batchInvoker.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        List<Result<String>> results = batchInvoker.invokeAll(inputs(40), new Invocation<String, String>() {
+            @Override
+            public String invoke(String input) throws Exception {
+                int count = inFlight.incrementAndGet();
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), count));
+                }
+                try {
+                    // Keeps the invocations in flight long enough to overlap
+                    Thread.sleep(5);
+                    return functions.echo(input);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(40, results.size());
+        assertTrue("At most " + maxInFlight + " in flight", maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception {
+        List<Result<String>> results = batchInvoker.invokeAll(Collections.<String> emptyList(),
+                new Invocation<String, String>() {
+                    @Override
+                    public String invoke(String input) {
+                        return functions.echo(input);
+                    }
+                });
+        assertTrue(results.isEmpty());
+    }
+
+    private static List<String> inputs(int count) {
+        List<String> inputs = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            inputs.add("input " + i);
+        }
+        return inputs;
+    }
+
+    public interface Functions {
+
+        @LambdaFunction
+        String echo(String input);
+
+        @LambdaFunction
+        String fail(String message);
+    }
+}
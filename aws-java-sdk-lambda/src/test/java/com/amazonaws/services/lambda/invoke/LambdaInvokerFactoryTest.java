@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.lambda.invoke;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.lambda.AWSLambdaClient;
+import com.amazonaws.services.lambda.model.InvokeRequest;
+import com.amazonaws.util.StringUtils;
+
+public class LambdaInvokerFactoryTest {
+
+    private final StubLambda lambda = new StubLambda();
+
+    private final Functions functions = LambdaInvokerFactory.build(Functions.class, lambda);
+
+    @After
+    public void tearDown() {
+        lambda.shutdown();
+    }
+
+    @Test
+    public void testInputIsSentAndResultIsRead() {
+        Pair pair = new Pair();
+        pair.setName("answer");
+        pair.setValue(42);
+        Pair result = functions.echoPair(pair);
+
+        assertEquals("answer", result.getName());
+        assertEquals(42, result.getValue());
+        InvokeRequest request = lambda.requests.get(0);
+        assertEquals("echo", request.getFunctionName());
+        assertEquals("RequestResponse", request.getInvocationType());
+        assertEquals("{\"name\":\"answer\",\"value\":42}", StringUtils.UTF8.decode(request.getPayload()).toString());
+    }
+
+    @Test
+    public void testMethodNameIsDefaultFunctionName() {
+        assertEquals("hello", functions.echo("hello"));
+        assertEquals("echo", lambda.requests.get(0).getFunctionName());
+        assertEquals(0, lambda.asyncCount.get());
+    }
+
+    @Test
+    public void testFunctionErrorIsThrownAsDeclaredException() {
+        try {
+            functions.fail("boom");
+            fail("Expected TestException");
+        } catch (TestException e) {
+            assertEquals("boom", e.getMessage());
+            assertEquals(2, e.getStackTrace().length);
+            assertEquals("handler (index.js:1:1)", e.getStackTrace()[0].getMethodName());
+        }
+    }
+
+    @Test
+    public void testUndeclaredFunctionErrorIsThrownAsLambdaFunctionException() {
+        try {
+            functions.crash("input");
+            fail("Expected LambdaFunctionException");
+        } catch (LambdaFunctionException e) {
+            assertFalse(e.isHandled());
+            assertNull(e.getType());
+        }
+    }
+
+    @Test
+    public void testFutureIsInvokedAsynchronously() throws Exception {
+        Future<String> future = functions.echoLater("hello");
+        assertEquals("hello", future.get());
+        // The result is read once and returned again on later calls
+        assertSame(future.get(), future.get());
+        assertEquals(1, lambda.asyncCount.get());
+        assertEquals(1, lambda.requests.size());
+    }
+
+    @Test
+    public void testFutureFailsWithFunctionError() throws Exception {
+        Future<String> future = functions.failLater("boom");
+        for (int i = 0; i < 2; i++) {
+            try {
+                future.get();
+                fail("Expected ExecutionException");
+            } catch (ExecutionException e) {
+                LambdaFunctionException cause = (LambdaFunctionException) e.getCause();
+                assertEquals("boom", cause.getMessage());
+                assertTrue(cause.isHandled());
+                assertEquals("TestException", cause.getType());
+            }
+        }
+    }
+
+    @Test
+    public void testFutureRequiresAsyncClient() {
+        AWSLambdaClient client = new AWSLambdaClient(new BasicAWSCredentials("akid", "skid"));
+        Functions syncFunctions = LambdaInvokerFactory.build(Functions.class, client);
+        try {
+            syncFunctions.echoLater("hello");
+            fail("Expected LambdaSerializationException");
+        } catch (LambdaSerializationException e) {
+            assertTrue(e.getMessage().contains("AWSLambdaAsync"));
+        }
+    }
+
+    @Test
+    public void testMethodWithoutAnnotationIsRejected() {
+        try {
+            functions.notAFunction("hello");
+            fail("Expected LambdaSerializationException");
+        } catch (LambdaSerializationException e) {
+            assertTrue(e.getMessage().contains("notAFunction"));
+        }
+        assertTrue(lambda.requests.isEmpty());
+    }
+
+    public interface Functions {
+
+        @LambdaFunction
+        String echo(String input);
+
+        @LambdaFunction(functionName = "echo")
+        Pair echoPair(Pair input);
+
+        @LambdaFunction(functionName = "echo")
+        Future<String> echoLater(String input);
+
+        @LambdaFunction
+        void fail(String message) throws TestException;
+
+        @LambdaFunction(functionName = "fail")
+        Future<String> failLater(String message);
+
+        @LambdaFunction
+        void crash(String input);
+
+        String notAFunction(String input);
+    }
+
+    public static class Pair {
+
+        private String name;
+
+        private int value;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class TestException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public TestException(String message) {
+            super(message);
+        }
+    }
+}
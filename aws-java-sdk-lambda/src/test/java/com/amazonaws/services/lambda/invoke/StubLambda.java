@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.lambda.invoke;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.lambda.AWSLambdaAsyncClient;
+import com.amazonaws.services.lambda.model.InvokeRequest;
+import com.amazonaws.services.lambda.model.InvokeResult;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Runs a few fake functions in place of the service: "echo" returns its
+ * payload, "fail" fails with a handled error whose message is its payload,
+ * and "crash" fails with an unhandled error and no payload.
+ */
+class StubLambda extends AWSLambdaAsyncClient {
+
+    final List<InvokeRequest> requests = new CopyOnWriteArrayList<InvokeRequest>();
+
+    final AtomicInteger asyncCount = new AtomicInteger();
+
+    StubLambda() {
+        super(new BasicAWSCredentials("akid", "skid"));
+    }
+
+    @Override
+    public InvokeResult invoke(InvokeRequest request) {
+        requests.add(request);
+        String function = request.getFunctionName();
+        String payload = payload(request.getPayload());
+        if ("echo".equals(function)) {
+            return new InvokeResult().withStatusCode(200).withPayload(payload(payload));
+        }
+        if ("fail".equals(function)) {
+            return new InvokeResult().withStatusCode(200).withFunctionError("Handled").withPayload(payload(
+                    "{\"errorMessage\":" + payload + ",\"errorType\":\"TestException\","
+                    + "\"stackTrace\":[\"handler (index.js:1:1)\",\"main (index.js:2:1)\"]}"));
+        }
+        if ("crash".equals(function)) {
+            return new InvokeResult().withStatusCode(200).withFunctionError("Unhandled");
+        }
+        throw new IllegalArgumentException("No function " + function);
+    }
+
+    /**
+     * Invokes the function right away, handing back its outcome as an
+     * already completed future.
+     */
+    @Override
+    public Future<InvokeResult> invokeAsync(final InvokeRequest request) {
+        asyncCount.incrementAndGet();
+        FutureTask<InvokeResult> task = new FutureTask<InvokeResult>(new Callable<InvokeResult>() {
+            @Override
+            public InvokeResult call() {
+                return invoke(request);
+            }
+        });
+        task.run();
+        return task;
+    }
+
+    private static String payload(ByteBuffer payload) {
+        if (payload == null) {
+            return null;
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new String(bytes, StringUtils.UTF8);
+    }
+
+    private static ByteBuffer payload(String payload) {
+        return payload == null ? null : ByteBuffer.wrap(payload.getBytes(StringUtils.UTF8));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.logs.appender;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.amazonaws.services.logs.model.InputLogEvent;
+
+/**
+ * Bounded, lock-free ring buffer of log events, with any number of appending
+ * threads and a single draining thread.
+ * <p>
+ * An appending thread claims a slot by advancing the tail with a
+ * compare-and-set, and then publishes its event into that slot. The draining
+ * thread takes the events in slot order, stopping at the first slot that has
+ * been claimed but not published yet.
+ */
+final class EventRing {
+    private final AtomicReferenceArray<InputLogEvent> slots;
+    private final int mask;
+
+    /** The sequence of the next slot to be claimed. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The sequence of the next slot to be drained; only written by the drainer. */
+    private volatile long head;
+
+    /**
+     * @param capacity the capacity of the ring, rounded up to a power of two
+     */
+    EventRing(int capacity) {
+        int size = 1;
+        while (size < capacity)
+            size <<= 1;
+        slots = new AtomicReferenceArray<InputLogEvent>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Appends the given event, unless the ring is full.
+     *
+     * @return true if the event has been appended; false if the ring is full
+     */
+    boolean offer(InputLogEvent event) {
+        while (true) {
+            long t = tail.get();
+            if (t - head > mask)
+                return false;
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.set((int) (t & mask), event);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the approximate number of events in the ring.
+     */
+    int size() {
+        return (int) (tail.get() - head);
+    }
+
+    /**
+     * Moves up to the given number of events from the ring to the given list.
+     * Must only be called by a single thread at a time.
+     *
+     * @return the number of events moved
+     */
+    int drainTo(List<InputLogEvent> out, int max) {
+        long h = head;
+        int n = 0;
+        while (n < max) {
+            int index = (int) (h & mask);
+            InputLogEvent event = slots.get(index);
+            if (event == null)
+                break; // empty, or claimed but not published yet
+            slots.lazySet(index, null);
+            out.add(event);
+            h++;
+            n++;
+        }
+        head = h;
+        return n;
+    }
+}
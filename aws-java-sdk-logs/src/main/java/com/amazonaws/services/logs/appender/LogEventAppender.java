@@ -0,0 +1,514 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.logs.appender;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.logs.model.CreateLogStreamRequest;
+import com.amazonaws.services.logs.model.DataAlreadyAcceptedException;
+import com.amazonaws.services.logs.model.DescribeLogStreamsRequest;
+import com.amazonaws.services.logs.model.DescribeLogStreamsResult;
+import com.amazonaws.services.logs.model.InputLogEvent;
+import com.amazonaws.services.logs.model.InvalidSequenceTokenException;
+import com.amazonaws.services.logs.model.LogStream;
+import com.amazonaws.services.logs.model.PutLogEventsRequest;
+import com.amazonaws.services.logs.model.PutLogEventsResult;
+import com.amazonaws.services.logs.model.ResourceAlreadyExistsException;
+import com.amazonaws.services.logs.model.ResourceNotFoundException;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Ships log events to CloudWatch Logs in the background, in large batches.
+ * <p>
+ * Appending an event never blocks: events are buffered in a lock-free ring,
+ * and when the ring is full they are spilled to a bounded local file (if
+ * configured) or dropped. A background thread drains the buffer, sorts the
+ * events chronologically and packs them into PutLogEvents requests of up to
+ * 10,000 events or 1 MB, spanning at most 24 hours.
+ * <p>
+ * The events of a log stream have to be sent one batch at a time, with the
+ * sequence token returned by the previous batch, which caps the throughput of
+ * a single stream. The events can therefore be spread across several log
+ * streams, each with its own sequence token and a batch in flight. When the
+ * token of a stream turns out to be stale (for example because another
+ * process wrote to the same stream), it is resynchronized and the batch
+ * retried.
+ * <p>
+ * This class is thread safe. {@link #close()} must be called to send the
+ * buffered events and release the threads of the appender.
+ */
+public class LogEventAppender {
+    private static final Log log = LogFactory.getLog(LogEventAppender.class);
+
+    private static final int MAX_MESSAGE_BYTES = LogEventAppenderConfig.SERVICE_MAX_EVENT_BYTES
+            - LogEventAppenderConfig.SERVICE_EVENT_OVERHEAD_BYTES;
+
+    private static final Comparator<InputLogEvent> BY_TIMESTAMP = new Comparator<InputLogEvent>() {
+        @Override
+        public int compare(InputLogEvent a, InputLogEvent b) {
+            long x = a.getTimestamp(), y = b.getTimestamp();
+            return x < y ? -1 : (x == y ? 0 : 1);
+        }
+    };
+
+    private final AWSLogs logs;
+    private final String logGroupName;
+    private final LogEventAppenderConfig config;
+    private final EventRing ring;
+    private final SpillQueue spill;
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    /** The writers of the log streams that have no batch in flight. */
+    private final BlockingQueue<StreamWriter> idleWriters = new LinkedBlockingQueue<StreamWriter>();
+
+    private final AtomicInteger inflightBatches = new AtomicInteger();
+    private final Object inflightLock = new Object();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /** Drains the buffer into batches. */
+    private final ScheduledExecutorService drainer;
+
+    /** Sends the batches, one thread per log stream. */
+    private final ExecutorService writers;
+
+    /** The events drained from the buffer but not sent yet; drainer only. */
+    private final List<InputLogEvent> pending = new ArrayList<InputLogEvent>();
+    private long pendingChars;
+    private long pendingSinceMillis;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new appender shipping events to the given log stream,
+     * with the default configuration.
+     *
+     * @param logs the client used to send the events
+     * @param logGroupName the name of the log group, which must exist
+     * @param logStreamName the name of the log stream
+     */
+    public LogEventAppender(AWSLogs logs, String logGroupName, String logStreamName) {
+        this(logs, logGroupName, logStreamName, new LogEventAppenderConfig());
+    }
+
+    /**
+     * Constructs a new appender shipping events to the given log stream, or
+     * to log streams named after it if the events are spread across several
+     * streams.
+     *
+     * @param logs the client used to send the events
+     * @param logGroupName the name of the log group, which must exist
+     * @param logStreamName the name of the log stream
+     * @param config the configuration of the appender, which is copied
+     */
+    public LogEventAppender(AWSLogs logs, String logGroupName, String logStreamName,
+            LogEventAppenderConfig config) {
+        this.logs = logs;
+        this.logGroupName = logGroupName;
+        this.config = new LogEventAppenderConfig(config);
+        this.ring = new EventRing(this.config.getBufferCapacity());
+        File spillDirectory = this.config.getSpillDirectory();
+        this.spill = spillDirectory == null ? null : new SpillQueue(
+                new File(spillDirectory, fileNameOf(logGroupName + "-" + logStreamName) + ".spill"),
+                this.config.getMaxSpillBytes());
+
+        int streamCount = this.config.getStreamCount();
+        for (int i = 0; i < streamCount; i++)
+            idleWriters.add(new StreamWriter(streamCount == 1 ? logStreamName : logStreamName + "-" + i));
+        this.drainer = Executors.newSingleThreadScheduledExecutor(threadFactory("drainer"));
+        this.writers = Executors.newFixedThreadPool(streamCount, threadFactory("writer"));
+
+        long period = Math.max(1, this.config.getMaxBufferTimeMillis() / 4);
+        drainer.scheduleWithFixedDelay(new DrainTask(false), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends an event with the current time as its timestamp.
+     *
+     * @param message the message of the event
+     */
+    public void append(String message) {
+        append(System.currentTimeMillis(), message);
+    }
+
+    /**
+     * Appends an event. Messages longer than the service allows are
+     * truncated. This method never blocks; the event is dropped if both the
+     * buffer and the spill file are full, or if the appender has been closed.
+     *
+     * @param timestamp the time of the event, in milliseconds since the epoch
+     * @param message the message of the event
+     */
+    public void append(long timestamp, String message) {
+        if (closed) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+        InputLogEvent event = new InputLogEvent().withTimestamp(timestamp).withMessage(truncate(message));
+        if (!ring.offer(event) && (spill == null || !spill.offer(event)))
+            droppedEvents.incrementAndGet();
+        if (ring.size() >= config.getMaxBatchEvents())
+            scheduleDrain();
+    }
+
+    /**
+     * Sends all the buffered events right away, and waits until all the
+     * batches in flight have been sent.
+     */
+    public void flush() {
+        try {
+            drainer.submit(new DrainTask(true)).get();
+        } catch (RejectedExecutionException e) {
+            // Closed
+        } catch (ExecutionException e) {
+            log.warn("Unable to flush the log events", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (inflightLock) {
+            try {
+                while (inflightBatches.get() > 0)
+                    inflightLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events dropped so far, because the buffer and the
+     * spill file were full, or because they couldn't be sent.
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Sends all the buffered events, waits until they have been sent, and
+     * then releases the threads and the spill file of this appender. The
+     * events appended afterwards are dropped. The CloudWatch Logs client is not
+     * shut down.
+     */
+    public void close() {
+        closed = true;
+        flush();
+        drainer.shutdownNow();
+        writers.shutdown();
+        if (spill != null)
+            spill.close();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                drainer.execute(new DrainTask(false));
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Moves the buffered events to the pending events, and sends these if
+     * they are due. Only ever runs on the drainer thread.
+     *
+     * @return true if events have been sent
+     */
+    private boolean drain(boolean force) throws InterruptedException {
+        // Bound the number of pending events to what can be in flight at once
+        int limit = config.getMaxBatchEvents() * config.getStreamCount();
+        int before = pending.size();
+        ring.drainTo(pending, Math.max(0, limit - pending.size()));
+        if (spill != null && pending.size() < limit)
+            spill.drainTo(pending, limit - pending.size());
+        if (pending.isEmpty())
+            return false;
+
+        long now = System.currentTimeMillis();
+        if (before == 0)
+            pendingSinceMillis = now;
+        for (int i = before; i < pending.size(); i++)
+            pendingChars += pending.get(i).getMessage().length();
+        boolean due = force
+                || pending.size() >= config.getMaxBatchEvents()
+                || pendingChars + pending.size() * LogEventAppenderConfig.SERVICE_EVENT_OVERHEAD_BYTES
+                        >= config.getMaxBatchBytes()
+                || now - pendingSinceMillis >= config.getMaxBufferTimeMillis();
+        if (!due)
+            return false;
+
+        Collections.sort(pending, BY_TIMESTAMP);
+        List<InputLogEvent> batch = new ArrayList<InputLogEvent>();
+        long batchBytes = 0;
+        for (InputLogEvent event : pending) {
+            int size = utf8Length(event.getMessage()) + LogEventAppenderConfig.SERVICE_EVENT_OVERHEAD_BYTES;
+            if (!batch.isEmpty() && (batch.size() >= config.getMaxBatchEvents()
+                    || batchBytes + size > config.getMaxBatchBytes()
+                    || event.getTimestamp() - batch.get(0).getTimestamp()
+                            > LogEventAppenderConfig.SERVICE_MAX_BATCH_SPAN_MILLIS)) {
+                send(batch);
+                batch = new ArrayList<InputLogEvent>();
+                batchBytes = 0;
+            }
+            batch.add(event);
+            batchBytes += size;
+        }
+        send(batch);
+        pending.clear();
+        pendingChars = 0;
+        return true;
+    }
+
+    /**
+     * Hands the given batch to the writer of the next log stream with no
+     * batch in flight, waiting for one if needed.
+     */
+    private void send(final List<InputLogEvent> batch) throws InterruptedException {
+        final StreamWriter writer = idleWriters.take();
+        inflightBatches.incrementAndGet();
+        try {
+            writers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writer.put(batch);
+                    } finally {
+                        idleWriters.add(writer);
+                        batchDone();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            idleWriters.add(writer);
+            droppedEvents.addAndGet(batch.size());
+            batchDone();
+        }
+    }
+
+    private void batchDone() {
+        if (inflightBatches.decrementAndGet() == 0) {
+            synchronized (inflightLock) {
+                inflightLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Truncates the given message to the maximum size the service allows,
+     * without splitting a UTF-8 sequence.
+     */
+    private static String truncate(String message) {
+        if (message.length() <= MAX_MESSAGE_BYTES / 3)
+            return message;
+        byte[] bytes = message.getBytes(StringUtils.UTF8);
+        if (bytes.length <= MAX_MESSAGE_BYTES)
+            return message;
+        int end = MAX_MESSAGE_BYTES;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80)
+            end--;
+        return new String(bytes, 0, end, StringUtils.UTF8);
+    }
+
+    private static int utf8Length(String s) {
+        int length = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length++;
+                } else if (Character.isHighSurrogate(c)) {
+                    // 4 bytes for the pair of chars
+                    length += 2;
+                    i++;
+                } else {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static String fileNameOf(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("cloudwatch-logs-appender-" + name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    private final class DrainTask implements Runnable {
+        private final boolean force;
+
+        DrainTask(boolean force) {
+            this.force = force;
+        }
+
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            try {
+                if (force) {
+                    // Also empty the spill file, beyond the bound on pending events
+                    boolean more;
+                    do {
+                        more = drain(true) && (ring.size() > 0 || (spill != null && !spill.isEmpty()));
+                    } while (more);
+                } else {
+                    drain(false);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // Keep the periodic drain going
+                log.warn("Unable to send the buffered log events", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the batches of a single log stream, one at a time, keeping track
+     * of its sequence token. Only used by one thread at a time.
+     */
+    private final class StreamWriter {
+        private final String logStreamName;
+        private String sequenceToken;
+        private boolean created;
+        private boolean synced;
+
+        StreamWriter(String logStreamName) {
+            this.logStreamName = logStreamName;
+        }
+
+        void put(List<InputLogEvent> events) {
+            AmazonClientException failure = null;
+            boolean wait = false;
+            for (int attempt = 0; attempt <= config.getMaxRetries(); attempt++) {
+                if (wait && !backoff(attempt))
+                    break;
+                try {
+                    if (!synced)
+                        sync();
+                    PutLogEventsResult result = logs.putLogEvents(
+                            new PutLogEventsRequest(logGroupName, logStreamName, events)
+                                    .withSequenceToken(sequenceToken));
+                    sequenceToken = result.getNextSequenceToken();
+                    if (result.getRejectedLogEventsInfo() != null) {
+                        log.warn("Some log events were rejected by log stream " + logStreamName + ": "
+                                + result.getRejectedLogEventsInfo());
+                    }
+                    return;
+                } catch (InvalidSequenceTokenException e) {
+                    // Someone else wrote to the stream; retry right away
+                    // with the expected token, or look it up, but back off
+                    // if the race is lost again
+                    sequenceToken = e.getExpectedSequenceToken();
+                    synced = sequenceToken != null;
+                    wait = failure instanceof InvalidSequenceTokenException;
+                    failure = e;
+                } catch (DataAlreadyAcceptedException e) {
+                    // A retry of a batch that went through after all
+                    sequenceToken = e.getExpectedSequenceToken();
+                    return;
+                } catch (ResourceNotFoundException e) {
+                    created = false;
+                    synced = false;
+                    wait = true;
+                    failure = e;
+                } catch (AmazonClientException e) {
+                    wait = true;
+                    failure = e;
+                }
+            }
+            droppedEvents.addAndGet(events.size());
+            log.warn("Unable to send " + events.size() + " log events to log stream " + logStreamName, failure);
+        }
+
+        /**
+         * Waits before the given attempt.
+         *
+         * @return false if interrupted
+         */
+        private boolean backoff(int attempt) {
+            try {
+                Thread.sleep(config.getRetryDelayMillis() << Math.min(attempt - 1, 10));
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /**
+         * Creates the log stream if needed, and looks up its sequence token.
+         */
+        private void sync() {
+            if (!created && config.isCreateLogStreams()) {
+                try {
+                    logs.createLogStream(new CreateLogStreamRequest(logGroupName, logStreamName));
+                } catch (ResourceAlreadyExistsException e) {
+                    // Fine
+                }
+            }
+            created = true;
+            sequenceToken = null;
+            String nextToken = null;
+            do {
+                DescribeLogStreamsResult result = logs.describeLogStreams(new DescribeLogStreamsRequest()
+                        .withLogGroupName(logGroupName)
+                        .withLogStreamNamePrefix(logStreamName)
+                        .withNextToken(nextToken));
+                for (LogStream stream : result.getLogStreams()) {
+                    if (logStreamName.equals(stream.getLogStreamName())) {
+                        sequenceToken = stream.getUploadSequenceToken();
+                        synced = true;
+                        return;
+                    }
+                }
+                nextToken = result.getNextToken();
+            } while (nextToken != null);
+            synced = true;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.logs.appender;
+
+import java.io.File;
+
+/**
+ * Configuration of a {@link LogEventAppender}.
+ */
+public class LogEventAppenderConfig {
+
+    /** The maximum number of events the service accepts in a PutLogEvents request. */
+    public static final int SERVICE_MAX_BATCH_EVENTS = 10000;
+
+    /**
+     * The maximum size the service accepts for a PutLogEvents request, in
+     * bytes, counted as the sum of the UTF-8 sizes of the messages plus
+     * {@value #SERVICE_EVENT_OVERHEAD_BYTES} bytes per event.
+     */
+    public static final int SERVICE_MAX_BATCH_BYTES = 1048576;
+
+    /** The size the service adds to the size of the message of each event. */
+    public static final int SERVICE_EVENT_OVERHEAD_BYTES = 26;
+
+    /**
+     * The maximum size the service accepts for an event, including
+     * {@value #SERVICE_EVENT_OVERHEAD_BYTES} bytes of overhead. Longer messages
+     * are truncated.
+     */
+    public static final int SERVICE_MAX_EVENT_BYTES = 262144;
+
+    /** The maximum time span of the events of a PutLogEvents request. */
+    public static final long SERVICE_MAX_BATCH_SPAN_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /** 65536 events */
+    public static final int BUFFER_CAPACITY_DEFAULT = 65536;
+
+    /** 10000 events */
+    public static final int MAX_BATCH_EVENTS_DEFAULT = SERVICE_MAX_BATCH_EVENTS;
+
+    /** 1 megabyte */
+    public static final int MAX_BATCH_BYTES_DEFAULT = SERVICE_MAX_BATCH_BYTES;
+
+    /** 1 second */
+    public static final long MAX_BUFFER_TIME_MILLIS_DEFAULT = 1000;
+
+    /** 1 stream */
+    public static final int STREAM_COUNT_DEFAULT = 1;
+
+    /** 256 megabytes */
+    public static final long MAX_SPILL_BYTES_DEFAULT = 256L * 1024 * 1024;
+
+    /** 5 retries */
+    public static final int MAX_RETRIES_DEFAULT = 5;
+
+    /** 500 milliseconds */
+    public static final long RETRY_DELAY_MILLIS_DEFAULT = 500;
+
+    /** The maximum number of events buffered in memory. */
+    private int bufferCapacity = BUFFER_CAPACITY_DEFAULT;
+
+    /** The maximum number of events sent in a single PutLogEvents request. */
+    private int maxBatchEvents = MAX_BATCH_EVENTS_DEFAULT;
+
+    /** The maximum size of a single PutLogEvents request, in bytes. */
+    private int maxBatchBytes = MAX_BATCH_BYTES_DEFAULT;
+
+    /**
+     * The maximum time (milliseconds) an event is buffered waiting for other
+     * events to be sent along with it.
+     */
+    private long maxBufferTimeMillis = MAX_BUFFER_TIME_MILLIS_DEFAULT;
+
+    /**
+     * The number of log streams the events are spread across. Since the
+     * events of a log stream must be sent one batch at a time, with the
+     * sequence token returned by the previous batch, more streams allow more
+     * batches in flight.
+     */
+    private int streamCount = STREAM_COUNT_DEFAULT;
+
+    /**
+     * The directory of the file the events that don't fit in the buffer are
+     * spilled to; or null to drop such events.
+     */
+    private File spillDirectory;
+
+    /** The maximum size of the spill file, in bytes. */
+    private long maxSpillBytes = MAX_SPILL_BYTES_DEFAULT;
+
+    /**
+     * The maximum number of times a batch that failed to be sent is retried
+     * before it is dropped.
+     */
+    private int maxRetries = MAX_RETRIES_DEFAULT;
+
+    /** The initial delay (milliseconds) before retrying a failed batch. */
+    private long retryDelayMillis = RETRY_DELAY_MILLIS_DEFAULT;
+
+    /** Whether the log streams are created if they don't exist. */
+    private boolean createLogStreams = true;
+
+    public LogEventAppenderConfig() {
+    }
+
+    /** copy constructor */
+    public LogEventAppenderConfig(LogEventAppenderConfig other) {
+        bufferCapacity = other.bufferCapacity;
+        maxBatchEvents = other.maxBatchEvents;
+        maxBatchBytes = other.maxBatchBytes;
+        maxBufferTimeMillis = other.maxBufferTimeMillis;
+        streamCount = other.streamCount;
+        spillDirectory = other.spillDirectory;
+        maxSpillBytes = other.maxSpillBytes;
+        maxRetries = other.maxRetries;
+        retryDelayMillis = other.retryDelayMillis;
+        createLogStreams = other.createLogStreams;
+    }
+
+    @Override
+    public String toString() {
+        return "LogEventAppenderConfig [bufferCapacity=" + bufferCapacity + ", maxBatchEvents=" + maxBatchEvents
+                + ", maxBatchBytes=" + maxBatchBytes + ", maxBufferTimeMillis=" + maxBufferTimeMillis
+                + ", streamCount=" + streamCount + ", spillDirectory=" + spillDirectory + ", maxSpillBytes="
+                + maxSpillBytes + ", maxRetries=" + maxRetries + ", retryDelayMillis=" + retryDelayMillis
+                + ", createLogStreams=" + createLogStreams + "]";
+    }
+
+    /**
+     * The maximum number of events buffered in memory, rounded up to a power
+     * of two. The events appended while the buffer is full are spilled to disk
+     * if a spill directory is configured, and dropped otherwise.
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * The maximum number of events buffered in memory, rounded up to a power
+     * of two. The events appended while the buffer is full are spilled to disk
+     * if a spill directory is configured, and dropped otherwise.
+     */
+    public void setBufferCapacity(int bufferCapacity) {
+        if (bufferCapacity < 1 || bufferCapacity > 1 << 30)
+            throw new IllegalArgumentException("bufferCapacity must be between 1 and " + (1 << 30));
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public LogEventAppenderConfig withBufferCapacity(int bufferCapacity) {
+        setBufferCapacity(bufferCapacity);
+        return this;
+    }
+
+    /**
+     * The maximum number of events sent in a single PutLogEvents request; at
+     * most {@value #SERVICE_MAX_BATCH_EVENTS}.
+     */
+    public int getMaxBatchEvents() {
+        return maxBatchEvents;
+    }
+
+    /**
+     * The maximum number of events sent in a single PutLogEvents request; at
+     * most {@value #SERVICE_MAX_BATCH_EVENTS}.
+     */
+    public void setMaxBatchEvents(int maxBatchEvents) {
+        if (maxBatchEvents < 1 || maxBatchEvents > SERVICE_MAX_BATCH_EVENTS)
+            throw new IllegalArgumentException("maxBatchEvents must be between 1 and " + SERVICE_MAX_BATCH_EVENTS);
+        this.maxBatchEvents = maxBatchEvents;
+    }
+
+    public LogEventAppenderConfig withMaxBatchEvents(int maxBatchEvents) {
+        setMaxBatchEvents(maxBatchEvents);
+        return this;
+    }
+
+    /**
+     * The maximum size of a single PutLogEvents request, in bytes; at most
+     * {@value #SERVICE_MAX_BATCH_BYTES}.
+     */
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * The maximum size of a single PutLogEvents request, in bytes; at least
+     * {@value #SERVICE_MAX_EVENT_BYTES} and at most
+     * {@value #SERVICE_MAX_BATCH_BYTES}.
+     */
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        if (maxBatchBytes < SERVICE_MAX_EVENT_BYTES || maxBatchBytes > SERVICE_MAX_BATCH_BYTES) {
+            throw new IllegalArgumentException("maxBatchBytes must be between " + SERVICE_MAX_EVENT_BYTES
+                    + " and " + SERVICE_MAX_BATCH_BYTES);
+        }
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public LogEventAppenderConfig withMaxBatchBytes(int maxBatchBytes) {
+        setMaxBatchBytes(maxBatchBytes);
+        return this;
+    }
+
+    /**
+     * The maximum time (milliseconds) an event is buffered waiting for other
+     * events to be sent along with it.
+     */
+    public long getMaxBufferTimeMillis() {
+        return maxBufferTimeMillis;
+    }
+
+    /**
+     * The maximum time (milliseconds) an event is buffered waiting for other
+     * events to be sent along with it.
+     */
+    public void setMaxBufferTimeMillis(long maxBufferTimeMillis) {
+        this.maxBufferTimeMillis = maxBufferTimeMillis;
+    }
+
+    public LogEventAppenderConfig withMaxBufferTimeMillis(long maxBufferTimeMillis) {
+        setMaxBufferTimeMillis(maxBufferTimeMillis);
+        return this;
+    }
+
+    /**
+     * The number of log streams the events are spread across. Since the
+     * events of a log stream must be sent one batch at a time, with the
+     * sequence token returned by the previous batch, more streams allow more
+     * batches in flight. With more than one stream, the given log stream name
+     * is suffixed with "-0", "-1" and so on.
+     */
+    public int getStreamCount() {
+        return streamCount;
+    }
+
+    /**
+     * The number of log streams the events are spread across. Since the
+     * events of a log stream must be sent one batch at a time, with the
+     * sequence token returned by the previous batch, more streams allow more
+     * batches in flight. With more than one stream, the given log stream name
+     * is suffixed with "-0", "-1" and so on.
+     */
+    public void setStreamCount(int streamCount) {
+        if (streamCount < 1)
+            throw new IllegalArgumentException("streamCount must be positive");
+        this.streamCount = streamCount;
+    }
+
+    public LogEventAppenderConfig withStreamCount(int streamCount) {
+        setStreamCount(streamCount);
+        return this;
+    }
+
+    /**
+     * The directory of the file the events that don't fit in the buffer are
+     * spilled to; or null to drop such events.
+     */
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * The directory of the file the events that don't fit in the buffer are
+     * spilled to; or null to drop such events.
+     */
+    public void setSpillDirectory(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public LogEventAppenderConfig withSpillDirectory(File spillDirectory) {
+        setSpillDirectory(spillDirectory);
+        return this;
+    }
+
+    /**
+     * The maximum size of the spill file, in bytes. The events appended while
+     * both the buffer and the spill file are full are dropped.
+     */
+    public long getMaxSpillBytes() {
+        return maxSpillBytes;
+    }
+
+    /**
+     * The maximum size of the spill file, in bytes. The events appended while
+     * both the buffer and the spill file are full are dropped.
+     */
+    public void setMaxSpillBytes(long maxSpillBytes) {
+        this.maxSpillBytes = maxSpillBytes;
+    }
+
+    public LogEventAppenderConfig withMaxSpillBytes(long maxSpillBytes) {
+        setMaxSpillBytes(maxSpillBytes);
+        return this;
+    }
+
+    /**
+     * The maximum number of times a batch that failed to be sent is retried
+     * before it is dropped.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * The maximum number of times a batch that failed to be sent is retried
+     * before it is dropped.
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public LogEventAppenderConfig withMaxRetries(int maxRetries) {
+        setMaxRetries(maxRetries);
+        return this;
+    }
+
+    /**
+     * The initial delay (milliseconds) before retrying a failed batch, which
+     * doubles with each further attempt.
+     */
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    /**
+     * The initial delay (milliseconds) before retrying a failed batch, which
+     * doubles with each further attempt.
+     */
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public LogEventAppenderConfig withRetryDelayMillis(long retryDelayMillis) {
+        setRetryDelayMillis(retryDelayMillis);
+        return this;
+    }
+
+    /**
+     * @return true if the log streams are created if they don't exist; false
+     *         otherwise.
+     */
+    public boolean isCreateLogStreams() {
+        return createLogStreams;
+    }
+
+    /**
+     * Specify "true" to create the log streams if they don't exist. The log
+     * group must exist in any case.
+     */
+    public void setCreateLogStreams(boolean createLogStreams) {
+        this.createLogStreams = createLogStreams;
+    }
+
+    public LogEventAppenderConfig withCreateLogStreams(boolean createLogStreams) {
+        setCreateLogStreams(createLogStreams);
+        return this;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.logs.appender;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.logs.model.InputLogEvent;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Bounded queue of log events in a local file, holding the events that don't
+ * fit in the in-memory ring until they can be sent. Each event is stored as
+ * its timestamp, the length of its message and the UTF-8 bytes of its
+ * message. The file is truncated whenever the queue becomes empty.
+ */
+final class SpillQueue {
+    private static final int HEADER_SIZE = 8 + 4;
+
+    /** The maximum number of bytes read from the file at once. */
+    private static final int READ_CHUNK_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final long maxBytes;
+    private final RandomAccessFile raf;
+    private long readPos;
+    private long writePos;
+
+    SpillQueue(File file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        try {
+            this.raf = new RandomAccessFile(file, "rw");
+            // Events left over by a previous process are not replayed
+            raf.setLength(0);
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to create the spill file " + file, e);
+        }
+    }
+
+    /**
+     * Appends the given event, unless the file would exceed its maximum size.
+     *
+     * @return true if the event has been appended; false otherwise
+     */
+    synchronized boolean offer(InputLogEvent event) {
+        byte[] message = event.getMessage().getBytes(StringUtils.UTF8);
+        int length = HEADER_SIZE + message.length;
+        if (writePos + length > maxBytes)
+            return false;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putLong(event.getTimestamp());
+        buffer.putInt(message.length);
+        buffer.put(message);
+        try {
+            raf.seek(writePos);
+            raf.write(buffer.array());
+        } catch (IOException e) {
+            return false;
+        }
+        writePos += length;
+        return true;
+    }
+
+    /**
+     * Returns true if the queue holds no events.
+     */
+    synchronized boolean isEmpty() {
+        return readPos == writePos;
+    }
+
+    /**
+     * Moves up to the given number of events from the file to the given list.
+     *
+     * @return the number of events moved
+     */
+    synchronized int drainTo(List<InputLogEvent> out, int max) {
+        int n = 0;
+        try {
+            while (n < max && readPos < writePos) {
+                int chunk = (int) Math.min(writePos - readPos, READ_CHUNK_SIZE);
+                byte[] bytes = new byte[chunk];
+                raf.seek(readPos);
+                raf.readFully(bytes);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                int consumed = 0;
+                while (n < max && buffer.remaining() >= HEADER_SIZE) {
+                    long timestamp = buffer.getLong();
+                    int length = buffer.getInt();
+                    if (buffer.remaining() < length) {
+                        if (consumed == 0) {
+                            // A single event larger than the chunk
+                            bytes = new byte[HEADER_SIZE + length];
+                            raf.seek(readPos);
+                            raf.readFully(bytes);
+                            buffer = ByteBuffer.wrap(bytes, HEADER_SIZE, length);
+                        } else {
+                            break;
+                        }
+                    }
+                    String message = new String(buffer.array(), buffer.position(), length, StringUtils.UTF8);
+                    buffer.position(buffer.position() + length);
+                    out.add(new InputLogEvent().withTimestamp(timestamp).withMessage(message));
+                    consumed += HEADER_SIZE + length;
+                    n++;
+                }
+                readPos += consumed;
+            }
+            if (readPos == writePos) {
+                readPos = writePos = 0;
+                raf.setLength(0);
+            }
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to read the spill file " + file, e);
+        }
+        return n;
+    }
+
+    /**
+     * Closes and deletes the file.
+     */
+    synchronized void close() {
+        try {
+            raf.close();
+        } catch (IOException ignore) {
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.logs.appender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.logs.AWSLogsClient;
+import com.amazonaws.services.logs.model.CreateLogStreamRequest;
+import com.amazonaws.services.logs.model.DescribeLogStreamsRequest;
+import com.amazonaws.services.logs.model.DescribeLogStreamsResult;
+import com.amazonaws.services.logs.model.InputLogEvent;
+import com.amazonaws.services.logs.model.InvalidSequenceTokenException;
+import com.amazonaws.services.logs.model.LogStream;
+import com.amazonaws.services.logs.model.PutLogEventsRequest;
+import com.amazonaws.services.logs.model.PutLogEventsResult;
+import com.amazonaws.services.logs.model.ResourceNotFoundException;
+
+public class LogEventAppenderTest {
+
+    private static final String GROUP = "group";
+
+    private static final String STREAM = "stream";
+
+    @Test
+    public void testEventsAreSentInSortedBatches() {
+        StubLogs logs = new StubLogs();
+        LogEventAppender appender = new LogEventAppender(logs, GROUP, STREAM, config().withMaxBatchEvents(10));
+        for (int i = 0; i < 25; i++) {
+            appender.append(1000 - i, "message " + i);
+        }
+        appender.close();
+
+        Set<String> messages = new HashSet<String>();
+        String expectedToken = null;
+        for (PutLogEventsRequest request : logs.requests) {
+            assertEquals(GROUP, request.getLogGroupName());
+            assertEquals(STREAM, request.getLogStreamName());
+            // Each batch is sent with the token returned by the previous one
+            assertEquals(expectedToken, request.getSequenceToken());
+            expectedToken = logs.tokenAfter(request);
+            List<InputLogEvent> events = request.getLogEvents();
+            assertTrue(events.size() <= 10);
+            for (int i = 0; i < events.size(); i++) {
+                messages.add(events.get(i).getMessage());
+                if (i > 0)
+                    assertTrue(events.get(i - 1).getTimestamp() <= events.get(i).getTimestamp());
+            }
+        }
+        assertEquals(25, messages.size());
+        assertEquals(1, logs.createCount.get());
+        assertEquals(0, appender.getDroppedEventCount());
+    }
+
+    @Test
+    public void testLostTokenRaceIsRetriedRightAway() {
+        StubLogs logs = new StubLogs();
+        logs.failures.add(invalidSequenceToken("other"));
+        long start = System.currentTimeMillis();
+        LogEventAppender appender = new LogEventAppender(logs, GROUP, STREAM, config().withRetryDelayMillis(5000));
+        appender.append("message");
+        appender.close();
+
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(2, logs.requests.size());
+        assertNull(logs.requests.get(0).getSequenceToken());
+        assertEquals("other", logs.requests.get(1).getSequenceToken());
+        assertEquals(0, appender.getDroppedEventCount());
+    }
+
+    @Test
+    public void testRepeatedlyLostTokenRaceBacksOff() {
+        StubLogs logs = new StubLogs();
+        logs.failures.add(invalidSequenceToken("first"));
+        logs.failures.add(invalidSequenceToken("second"));
+        logs.failures.add(invalidSequenceToken("third"));
+        long start = System.currentTimeMillis();
+        LogEventAppender appender = new LogEventAppender(logs, GROUP, STREAM, config().withRetryDelayMillis(50));
+        appender.append("message");
+        appender.close();
+
+        // Backs off before the third and fourth attempts, 100 and 200 ms
+        assertTrue(System.currentTimeMillis() - start >= 300);
+        assertEquals(4, logs.requests.size());
+        assertEquals("third", logs.requests.get(3).getSequenceToken());
+        assertEquals(0, appender.getDroppedEventCount());
+    }
+
+    @Test
+    public void testDeletedLogStreamIsCreatedAgain() {
+        StubLogs logs = new StubLogs();
+        logs.failures.add(new ResourceNotFoundException("The specified log stream does not exist."));
+        LogEventAppender appender = new LogEventAppender(logs, GROUP, STREAM, config());
+        appender.append("message");
+        appender.close();
+
+        assertEquals(2, logs.createCount.get());
+        assertEquals(2, logs.requests.size());
+        assertEquals(0, appender.getDroppedEventCount());
+    }
+
+    @Test
+    public void testUnsentEventsAreCountedAsDropped() {
+        StubLogs logs = new StubLogs();
+        for (int i = 0; i < 2; i++) {
+            AmazonServiceException e = new AmazonServiceException("Internal failure");
+            e.setStatusCode(500);
+            logs.failures.add(e);
+        }
+        LogEventAppender appender = new LogEventAppender(logs, GROUP, STREAM, config().withMaxRetries(1));
+        for (int i = 0; i < 3; i++) {
+            appender.append("message " + i);
+        }
+        appender.flush();
+        assertEquals(2, logs.requests.size());
+        assertEquals(3, appender.getDroppedEventCount());
+
+        appender.append("sent");
+        appender.close();
+        assertEquals(3, logs.requests.size());
+        assertEquals(3, appender.getDroppedEventCount());
+        appender.append("after close");
+        assertEquals(4, appender.getDroppedEventCount());
+    }
+
+    /**
+     * Sends the events when flushed or closed only, unless batches fill up.
+     */
+    private static LogEventAppenderConfig config() {
+        return new LogEventAppenderConfig().withMaxBufferTimeMillis(60000).withRetryDelayMillis(1);
+    }
+
+    private static InvalidSequenceTokenException invalidSequenceToken(String expectedSequenceToken) {
+        InvalidSequenceTokenException e = new InvalidSequenceTokenException("The given sequenceToken is invalid.");
+        e.setExpectedSequenceToken(expectedSequenceToken);
+        return e;
+    }
+
+    /**
+     * Accepts the events of a single log stream, after failing with the
+     * queued exceptions.
+     */
+    private static class StubLogs extends AWSLogsClient {
+
+        final Queue<AmazonServiceException> failures = new ConcurrentLinkedQueue<AmazonServiceException>();
+
+        final List<PutLogEventsRequest> requests = new CopyOnWriteArrayList<PutLogEventsRequest>();
+
+        final AtomicInteger createCount = new AtomicInteger();
+
+        private volatile String uploadSequenceToken;
+
+        StubLogs() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public void createLogStream(CreateLogStreamRequest request) {
+            assertEquals(STREAM, request.getLogStreamName());
+            createCount.incrementAndGet();
+        }
+
+        @Override
+        public DescribeLogStreamsResult describeLogStreams(DescribeLogStreamsRequest request) {
+            List<LogStream> streams = new ArrayList<LogStream>();
+            streams.add(new LogStream().withLogStreamName(request.getLogStreamNamePrefix())
+                    .withUploadSequenceToken(uploadSequenceToken));
+            return new DescribeLogStreamsResult().withLogStreams(streams);
+        }
+
+        @Override
+        public PutLogEventsResult putLogEvents(PutLogEventsRequest request) {
+            requests.add(request);
+            AmazonServiceException failure = failures.poll();
+            if (failure != null)
+                throw failure;
+            uploadSequenceToken = tokenAfter(request);
+            return new PutLogEventsResult().withNextSequenceToken(uploadSequenceToken);
+        }
+
+        String tokenAfter(PutLogEventsRequest request) {
+            return "token-" + (requests.indexOf(request) + 1);
+        }
+    }
+}
@@ -3123,29 +3123,24 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             final AmazonWebServiceRequest req = request.getOriginalRequest();
 
             if (!(signer instanceof AWSS3V4Signer) && (upgradeToSigV4(req))) {
-                final AWSS3V4Signer v4Signer = new AWSS3V4Signer();
-                // Always set the service name; if the user has overridden it via
-                // setEndpoint(String, String, String), this will return the right
-                // value. Otherwise it will return "s3", which is an appropriate
-                // default.
-                v4Signer.setServiceName(getServiceNameIntern());
                 // If the user has set an authentication region override, pass it
-                // to the signer. Otherwise leave it null - the signer will parse
-                // region from the request endpoint.
+                // to the signer. Otherwise leave it null - the region is parsed
+                // from the request endpoint by S3ExecutionContext.
                 String regionOverride = getSignerRegionOverride();
-                if (regionOverride == null) {
-                    if (!hasExplicitRegion) {
-                        throw new AmazonClientException("Signature Version 4 requires knowing the region of "
-                                + "the bucket you're trying to access. You can "
-                                + "configure a region by calling AmazonS3Client."
-                                + "setRegion(Region) or AmazonS3Client.setEndpoint("
-                                + "String) with a region-specific endpoint such as "
-                                + "\"s3-us-west-2.amazonaws.com\".");
-                    }
-                } else {
-                    v4Signer.setRegionName(regionOverride);
+                if (regionOverride == null && !hasExplicitRegion) {
+                    throw new AmazonClientException("Signature Version 4 requires knowing the region of "
+                            + "the bucket you're trying to access. You can "
+                            + "configure a region by calling AmazonS3Client."
+                            + "setRegion(Region) or AmazonS3Client.setEndpoint("
+                            + "String) with a region-specific endpoint such as "
+                            + "\"s3-us-west-2.amazonaws.com\".");
                 }
-                return v4Signer;
+                // Always set the service name; if the user has overridden it via
+                // setEndpoint(String, String, String), this will return the right
+                // value. Otherwise it will return "s3", which is an appropriate
+                // default. The signers are shared rather than created for every
+                // request.
+                return AWSS3V4Signer.getSharedSigner(getServiceNameIntern(), regionOverride);
             }
         }
 
@@ -18,6 +18,8 @@ import static com.amazonaws.auth.internal.SignerConstants.X_AMZ_CONTENT_SHA256;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.ReadLimitInfo;
@@ -26,6 +28,7 @@ import com.amazonaws.SignableRequest;
 import com.amazonaws.auth.AWS4Signer;
 import com.amazonaws.auth.AwsChunkedEncodingInputStream;
 import com.amazonaws.auth.internal.AWS4SignerRequestParams;
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.UploadPartRequest;
@@ -37,6 +40,10 @@ import com.amazonaws.util.BinaryUtils;
 public class AWSS3V4Signer extends AWS4Signer {
     private static final String CONTENT_SHA_256 = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
 
+    /** Shared signers, by service name and region name */
+    private static final ConcurrentMap<String, AWSS3V4Signer> SHARED_SIGNERS =
+        new ConcurrentHashMap<String, AWSS3V4Signer>();
+
     /**
      * Don't double-url-encode path elements; S3 expects path elements to be
      * encoded only once in the canonical URI.
@@ -45,6 +52,33 @@ public class AWSS3V4Signer extends AWS4Signer {
         super(false);
     }
 
+    /**
+     * Returns a signer configured with the given service and region names,
+     * shared by all the requests that need one. The returned signer must not
+     * be modified.
+     *
+     * @param serviceName
+     *            the service name to sign for
+     * @param regionName
+     *            the region name to sign for; or null to leave it unset
+     */
+    public static AWSS3V4Signer getSharedSigner(String serviceName, String regionName) {
+        final String key = serviceName + " " + regionName;
+        AWSS3V4Signer signer = SHARED_SIGNERS.get(key);
+        if (signer == null) {
+            signer = new AWSS3V4Signer();
+            signer.setServiceName(serviceName);
+            if (regionName != null) {
+                signer.setRegionName(regionName);
+            }
+            AWSS3V4Signer existing = SHARED_SIGNERS.putIfAbsent(key, signer);
+            if (existing != null) {
+                signer = existing;
+            }
+        }
+        return signer;
+    }
+
     /**
      * If necessary, creates a chunk-encoding wrapper on the request payload.
      */
@@ -139,11 +173,15 @@ public class AWSS3V4Signer extends AWS4Signer {
         ReadLimitInfo info = request.getReadLimitInfo();
         final int readLimit = info.getReadLimit();
         long contentLength = 0;
-        byte[] tmp = new byte[4096];
+        byte[] tmp = BufferPool.acquire(4096);
         int read;
         content.mark(readLimit);
-        while ((read = content.read(tmp)) != -1) {
-            contentLength += read;
+        try {
+            while ((read = content.read(tmp)) != -1) {
+                contentLength += read;
+            }
+        } finally {
+            BufferPool.release(tmp);
         }
         try {
             content.reset();
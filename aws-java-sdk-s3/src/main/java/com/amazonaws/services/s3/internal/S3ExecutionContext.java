@@ -16,11 +16,14 @@ package com.amazonaws.services.s3.internal;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.auth.AWS4Signer;
 import com.amazonaws.auth.RegionAwareSigner;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.handlers.RequestHandler2;
@@ -33,6 +36,13 @@ public class S3ExecutionContext extends ExecutionContext {
 
     private static final Log log = LogFactory.getLog(AmazonS3Client.class);
 
+    /**
+     * Copies of AWS4Signer instances, such as a signer override, by service
+     * name, region name and double url-encoding; never modified once cached.
+     */
+    private static final ConcurrentMap<String, Signer> REGION_SIGNERS =
+        new ConcurrentHashMap<String, Signer>();
+
     private Signer signer;
 
     public S3ExecutionContext(List<RequestHandler2> requestHandler2s,
@@ -65,18 +75,64 @@ public class S3ExecutionContext extends ExecutionContext {
         // Otherwise, parse region name from the host component of the URL and
         // assign it to the signer
         if (signer instanceof RegionAwareSigner) {
-            RegionAwareSigner regionSigner = (RegionAwareSigner)signer;
-
+            String regionName;
             try {
-                regionSigner.setRegionName(AwsHostNameUtils.parseRegionName(
-                        uri.getHost(), "s3"));
-
+                regionName = AwsHostNameUtils.parseRegionName(uri.getHost(), "s3");
             } catch (RuntimeException e) {
                 log.warn("Failed to parse the endpoint " + uri +
                         ", and skip re-assigning the signer region", e);
+                return signer;
+            }
+
+            if (signer.getClass() == AWSS3V4Signer.class) {
+                // The SigV4 signers are shared across requests and never
+                // modified: switch to the one of the region instead
+                AWSS3V4Signer v4Signer = (AWSS3V4Signer) signer;
+                if (!regionName.equals(v4Signer.getRegionName())) {
+                    signer = AWSS3V4Signer.getSharedSigner(
+                            v4Signer.getServiceName(), regionName);
+                }
+            } else {
+                // Likewise, the signer may be shared with other requests, so
+                // use a copy of it for the region instead
+                signer = getRegionSigner(signer, regionName);
             }
         }
 
         return signer;
     }
+
+    /**
+     * Returns a signer configured as the given one, but with the given region
+     * name: the given signer itself if it already is, or else a copy, shared
+     * by all the requests to the region. Only AWS4Signer instances without a
+     * date override can be copied; other types may hold configuration that a
+     * new instance wouldn't have, so the given signer is used as is.
+     */
+    private Signer getRegionSigner(Signer signer, String regionName) {
+        if (signer.getClass() != AWS4Signer.class) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to copy a signer of type " + signer.getClass().getName()
+                        + " for region " + regionName + ", and skip re-assigning the signer region");
+            }
+            return signer;
+        }
+        AWS4Signer v4Signer = (AWS4Signer) signer;
+        if (regionName.equals(v4Signer.getRegionName()) || v4Signer.getOverriddenDate() != null) {
+            return signer;
+        }
+
+        final String key = v4Signer.getServiceName() + " " + regionName + " " + v4Signer.isDoubleUrlEncode();
+        Signer regionSigner = REGION_SIGNERS.get(key);
+        if (regionSigner == null) {
+            AWS4Signer copy = new AWS4Signer(v4Signer.isDoubleUrlEncode());
+            copy.setServiceName(v4Signer.getServiceName());
+            copy.setRegionName(regionName);
+            regionSigner = REGION_SIGNERS.putIfAbsent(key, copy);
+            if (regionSigner == null) {
+                regionSigner = copy;
+            }
+        }
+        return regionSigner;
+    }
 }
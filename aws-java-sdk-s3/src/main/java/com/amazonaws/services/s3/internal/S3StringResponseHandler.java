@@ -21,6 +21,7 @@ import java.io.InputStream;
 
 import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.BufferPool;
 
 /**
  * Custom S3 response handler for responses that simply contain text data that
@@ -35,11 +36,15 @@ public class S3StringResponseHandler extends AbstractS3ResponseHandler<String> {
         AmazonWebServiceResponse<String> awsResponse = parseResponseMetadata(response);
 
         int bytesRead;
-        byte[] buffer = new byte[1024];
+        byte[] buffer = BufferPool.acquire(1024);
         StringBuilder builder = new StringBuilder();
         InputStream content = response.getContent();
-        while ((bytesRead = content.read(buffer)) > 0) {
-            builder.append(new String(buffer, 0, bytesRead));
+        try {
+            while ((bytesRead = content.read(buffer)) > 0) {
+                builder.append(new String(buffer, 0, bytesRead));
+            }
+        } finally {
+            BufferPool.release(buffer);
         }
         awsResponse.setResult(builder.toString());
 
@@ -19,11 +19,11 @@ package com.amazonaws.services.s3.internal;
 import static com.amazonaws.util.IOUtils.closeQuietly;
 import static com.amazonaws.util.StringUtils.UTF8;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.SocketException;
@@ -41,6 +41,7 @@ import org.apache.commons.logging.LogFactory;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.Request;
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
@@ -287,13 +288,8 @@ public class ServiceUtils {
                             + expectedFileLength + " but actual length is "
                             + actualLen + " for file " + dstfile);
             }
-            outputStream = new BufferedOutputStream(new FileOutputStream(
-                    dstfile, appendData));
-            byte[] buffer = new byte[1024*10];
-            int bytesRead;
-            while ((bytesRead = s3Object.getObjectContent().read(buffer)) > -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
+            outputStream = new FileOutputStream(dstfile, appendData);
+            copyToFile(s3Object.getObjectContent(), outputStream);
         } catch (IOException e) {
             s3Object.getObjectContent().abort();
             throw new AmazonClientException(
@@ -410,6 +406,31 @@ public class ServiceUtils {
         return s3Object;
     }
 
+    /**
+     * Copies the given object content to the given file output stream. Reads
+     * from the network typically return no more than a few kilobytes, so they
+     * are accumulated in a pooled buffer and written to disk in chunks of up
+     * to {@link BufferPool#MAX_POOLED_SIZE} bytes.
+     */
+    private static void copyToFile(InputStream content, OutputStream file)
+            throws IOException {
+        byte[] buffer = BufferPool.acquire(BufferPool.MAX_POOLED_SIZE);
+        try {
+            int filled = 0;
+            int bytesRead;
+            while ((bytesRead = content.read(buffer, filled, buffer.length - filled)) > -1) {
+                filled += bytesRead;
+                if (filled == buffer.length) {
+                    file.write(buffer, 0, filled);
+                    filled = 0;
+                }
+            }
+            file.write(buffer, 0, filled);
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
     /**
      * Based on the given metadata of an S3 response,
      * Returns whether the specified request should skip MD5 check on the
@@ -14,13 +14,19 @@
  */
 package com.amazonaws.services.simpleemail;
 
-import java.io.ByteArrayOutputStream;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.mail.Address;
 import javax.mail.Message;
@@ -35,8 +41,11 @@ import javax.mail.internet.MimeMessage;
 
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simpleemail.MessageBufferPool.MessageBuffer;
+import com.amazonaws.services.simpleemail.model.GetSendQuotaRequest;
 import com.amazonaws.services.simpleemail.model.RawMessage;
 import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
+import com.amazonaws.util.RateLimiter;
 import com.amazonaws.util.VersionInfoUtils;
 
 /**
@@ -53,23 +62,51 @@ import com.amazonaws.util.VersionInfoUtils;
  * <p>
  * This transport implementation only accepts MIME encoded messages (see
  * MimeMessage class) and RFC822 E-mail addresses (see InternetAddress class).
+ * <p>
+ * Large runs of messages can be sent with {@link #sendMessages(Iterable)},
+ * which keeps several messages in flight (mail.aws.maxConcurrency) while
+ * staying under the maximum send rate of the account (mail.aws.maxSendRate,
+ * by default as returned by getSendQuota()).
  */
 public class AWSJavaMailTransport extends Transport {
 
     public static final String AWS_EMAIL_SERVICE_ENDPOINT_PROPERTY = "mail.aws.host";
     public static final String AWS_SECRET_KEY_PROPERTY = "mail.aws.password";
     public static final String AWS_ACCESS_KEY_PROPERTY = "mail.aws.user";
+    public static final String AWS_MAX_CONCURRENCY_PROPERTY = "mail.aws.maxConcurrency";
+    public static final String AWS_MAX_SEND_RATE_PROPERTY = "mail.aws.maxSendRate";
+
+    /** The default maximum number of messages sent at the same time by sendMessages(). */
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    private static final AtomicInteger transportCount = new AtomicInteger();
 
     private AmazonSimpleEmailServiceClient emailService;
     private final String accessKey;
     private final String secretKey;
     private final String httpsEndpoint;
+    private final int maxConcurrency;
+    private final String maxSendRate;
+    private final MessageBufferPool bufferPool;
+
+    /** Executor of sendMessages(), created on first use. */
+    private ExecutorService sendExecutor;
+
+    /** Pacing of sendMessages(), created on first use after connecting. */
+    private RateLimiter sendRateLimiter;
 
     public AWSJavaMailTransport(Session session, URLName urlname) {
         super(session, urlname);
         this.accessKey = session.getProperty(AWS_ACCESS_KEY_PROPERTY);
         this.secretKey = session.getProperty(AWS_SECRET_KEY_PROPERTY);
         this.httpsEndpoint = session.getProperty(AWS_EMAIL_SERVICE_ENDPOINT_PROPERTY);
+        String concurrency = session.getProperty(AWS_MAX_CONCURRENCY_PROPERTY);
+        this.maxConcurrency = isNullOrEmpty(concurrency) ? DEFAULT_MAX_CONCURRENCY : Integer.parseInt(concurrency);
+        if (this.maxConcurrency < 1) {
+            throw new IllegalArgumentException(AWS_MAX_CONCURRENCY_PROPERTY + " must be positive");
+        }
+        this.maxSendRate = session.getProperty(AWS_MAX_SEND_RATE_PROPERTY);
+        this.bufferPool = new MessageBufferPool(this.maxConcurrency);
     }
 
     /**
@@ -92,9 +129,149 @@ public class AWSJavaMailTransport extends Transport {
         checkAddresses(msg, addresses);
         collateRecipients(msg, addresses);
 
-        SendRawEmailRequest req = prepareEmail(msg);
+        MessageBuffer buffer = bufferPool.acquire();
+        try {
+            SendRawEmailRequest req = prepareEmail(msg, buffer);
+
+            sendEmail(msg, req);
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Sends MIME messages through Amazon's E-mail Service, several at a time,
+     * each to the recipients embedded in it. The messages are taken from the
+     * given iterable only as fast as they can be sent, so they may be produced
+     * lazily.
+     * <p>
+     * Up to mail.aws.maxConcurrency messages are encoded and sent at the same
+     * time, and sends are spaced out to stay under mail.aws.maxSendRate
+     * messages per second, or when that property isn't set, under the maximum
+     * send rate returned by getSendQuota().
+     * <p>
+     * A message that can't be sent doesn't stop the others. The transport
+     * listeners are notified of the outcome of each message as soon as it is
+     * known, and once all the messages have been attempted, a
+     * SendFailedException listing the unsent and invalid addresses of the
+     * failed messages is thrown if any failed.
+     *
+     * @param messages
+     *            Mime type e-mail messages to be sent
+     */
+    public void sendMessages(Iterable<? extends Message> messages)
+            throws MessagingException, SendFailedException {
+
+        checkConnection();
+        ExecutorService executor = getSendExecutor();
+        final RateLimiter rateLimiter = getSendRateLimiter();
+        final BatchOutcome outcome = new BatchOutcome();
 
-        sendEmail(msg, req);
+        // Bounds the messages held in memory while waiting for a worker
+        final int maxQueued = 2 * maxConcurrency;
+        final Semaphore queued = new Semaphore(maxQueued);
+        try {
+            for (final Message m : messages) {
+                queued.acquireUninterruptibly();
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                sendBatchMessage(m, rateLimiter, outcome);
+                            } finally {
+                                queued.release();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    queued.release();
+                    throw new IllegalStateException("Not connected");
+                }
+            }
+        } finally {
+            queued.acquireUninterruptibly(maxQueued);
+        }
+        outcome.throwIfFailed();
+    }
+
+    /**
+     * Sends one message of a batch, recording its failure instead of
+     * throwing it.
+     */
+    private void sendBatchMessage(Message m, RateLimiter rateLimiter, BatchOutcome outcome) {
+        MessageBuffer buffer = bufferPool.acquire();
+        try {
+            checkMessage(m);
+            checkAddresses(m, null);
+            SendRawEmailRequest req = prepareEmail(m, buffer);
+            rateLimiter.acquire();
+            sendEmail(m, req);
+            outcome.sent();
+        } catch (SendFailedException e) {
+            outcome.failed(e, e.getValidUnsentAddresses(), e.getInvalidAddresses());
+        } catch (MessagingException e) {
+            outcome.failed(e, getAllRecipients(m), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Address[] unsent = getAllRecipients(m);
+            super.notifyTransportListeners(TransportEvent.MESSAGE_NOT_DELIVERED, new Address[0], unsent,
+                    new Address[0], m);
+            outcome.failed(new MessagingException("Interrupted while sending email", e), unsent, null);
+        } catch (RuntimeException e) {
+            outcome.failed(e, getAllRecipients(m), null);
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private static Address[] getAllRecipients(Message m) {
+        try {
+            return m == null ? null : m.getAllRecipients();
+        } catch (MessagingException e) {
+            return null;
+        }
+    }
+
+    private synchronized ExecutorService getSendExecutor() {
+        if (sendExecutor == null) {
+            final String name = "aws-java-mail-transport-" + transportCount.incrementAndGet() + "-";
+            sendExecutor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r);
+                            t.setName(name + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return sendExecutor;
+    }
+
+    /**
+     * Returns the pacing of the sends of this connection, asking the service
+     * for the maximum send rate of the account unless it's configured.
+     */
+    private synchronized RateLimiter getSendRateLimiter() throws MessagingException {
+        if (sendRateLimiter == null) {
+            double sendsPerSecond;
+            if (!isNullOrEmpty(maxSendRate)) {
+                sendsPerSecond = Double.parseDouble(maxSendRate);
+            } else {
+                try {
+                    sendsPerSecond = emailService.getSendQuota(
+                            appendUserAgent(new GetSendQuotaRequest(), USER_AGENT)).getMaxSendRate();
+                } catch (Exception e) {
+                    throw new MessagingException("Unable to get the maximum send rate; set "
+                            + AWS_MAX_SEND_RATE_PROPERTY + " to send without it", e);
+                }
+            }
+            sendRateLimiter = new RateLimiter(sendsPerSecond);
+        }
+        return sendRateLimiter;
     }
 
     /**
@@ -153,9 +330,11 @@ public class AWSJavaMailTransport extends Transport {
         if ( !invalid.isEmpty() ) {
             Address[] sent = new Address[0];
             Address[] unsent = new Address[0];
+            Address[] invalidAddresses = invalid.toArray(new Address[invalid.size()]);
             super.notifyTransportListeners(TransportEvent.MESSAGE_NOT_DELIVERED, sent, unsent,
-                    invalid.toArray(new Address[invalid.size()]), m);
-            throw new SendFailedException("AWS Mail Service can only send to InternetAddresses");
+                    invalidAddresses, m);
+            throw new SendFailedException("AWS Mail Service can only send to InternetAddresses", null,
+                    sent, unsent, invalidAddresses);
         }
     }
 
@@ -215,23 +394,23 @@ public class AWSJavaMailTransport extends Transport {
     /**
      * Prepares the email to be sent using the JavaMail service. Wraps up the
      * message into a RawEmailRequest object to be processed by AWS's
-     * sendRawEmail().
+     * sendRawEmail(). The request reads the message straight from the given
+     * buffer, so it's only valid until the buffer is released.
      *
      * @param m
      *            A JavaMail message to be converted to a request
+     * @param buffer
+     *            The buffer the message is written into
      * @return A Raw Email Request for AWS E-mail Service
      */
-    private SendRawEmailRequest prepareEmail(Message m)
+    private SendRawEmailRequest prepareEmail(Message m, MessageBuffer buffer)
             throws MessagingException {
 
         try {
-            OutputStream byteOutput = new ByteArrayOutputStream();
-            m.writeTo(byteOutput);
+            m.writeTo(buffer);
             SendRawEmailRequest req = new SendRawEmailRequest();
-            byte[] messageByteArray = ((ByteArrayOutputStream) byteOutput)
-                    .toByteArray();
             RawMessage message = new RawMessage();
-            message.setData(ByteBuffer.wrap(messageByteArray));
+            message.setData(buffer.toByteBuffer());
             req.setRawMessage(message);
             return req;
         } catch (Exception e) {
@@ -337,6 +516,13 @@ public class AWSJavaMailTransport extends Transport {
     @Override
     public void close() throws MessagingException {
         super.close();
+        synchronized (this) {
+            if (sendExecutor != null) {
+                sendExecutor.shutdown();
+                sendExecutor = null;
+            }
+            sendRateLimiter = null;
+        }
         this.emailService = null;
     }
 
@@ -355,4 +541,43 @@ public class AWSJavaMailTransport extends Transport {
 
     private static final String USER_AGENT = AWSJavaMailTransport.class.getName() + "/" + VersionInfoUtils.getVersion();
 
+    /**
+     * The outcome of a batch of messages sent by sendMessages().
+     */
+    private static class BatchOutcome {
+        private final Set<Address> unsent = new LinkedHashSet<Address>();
+        private final Set<Address> invalid = new LinkedHashSet<Address>();
+        private int sentCount;
+        private int failedCount;
+        private Exception firstFailure;
+
+        synchronized void sent() {
+            sentCount++;
+        }
+
+        synchronized void failed(Exception e, Address[] unsentAddresses, Address[] invalidAddresses) {
+            failedCount++;
+            if (firstFailure == null)
+                firstFailure = e;
+            addAll(unsent, unsentAddresses);
+            addAll(invalid, invalidAddresses);
+        }
+
+        synchronized void throwIfFailed() throws SendFailedException {
+            if (failedCount == 0)
+                return;
+            throw new SendFailedException("Unable to send " + failedCount + " of " + (sentCount + failedCount)
+                    + " emails", firstFailure, new Address[0],
+                    unsent.toArray(new Address[unsent.size()]),
+                    invalid.toArray(new Address[invalid.size()]));
+        }
+
+        private static void addAll(Set<Address> set, Address[] addresses) {
+            if (addresses != null) {
+                for (Address a : addresses) {
+                    set.add(a);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleemail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of the buffers raw MIME messages are written into before
+ * being sent. Reusing the buffers saves growing a new buffer for every
+ * message, and sending straight from the buffer saves copying each message
+ * into a new array.
+ */
+class MessageBufferPool {
+
+    /** The initial size of a buffer, in bytes. */
+    static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The maximum size of a buffer kept in the pool, in bytes. Buffers grown
+     * larger by an unusually large message are left to the garbage collector,
+     * so that a few large messages don't pin memory for the whole batch.
+     */
+    static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private final BlockingQueue<MessageBuffer> buffers;
+
+    /**
+     * @param capacity
+     *            the maximum number of idle buffers kept in the pool
+     */
+    MessageBufferPool(int capacity) {
+        this.buffers = new ArrayBlockingQueue<MessageBuffer>(capacity);
+    }
+
+    /**
+     * Returns an empty buffer, from the pool if one is available.
+     */
+    MessageBuffer acquire() {
+        MessageBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : new MessageBuffer();
+    }
+
+    /**
+     * Returns the given buffer to the pool. The buffer, and any byte buffer
+     * obtained from it, must not be used afterwards.
+     */
+    void release(MessageBuffer buffer) {
+        if (buffer.capacity() > MAX_POOLED_BUFFER_SIZE)
+            return;
+        buffer.reset();
+        buffers.offer(buffer);
+    }
+
+    /**
+     * A byte array output stream whose content can be read without being
+     * copied.
+     */
+    static class MessageBuffer extends ByteArrayOutputStream {
+        MessageBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        /**
+         * Returns a byte buffer backed by the content of this stream, which
+         * is only valid until the stream is written to or reset.
+         */
+        synchronized ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        synchronized int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.publisher;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.util.RateLimiter;
+
+/**
+ * Publishes large numbers of messages to SNS topics or endpoints, many at a
+ * time.
+ * <p>
+ * Messages are sent by a fixed pool of worker threads sharing the given SNS
+ * client (and so its connection pool), at most
+ * {@link BulkPublisherConfig#getMaxConcurrency()} at a time and, optionally,
+ * at most {@link BulkPublisherConfig#getMaxPublishesPerSecond()} per second.
+ * Throttled and other retryable publishes are retried with exponential
+ * backoff and random jitter; the retries wait on a timer, not on the workers.
+ * The outcome of each message is reported to the {@link PublishListener} as
+ * soon as it is known.
+ * <p>
+ * As the publisher retries on its own, the SNS client should not retry: each
+ * attempt of the publisher would otherwise make up to one more call per
+ * retry of the client, and the client's retries don't wait for the rate
+ * limit. {@link #newClientConfiguration(BulkPublisherConfig)} returns a
+ * suitable configuration of the client. Alternatively, setting
+ * {@link BulkPublisherConfig#setMaxRetries(int)} to 0 leaves the retries to
+ * the client, at the expense of the rate limit.
+ * <p>
+ * Publishing blocks while the messages waiting for a worker or a retry reach
+ * {@link BulkPublisherConfig#getMaxQueuedPublishes()}, so a fan-out over any
+ * number of messages, for example read from an {@link Iterator}, runs in
+ * bounded memory.
+ * <p>
+ * This class is thread safe. {@link #close()} must be called to wait for the
+ * messages to be sent and release the threads of the publisher.
+ */
+public class BulkPublisher {
+    private static final Log log = LogFactory.getLog(BulkPublisher.class);
+
+    /** Marker of the ARNs of platform application endpoints. */
+    private static final String ENDPOINT_ARN_MARKER = ":endpoint/";
+
+    private static final AtomicInteger publisherCount = new AtomicInteger();
+
+    private final AmazonSNS sns;
+    private final BulkPublisherConfig config;
+    private final PublishListener listener;
+    private final RateLimiter rateLimiter;
+    private final Random random = new Random();
+
+    /** Permits for the messages published but not yet sent or failed. */
+    private final Semaphore permits;
+    private final AtomicInteger outstandingPublishes = new AtomicInteger();
+    private final Object outstandingLock = new Object();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a publisher with the default configuration.
+     *
+     * @param sns
+     *            the client used to publish the messages
+     * @param listener
+     *            the listener notified of the outcome of each message
+     */
+    public BulkPublisher(AmazonSNS sns, PublishListener listener) {
+        this(sns, new BulkPublisherConfig(), listener);
+    }
+
+    /**
+     * @param sns
+     *            the client used to publish the messages; its maximum number
+     *            of connections should be at least the maximum concurrency,
+     *            and it should not retry, see
+     *            {@link #newClientConfiguration(BulkPublisherConfig)}
+     * @param config
+     *            the configuration of the publisher, which is copied
+     * @param listener
+     *            the listener notified of the outcome of each message
+     */
+    public BulkPublisher(AmazonSNS sns, BulkPublisherConfig config, PublishListener listener) {
+        if (sns == null)
+            throw new IllegalArgumentException("sns must not be null");
+        if (listener == null)
+            throw new IllegalArgumentException("listener must not be null");
+        this.sns = sns;
+        this.config = new BulkPublisherConfig(config);
+        this.listener = listener;
+        this.rateLimiter = new RateLimiter(this.config.getMaxPublishesPerSecond());
+        this.permits = new Semaphore(this.config.getMaxConcurrency() + this.config.getMaxQueuedPublishes());
+
+        int id = publisherCount.incrementAndGet();
+        this.workers = new ThreadPoolExecutor(this.config.getMaxConcurrency(), this.config.getMaxConcurrency(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                threadFactory("sns-publisher-" + id + "-worker"));
+        this.timer = new ScheduledThreadPoolExecutor(1, threadFactory("sns-publisher-" + id + "-timer"));
+    }
+
+    /**
+     * Returns a configuration of the SNS client of a publisher with the given
+     * configuration: the client doesn't retry, leaving the retries to the
+     * publisher, and has enough connections for all the workers.
+     */
+    public static ClientConfiguration newClientConfiguration(BulkPublisherConfig config) {
+        ClientConfiguration result = new ClientConfiguration();
+        result.setRetryPolicy(PredefinedRetryPolicies.NO_RETRY_POLICY);
+        result.setMaxConnections(Math.max(result.getMaxConnections(), config.getMaxConcurrency()));
+        return result;
+    }
+
+    /**
+     * Publishes the given message to the given topic or platform endpoint.
+     *
+     * @param targetArn
+     *            the ARN of a topic, or of a platform application endpoint
+     * @param message
+     *            the message to publish
+     * @see #publish(PublishRequest)
+     */
+    public void publish(String targetArn, String message) {
+        PublishRequest request = new PublishRequest().withMessage(message);
+        if (targetArn != null && targetArn.indexOf(ENDPOINT_ARN_MARKER) >= 0) {
+            request.setTargetArn(targetArn);
+        } else {
+            request.setTopicArn(targetArn);
+        }
+        publish(request);
+    }
+
+    /**
+     * Queues the given message to be published, blocking while too many
+     * messages are waiting to be sent. The outcome is reported to the
+     * listener. The request must not be modified afterwards.
+     */
+    public void publish(PublishRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("request must not be null");
+        if (closed)
+            throw new IllegalStateException("The publisher has been closed");
+
+        permits.acquireUninterruptibly();
+        outstandingPublishes.incrementAndGet();
+        try {
+            workers.execute(new PublishTask(request));
+        } catch (RejectedExecutionException e) {
+            complete(request, null, new IllegalStateException("The publisher has been closed"));
+        }
+    }
+
+    /**
+     * Publishes all the messages of the given iterator, which is consumed
+     * only as fast as the messages can be sent.
+     */
+    public void publishAll(Iterator<PublishRequest> requests) {
+        while (requests.hasNext()) {
+            publish(requests.next());
+        }
+    }
+
+    /**
+     * Waits until all the messages published so far (or while waiting) have
+     * been sent or have failed.
+     */
+    public void flush() {
+        synchronized (outstandingLock) {
+            try {
+                while (outstandingPublishes.get() > 0)
+                    outstandingLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of messages published but not yet sent or failed.
+     */
+    public int getOutstandingPublishesCount() {
+        return outstandingPublishes.get();
+    }
+
+    /**
+     * Returns the number of messages sent so far.
+     */
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    /**
+     * Returns the number of messages that have failed so far.
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Waits until all the messages have been sent or have failed, and then
+     * releases the threads of this publisher. No message can be published
+     * once this method has been called. The SNS client is not shut down.
+     */
+    public void close() {
+        closed = true;
+        flush();
+        timer.shutdownNow();
+        workers.shutdown();
+    }
+
+    private class PublishTask implements Runnable {
+        private final PublishRequest request;
+        private int attempt;
+
+        PublishTask(PublishRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            PublishResult result;
+            try {
+                rateLimiter.acquire();
+                result = sns.publish(request);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete(request, null, new AmazonClientException("Interrupted while publishing", e));
+                return;
+            } catch (AmazonClientException e) {
+                if (attempt < config.getMaxRetries() && isRetryable(e)) {
+                    retry(e);
+                } else {
+                    complete(request, null, e);
+                }
+                return;
+            } catch (RuntimeException e) {
+                complete(request, null, e);
+                return;
+            }
+            complete(request, result, null);
+        }
+
+        private void retry(AmazonClientException e) {
+            attempt++;
+            long delay = backoffMillis(attempt);
+            if (log.isDebugEnabled())
+                log.debug("Retrying publish in " + delay + " ms (attempt " + attempt + "): " + e.getMessage());
+            try {
+                timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            workers.execute(PublishTask.this);
+                        } catch (RejectedExecutionException ree) {
+                            complete(request, null, new IllegalStateException("The publisher has been closed"));
+                        }
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                complete(request, null, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the delay before the given retry attempt: exponential backoff
+     * with "equal jitter".
+     */
+    private long backoffMillis(int attempt) {
+        long delay = config.getRetryBaseDelayMillis() << Math.min(attempt - 1, 20);
+        delay = Math.max(0, Math.min(config.getRetryMaxDelayMillis(), delay));
+        synchronized (random) {
+            return delay / 2 + (long) (random.nextDouble() * (delay / 2 + 1));
+        }
+    }
+
+    private static boolean isRetryable(AmazonClientException e) {
+        if (e instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException) e;
+            return ase.getErrorType() != ErrorType.Client || RetryUtils.isThrottlingException(ase);
+        }
+        return e.isRetryable();
+    }
+
+    private void complete(PublishRequest request, PublishResult result, Exception e) {
+        try {
+            if (e == null) {
+                successCount.incrementAndGet();
+                listener.onSuccess(request, result);
+            } else {
+                failureCount.incrementAndGet();
+                if (log.isDebugEnabled())
+                    log.debug("Unable to publish to " + targetOf(request), e);
+                listener.onFailure(request, e);
+            }
+        } catch (RuntimeException re) {
+            log.warn("Publish listener threw an exception", re);
+        } finally {
+            if (outstandingPublishes.decrementAndGet() == 0) {
+                synchronized (outstandingLock) {
+                    outstandingLock.notifyAll();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    private static String targetOf(PublishRequest request) {
+        return request.getTargetArn() != null ? request.getTargetArn() : request.getTopicArn();
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName(name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
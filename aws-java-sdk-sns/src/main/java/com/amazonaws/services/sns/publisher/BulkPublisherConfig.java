@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.publisher;
+
+/**
+ * Configuration of a {@link BulkPublisher}.
+ */
+public class BulkPublisherConfig {
+
+    /** 50 publishes */
+    public static final int MAX_CONCURRENCY_DEFAULT = 50;
+
+    /** unlimited */
+    public static final int MAX_PUBLISHES_PER_SECOND_DEFAULT = 0;
+
+    /** 1000 publishes */
+    public static final int MAX_QUEUED_PUBLISHES_DEFAULT = 1000;
+
+    /** 5 retries */
+    public static final int MAX_RETRIES_DEFAULT = 5;
+
+    /** 100 milliseconds */
+    public static final long RETRY_BASE_DELAY_MILLIS_DEFAULT = 100;
+
+    /** 10 seconds */
+    public static final long RETRY_MAX_DELAY_MILLIS_DEFAULT = 10000;
+
+    /**
+     * The maximum number of concurrent Publish calls, which is also the number
+     * of worker threads. The client's maximum number of connections should be
+     * at least this large, or the workers will wait for connections.
+     */
+    private int maxConcurrency = MAX_CONCURRENCY_DEFAULT;
+
+    /**
+     * The maximum number of Publish calls started per second, across all
+     * workers and retries; or 0 for no limit.
+     */
+    private int maxPublishesPerSecond = MAX_PUBLISHES_PER_SECOND_DEFAULT;
+
+    /**
+     * The maximum number of messages waiting for a worker or for a retry.
+     * Publishing blocks while this limit is reached, which bounds the memory
+     * used by the publisher when the caller produces messages faster than they
+     * can be sent.
+     */
+    private int maxQueuedPublishes = MAX_QUEUED_PUBLISHES_DEFAULT;
+
+    /**
+     * The maximum number of times a throttled or otherwise retryable publish
+     * is retried before it is reported as failed.
+     */
+    private int maxRetries = MAX_RETRIES_DEFAULT;
+
+    /** The initial delay (milliseconds) before retrying a failed publish. */
+    private long retryBaseDelayMillis = RETRY_BASE_DELAY_MILLIS_DEFAULT;
+
+    /** The maximum delay (milliseconds) before retrying a failed publish. */
+    private long retryMaxDelayMillis = RETRY_MAX_DELAY_MILLIS_DEFAULT;
+
+    public BulkPublisherConfig() {
+    }
+
+    /** copy constructor */
+    public BulkPublisherConfig(BulkPublisherConfig other) {
+        maxConcurrency = other.maxConcurrency;
+        maxPublishesPerSecond = other.maxPublishesPerSecond;
+        maxQueuedPublishes = other.maxQueuedPublishes;
+        maxRetries = other.maxRetries;
+        retryBaseDelayMillis = other.retryBaseDelayMillis;
+        retryMaxDelayMillis = other.retryMaxDelayMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkPublisherConfig [maxConcurrency=" + maxConcurrency + ", maxPublishesPerSecond="
+                + maxPublishesPerSecond + ", maxQueuedPublishes=" + maxQueuedPublishes + ", maxRetries=" + maxRetries
+                + ", retryBaseDelayMillis=" + retryBaseDelayMillis + ", retryMaxDelayMillis=" + retryMaxDelayMillis
+                + "]";
+    }
+
+    /**
+     * The maximum number of concurrent Publish calls, which is also the number
+     * of worker threads. The client's maximum number of connections should be
+     * at least this large, or the workers will wait for connections.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * The maximum number of concurrent Publish calls, which is also the number
+     * of worker threads. The client's maximum number of connections should be
+     * at least this large, or the workers will wait for connections.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public BulkPublisherConfig withMaxConcurrency(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+        return this;
+    }
+
+    /**
+     * The maximum number of Publish calls started per second, across all
+     * workers and retries; or 0 for no limit.
+     */
+    public int getMaxPublishesPerSecond() {
+        return maxPublishesPerSecond;
+    }
+
+    /**
+     * The maximum number of Publish calls started per second, across all
+     * workers and retries; or 0 for no limit.
+     */
+    public void setMaxPublishesPerSecond(int maxPublishesPerSecond) {
+        if (maxPublishesPerSecond < 0) {
+            throw new IllegalArgumentException("maxPublishesPerSecond must not be negative");
+        }
+        this.maxPublishesPerSecond = maxPublishesPerSecond;
+    }
+
+    public BulkPublisherConfig withMaxPublishesPerSecond(int maxPublishesPerSecond) {
+        setMaxPublishesPerSecond(maxPublishesPerSecond);
+        return this;
+    }
+
+    /**
+     * The maximum number of messages waiting for a worker or for a retry.
+     * Publishing blocks while this limit is reached, which bounds the memory
+     * used by the publisher when the caller produces messages faster than they
+     * can be sent.
+     */
+    public int getMaxQueuedPublishes() {
+        return maxQueuedPublishes;
+    }
+
+    /**
+     * The maximum number of messages waiting for a worker or for a retry.
+     * Publishing blocks while this limit is reached, which bounds the memory
+     * used by the publisher when the caller produces messages faster than they
+     * can be sent.
+     */
+    public void setMaxQueuedPublishes(int maxQueuedPublishes) {
+        if (maxQueuedPublishes < 0) {
+            throw new IllegalArgumentException("maxQueuedPublishes must not be negative");
+        }
+        this.maxQueuedPublishes = maxQueuedPublishes;
+    }
+
+    public BulkPublisherConfig withMaxQueuedPublishes(int maxQueuedPublishes) {
+        setMaxQueuedPublishes(maxQueuedPublishes);
+        return this;
+    }
+
+    /**
+     * The maximum number of times a throttled or otherwise retryable publish
+     * is retried before it is reported as failed.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * The maximum number of times a throttled or otherwise retryable publish
+     * is retried before it is reported as failed.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    public BulkPublisherConfig withMaxRetries(int maxRetries) {
+        setMaxRetries(maxRetries);
+        return this;
+    }
+
+    /**
+     * The initial delay (milliseconds) before retrying a failed publish. The
+     * delay doubles with each further attempt, with some random jitter, up to
+     * {@link #getRetryMaxDelayMillis()}.
+     */
+    public long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    /**
+     * The initial delay (milliseconds) before retrying a failed publish. The
+     * delay doubles with each further attempt, with some random jitter, up to
+     * {@link #getRetryMaxDelayMillis()}.
+     */
+    public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        if (retryBaseDelayMillis < 0) {
+            throw new IllegalArgumentException("retryBaseDelayMillis must not be negative");
+        }
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
+    public BulkPublisherConfig withRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        setRetryBaseDelayMillis(retryBaseDelayMillis);
+        return this;
+    }
+
+    /** The maximum delay (milliseconds) before retrying a failed publish. */
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    /** The maximum delay (milliseconds) before retrying a failed publish. */
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        if (retryMaxDelayMillis < 0) {
+            throw new IllegalArgumentException("retryMaxDelayMillis must not be negative");
+        }
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    public BulkPublisherConfig withRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        setRetryMaxDelayMillis(retryMaxDelayMillis);
+        return this;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.publisher;
+
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+
+/**
+ * Receives the outcome of each message sent by a {@link BulkPublisher}, as
+ * soon as it is known. Methods are called on the publisher's worker threads,
+ * so implementations must be thread safe and should return quickly.
+ */
+public interface PublishListener {
+
+    /**
+     * Called when the given message has been published.
+     */
+    void onSuccess(PublishRequest request, PublishResult result);
+
+    /**
+     * Called when the given message could not be published, after any
+     * retries.
+     */
+    void onFailure(PublishRequest request, Exception exception);
+}
@@ -33,6 +33,9 @@ import com.fasterxml.jackson.core.JsonToken;
 
 /**
  * Utility for validating signatures on a Simple Notification Service JSON message.
+ * <p>
+ * To have the signing certificates fetched and cached for you, use
+ * {@link SnsMessageVerifier} instead.
  */
 public class SignatureChecker {
 
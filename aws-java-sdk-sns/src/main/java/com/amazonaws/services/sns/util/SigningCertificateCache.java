@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Cache of the public keys of the certificates that SNS messages are signed
+ * with, by certificate URL. Only certificates served from an allowed host
+ * are fetched. Concurrent requests for a certificate that isn't cached share
+ * a single fetch, and failed fetches aren't cached. Entries expire after a
+ * time to live, or when their certificate does, whichever comes first.
+ */
+class SigningCertificateCache {
+    private static final Log log = LogFactory.getLog(SigningCertificateCache.class);
+
+    /** Timeout for connecting to and reading from the certificate host. */
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private final Pattern allowedHosts;
+    private final boolean requireHttps;
+    private final long timeToLiveMillis;
+    private final int maxEntries;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    SigningCertificateCache(Pattern allowedHosts, boolean requireHttps,
+            long timeToLiveMillis, int maxEntries) {
+        this.allowedHosts = allowedHosts;
+        this.requireHttps = requireHttps;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns true if certificates may be fetched from the given URL.
+     */
+    boolean isAllowed(String certUrl) {
+        try {
+            URL url = new URL(certUrl);
+            String protocol = url.getProtocol();
+            if (!"https".equals(protocol) && (requireHttps || !"http".equals(protocol)))
+                return false;
+            return allowedHosts.matcher(url.getHost()).matches();
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the public key of the certificate at the given URL, fetching
+     * it if it isn't cached.
+     *
+     * @throws AmazonClientException
+     *             If the URL isn't allowed, or the certificate can't be
+     *             fetched or is invalid.
+     */
+    PublicKey getPublicKey(final String certUrl) {
+        if (!isAllowed(certUrl))
+            throw new AmazonClientException("Signing certificate URL not allowed: " + certUrl);
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry entry = entries.get(certUrl);
+            if (entry == null || entry.isExpired(now)) {
+                Entry fresh = new Entry(new FutureTask<X509Certificate>(new Callable<X509Certificate>() {
+                    @Override
+                    public X509Certificate call() throws Exception {
+                        return fetch(certUrl);
+                    }
+                }));
+                boolean won = entry == null
+                        ? entries.putIfAbsent(certUrl, fresh) == null
+                        : entries.replace(certUrl, entry, fresh);
+                if (!won)
+                    continue; // another thread started a fetch; wait for it
+                evictIfFull(now);
+                fresh.task.run();
+                entry = fresh;
+            }
+            try {
+                X509Certificate certificate = entry.task.get();
+                entry.setExpiry(Math.min(entry.created + timeToLiveMillis,
+                        certificate.getNotAfter().getTime()));
+                return certificate.getPublicKey();
+            } catch (ExecutionException e) {
+                entries.remove(certUrl, entry);
+                Throwable cause = e.getCause();
+                if (cause instanceof AmazonClientException)
+                    throw (AmazonClientException) cause;
+                throw new AmazonClientException("Unable to fetch signing certificate " + certUrl, cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while fetching signing certificate " + certUrl, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Makes room for a new entry: drops the expired ones, then arbitrary
+     * ones if there are still too many. Signing certificates are few, so
+     * this only happens when fed many bogus URLs.
+     */
+    private void evictIfFull(long now) {
+        if (entries.size() <= maxEntries)
+            return;
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getValue().isExpired(now))
+                it.remove();
+        }
+        for (Iterator<String> it = entries.keySet().iterator(); entries.size() > maxEntries && it.hasNext();) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private X509Certificate fetch(String certUrl) throws IOException, CertificateException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(certUrl).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        // A redirect could lead to a host that isn't allowed
+        connection.setInstanceFollowRedirects(false);
+        InputStream in = null;
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+                throw new AmazonClientException("Unable to fetch signing certificate " + certUrl
+                        + ": HTTP " + connection.getResponseCode());
+            in = connection.getInputStream();
+            X509Certificate certificate = (X509Certificate)
+                    CertificateFactory.getInstance("X.509").generateCertificate(in);
+            certificate.checkValidity();
+            if (log.isDebugEnabled())
+                log.debug("Fetched signing certificate " + certUrl);
+            return certificate;
+        } finally {
+            IOUtils.closeQuietly(in, log);
+            connection.disconnect();
+        }
+    }
+
+    private static final class Entry {
+        final FutureTask<X509Certificate> task;
+        final long created = System.currentTimeMillis();
+
+        /** Set once fetched; until then, the entry doesn't expire. */
+        private volatile long expiry = Long.MAX_VALUE;
+
+        Entry(FutureTask<X509Certificate> task) {
+            this.task = task;
+        }
+
+        void setExpiry(long expiry) {
+            this.expiry = expiry;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiry;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.util;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Verifies the signatures of Simple Notification Service messages received
+ * by HTTP/S endpoints, fetching the signing certificates itself.
+ * <p>
+ * Unlike {@link SignatureChecker}, which must be given the public key, the
+ * verifier resolves the <code>SigningCertURL</code> of each message through
+ * a cache, and only fetches certificates over HTTPS from SNS hosts
+ * (<code>sns.&lt;region&gt;.amazonaws.com</code>) by default, so a forged
+ * message can't point it at a certificate of the forger's choosing. Each
+ * thread keeps its own {@link Signature}. Batches of messages can be
+ * verified in parallel with {@link #verifyAll(List)}.
+ * <p>
+ * Instances are thread safe, and meant to be shared.
+ *
+ * <pre>
+ * SnsMessageVerifier verifier = new SnsMessageVerifier();
+ * if (!verifier.verify(requestBody)) {
+ *     // reject the message
+ * }
+ * </pre>
+ */
+public class SnsMessageVerifier {
+    private static final Log log = LogFactory.getLog(SnsMessageVerifier.class);
+
+    /** The hosts SNS serves signing certificates from. */
+    public static final Pattern DEFAULT_ALLOWED_HOSTS =
+            Pattern.compile("sns\\.[a-z0-9-]+\\.amazonaws\\.com(\\.cn)?");
+
+    /** Default time for which a signing certificate is cached. */
+    public static final long DEFAULT_CERTIFICATE_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Default maximum number of cached signing certificates. */
+    public static final int DEFAULT_MAX_CERTIFICATES = 100;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String NOTIFICATION_TYPE = "Notification";
+    private static final String SUBSCRIBE_TYPE = "SubscriptionConfirmation";
+    private static final String UNSUBSCRIBE_TYPE = "UnsubscribeConfirmation";
+
+    /** The signed fields of notifications, in the order they are signed. */
+    private static final String[] NOTIFICATION_FIELDS = {
+            "Message", "MessageId", "Subject", "Timestamp", "TopicArn", "Type" };
+
+    /** The signed fields of (un)subscribe confirmations, in order. */
+    private static final String[] SUBSCRIBE_FIELDS = {
+            "Message", "MessageId", "SubscribeURL", "Timestamp", "Token", "TopicArn", "Type" };
+
+    private final SigningCertificateCache certificates;
+
+    /**
+     * A verifying signature per thread, with the key it was last
+     * initialized with.
+     */
+    private final ThreadLocal<KeyedSignature> signatures = new ThreadLocal<KeyedSignature>();
+
+    /** Threads verifying batches, created on first use. */
+    private volatile ExecutorService executor;
+
+    /**
+     * Creates a verifier fetching certificates over HTTPS from SNS hosts,
+     * with the default cache settings.
+     */
+    public SnsMessageVerifier() {
+        this(DEFAULT_ALLOWED_HOSTS, true, DEFAULT_CERTIFICATE_TTL_MILLIS, DEFAULT_MAX_CERTIFICATES);
+    }
+
+    /**
+     * Creates a verifier with the given certificate settings.
+     *
+     * @param allowedHosts
+     *            The hosts signing certificates may be fetched from.
+     * @param requireHttps
+     *            False to also fetch certificates over plain HTTP, for
+     *            example from a local test server.
+     * @param certificateTtlMillis
+     *            The maximum time a certificate is cached for.
+     * @param maxCertificates
+     *            The maximum number of cached certificates.
+     */
+    public SnsMessageVerifier(Pattern allowedHosts, boolean requireHttps,
+            long certificateTtlMillis, int maxCertificates) {
+        this.certificates = new SigningCertificateCache(allowedHosts, requireHttps,
+                certificateTtlMillis, maxCertificates);
+    }
+
+    /**
+     * Verifies the signature of the given JSON-encoded message.
+     *
+     * @param message
+     *            A JSON-encoded Simple Notification Service message, as
+     *            posted to the endpoint.
+     *
+     * @return True if the message is signed by SNS, false if it isn't, is
+     *         malformed, or its certificate URL isn't allowed.
+     *
+     * @throws AmazonClientException
+     *             If the signing certificate can't be fetched.
+     */
+    public boolean verify(String message) {
+        Map<String, String> parsed = parseJSON(message);
+        return parsed != null && verify(parsed);
+    }
+
+    /**
+     * Verifies the signature of the given parsed message.
+     *
+     * @param parsedMessage
+     *            The fields of a Simple Notification Service message.
+     *
+     * @return True if the message is signed by SNS, false if it isn't, is
+     *         malformed, or its certificate URL isn't allowed.
+     *
+     * @throws AmazonClientException
+     *             If the signing certificate can't be fetched.
+     */
+    public boolean verify(Map<String, String> parsedMessage) {
+        if (!"1".equals(parsedMessage.get("SignatureVersion")))
+            return false;
+        String signature = parsedMessage.get("Signature");
+        String certUrl = parsedMessage.get("SigningCertURL");
+        String type = parsedMessage.get("Type");
+        if (signature == null || certUrl == null || type == null)
+            return false;
+
+        String[] fields;
+        if (NOTIFICATION_TYPE.equals(type)) {
+            fields = NOTIFICATION_FIELDS;
+        } else if (SUBSCRIBE_TYPE.equals(type) || UNSUBSCRIBE_TYPE.equals(type)) {
+            fields = SUBSCRIBE_FIELDS;
+        } else {
+            return false;
+        }
+
+        if (!certificates.isAllowed(certUrl)) {
+            log.warn("Rejecting message signed with a certificate from " + certUrl);
+            return false;
+        }
+        PublicKey publicKey = certificates.getPublicKey(certUrl);
+
+        // Each key and value is followed by a newline
+        StringBuilder stringToSign = new StringBuilder(512);
+        for (String field : fields) {
+            String value = parsedMessage.get(field);
+            if (value != null)
+                stringToSign.append(field).append('\n').append(value).append('\n');
+        }
+        return verifySignature(stringToSign.toString(), signature, publicKey);
+    }
+
+    /**
+     * Verifies the signatures of the given JSON-encoded messages in
+     * parallel, on one thread per processor.
+     *
+     * @param messages
+     *            JSON-encoded Simple Notification Service messages.
+     *
+     * @return Whether each message is signed by SNS, in the order of the
+     *         messages. Messages whose certificate couldn't be fetched are
+     *         reported as not verified.
+     */
+    public boolean[] verifyAll(List<String> messages) {
+        boolean[] results = new boolean[messages.size()];
+        if (messages.size() < 2) {
+            for (int i = 0; i < results.length; i++)
+                results[i] = verifyQuietly(messages.get(i));
+            return results;
+        }
+        ExecutorService executor = getExecutor();
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(messages.size());
+        for (final String message : messages) {
+            futures.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifyQuietly(message);
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < results.length; i++)
+                results[i] = futures.get(i).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Future<Boolean> future : futures)
+                future.cancel(false);
+            throw new AmazonClientException("Interrupted while verifying messages", e);
+        } catch (ExecutionException e) {
+            throw new AmazonClientException("Unable to verify messages", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Stops the threads verifying batches, if any.
+     */
+    public void shutdown() {
+        ExecutorService e = executor;
+        if (e != null)
+            e.shutdown();
+    }
+
+    private boolean verifyQuietly(String message) {
+        try {
+            return verify(message);
+        } catch (AmazonClientException e) {
+            log.warn("Unable to verify message", e);
+            return false;
+        }
+    }
+
+    private boolean verifySignature(String stringToSign, String signature, PublicKey publicKey) {
+        try {
+            KeyedSignature keyed = signatures.get();
+            if (keyed == null) {
+                keyed = new KeyedSignature(Signature.getInstance("SHA1withRSA"));
+                signatures.set(keyed);
+            }
+            if (keyed.publicKey != publicKey) {
+                keyed.signature.initVerify(publicKey);
+                keyed.publicKey = publicKey;
+            }
+            keyed.signature.update(stringToSign.getBytes(StringUtils.UTF8));
+            return keyed.signature.verify(Base64.decode(signature));
+        } catch (GeneralSecurityException e) {
+            // The signature may be left in an unknown state
+            signatures.remove();
+            return false;
+        } catch (IllegalArgumentException e) {
+            // Not base64
+            signatures.remove();
+            return false;
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        ExecutorService e = executor;
+        if (e == null) {
+            synchronized (this) {
+                e = executor;
+                if (e == null) {
+                    executor = e = Executors.newFixedThreadPool(
+                            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                                private final AtomicInteger threadCount = new AtomicInteger();
+
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread thread = new Thread(r, "sns-message-verifier-" + threadCount.incrementAndGet());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+                }
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Parses a one level deep JSON object, joining array values with commas
+     * like {@link SignatureChecker}; or returns null if it is malformed.
+     */
+    private static Map<String, String> parseJSON(String message) {
+        Map<String, String> parsed = new HashMap<String, String>();
+        try {
+            JsonParser parser = JSON_FACTORY.createJsonParser(message);
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT)
+                    return null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY) {
+                        StringBuilder value = new StringBuilder();
+                        boolean first = true;
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            if (!first)
+                                value.append(',');
+                            first = false;
+                            value.append(parser.getText());
+                        }
+                        parsed.put(fieldName, value.toString());
+                    } else {
+                        parsed.put(fieldName, parser.getText());
+                    }
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return parsed;
+    }
+
+    private static final class KeyedSignature {
+        final Signature signature;
+        PublicKey publicKey;
+
+        KeyedSignature(Signature signature) {
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.sns.AmazonSNSClient;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+
+public class BulkPublisherTest {
+
+    private static final String TOPIC_ARN = "arn:aws:sns:us-east-1:123456789012:topic";
+
+    private static final String ENDPOINT_ARN = "arn:aws:sns:us-east-1:123456789012:endpoint/GCM/app/id";
+
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    public void testMessagesArePublished() {
+        StubSNS sns = new StubSNS();
+        BulkPublisher publisher = new BulkPublisher(sns, config(), listener);
+        publisher.publish(TOPIC_ARN, "topic message");
+        publisher.publish(ENDPOINT_ARN, "endpoint message");
+        publisher.close();
+
+        assertEquals(2, publisher.getSuccessCount());
+        assertEquals(0, publisher.getFailureCount());
+        assertEquals(0, publisher.getOutstandingPublishesCount());
+        assertEquals(2, listener.successes.size());
+        assertTrue(listener.failures.isEmpty());
+        assertEquals(TOPIC_ARN, sns.request("topic message").getTopicArn());
+        assertEquals(ENDPOINT_ARN, sns.request("endpoint message").getTargetArn());
+        assertEquals("id of endpoint message", listener.successes.get(sns.request("endpoint message")).getMessageId());
+    }
+
+    @Test
+    public void testThrottledPublishIsRetried() {
+        StubSNS sns = new StubSNS();
+        sns.failures.put("message", 2);
+        BulkPublisher publisher = new BulkPublisher(sns, config(), listener);
+        publisher.publish(TOPIC_ARN, "message");
+        publisher.close();
+
+        assertEquals(3, sns.calls.get());
+        assertEquals(1, publisher.getSuccessCount());
+        assertEquals(1, listener.successes.size());
+    }
+
+    @Test
+    public void testFailureIsReportedOnceRetriesAreExhausted() {
+        StubSNS sns = new StubSNS();
+        sns.failures.put("message", 10);
+        BulkPublisher publisher = new BulkPublisher(sns, config().withMaxRetries(2), listener);
+        publisher.publish(TOPIC_ARN, "message");
+        publisher.close();
+
+        assertEquals(3, sns.calls.get());
+        assertEquals(1, publisher.getFailureCount());
+        AmazonServiceException e = (AmazonServiceException) listener.failures.get(sns.request("message"));
+        assertEquals("Throttling", e.getErrorCode());
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() {
+        StubSNS sns = new StubSNS() {
+            @Override
+            public PublishResult publish(PublishRequest request) {
+                calls.incrementAndGet();
+                AmazonServiceException e = new AmazonServiceException("Invalid parameter");
+                e.setErrorCode("InvalidParameter");
+                e.setErrorType(ErrorType.Client);
+                throw e;
+            }
+        };
+        BulkPublisher publisher = new BulkPublisher(sns, config(), listener);
+        publisher.publish(TOPIC_ARN, "message");
+        publisher.close();
+
+        assertEquals(1, sns.calls.get());
+        assertEquals(1, publisher.getFailureCount());
+        assertEquals(1, listener.failures.size());
+    }
+
+    @Test
+    public void testListenerExceptionsDoNotLeakPermits() {
+        StubSNS sns = new StubSNS();
+        // A single permit, which each message must give back for the next
+        // one to be published
+        BulkPublisher publisher = new BulkPublisher(sns, config().withMaxConcurrency(1).withMaxQueuedPublishes(0),
+                new PublishListener() {
+                    @Override
+                    public void onSuccess(PublishRequest request, PublishResult result) {
+                        throw new IllegalStateException("listener failure");
+                    }
+
+                    @Override
+                    public void onFailure(PublishRequest request, Exception exception) {
+                    }
+                });
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(TOPIC_ARN, "message " + i);
+        }
+        publisher.close();
+        assertEquals(5, publisher.getSuccessCount());
+    }
+
+    @Test
+    public void testPublishesAndRetriesAreRateLimited() {
+        StubSNS sns = new StubSNS();
+        for (int i = 0; i < 6; i++) {
+            sns.failures.put("message " + i, 1);
+        }
+        long start = System.nanoTime();
+        BulkPublisher publisher = new BulkPublisher(sns, config().withMaxPublishesPerSecond(20), listener);
+        for (int i = 0; i < 6; i++) {
+            publisher.publish(TOPIC_ARN, "message " + i);
+        }
+        publisher.close();
+
+        assertEquals(6, publisher.getSuccessCount());
+        assertEquals(12, sns.calls.get());
+        // The calls start at least 50 ms apart, including the retries
+        long lastCallMillis = TimeUnit.NANOSECONDS.toMillis(sns.lastCallNanos - start);
+        assertTrue("Last call after " + lastCallMillis + " ms", lastCallMillis >= 11 * 50);
+    }
+
+    @Test
+    public void testNewClientConfiguration() {
+        ClientConfiguration configuration = BulkPublisher.newClientConfiguration(config().withMaxConcurrency(200));
+        assertSame(PredefinedRetryPolicies.NO_RETRY_POLICY, configuration.getRetryPolicy());
+        assertEquals(200, configuration.getMaxConnections());
+        configuration = BulkPublisher.newClientConfiguration(config().withMaxConcurrency(2));
+        assertEquals(ClientConfiguration.DEFAULT_MAX_CONNECTIONS, configuration.getMaxConnections());
+    }
+
+    private static BulkPublisherConfig config() {
+        return new BulkPublisherConfig().withMaxConcurrency(4).withRetryBaseDelayMillis(1).withRetryMaxDelayMillis(10);
+    }
+
+    private static class RecordingListener implements PublishListener {
+
+        final Map<PublishRequest, PublishResult> successes = new ConcurrentHashMap<PublishRequest, PublishResult>();
+
+        final Map<PublishRequest, Exception> failures = new ConcurrentHashMap<PublishRequest, Exception>();
+
+        @Override
+        public void onSuccess(PublishRequest request, PublishResult result) {
+            successes.put(request, result);
+        }
+
+        @Override
+        public void onFailure(PublishRequest request, Exception exception) {
+            failures.put(request, exception);
+        }
+    }
+
+    /**
+     * Publishes messages after throttling them the given number of times.
+     */
+    private static class StubSNS extends AmazonSNSClient {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final Map<String, Integer> failures = new ConcurrentHashMap<String, Integer>();
+
+        final List<PublishRequest> requests = new CopyOnWriteArrayList<PublishRequest>();
+
+        volatile long lastCallNanos;
+
+        StubSNS() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public PublishResult publish(PublishRequest request) {
+            calls.incrementAndGet();
+            synchronized (this) {
+                lastCallNanos = Math.max(lastCallNanos, System.nanoTime());
+            }
+            if (!requests.contains(request)) {
+                requests.add(request);
+            }
+            Integer remaining = failures.get(request.getMessage());
+            if (remaining != null && remaining > 0) {
+                failures.put(request.getMessage(), remaining - 1);
+                AmazonServiceException e = new AmazonServiceException("Rate exceeded");
+                e.setErrorCode("Throttling");
+                e.setErrorType(ErrorType.Client);
+                e.setStatusCode(400);
+                throw e;
+            }
+            return new PublishResult().withMessageId("id of " + request.getMessage());
+        }
+
+        PublishRequest request(String message) {
+            for (PublishRequest request : requests) {
+                if (message.equals(request.getMessage())) {
+                    return request;
+                }
+            }
+            throw new AssertionError("No request for " + message);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sns.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Verifies messages signed with the key of the localhost.jks test key store,
+ * whose certificate is served by a local HTTPS server using the same key.
+ */
+public class SnsMessageVerifierTest {
+
+    /** Password of the localhost.jks test key store and its key */
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private static final Pattern LOCALHOST = Pattern.compile("localhost");
+
+    private KeyStore keyStore;
+    private SSLServerSocket server;
+    private Thread serverThread;
+    private final AtomicInteger requests = new AtomicInteger();
+    private SSLSocketFactory defaultSocketFactory;
+    private SnsMessageVerifier verifier;
+
+    @Before
+    public void setUp() throws Exception {
+        keyStore = KeyStore.getInstance("JKS");
+        InputStream in = getClass().getResourceAsStream("localhost.jks");
+        try {
+            keyStore.load(in, PASSWORD);
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+        server = (SSLServerSocket) serverContext.getServerSocketFactory()
+                .createServerSocket(0, 50, InetAddress.getByName("localhost"));
+        serverThread = new Thread("certificate-server") {
+            @Override
+            public void run() {
+                serve();
+            }
+        };
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        // The certificates are fetched with the default HTTPS socket factory
+        defaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        verifier = new SnsMessageVerifier(LOCALHOST, true, TimeUnit.HOURS.toMillis(1), 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HttpsURLConnection.setDefaultSSLSocketFactory(defaultSocketFactory);
+        verifier.shutdown();
+        server.close();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void testAcceptsMessageSignedWithCertificateFromAllowedHost() throws Exception {
+        trustTestCertificate();
+        Map<String, String> message = signedNotification(certUrl("localhost", "https"));
+        assertTrue(verifier.verify(message));
+        assertTrue(verifier.verify(signedNotification(certUrl("localhost", "https"))));
+        // The certificate is cached
+        assertEquals(1, requests.get());
+
+        message.put("Message", "tampered");
+        assertFalse(verifier.verify(message));
+    }
+
+    @Test
+    public void testRejectsCertificateFromHostNotAllowed() throws Exception {
+        trustTestCertificate();
+        assertFalse(verifier.verify(signedNotification(certUrl("127.0.0.1", "https"))));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void testRejectsCertificateOverPlainHttp() throws Exception {
+        trustTestCertificate();
+        assertFalse(verifier.verify(signedNotification(certUrl("localhost", "http"))));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void testRejectsUntrustedCertificateServer() throws Exception {
+        // The self-signed server certificate isn't trusted by default
+        try {
+            verifier.verify(signedNotification(certUrl("localhost", "https")));
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof SSLException);
+        }
+        assertEquals(0, requests.get());
+
+        // Failed fetches aren't cached
+        trustTestCertificate();
+        assertTrue(verifier.verify(signedNotification(certUrl("localhost", "https"))));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testRedirectIsNotFollowed() throws Exception {
+        trustTestCertificate();
+        String redirect = "https://localhost:" + server.getLocalPort() + "/redirect";
+        try {
+            verifier.verify(signedNotification(redirect));
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("HTTP 302"));
+        }
+        assertEquals(1, requests.get());
+    }
+
+    private String certUrl(String host, String protocol) {
+        return protocol + "://" + host + ":" + server.getLocalPort() + "/SimpleNotificationService.pem";
+    }
+
+    private void trustTestCertificate() throws Exception {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+        HttpsURLConnection.setDefaultSSLSocketFactory(clientContext.getSocketFactory());
+    }
+
+    private Map<String, String> signedNotification(String certUrl) throws Exception {
+        Map<String, String> message = new HashMap<String, String>();
+        message.put("Type", "Notification");
+        message.put("MessageId", "22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324");
+        message.put("TopicArn", "arn:aws:sns:us-west-2:123456789012:MyTopic");
+        message.put("Subject", "My First Message");
+        message.put("Message", "Hello world!");
+        message.put("Timestamp", "2015-05-02T00:54:06.655Z");
+        message.put("SignatureVersion", "1");
+        message.put("SigningCertURL", certUrl);
+        String stringToSign = "Message\nHello world!\nMessageId\n22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324\n"
+                + "Subject\nMy First Message\nTimestamp\n2015-05-02T00:54:06.655Z\n"
+                + "TopicArn\narn:aws:sns:us-west-2:123456789012:MyTopic\nType\nNotification\n";
+        Signature signature = Signature.getInstance("SHA1withRSA");
+        signature.initSign((PrivateKey) keyStore.getKey("localhost", PASSWORD));
+        signature.update(stringToSign.getBytes(StringUtils.UTF8));
+        message.put("Signature", Base64.encodeAsString(signature.sign()));
+        return message;
+    }
+
+    /**
+     * Serves the test certificate, and redirects requests for /redirect.
+     */
+    private void serve() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StringUtils.UTF8));
+                String requestLine = reader.readLine();
+                String header;
+                do {
+                    header = reader.readLine();
+                } while (header != null && header.length() > 0);
+                requests.incrementAndGet();
+                OutputStream out = socket.getOutputStream();
+                if (requestLine.startsWith("GET /redirect ")) {
+                    out.write(("HTTP/1.1 302 Found\r\nLocation: https://localhost:" + server.getLocalPort()
+                            + "/SimpleNotificationService.pem\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                            .getBytes(StringUtils.UTF8));
+                } else {
+                    Certificate certificate = keyStore.getCertificate("localhost");
+                    byte[] body = ("-----BEGIN CERTIFICATE-----\n"
+                            + Base64.encodeAsString(certificate.getEncoded())
+                            + "\n-----END CERTIFICATE-----\n").getBytes(StringUtils.UTF8);
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/x-pem-file\r\nContent-Length: "
+                            + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StringUtils.UTF8));
+                    out.write(body);
+                }
+                out.flush();
+            } catch (Exception e) {
+                // The handshake of an untrusting client fails
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.amazonaws.auth;
 import java.util.Date;
 
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.internal.CredentialsRefresher;
 import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
@@ -35,17 +36,35 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSSessionCreden
     /** Default duration for started sessions. */
     public static final int DEFAULT_DURATION_SECONDS = 900;
 
-    /** Time before expiry within which credentials will be renewed. */
+    /**
+     * Time before expiry within which credentials will be renewed before
+     * being returned.
+     */
     private static final int EXPIRY_TIME_MILLIS = 60 * 1000;
 
+    /**
+     * Time before expiry within which credentials will be renewed in the
+     * background, while the current credentials are still being returned.
+     */
+    private static final int PREFETCH_TIME_MILLIS = 5 * 60 * 1000;
+
     /** The client for starting STS sessions. */
     private final AWSSecurityTokenService securityTokenService;
 
     /** The current session credentials. */
-    private AWSSessionCredentials sessionCredentials;
+    private volatile AWSSessionCredentials sessionCredentials;
 
     /** The expiration time for the current session credentials. */
-    private Date sessionCredentialsExpiration;
+    private volatile Date sessionCredentialsExpiration;
+
+    /** Used to renew the session in the background ahead of its expiry. */
+    private final CredentialsRefresher refresher = new CredentialsRefresher(
+            new Runnable() {
+                @Override
+                public void run() {
+                    renewSession(PREFETCH_TIME_MILLIS);
+                }
+            });
 
     /** The arn of the role to be assumed. */
     private String roleArn;
@@ -244,8 +263,10 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSSessionCreden
     
     @Override
     public AWSSessionCredentials getCredentials() {
-        if (needsNewSession()) {
-            startSession();
+        if (needsNewSession(EXPIRY_TIME_MILLIS)) {
+            renewSession(EXPIRY_TIME_MILLIS);
+        } else if (needsNewSession(PREFETCH_TIME_MILLIS)) {
+            refresher.refreshAsync();
         }
         return sessionCredentials;
     }
@@ -255,13 +276,24 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSSessionCreden
         startSession();
     }
 
+    /**
+     * Starts a new session unless the current session has already been
+     * renewed by another thread, so that it is no longer within the given
+     * time of expiring.
+     */
+    private synchronized void renewSession(long expiryTimeMillis) {
+        if (needsNewSession(expiryTimeMillis)) {
+            startSession();
+        }
+    }
+
     /**
      * Starts a new session by sending a request to the AWS Security Token
      * Service (STS) to assume a Role using the long lived AWS credentials. This
      * class then vends the short lived session credentials for the assumed Role
      * sent back from STS.
      */
-    private void startSession() {
+    private synchronized void startSession() {
         AssumeRoleRequest assumeRoleRequest = new AssumeRoleRequest()
             .withRoleArn(roleArn).withDurationSeconds(roleSessionDurationSeconds)
             .withRoleSessionName(roleSessionName);
@@ -271,24 +303,25 @@ public class STSAssumeRoleSessionCredentialsProvider implements AWSSessionCreden
         AssumeRoleResult assumeRoleResult = securityTokenService.assumeRole(assumeRoleRequest);
         Credentials stsCredentials = assumeRoleResult.getCredentials();
 
+        sessionCredentialsExpiration = stsCredentials.getExpiration();
         sessionCredentials = new BasicSessionCredentials(stsCredentials.getAccessKeyId(),
                 stsCredentials.getSecretAccessKey(), stsCredentials.getSessionToken());
-        sessionCredentialsExpiration = stsCredentials.getExpiration();
+        refresher.schedulePrefetch(sessionCredentialsExpiration, PREFETCH_TIME_MILLIS);
     }
 
     /**
      * Returns true if a new STS session needs to be started. A new STS session
      * is needed when no session has been started yet, or if the last session is
-     * within {@link #EXPIRY_TIME_MILLIS} seconds of expiring.
+     * within the given time of expiring.
      * 
      * @return True if a new STS session needs to be started.
      */
-    private boolean needsNewSession() {
+    private boolean needsNewSession(long expiryTimeMillis) {
         if (sessionCredentials == null) {
             return true;
         }
         long timeRemaining = sessionCredentialsExpiration.getTime() - System.currentTimeMillis();
-        return timeRemaining < EXPIRY_TIME_MILLIS;
+        return timeRemaining < expiryTimeMillis;
     }
     
     
@@ -18,6 +18,7 @@ package com.amazonaws.auth;
 import java.util.Date;
 
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.internal.CredentialsRefresher;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
 import com.amazonaws.services.securitytoken.model.Credentials;
@@ -33,14 +34,29 @@ public class STSSessionCredentialsProvider implements AWSSessionCredentialsProvi
     /** Default duration for started sessions */
     public static final int DEFAULT_DURATION_SECONDS = 3600;
 
+    /** Time before expiry within which credentials are renewed before being returned */
+    private static final int EXPIRY_TIME_MILLIS = 60 * 1000;
+
+    /** Time before expiry within which credentials are renewed in the background */
+    private static final int PREFETCH_TIME_MILLIS = 5 * 60 * 1000;
+
     /** The client for starting STS sessions */
     private final AWSSecurityTokenService securityTokenService;
 
     /** The current session credentials */
-    private AWSSessionCredentials sessionCredentials;
+    private volatile AWSSessionCredentials sessionCredentials;
 
     /** The expiration time for the current session credentials */
-    private Date sessionCredentialsExpiration;
+    private volatile Date sessionCredentialsExpiration;
+
+    /** Used to renew the session in the background ahead of its expiry */
+    private final CredentialsRefresher refresher = new CredentialsRefresher(
+            new Runnable() {
+                @Override
+                public void run() {
+                    renewSession(PREFETCH_TIME_MILLIS);
+                }
+            });
 
 
     /**
@@ -124,8 +140,11 @@ public class STSSessionCredentialsProvider implements AWSSessionCredentialsProvi
 
     @Override
     public AWSSessionCredentials getCredentials() {
-        if (needsNewSession()) startSession();
-
+        if (needsNewSession(EXPIRY_TIME_MILLIS)) {
+            renewSession(EXPIRY_TIME_MILLIS);
+        } else if (needsNewSession(PREFETCH_TIME_MILLIS)) {
+            refresher.refreshAsync();
+        }
         return sessionCredentials;
     }
 
@@ -134,35 +153,45 @@ public class STSSessionCredentialsProvider implements AWSSessionCredentialsProvi
         startSession();
     }
 
+    /**
+     * Starts a new session unless the current session has already been
+     * renewed by another thread, so that it is no longer within the given
+     * time of expiring.
+     */
+    private synchronized void renewSession(long expiryTimeMillis) {
+        if (needsNewSession(expiryTimeMillis)) startSession();
+    }
+
     /**
      * Starts a new session by sending a request to the AWS Security Token
      * Service (STS) with the long lived AWS credentials. This class then vends
      * the short lived session credentials sent back from STS.
      */
-    private void startSession() {
+    private synchronized void startSession() {
         GetSessionTokenResult sessionTokenResult = securityTokenService
                 .getSessionToken(new GetSessionTokenRequest().withDurationSeconds(DEFAULT_DURATION_SECONDS));
         Credentials stsCredentials = sessionTokenResult.getCredentials();
 
+        sessionCredentialsExpiration = stsCredentials.getExpiration();
         sessionCredentials = new BasicSessionCredentials(
                 stsCredentials.getAccessKeyId(),
                 stsCredentials.getSecretAccessKey(),
                 stsCredentials.getSessionToken());
-        sessionCredentialsExpiration = stsCredentials.getExpiration();
+        refresher.schedulePrefetch(sessionCredentialsExpiration, PREFETCH_TIME_MILLIS);
     }
 
     /**
      * Returns true if a new STS session needs to be started. A new STS session
      * is needed when no session has been started yet, or if the last session is
-     * within 60 seconds of expiring.
+     * within the given time of expiring.
      *
      * @return True if a new STS session needs to be started.
      */
-    private boolean needsNewSession() {
+    private boolean needsNewSession(long expiryTimeMillis) {
         if (sessionCredentials == null) return true;
 
         long timeRemaining = sessionCredentialsExpiration.getTime() - System.currentTimeMillis();
-        return timeRemaining < (60 * 1000);
+        return timeRemaining < expiryTimeMillis;
     }
 
 }
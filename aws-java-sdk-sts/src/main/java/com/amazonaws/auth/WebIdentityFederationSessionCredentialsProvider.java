@@ -18,6 +18,7 @@ package com.amazonaws.auth;
 import java.util.Date;
 
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.internal.CredentialsRefresher;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
 import com.amazonaws.services.securitytoken.model.AssumeRoleWithWebIdentityRequest;
@@ -36,20 +37,36 @@ public class WebIdentityFederationSessionCredentialsProvider implements AWSSessi
     /** Default threshold for refreshing session credentials */
     public static final int DEFAULT_THRESHOLD_SECONDS = 500;
 
+    /**
+     * Time before expiry within which credentials are renewed before being
+     * returned; before that, credentials within the refresh threshold are
+     * renewed in the background
+     */
+    private static final int EXPIRY_TIME_MILLIS = 60 * 1000;
+
     /** The client for starting STS sessions */
     private final AWSSecurityTokenService securityTokenService;
 
     /** The current session credentials */
-    private AWSSessionCredentials sessionCredentials;
+    private volatile AWSSessionCredentials sessionCredentials;
 
     /** The expiration time for the current session credentials */
-    private Date sessionCredentialsExpiration;
+    private volatile Date sessionCredentialsExpiration;
+
+    /** Used to renew the session in the background ahead of its expiry */
+    private final CredentialsRefresher refresher = new CredentialsRefresher(
+            new Runnable() {
+                @Override
+                public void run() {
+                    renewSession(refreshThresholdMillis());
+                }
+            });
 
     private final String wifToken;
     private final String wifProvider;
     private final String roleArn;
     private int sessionDuration;
-    private int refreshThreshold;
+    private volatile int refreshThreshold;
     private String subjectFromWIF;
 
     /**
@@ -117,8 +134,12 @@ public class WebIdentityFederationSessionCredentialsProvider implements AWSSessi
 
     @Override
     public AWSSessionCredentials getCredentials() {
-        if (needsNewSession()) startSession();
-
+        long expiryTimeMillis = Math.min(EXPIRY_TIME_MILLIS, refreshThresholdMillis());
+        if (needsNewSession(expiryTimeMillis)) {
+            renewSession(expiryTimeMillis);
+        } else if (needsNewSession(refreshThresholdMillis())) {
+            refresher.refreshAsync();
+        }
         return sessionCredentials;
     }
 
@@ -127,6 +148,15 @@ public class WebIdentityFederationSessionCredentialsProvider implements AWSSessi
         startSession();
     }
 
+    /**
+     * Starts a new session unless the current session has already been
+     * renewed by another thread, so that it is no longer within the given
+     * time of expiring.
+     */
+    private synchronized void renewSession(long expiryTimeMillis) {
+        if (needsNewSession(expiryTimeMillis)) startSession();
+    }
+
    /**
      * Set the duration of the session credentials created by this client in
      * seconds. Values must be supported by AssumeRoleWithWebIdentityRequest.
@@ -241,7 +271,7 @@ public class WebIdentityFederationSessionCredentialsProvider implements AWSSessi
      * Service (STS) with the long lived AWS credentials. This class then vends
      * the short lived session credentials sent back from STS.
      */
-    private void startSession() {
+    private synchronized void startSession() {
         AssumeRoleWithWebIdentityResult sessionTokenResult = securityTokenService
                 .assumeRoleWithWebIdentity(new AssumeRoleWithWebIdentityRequest().withWebIdentityToken(wifToken)
                         .withProviderId(wifProvider)
@@ -252,25 +282,30 @@ public class WebIdentityFederationSessionCredentialsProvider implements AWSSessi
 
         subjectFromWIF = sessionTokenResult.getSubjectFromWebIdentityToken();
 
+        sessionCredentialsExpiration = stsCredentials.getExpiration();
         sessionCredentials = new BasicSessionCredentials(
                 stsCredentials.getAccessKeyId(),
                 stsCredentials.getSecretAccessKey(),
                 stsCredentials.getSessionToken());
-        sessionCredentialsExpiration = stsCredentials.getExpiration();
+        refresher.schedulePrefetch(sessionCredentialsExpiration, refreshThresholdMillis());
     }
 
     /**
      * Returns true if a new STS session needs to be started. A new STS session
      * is needed when no session has been started yet, or if the last session is
-     * within the configured refresh threshold.
+     * within the given time of expiring.
      *
      * @return True if a new STS session needs to be started.
      */
-    private boolean needsNewSession() {
+    private boolean needsNewSession(long expiryTimeMillis) {
         if (sessionCredentials == null) return true;
 
         long timeRemaining = sessionCredentialsExpiration.getTime() - System.currentTimeMillis();
-        return timeRemaining < (this.refreshThreshold * 1000);
+        return timeRemaining < expiryTimeMillis;
+    }
+
+    private long refreshThresholdMillis() {
+        return this.refreshThreshold * 1000L;
     }
 
 }
@@ -82,4 +82,19 @@ public abstract class ActivityExecutionContext {
         // Throwing implementation is provided to not break existing subclasses
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Whether cancellation of the activity was requested by the workflow, as
+     * found out by a heartbeat sent in the background. Only known when the
+     * worker heartbeats through an
+     * {@link com.amazonaws.services.simpleworkflow.flow.worker.ActivityHeartbeatManager}
+     * , otherwise cancellation is reported by
+     * {@link #recordActivityHeartbeat(String)} throwing a
+     * {@link CancellationException}.
+     * 
+     * @return true if cancellation was requested
+     */
+    public boolean isCancelRequested() {
+        return false;
+    }
 }
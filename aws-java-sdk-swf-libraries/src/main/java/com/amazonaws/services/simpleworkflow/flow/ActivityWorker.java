@@ -16,12 +16,16 @@ package com.amazonaws.services.simpleworkflow.flow;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementation;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOActivityImplementationFactory;
+import com.amazonaws.services.simpleworkflow.flow.worker.ActivityHeartbeatManager;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericActivityWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.WorkerMetrics;
 import com.amazonaws.services.simpleworkflow.model.ActivityType;
 
 public class ActivityWorker implements WorkerBase {
@@ -88,6 +92,28 @@ public class ActivityWorker implements WorkerBase {
         genericWorker.setTaskExecutorThreadPoolSize(taskExecutorThreadPoolSize);
     }
 
+    public ExecutorService getTaskExecutorService() {
+        return genericWorker.getTaskExecutorService();
+    }
+
+    /**
+     * @see GenericActivityWorker#setTaskExecutorService(ExecutorService)
+     */
+    public void setTaskExecutorService(ExecutorService taskExecutorService) {
+        genericWorker.setTaskExecutorService(taskExecutorService);
+    }
+
+    public ActivityHeartbeatManager getHeartbeatManager() {
+        return genericWorker.getHeartbeatManager();
+    }
+
+    /**
+     * @see GenericActivityWorker#setHeartbeatManager(ActivityHeartbeatManager)
+     */
+    public void setHeartbeatManager(ActivityHeartbeatManager heartbeatManager) {
+        genericWorker.setHeartbeatManager(heartbeatManager);
+    }
+
     @Override
     public boolean shutdownAndAwaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
         return genericWorker.shutdownAndAwaitTermination(timeout, unit);
@@ -228,6 +254,24 @@ public class ActivityWorker implements WorkerBase {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getMaximumPollThreadCount() {
+        return genericWorker.getMaximumPollThreadCount();
+    }
+
+    /**
+     * @see GenericWorker#setMaximumPollThreadCount(int)
+     */
+    public void setMaximumPollThreadCount(int maximumPollThreadCount) {
+        genericWorker.setMaximumPollThreadCount(maximumPollThreadCount);
+    }
+
+    /**
+     * @see GenericWorker#getMetrics()
+     */
+    public WorkerMetrics getMetrics() {
+        return genericWorker.getMetrics();
+    }
+
     @Override
     public void setDisableTypeRegistrationOnStart(boolean disableTypeRegistrationOnStart) {
         genericWorker.setDisableTypeRegistrationOnStart(disableTypeRegistrationOnStart);
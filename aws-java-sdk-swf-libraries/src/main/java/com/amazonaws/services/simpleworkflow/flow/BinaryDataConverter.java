@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.amazonaws.util.Base64;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Converts values to a compact binary form, compressed when it makes them
+ * smaller, and encoded with base64 to fit Simple Workflow string fields.
+ * <p>
+ * Values are serialized by the given {@link ObjectMapper}, whose factory
+ * determines the binary form. For example a mapper created with the
+ * <code>SmileFactory</code> of the jackson-dataformat-smile module produces
+ * Smile, a binary equivalent of JSON that is faster to parse and more
+ * concise. By default values are serialized to JSON, configured as by
+ * {@link JsonDataConverter#JsonDataConverter()}, and only compressed.
+ * <p>
+ * The produced data starts with <code>"b:"</code>, or <code>"z:"</code> when
+ * compressed, which JSON can't start with. Data without either prefix, for
+ * example produced by a {@link JsonDataConverter} before switching converters
+ * on running workflows, is converted by a fallback converter. This class is
+ * thread safe.
+ */
+public class BinaryDataConverter extends JsonDataConverter {
+
+    /** 1024 bytes */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    static final String BINARY_PREFIX = "b:";
+
+    static final String COMPRESSED_PREFIX = "z:";
+
+    private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
+    private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
+    };
+
+    private final DataConverter fallbackConverter;
+
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * Create instance of the converter that compresses JSON produced by an
+     * ObjectMapper configured as by {@link JsonDataConverter#JsonDataConverter()}
+     * and falls back to a {@link JsonDataConverter} for data without prefix.
+     */
+    public BinaryDataConverter() {
+        this(new JsonDataConverter());
+    }
+
+    private BinaryDataConverter(JsonDataConverter defaultConverter) {
+        this(defaultConverter.mapper, defaultConverter);
+    }
+
+    /**
+     * Create instance of the converter that uses the given mapper, for example
+     * one created with a binary factory, and falls back to the given converter
+     * for data without prefix.
+     */
+    public BinaryDataConverter(ObjectMapper mapper, DataConverter fallbackConverter) {
+        super(mapper);
+        if (fallbackConverter == null) {
+            throw new IllegalArgumentException("fallbackConverter");
+        }
+        this.fallbackConverter = fallbackConverter;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Serialized values of at least this many bytes are compressed, unless
+     * that doesn't make them smaller. Default is 1024 bytes. Integer.MAX_VALUE
+     * disables compression.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("negative compressionThreshold");
+        }
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public DataConverter getFallbackConverter() {
+        return fallbackConverter;
+    }
+
+    @Override
+    public String toData(Object value) throws DataConverterException {
+        byte[] serialized;
+        try {
+            serialized = getWriter().writeValueAsBytes(value);
+        }
+        catch (IOException e) {
+            throwDataConverterException(e, value);
+            throw new IllegalStateException("not reachable");
+        }
+        if (serialized.length >= compressionThreshold) {
+            byte[] compressed = deflate(serialized);
+            if (compressed.length < serialized.length) {
+                return COMPRESSED_PREFIX + Base64.encodeAsString(compressed);
+            }
+        }
+        return BINARY_PREFIX + Base64.encodeAsString(serialized);
+    }
+
+    @Override
+    public <T> T fromData(String serialized, Class<T> valueType) throws DataConverterException {
+        byte[] bytes;
+        if (serialized != null && serialized.startsWith(COMPRESSED_PREFIX)) {
+            bytes = inflate(decode(serialized, COMPRESSED_PREFIX));
+        }
+        else if (serialized != null && serialized.startsWith(BINARY_PREFIX)) {
+            bytes = decode(serialized, BINARY_PREFIX);
+        }
+        else {
+            return fallbackConverter.fromData(serialized, valueType);
+        }
+        try {
+            return getReader(valueType).readValue(bytes);
+        }
+        catch (IOException e) {
+            throw new DataConverterException(e);
+        }
+    }
+
+    private static byte[] decode(String serialized, String prefix) {
+        try {
+            return Base64.decode(serialized.substring(prefix.length()));
+        }
+        catch (IllegalArgumentException e) {
+            throw new DataConverterException("Invalid base64 data", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = deflaters.get();
+        byte[] buffer = buffers.get();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+        }
+        finally {
+            deflater.reset();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = inflaters.get();
+        byte[] buffer = buffers.get();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+        try {
+            inflater.setInput(input);
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataConverterException("Truncated compressed data");
+                }
+                out.write(buffer, 0, count);
+            }
+        }
+        catch (DataFormatException e) {
+            throw new DataConverterException("Invalid compressed data", e);
+        }
+        finally {
+            inflater.reset();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,686 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.flow.pojo.POJOWorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.flow.worker.AsyncDecisionTaskHandler;
+import com.amazonaws.services.simpleworkflow.flow.worker.DeciderCache;
+import com.amazonaws.services.simpleworkflow.model.Decision;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionType;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.History;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.transform.HistoryJsonUnmarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContextImpl;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Replays many workflow histories in parallel to check that workflow code
+ * still makes the decisions recorded in them, for example before deploying a
+ * change to the workflow implementation.
+ * <p>
+ * Each history is replayed by its own decider, so executions don't share
+ * decision contexts or workflow implementation instances, one decision task
+ * recorded as completed after the other. The decisions made by the replay of
+ * each task are compared with the decisions recorded by that task. An
+ * execution is reported as non deterministic at the first task where they
+ * differ, or where the replay of its events threw a
+ * {@link NonDeterministicWorkflowException} because the code no longer makes
+ * the decisions they correspond to, and as failed if the replay failed for
+ * another reason.
+ * <p>
+ * Histories can be exported to files in the format returned by
+ * GetWorkflowExecutionHistory, for example with
+ * <code>aws swf get-workflow-execution-history --domain D --execution workflowId=W,runId=R | gzip &gt; W.json.gz</code>
+ * , optionally gzip compressed, which is recognized by the ".gz" extension.
+ * The file name, without extensions, identifies the execution in the report.
+ */
+public class BulkWorkflowReplayer {
+
+    public enum Status {
+
+        /** The replay made the recorded decisions */
+        OK,
+
+        /** The replay made different decisions than the recorded ones */
+        NON_DETERMINISTIC,
+
+        /** The replay or the loading of the history failed */
+        FAILED,
+
+        /** The history has no completed decision task to compare with */
+        SKIPPED
+    }
+
+    /**
+     * Outcome of the replay of one execution.
+     */
+    public static class Result {
+
+        private final String name;
+
+        private final Status status;
+
+        private final String message;
+
+        private final Throwable cause;
+
+        private final int eventCount;
+
+        private final long replayTimeMillis;
+
+        Result(String name, Status status, String message, Throwable cause, int eventCount, long replayTimeMillis) {
+            this.name = name;
+            this.status = status;
+            this.message = message;
+            this.cause = cause;
+            this.eventCount = eventCount;
+            this.replayTimeMillis = replayTimeMillis;
+        }
+
+        /**
+         * @return name of the replayed history, the file name for histories
+         *         read from files
+         */
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return description of the difference or failure, or
+         *         <code>null</code> if the replay succeeded
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return exception the replay failed with, or <code>null</code>
+         */
+        public Throwable getCause() {
+            return cause;
+        }
+
+        /**
+         * @return number of events replayed
+         */
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        public long getReplayTimeMillis() {
+            return replayTimeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + status + (message == null ? "" : " " + message);
+        }
+    }
+
+    /**
+     * Outcome of the replay of all the executions, with throughput statistics.
+     */
+    public static class Report {
+
+        private final List<Result> results;
+
+        private final long elapsedMillis;
+
+        private final int threadCount;
+
+        Report(List<Result> results, long elapsedMillis, int threadCount) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsedMillis = elapsedMillis;
+            this.threadCount = threadCount;
+        }
+
+        /**
+         * @return results in the order the histories were given
+         */
+        public List<Result> getResults() {
+            return results;
+        }
+
+        /**
+         * @return results with the given status
+         */
+        public List<Result> getResults(Status status) {
+            List<Result> filtered = new ArrayList<Result>();
+            for (Result result : results) {
+                if (result.getStatus() == status) {
+                    filtered.add(result);
+                }
+            }
+            return filtered;
+        }
+
+        public int getCount(Status status) {
+            return getResults(status).size();
+        }
+
+        /**
+         * @return true if no execution was non deterministic or failed
+         */
+        public boolean isSuccessful() {
+            return getCount(Status.NON_DETERMINISTIC) == 0 && getCount(Status.FAILED) == 0;
+        }
+
+        public long getEventCount() {
+            long count = 0;
+            for (Result result : results) {
+                count += result.getEventCount();
+            }
+            return count;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getExecutionsPerSecond() {
+            return elapsedMillis == 0 ? 0 : results.size() * 1000.0 / elapsedMillis;
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedMillis == 0 ? 0 : getEventCount() * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            result.append("Replayed ").append(results.size()).append(" executions (").append(getEventCount())
+                    .append(" events) in ").append(elapsedMillis).append("ms on ").append(threadCount).append(" threads: ");
+            for (Status status : Status.values()) {
+                result.append(status).append('=').append(getCount(status)).append(' ');
+            }
+            result.append(String.format("(%.1f executions/s, %.0f events/s)", getExecutionsPerSecond(), getEventsPerSecond()));
+            for (Result r : results) {
+                if (r.getStatus() == Status.NON_DETERMINISTIC || r.getStatus() == Status.FAILED) {
+                    result.append("\n  ").append(r);
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private static final AtomicInteger replayerIndex = new AtomicInteger();
+
+    private final WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory;
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    public BulkWorkflowReplayer(WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory) {
+        if (workflowDefinitionFactoryFactory == null) {
+            throw new IllegalArgumentException("workflowDefinitionFactoryFactory");
+        }
+        this.workflowDefinitionFactoryFactory = workflowDefinitionFactoryFactory;
+    }
+
+    public BulkWorkflowReplayer(Class<?>... workflowImplementationTypes) throws InstantiationException, IllegalAccessException {
+        POJOWorkflowDefinitionFactoryFactory ff = new POJOWorkflowDefinitionFactoryFactory();
+        for (Class<?> workflowImplementationType : workflowImplementationTypes) {
+            ff.addWorkflowImplementationType(workflowImplementationType);
+        }
+        this.workflowDefinitionFactoryFactory = ff;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Number of histories loaded and replayed concurrently. Default is the
+     * number of available processors.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("0 or negative threadCount");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Replays the histories exported to the files of the given directory whose
+     * name ends with ".json" or ".json.gz".
+     */
+    public Report replayDirectory(File directory) throws InterruptedException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".json") || name.endsWith(".json.gz");
+            }
+        });
+        if (files == null) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        return replayFiles(Arrays.asList(files));
+    }
+
+    /**
+     * Replays the histories exported to the given files.
+     */
+    public Report replayFiles(List<File> files) throws InterruptedException {
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(files.size());
+        for (final File file : files) {
+            tasks.add(new Callable<Result>() {
+
+                @Override
+                public Result call() {
+                    String name = getExecutionName(file);
+                    List<HistoryEvent> events;
+                    try {
+                        events = readHistory(file);
+                    }
+                    catch (Exception e) {
+                        return new Result(name, Status.FAILED, "Failure reading " + file + ": " + e, e, 0, 0);
+                    }
+                    return replay(name, events);
+                }
+            });
+        }
+        return run(tasks);
+    }
+
+    /**
+     * Replays the given histories.
+     *
+     * @param histories
+     *            events of each history, by name to report them with
+     */
+    public Report replayHistories(Map<String, ? extends List<HistoryEvent>> histories) throws InterruptedException {
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(histories.size());
+        for (final Map.Entry<String, ? extends List<HistoryEvent>> entry : histories.entrySet()) {
+            tasks.add(new Callable<Result>() {
+
+                @Override
+                public Result call() {
+                    return replay(entry.getKey(), entry.getValue());
+                }
+            });
+        }
+        return run(tasks);
+    }
+
+    private Report run(List<Callable<Result>> tasks) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        final String threadPrefix = "SWF Replayer " + replayerIndex.incrementAndGet() + " ";
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    private final AtomicInteger threadIndex = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread result = new Thread(r, threadPrefix + threadIndex.incrementAndGet());
+                        result.setDaemon(true);
+                        return result;
+                    }
+                });
+        try {
+            List<Future<Result>> futures = new ArrayList<Future<Result>>(tasks.size());
+            for (Callable<Result> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            List<Result> results = new ArrayList<Result>(tasks.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                }
+                catch (ExecutionException e) {
+                    // Only Errors escape from the tasks
+                    throw new IllegalStateException("Replay failed", e.getCause());
+                }
+            }
+            return new Report(results, System.currentTimeMillis() - start, threadCount);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Replays one history decision task by decision task, and compares the
+     * decisions of each completed decision task with the recorded ones, up to
+     * the first difference.
+     */
+    Result replay(String name, List<HistoryEvent> events) {
+        long start = System.currentTimeMillis();
+        List<HistoryEvent> completedEvents = new ArrayList<HistoryEvent>();
+        // Recorded decisions by the id of the DecisionTaskCompleted event
+        Map<String, List<String>> recordedDecisions = new HashMap<String, List<String>>();
+        for (HistoryEvent event : events) {
+            if (EventType.DecisionTaskCompleted.toString().equals(event.getEventType())) {
+                completedEvents.add(event);
+            }
+            String[] decision = getRecordedDecision(event);
+            if (decision != null) {
+                List<String> decisions = recordedDecisions.get(decision[0]);
+                if (decisions == null) {
+                    decisions = new ArrayList<String>();
+                    recordedDecisions.put(decision[0], decisions);
+                }
+                decisions.add(decision[1]);
+            }
+        }
+        if (completedEvents.isEmpty()) {
+            return new Result(name, Status.SKIPPED, "no completed decision task", null, events.size(), 0);
+        }
+        WorkflowExecutionStartedEventAttributes startedAttributes = events.get(0).getWorkflowExecutionStartedEventAttributes();
+        if (startedAttributes == null) {
+            return new Result(name, Status.FAILED, "first event is not WorkflowExecutionStarted", null, 0, 0);
+        }
+        WorkflowExecution execution = new WorkflowExecution().withWorkflowId(name).withRunId(name);
+        // The decider of the execution is cached between its decision tasks,
+        // so that each of them only applies its new events to it. The
+        // handler reads the history of a task back from its newest event.
+        DeciderCache deciderCache = new DeciderCache(1, Long.MAX_VALUE);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory, deciderCache);
+        List<HistoryEvent> newestFirst = new ArrayList<HistoryEvent>(events);
+        Collections.reverse(newestFirst);
+        int replayed = 0;
+        long previousStartedEventId = 0;
+        try {
+            for (HistoryEvent completedEvent : completedEvents) {
+                long startedEventId = completedEvent.getDecisionTaskCompletedEventAttributes().getStartedEventId();
+                while (replayed < events.size() && events.get(replayed).getEventId() <= startedEventId) {
+                    replayed++;
+                }
+                DecisionTask decisionTask = new DecisionTask();
+                decisionTask.setTaskToken(name);
+                decisionTask.setWorkflowExecution(execution);
+                decisionTask.setWorkflowType(startedAttributes.getWorkflowType());
+                decisionTask.setStartedEventId(startedEventId);
+                decisionTask.setPreviousStartedEventId(previousStartedEventId);
+                decisionTask.setEvents(newestFirst.subList(events.size() - replayed, events.size()));
+                previousStartedEventId = startedEventId;
+
+                RespondDecisionTaskCompletedRequest response;
+                try {
+                    response = handler.replayDecisionTask(Collections.singletonList(decisionTask).iterator());
+                }
+                catch (NonDeterministicWorkflowException e) {
+                    return new Result(name, Status.NON_DETERMINISTIC, "decision task " + completedEvent.getEventId() + ": "
+                            + e.getMessage(), e, replayed, System.currentTimeMillis() - start);
+                }
+                List<String> recorded = recordedDecisions.get(String.valueOf(completedEvent.getEventId()));
+                recorded = recorded == null ? new ArrayList<String>() : recorded;
+                List<String> produced = new ArrayList<String>();
+                Decision failure = null;
+                for (Decision decision : response.getDecisions()) {
+                    produced.add(getDecision(decision));
+                    if (DecisionType.FailWorkflowExecution.toString().equals(decision.getDecisionType())) {
+                        failure = decision;
+                    }
+                }
+                Collections.sort(produced);
+                Collections.sort(recorded);
+                if (produced.equals(recorded)) {
+                    continue;
+                }
+                long replayTime = System.currentTimeMillis() - start;
+                if (failure != null && !recorded.contains(DecisionType.FailWorkflowExecution.toString())) {
+                    // The decider fails the workflow when the replay throws
+                    return new Result(name, Status.FAILED, "decision task " + completedEvent.getEventId()
+                            + ": replay failed the workflow: " + failure.getFailWorkflowExecutionDecisionAttributes().getReason(),
+                            null, replayed, replayTime);
+                }
+                return new Result(name, Status.NON_DETERMINISTIC, "decision task " + completedEvent.getEventId() + " recorded "
+                        + recorded + " but replay decided " + produced, null, replayed, replayTime);
+            }
+        }
+        catch (Throwable e) {
+            return new Result(name, Status.FAILED, e.toString(), e, replayed, System.currentTimeMillis() - start);
+        }
+        finally {
+            deciderCache.invalidateAll();
+        }
+        return new Result(name, Status.OK, null, null, replayed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reads a history in the format returned by GetWorkflowExecutionHistory,
+     * gzip compressed if the file name ends with ".gz".
+     */
+    public static List<HistoryEvent> readHistory(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try {
+            if (file.getName().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            }
+            JsonParser parser = jsonFactory.createParser(in);
+            try {
+                History history = HistoryJsonUnmarshaller.getInstance().unmarshall(new JsonUnmarshallerContextImpl(parser));
+                if (history == null || history.getEvents() == null || history.getEvents().isEmpty()) {
+                    throw new IOException("No history events in " + file);
+                }
+                return history.getEvents();
+            }
+            catch (IOException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new IOException("Failure parsing history in " + file, e);
+            }
+            finally {
+                parser.close();
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static String getExecutionName(File file) {
+        String name = file.getName();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - 5);
+        }
+        return name;
+    }
+
+    /**
+     * @return the decision type and the id of its target
+     */
+    private static String getDecision(Decision decision) {
+        String type = decision.getDecisionType();
+        switch (DecisionType.fromValue(type)) {
+        case ScheduleActivityTask:
+            return type + ":" + decision.getScheduleActivityTaskDecisionAttributes().getActivityId();
+        case RequestCancelActivityTask:
+            return type + ":" + decision.getRequestCancelActivityTaskDecisionAttributes().getActivityId();
+        case StartTimer:
+            return type + ":" + decision.getStartTimerDecisionAttributes().getTimerId();
+        case CancelTimer:
+            return type + ":" + decision.getCancelTimerDecisionAttributes().getTimerId();
+        case RecordMarker:
+            return type + ":" + decision.getRecordMarkerDecisionAttributes().getMarkerName();
+        case StartChildWorkflowExecution:
+            return type + ":" + decision.getStartChildWorkflowExecutionDecisionAttributes().getWorkflowId();
+        case SignalExternalWorkflowExecution:
+            return type + ":" + decision.getSignalExternalWorkflowExecutionDecisionAttributes().getWorkflowId();
+        case RequestCancelExternalWorkflowExecution:
+            return type + ":" + decision.getRequestCancelExternalWorkflowExecutionDecisionAttributes().getWorkflowId();
+        default:
+            return type;
+        }
+    }
+
+    /**
+     * @return the id of the DecisionTaskCompleted event of the decision the
+     *         given event records, and the decision as returned by
+     *         {@link #getDecision(Decision)}; or <code>null</code> if the
+     *         event doesn't record a decision
+     */
+    private static String[] getRecordedDecision(HistoryEvent event) {
+        EventType eventType;
+        try {
+            eventType = EventType.fromValue(event.getEventType());
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+        Long completedEventId;
+        String decision;
+        switch (eventType) {
+        case ActivityTaskScheduled:
+            completedEventId = event.getActivityTaskScheduledEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.ScheduleActivityTask + ":" + event.getActivityTaskScheduledEventAttributes().getActivityId();
+            break;
+        case ScheduleActivityTaskFailed:
+            completedEventId = event.getScheduleActivityTaskFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.ScheduleActivityTask + ":" + event.getScheduleActivityTaskFailedEventAttributes().getActivityId();
+            break;
+        case ActivityTaskCancelRequested:
+            completedEventId = event.getActivityTaskCancelRequestedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.RequestCancelActivityTask + ":"
+                    + event.getActivityTaskCancelRequestedEventAttributes().getActivityId();
+            break;
+        case RequestCancelActivityTaskFailed:
+            completedEventId = event.getRequestCancelActivityTaskFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.RequestCancelActivityTask + ":"
+                    + event.getRequestCancelActivityTaskFailedEventAttributes().getActivityId();
+            break;
+        case TimerStarted:
+            completedEventId = event.getTimerStartedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.StartTimer + ":" + event.getTimerStartedEventAttributes().getTimerId();
+            break;
+        case StartTimerFailed:
+            completedEventId = event.getStartTimerFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.StartTimer + ":" + event.getStartTimerFailedEventAttributes().getTimerId();
+            break;
+        case TimerCanceled:
+            completedEventId = event.getTimerCanceledEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.CancelTimer + ":" + event.getTimerCanceledEventAttributes().getTimerId();
+            break;
+        case CancelTimerFailed:
+            completedEventId = event.getCancelTimerFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.CancelTimer + ":" + event.getCancelTimerFailedEventAttributes().getTimerId();
+            break;
+        case MarkerRecorded:
+            completedEventId = event.getMarkerRecordedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.RecordMarker + ":" + event.getMarkerRecordedEventAttributes().getMarkerName();
+            break;
+        case RecordMarkerFailed:
+            completedEventId = event.getRecordMarkerFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.RecordMarker + ":" + event.getRecordMarkerFailedEventAttributes().getMarkerName();
+            break;
+        case StartChildWorkflowExecutionInitiated:
+            completedEventId = event.getStartChildWorkflowExecutionInitiatedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.StartChildWorkflowExecution + ":"
+                    + event.getStartChildWorkflowExecutionInitiatedEventAttributes().getWorkflowId();
+            break;
+        case StartChildWorkflowExecutionFailed:
+            completedEventId = event.getStartChildWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.StartChildWorkflowExecution + ":"
+                    + event.getStartChildWorkflowExecutionFailedEventAttributes().getWorkflowId();
+            break;
+        case SignalExternalWorkflowExecutionInitiated:
+            completedEventId = event.getSignalExternalWorkflowExecutionInitiatedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.SignalExternalWorkflowExecution + ":"
+                    + event.getSignalExternalWorkflowExecutionInitiatedEventAttributes().getWorkflowId();
+            break;
+        case SignalExternalWorkflowExecutionFailed:
+            completedEventId = event.getSignalExternalWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.SignalExternalWorkflowExecution + ":"
+                    + event.getSignalExternalWorkflowExecutionFailedEventAttributes().getWorkflowId();
+            break;
+        case RequestCancelExternalWorkflowExecutionInitiated:
+            completedEventId = event.getRequestCancelExternalWorkflowExecutionInitiatedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.RequestCancelExternalWorkflowExecution + ":"
+                    + event.getRequestCancelExternalWorkflowExecutionInitiatedEventAttributes().getWorkflowId();
+            break;
+        case RequestCancelExternalWorkflowExecutionFailed:
+            completedEventId = event.getRequestCancelExternalWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.RequestCancelExternalWorkflowExecution + ":"
+                    + event.getRequestCancelExternalWorkflowExecutionFailedEventAttributes().getWorkflowId();
+            break;
+        case WorkflowExecutionCompleted:
+            completedEventId = event.getWorkflowExecutionCompletedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.CompleteWorkflowExecution.toString();
+            break;
+        case CompleteWorkflowExecutionFailed:
+            completedEventId = event.getCompleteWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.CompleteWorkflowExecution.toString();
+            break;
+        case WorkflowExecutionFailed:
+            completedEventId = event.getWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.FailWorkflowExecution.toString();
+            break;
+        case FailWorkflowExecutionFailed:
+            completedEventId = event.getFailWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.FailWorkflowExecution.toString();
+            break;
+        case WorkflowExecutionCanceled:
+            completedEventId = event.getWorkflowExecutionCanceledEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.CancelWorkflowExecution.toString();
+            break;
+        case CancelWorkflowExecutionFailed:
+            completedEventId = event.getCancelWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.CancelWorkflowExecution.toString();
+            break;
+        case WorkflowExecutionContinuedAsNew:
+            completedEventId = event.getWorkflowExecutionContinuedAsNewEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.ContinueAsNewWorkflowExecution.toString();
+            break;
+        case ContinueAsNewWorkflowExecutionFailed:
+            completedEventId = event.getContinueAsNewWorkflowExecutionFailedEventAttributes().getDecisionTaskCompletedEventId();
+            decision = DecisionType.ContinueAsNewWorkflowExecution.toString();
+            break;
+        default:
+            return null;
+        }
+        return new String[] { String.valueOf(completedEventId), decision };
+    }
+}
@@ -15,12 +15,16 @@
 package com.amazonaws.services.simpleworkflow.flow;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectMapper.DefaultTyping;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 
@@ -35,6 +39,10 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
  * polymorphic types out of the box. But in some cases it might be beneficial to
  * disable polymorphic support as it produces much more concise and portable
  * output.
+ * <p>
+ * The readers and the writer used to convert values are created on first use
+ * and reused afterwards, so the mapper must be fully configured before the
+ * converter is used.
  * 
  * @author fateev
  */
@@ -42,6 +50,10 @@ public class JsonDataConverter extends DataConverter {
 
     protected final ObjectMapper mapper;
 
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    private volatile ObjectWriter writer;
+
     /**
      * Create instance of the converter that uses ObjectMapper with
      * {@link Feature#FAIL_ON_UNKNOWN_PROPERTIES} set to <code>false</code> and
@@ -69,7 +81,7 @@ public class JsonDataConverter extends DataConverter {
     @Override
     public String toData(Object value) throws DataConverterException {
         try {
-            return mapper.writeValueAsString(value);
+            return getWriter().writeValueAsString(value);
         }
         catch (JsonGenerationException e) {
             throwDataConverterException(e, value);
@@ -83,7 +95,35 @@ public class JsonDataConverter extends DataConverter {
         throw new IllegalStateException("not reachable");
     }
 
-    private void throwDataConverterException(Throwable e, Object value) {
+    /**
+     * @return writer of values, created from the mapper on first use
+     */
+    protected ObjectWriter getWriter() {
+        ObjectWriter result = writer;
+        if (result == null) {
+            result = mapper.writer();
+            writer = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return reader of values of the given type, created from the mapper on
+     *         first use of the type
+     */
+    protected ObjectReader getReader(Class<?> valueType) {
+        ObjectReader result = readers.get(valueType);
+        if (result == null) {
+            result = mapper.reader(valueType);
+            ObjectReader existing = readers.putIfAbsent(valueType, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    void throwDataConverterException(Throwable e, Object value) {
         if (value == null) {
             throw new DataConverterException("Failure serializing null value", e);
         }
@@ -93,7 +133,7 @@ public class JsonDataConverter extends DataConverter {
     @Override
     public <T> T fromData(String serialized, Class<T> valueType) throws DataConverterException {
         try {
-            return mapper.readValue(serialized, valueType);
+            return getReader(valueType).readValue(serialized);
         }
         catch (JsonParseException e) {
             throw new DataConverterException(e);
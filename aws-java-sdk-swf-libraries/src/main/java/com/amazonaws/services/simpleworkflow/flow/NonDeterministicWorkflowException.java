@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+/**
+ * Thrown by the decider when an event of the workflow history refers to a
+ * decision that the replay of the workflow code didn't make, which happens
+ * when the workflow code is nondeterministic or was changed incompatibly
+ * since the history was recorded.
+ * 
+ * @see BulkWorkflowReplayer
+ */
+@SuppressWarnings("serial")
+public class NonDeterministicWorkflowException extends IllegalArgumentException {
+
+    public NonDeterministicWorkflowException(String message) {
+        super(message);
+    }
+}
@@ -15,7 +15,9 @@
 package com.amazonaws.services.simpleworkflow.flow;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contains value that is bound to a currently executing workflow. Has the same
@@ -68,6 +70,51 @@ public class WorkflowExecutionLocal<T> {
         }
     }
 
+    /**
+     * Returns the values bound to the current thread by all the locals, so
+     * that a decision suspended at the end of a decision task can be resumed
+     * later, possibly on another thread, with {@link #restore(Map)}. The
+     * returned map is opaque. It is not a good idea to call this method from
+     * non framework code for non testing scenarios.
+     */
+    public static Map<WorkflowExecutionLocal<?>, Object> capture() {
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        // Locals can't be hashed by value, see hashCode()
+        Map<WorkflowExecutionLocal<?>, Object> result = new IdentityHashMap<WorkflowExecutionLocal<?>, Object>();
+        for (WorkflowExecutionLocal<?> local : currentLocals) {
+            Wrapper<?> w = local.value.get();
+            if (w != null) {
+                result.put(local, w);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Called instead of {@link #before()} to resume a decision suspended with
+     * {@link #capture()}. Locals created since then get their initial value.
+     * It is not a good idea to call this method from non framework code for
+     * non testing scenarios.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void restore(Map<WorkflowExecutionLocal<?>, Object> captured) {
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        for (WorkflowExecutionLocal local : currentLocals) {
+            Wrapper w = (Wrapper) captured.get(local);
+            if (w == null) {
+                w = new Wrapper();
+                w.wrapped = local.initialValue();
+            }
+            local.set(w);
+        }
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public WorkflowExecutionLocal() {
         Wrapper w = new Wrapper();
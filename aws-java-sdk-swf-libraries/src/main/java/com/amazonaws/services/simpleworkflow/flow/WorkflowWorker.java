@@ -21,7 +21,10 @@ import java.util.concurrent.TimeUnit;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOWorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.flow.worker.DeciderCache;
+import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorker;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorkflowWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.WorkerMetrics;
 
 public class WorkflowWorker implements WorkerBase {
 
@@ -141,6 +144,17 @@ public class WorkflowWorker implements WorkerBase {
         genericWorker.setDisableServiceShutdownOnStop(disableServiceShutdownOnStop);
     }
 
+    public DeciderCache getDeciderCache() {
+        return genericWorker.getDeciderCache();
+    }
+
+    /**
+     * @see GenericWorkflowWorker#setDeciderCache(DeciderCache)
+     */
+    public void setDeciderCache(DeciderCache deciderCache) {
+        genericWorker.setDeciderCache(deciderCache);
+    }
+
     @Override
     public double getPollBackoffCoefficient() {
         return genericWorker.getPollBackoffCoefficient();
@@ -161,6 +175,24 @@ public class WorkflowWorker implements WorkerBase {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getMaximumPollThreadCount() {
+        return genericWorker.getMaximumPollThreadCount();
+    }
+
+    /**
+     * @see GenericWorker#setMaximumPollThreadCount(int)
+     */
+    public void setMaximumPollThreadCount(int maximumPollThreadCount) {
+        genericWorker.setMaximumPollThreadCount(maximumPollThreadCount);
+    }
+
+    /**
+     * @see GenericWorker#getMetrics()
+     */
+    public WorkerMetrics getMetrics() {
+        return genericWorker.getMetrics();
+    }
+
     @Override
     public void registerTypesToPoll() {
         genericWorker.registerTypesToPoll();
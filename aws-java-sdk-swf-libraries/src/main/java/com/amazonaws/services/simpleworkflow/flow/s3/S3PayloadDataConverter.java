@@ -0,0 +1,249 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.simpleworkflow.flow.DataConverter;
+import com.amazonaws.services.simpleworkflow.flow.DataConverterException;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Stores large values in Amazon S3 and passes them by reference. Values are
+ * converted by a delegate converter; when the converted data is longer than a
+ * threshold it is uploaded to the given bucket, and only a reference to the
+ * object, <code>"s3:" + bucket + "/" + key</code>, goes through Simple
+ * Workflow. The key is the key prefix followed by the hex encoded SHA-256 of
+ * the data, so that storing the same data again, such as when a decision is
+ * replayed, yields the same reference and overwrites the object with
+ * identical content rather than leaving a new object behind. This keeps activity inputs and results, workflow
+ * inputs and signals within the Simple Workflow size limits.
+ * <p>
+ * Objects are never deleted by the converter, as the data can be needed to
+ * replay a workflow history until the execution is closed and beyond its
+ * retention period. Use a lifecycle rule on the bucket to expire them. Since
+ * objects are immutable, the most recently read ones are cached, which avoids
+ * downloading the inputs of a workflow again on every decision task.
+ * <p>
+ * The data of the delegate must not start with "s3:", which holds for JSON
+ * and {@link com.amazonaws.services.simpleworkflow.flow.BinaryDataConverter}.
+ * This class requires the aws-java-sdk-s3 module and is thread safe.
+ */
+public class S3PayloadDataConverter extends DataConverter {
+
+    /**
+     * 32000 characters, under the 32768 characters limit of activity and
+     * workflow inputs and results
+     */
+    public static final int DEFAULT_THRESHOLD = 32000;
+
+    /** 16 objects */
+    public static final int DEFAULT_MAXIMUM_CACHED_PAYLOADS = 16;
+
+    /** "swf-payloads/" */
+    public static final String DEFAULT_KEY_PREFIX = "swf-payloads/";
+
+    static final String REFERENCE_PREFIX = "s3:";
+
+    private final DataConverter delegate;
+
+    private final AmazonS3 s3;
+
+    private final String bucketName;
+
+    private volatile String keyPrefix = DEFAULT_KEY_PREFIX;
+
+    private volatile int threshold = DEFAULT_THRESHOLD;
+
+    private volatile int maximumCachedPayloads = DEFAULT_MAXIMUM_CACHED_PAYLOADS;
+
+    /** Data of the most recently stored or read objects, by reference */
+    private final Map<String, String> cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > maximumCachedPayloads;
+        }
+    };
+
+    /**
+     * @param delegate
+     *            converter of the values, whose data is stored in S3 when
+     *            larger than the threshold
+     * @param s3
+     *            client used to store and read the data
+     * @param bucketName
+     *            bucket to store the data in
+     */
+    public S3PayloadDataConverter(DataConverter delegate, AmazonS3 s3, String bucketName) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate");
+        }
+        if (s3 == null) {
+            throw new IllegalArgumentException("s3");
+        }
+        if (bucketName == null || bucketName.isEmpty()) {
+            throw new IllegalArgumentException("bucketName");
+        }
+        this.delegate = delegate;
+        this.s3 = s3;
+        this.bucketName = bucketName;
+    }
+
+    public DataConverter getDelegate() {
+        return delegate;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    /**
+     * Prefix of the keys of the stored objects. Default is "swf-payloads/".
+     */
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Data longer than this many characters is stored in S3. Default is 32000.
+     * Lower it for values passed through smaller fields, such as heartbeat
+     * details.
+     */
+    public void setThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("negative threshold");
+        }
+        this.threshold = threshold;
+    }
+
+    public int getMaximumCachedPayloads() {
+        return maximumCachedPayloads;
+    }
+
+    /**
+     * Number of the most recently stored or read objects whose data is kept in
+     * memory. Default is 16. 0 disables caching.
+     */
+    public void setMaximumCachedPayloads(int maximumCachedPayloads) {
+        if (maximumCachedPayloads < 0) {
+            throw new IllegalArgumentException("negative maximumCachedPayloads");
+        }
+        this.maximumCachedPayloads = maximumCachedPayloads;
+    }
+
+    @Override
+    public String toData(Object value) throws DataConverterException {
+        String data = delegate.toData(value);
+        if (data == null || data.length() <= threshold) {
+            return data;
+        }
+        byte[] bytes = data.getBytes(StringUtils.UTF8);
+        String key = keyPrefix + BinaryUtils.toHex(sha256(bytes));
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(bytes.length);
+        metadata.setContentType("text/plain; charset=UTF-8");
+        try {
+            s3.putObject(bucketName, key, new ByteArrayInputStream(bytes), metadata);
+        }
+        catch (AmazonClientException e) {
+            throw new DataConverterException("Failure storing " + bytes.length + " bytes of data in s3://" + bucketName
+                    + "/" + key, e);
+        }
+        String reference = REFERENCE_PREFIX + bucketName + "/" + key;
+        cache(reference, data);
+        return reference;
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new DataConverterException("Unable to compute the SHA-256 digest of the data", e);
+        }
+    }
+
+    @Override
+    public <T> T fromData(String content, Class<T> valueType) throws DataConverterException {
+        if (content == null || !content.startsWith(REFERENCE_PREFIX)) {
+            return delegate.fromData(content, valueType);
+        }
+        String data;
+        synchronized (cache) {
+            data = cache.get(content);
+        }
+        if (data == null) {
+            data = read(content);
+            cache(content, data);
+        }
+        return delegate.fromData(data, valueType);
+    }
+
+    private String read(String reference) {
+        int separator = reference.indexOf('/', REFERENCE_PREFIX.length());
+        if (separator < 0) {
+            throw new DataConverterException("Invalid S3 reference: " + reference);
+        }
+        String bucket = reference.substring(REFERENCE_PREFIX.length(), separator);
+        String key = reference.substring(separator + 1);
+        try {
+            S3Object object = s3.getObject(bucket, key);
+            InputStream in = object.getObjectContent();
+            try {
+                return IOUtils.toString(in);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (AmazonClientException e) {
+            throw new DataConverterException("Failure reading data from s3://" + bucket + "/" + key, e);
+        }
+        catch (IOException e) {
+            throw new DataConverterException("Failure reading data from s3://" + bucket + "/" + key, e);
+        }
+    }
+
+    private void cache(String reference, String data) {
+        if (maximumCachedPayloads > 0) {
+            synchronized (cache) {
+                cache.put(reference, data);
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@ package com.amazonaws.services.simpleworkflow.flow.spring;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.context.SmartLifecycle;
@@ -24,6 +25,7 @@ import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.DataConverter;
 import com.amazonaws.services.simpleworkflow.flow.WorkerBase;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOActivityImplementationFactory;
+import com.amazonaws.services.simpleworkflow.flow.worker.ActivityHeartbeatManager;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericActivityWorker;
 import com.amazonaws.services.simpleworkflow.model.ActivityType;
 
@@ -168,6 +170,30 @@ public class SpringActivityWorker implements WorkerBase, SmartLifecycle {
     public void setTaskExecutorThreadPoolSize(int taskExecutorThreadPoolSize) {
         genericWorker.setTaskExecutorThreadPoolSize(taskExecutorThreadPoolSize);
     }
+
+    public ExecutorService getTaskExecutorService() {
+        return genericWorker.getTaskExecutorService();
+    }
+
+    public void setTaskExecutorService(ExecutorService taskExecutorService) {
+        genericWorker.setTaskExecutorService(taskExecutorService);
+    }
+
+    public ActivityHeartbeatManager getHeartbeatManager() {
+        return genericWorker.getHeartbeatManager();
+    }
+
+    public void setHeartbeatManager(ActivityHeartbeatManager heartbeatManager) {
+        genericWorker.setHeartbeatManager(heartbeatManager);
+    }
+
+    public int getMaximumPollThreadCount() {
+        return genericWorker.getMaximumPollThreadCount();
+    }
+
+    public void setMaximumPollThreadCount(int maximumPollThreadCount) {
+        genericWorker.setMaximumPollThreadCount(maximumPollThreadCount);
+    }
     
     public boolean isDisableServiceShutdownOnStop() {
         return genericWorker.isDisableServiceShutdownOnStop();
@@ -39,6 +39,8 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
     
     private final ActivityTask task;
 
+    private final ActivityHeartbeatManager.TaskHeartbeat heartbeat;
+
     /**
      * Create an ActivityExecutionContextImpl with the given attributes.
      * 
@@ -52,9 +54,20 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
      * @see ActivityExecutionContext
      */
     public ActivityExecutionContextImpl(AmazonSimpleWorkflow service, String domain, ActivityTask task) {
+        this(service, domain, task, null);
+    }
+
+    /**
+     * @param heartbeat
+     *            heartbeat of the task to record heartbeats through, or
+     *            <code>null</code> to send them synchronously
+     */
+    ActivityExecutionContextImpl(AmazonSimpleWorkflow service, String domain, ActivityTask task,
+            ActivityHeartbeatManager.TaskHeartbeat heartbeat) {
         this.domain = domain;
         this.service = service;
         this.task = task;
+        this.heartbeat = heartbeat;
     }
 
     /**
@@ -63,8 +76,10 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
      */
     @Override
     public void recordActivityHeartbeat(String details) throws CancellationException {
-        //TODO: call service with the specified minimal interval (through @ActivityExecutionOptions)
-        // allowing more frequent calls of this method.
+        if (heartbeat != null) {
+            heartbeat.record(details);
+            return;
+        }
         RecordActivityTaskHeartbeatRequest r = new RecordActivityTaskHeartbeatRequest();
         r.setTaskToken(task.getTaskToken());
         r.setDetails(details);
@@ -75,6 +90,14 @@ class ActivityExecutionContextImpl extends ActivityExecutionContext {
         }
     }
 
+    /**
+     * @see ActivityExecutionContext#isCancelRequested()
+     */
+    @Override
+    public boolean isCancelRequested() {
+        return heartbeat != null && heartbeat.isCancelRequested();
+    }
+
     /**
      * @see ActivityExecutionContext#getTask()
      */
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskStatus;
+import com.amazonaws.services.simpleworkflow.model.RecordActivityTaskHeartbeatRequest;
+import com.amazonaws.services.simpleworkflow.model.UnknownResourceException;
+
+/**
+ * Sends the heartbeats of activity tasks in the background. Without a manager,
+ * each call to
+ * {@link com.amazonaws.services.simpleworkflow.flow.ActivityExecutionContext#recordActivityHeartbeat(String)}
+ * makes a RecordActivityTaskHeartbeat request and blocks the activity until it
+ * completes. With a manager, the call only records the details and returns.
+ * The latest details of each task are sent at most once per heartbeat
+ * interval, on a small pool shared by all the tasks, so an activity can report
+ * progress as often as it likes.
+ * <p>
+ * The heartbeat interval of a task is a fraction of the default heartbeat
+ * timeout its activity type is registered with, as the actual timeout of a
+ * task isn't known to the worker. Heartbeats are only sent after the activity
+ * records one, so an activity that stops reporting progress still times out.
+ * <p>
+ * A cancellation request returned with a heartbeat is delivered to the
+ * activity by the next call to recordActivityHeartbeat, which throws a
+ * {@link CancellationException}, and through
+ * {@link com.amazonaws.services.simpleworkflow.flow.ActivityExecutionContext#isCancelRequested()}.
+ * Heartbeat requests that fail are retried with the latest details after
+ * another interval, except when the task no longer exists, in which case the
+ * {@link UnknownResourceException} is thrown to the activity instead.
+ * <p>
+ * Heartbeating through a manager is opt-in, see
+ * {@link GenericActivityWorker#setHeartbeatManager(ActivityHeartbeatManager)}.
+ * This class is thread safe, and a manager can be shared by several workers.
+ */
+public class ActivityHeartbeatManager {
+
+    private static final Log log = LogFactory.getLog(ActivityHeartbeatManager.class);
+
+    /** 4 threads */
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    /** A quarter of the heartbeat timeout */
+    public static final double DEFAULT_HEARTBEAT_TIMEOUT_FRACTION = 0.25;
+
+    /** 5 seconds */
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 5000;
+
+    private static final AtomicInteger managerIndex = new AtomicInteger();
+
+    final class TaskHeartbeat implements Runnable {
+
+        private final AmazonSimpleWorkflow service;
+
+        private final String taskToken;
+
+        private final long intervalMillis;
+
+        private String details;
+
+        /**
+         * Whether details were recorded that weren't sent yet.
+         */
+        private boolean pending;
+
+        /**
+         * Whether a send is scheduled or in progress.
+         */
+        private boolean scheduled;
+
+        private boolean closed;
+
+        private long lastSentNanos;
+
+        private ScheduledFuture<?> future;
+
+        private volatile boolean cancelRequested;
+
+        private volatile RuntimeException failure;
+
+        TaskHeartbeat(AmazonSimpleWorkflow service, String taskToken, long intervalMillis) {
+            this.service = service;
+            this.taskToken = taskToken;
+            this.intervalMillis = intervalMillis;
+            lastSentNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        }
+
+        /**
+         * Records the details to send with the next heartbeat, scheduling one
+         * if none is.
+         */
+        synchronized void record(String details) throws CancellationException {
+            if (failure != null) {
+                throw failure;
+            }
+            if (cancelRequested) {
+                throw new CancellationException();
+            }
+            this.details = details;
+            pending = true;
+            if (!scheduled && !closed) {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSentNanos);
+                schedule(Math.max(0, intervalMillis - elapsed));
+            }
+        }
+
+        boolean isCancelRequested() {
+            return cancelRequested;
+        }
+
+        long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        private void schedule(long delayMillis) {
+            try {
+                future = executor.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+                scheduled = true;
+            }
+            catch (RejectedExecutionException e) {
+                // The manager was shut down, the details are never sent
+                scheduled = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            String sent;
+            synchronized (this) {
+                if (closed || !pending) {
+                    scheduled = false;
+                    return;
+                }
+                sent = details;
+                pending = false;
+            }
+            try {
+                RecordActivityTaskHeartbeatRequest request = new RecordActivityTaskHeartbeatRequest();
+                request.setTaskToken(taskToken);
+                request.setDetails(sent);
+                ActivityTaskStatus status = service.recordActivityTaskHeartbeat(request);
+                if (status != null && Boolean.TRUE.equals(status.isCancelRequested())) {
+                    cancelRequested = true;
+                }
+            }
+            catch (UnknownResourceException e) {
+                failure = e;
+            }
+            catch (RuntimeException e) {
+                // Either an AmazonClientException or an unexpected failure;
+                // as the executor would swallow it, log it and retry
+                if (log.isWarnEnabled()) {
+                    log.warn("Failure recording heartbeat of activity task, retrying in " + intervalMillis + "ms", e);
+                }
+                synchronized (this) {
+                    if (!pending) {
+                        details = sent;
+                        pending = true;
+                    }
+                }
+            }
+            finally {
+                // Always reschedule or clear scheduled, otherwise no
+                // heartbeat of the task would ever be sent again
+                synchronized (this) {
+                    lastSentNanos = System.nanoTime();
+                    if (pending && !closed && failure == null && !cancelRequested) {
+                        schedule(intervalMillis);
+                    }
+                    else {
+                        scheduled = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private volatile double heartbeatTimeoutFraction = DEFAULT_HEARTBEAT_TIMEOUT_FRACTION;
+
+    private volatile long defaultHeartbeatIntervalMillis = DEFAULT_HEARTBEAT_INTERVAL_MILLIS;
+
+    public ActivityHeartbeatManager() {
+        this(DEFAULT_THREAD_COUNT);
+    }
+
+    /**
+     * @param threadCount
+     *            number of heartbeat requests that can be in progress at the
+     *            same time
+     */
+    public ActivityHeartbeatManager(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("0 or negative threadCount");
+        }
+        final String threadPrefix = "SWF Activity Heartbeat " + managerIndex.incrementAndGet() + " ";
+        executor = new ScheduledThreadPoolExecutor(threadCount, new ThreadFactory() {
+
+            private final AtomicInteger threadIndex = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread result = new Thread(r, threadPrefix + threadIndex.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    public double getHeartbeatTimeoutFraction() {
+        return heartbeatTimeoutFraction;
+    }
+
+    /**
+     * Fraction of the registered heartbeat timeout of an activity type used as
+     * the heartbeat interval of its tasks. Default is 0.25.
+     */
+    public void setHeartbeatTimeoutFraction(double heartbeatTimeoutFraction) {
+        if (heartbeatTimeoutFraction <= 0 || heartbeatTimeoutFraction > 1) {
+            throw new IllegalArgumentException("expected value should be in (0, 1]: " + heartbeatTimeoutFraction);
+        }
+        this.heartbeatTimeoutFraction = heartbeatTimeoutFraction;
+    }
+
+    public long getDefaultHeartbeatIntervalMillis() {
+        return defaultHeartbeatIntervalMillis;
+    }
+
+    /**
+     * Heartbeat interval of the tasks of activity types registered without a
+     * default heartbeat timeout. Default is 5 seconds.
+     */
+    public void setDefaultHeartbeatIntervalMillis(long defaultHeartbeatIntervalMillis) {
+        if (defaultHeartbeatIntervalMillis <= 0) {
+            throw new IllegalArgumentException("expected value should be positive: " + defaultHeartbeatIntervalMillis);
+        }
+        this.defaultHeartbeatIntervalMillis = defaultHeartbeatIntervalMillis;
+    }
+
+    /**
+     * Starts tracking the heartbeats of a task. The returned heartbeat must be
+     * closed once the task is done.
+     *
+     * @param heartbeatTimeoutSeconds
+     *            default heartbeat timeout of the activity type of the task,
+     *            or <code>null</code> if unknown
+     */
+    TaskHeartbeat register(AmazonSimpleWorkflow service, ActivityTask task, Long heartbeatTimeoutSeconds) {
+        return new TaskHeartbeat(service, task.getTaskToken(), getHeartbeatIntervalMillis(heartbeatTimeoutSeconds));
+    }
+
+    long getHeartbeatIntervalMillis(Long heartbeatTimeoutSeconds) {
+        if (heartbeatTimeoutSeconds == null || heartbeatTimeoutSeconds <= 0) {
+            return defaultHeartbeatIntervalMillis;
+        }
+        return Math.max(1, (long) (heartbeatTimeoutSeconds * 1000 * heartbeatTimeoutFraction));
+    }
+
+    /**
+     * Stops sending heartbeats. Details recorded afterwards are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "ActivityHeartbeatManager[threadCount=" + executor.getCorePoolSize() + ", heartbeatTimeoutFraction="
+                + heartbeatTimeoutFraction + ", defaultHeartbeatIntervalMillis=" + defaultHeartbeatIntervalMillis + "]";
+    }
+}
@@ -32,10 +32,12 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
 
     private static final Log log = LogFactory.getLog(ActivityTaskPoller.class);
 
-    private ThreadPoolExecutor taskExecutorService;
+    private ExecutorService taskExecutorService;
 
     protected Semaphore pollSemaphore;
 
+    private WorkerMetrics metrics;
+
     private UncaughtExceptionHandler uncaughtExceptionHandler = new UncaughtExceptionHandler() {
 
         @Override
@@ -50,13 +52,46 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
         setTaskExecutorService(taskExecutorService);
     }
 
+    /**
+     * @param maximumConcurrentTasks
+     *            maximum number of polled activity tasks that are queued or
+     *            executing on the given executor service, no more tasks are
+     *            polled until one of them completes
+     */
+    public ActivityTaskPoller(AmazonSimpleWorkflow service, String domain, String pollTaskList,
+            ActivityImplementationFactory activityImplementationFactory, ExecutorService taskExecutorService,
+            int maximumConcurrentTasks) {
+        super(service, domain, pollTaskList, activityImplementationFactory);
+        setTaskExecutorService(taskExecutorService, maximumConcurrentTasks);
+    }
+
     public ExecutorService getTaskExecutorService() {
         return taskExecutorService;
     }
 
     public void setTaskExecutorService(ThreadPoolExecutor taskExecutorService) {
+        setTaskExecutorService(taskExecutorService, taskExecutorService.getMaximumPoolSize());
+    }
+
+    public void setTaskExecutorService(ExecutorService taskExecutorService, int maximumConcurrentTasks) {
+        if (maximumConcurrentTasks < 1) {
+            throw new IllegalArgumentException("0 or negative maximumConcurrentTasks");
+        }
         this.taskExecutorService = taskExecutorService;
-        pollSemaphore = new Semaphore(taskExecutorService.getMaximumPoolSize());
+        pollSemaphore = new Semaphore(maximumConcurrentTasks);
+    }
+
+    public WorkerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics
+     *            counters to record the queueing and execution time of the
+     *            polled tasks in, or <code>null</code> for none
+     */
+    public void setMetrics(WorkerMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -83,18 +118,28 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
                 return false;
             }
             semaphoreNeedsRelease = false;
+            final long polledNanos = System.nanoTime();
             try {
                 taskExecutorService.execute(new Runnable() {
 
                     @Override
                     public void run() {
+                        long startNanos = System.nanoTime();
+                        if (metrics != null) {
+                            metrics.taskStarted(startNanos - polledNanos);
+                        }
+                        boolean failed = true;
                         try {
                             execute(task);
+                            failed = false;
                         }
                         catch (Throwable ee) {
                             uncaughtExceptionHandler.uncaughtException(Thread.currentThread(), wrapFailure(task, ee));
                         }
                         finally {
+                            if (metrics != null) {
+                                metrics.taskCompleted(failed, System.nanoTime() - startNanos);
+                            }
                             pollSemaphore.release();
                         }
                     }
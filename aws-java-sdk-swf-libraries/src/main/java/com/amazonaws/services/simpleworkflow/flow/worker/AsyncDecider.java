@@ -16,6 +16,7 @@ package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 
 import org.apache.commons.logging.Log;
@@ -25,6 +26,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
 import com.amazonaws.services.simpleworkflow.flow.WorkflowException;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncScope;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
 import com.amazonaws.services.simpleworkflow.flow.core.Promise;
@@ -131,7 +133,7 @@ class AsyncDecider {
 
     private WorkflowDefinition definition;
 
-    private final HistoryHelper historyHelper;
+    private HistoryHelper historyHelper;
 
     private final DecisionsHelper decisionsHelper;
 
@@ -155,6 +157,12 @@ class AsyncDecider {
 
     private Throwable failure;
 
+    /**
+     * Workflow execution locals of a decider suspended to be resumed on the
+     * next decision task; null if the decider isn't suspended.
+     */
+    private Map<WorkflowExecutionLocal<?>, Object> suspendedLocals;
+
     public AsyncDecider(WorkflowDefinitionFactory workflowDefinitionFactory, HistoryHelper historyHelper,
             DecisionsHelper decisionsHelper) throws Exception {
         this.workflowDefinitionFactory = workflowDefinitionFactory;
@@ -173,6 +181,7 @@ class AsyncDecider {
     }
 
     private void handleWorkflowExecutionStarted(HistoryEvent event) {
+        workflowContext.setWorkflowStartedEventAttributes(event.getWorkflowExecutionStartedEventAttributes());
         workflowAsyncScope = new WorkflowExecuteAsyncScope(event);
     }
 
@@ -425,10 +434,52 @@ class AsyncDecider {
     }
 
     public void decide() throws Exception {
+        decide(false);
+    }
+
+    /**
+     * Continues the decisions of a suspended decider with the events that
+     * happened since the decision task it was suspended at, instead of
+     * replaying the whole history.
+     * 
+     * @param newEvents
+     *            the events that follow the DecisionTaskStarted event of the
+     *            previous decision task, up to the DecisionTaskStarted event of
+     *            the new one
+     * @param suspend
+     *            whether to suspend the decider again after the decision, see
+     *            {@link #decide(boolean)}
+     */
+    public void decide(HistoryHelper newEvents, boolean suspend) throws Exception {
+        if (!isSuspended()) {
+            throw new IllegalStateException("Decider is not suspended");
+        }
+        historyHelper = newEvents;
+        decisionsHelper.setTask(newEvents.getDecisionTask());
+        decide(suspend);
+    }
+
+    /**
+     * @param suspend
+     *            whether to keep the workflow definition after the decision,
+     *            so that the decider can be resumed with
+     *            {@link #decide(HistoryHelper, boolean)} on the next decision
+     *            task of the execution instead of being replayed. The decider
+     *            is only suspended if the decision succeeded and didn't close
+     *            the workflow; otherwise the definition is deleted as usual.
+     */
+    public void decide(boolean suspend) throws Exception {
+        boolean decided = false;
         try {
-            definition = workflowDefinitionFactory.getWorkflowDefinition(context);
-            if (definition == null) {
-                throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
+            if (isSuspended()) {
+                CurrentDecisionContext.resume(suspendedLocals);
+                suspendedLocals = null;
+            }
+            else {
+                definition = workflowDefinitionFactory.getWorkflowDefinition(context);
+                if (definition == null) {
+                    throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
+                }
             }
             long lastNonReplayedEventId = historyHelper.getLastNonReplayEventId();
             // Buffer events until the next DecisionTaskStarted and then process them
@@ -504,6 +555,7 @@ class AsyncDecider {
                 unhandledDecision = false;
                 completeWorkflow();
             }
+            decided = true;
         }
         catch (AmazonServiceException e) {
             // We don't want to fail workflow on service exceptions like 500 or throttling
@@ -534,7 +586,41 @@ class AsyncDecider {
             catch (Throwable e) {
                 decisionsHelper.setWorkflowContextData(e.getMessage());
             }
-            workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+            if (suspend && decided && !completed && !decisionsHelper.isWorkflowFailed()) {
+                suspendedLocals = CurrentDecisionContext.suspend();
+                // The history is no longer needed
+                historyHelper = null;
+            }
+            else {
+                workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+            }
+        }
+    }
+
+    /**
+     * @return true if the decider has been suspended at the end of its last
+     *         decision, and can be resumed with
+     *         {@link #decide(HistoryHelper, boolean)}
+     */
+    public boolean isSuspended() {
+        return suspendedLocals != null;
+    }
+
+    /**
+     * Deletes the workflow definition of a suspended decider that isn't going
+     * to be resumed.
+     */
+    public void dispose() {
+        if (!isSuspended()) {
+            return;
+        }
+        CurrentDecisionContext.resume(suspendedLocals);
+        suspendedLocals = null;
+        try {
+            workflowDefinitionFactory.deleteWorkflowDefinition(definition);
+        }
+        finally {
+            CurrentDecisionContext.unset();
         }
     }
 
@@ -14,19 +14,24 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.services.simpleworkflow.flow.NonDeterministicWorkflowException;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
 import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinition;
 import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactory;
 import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
 import com.amazonaws.services.simpleworkflow.model.Decision;
 import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
 import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 
@@ -37,21 +42,144 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
     private static final Log asyncThreadDumpLog = LogFactory.getLog(AsyncDecisionTaskHandler.class.getName()
             + ".waitingTasksStacks");
 
+    /**
+     * Reads back the history of a decision task polled in reverse order,
+     * newest events first, only as far as needed.
+     */
+    private static class ReverseHistory {
+
+        private final Iterator<DecisionTask> pages;
+
+        private final List<HistoryEvent> newestFirst = new ArrayList<HistoryEvent>();
+
+        private List<HistoryEvent> page;
+
+        private int index;
+
+        private long stoppedAtEventId;
+
+        public ReverseHistory(DecisionTask firstPage, Iterator<DecisionTask> nextPages) {
+            this.page = firstPage.getEvents();
+            this.pages = nextPages;
+        }
+
+        /**
+         * Reads the events newer than the given event, fetching further pages
+         * as needed.
+         * 
+         * @param eventId
+         *            id of the newest event not to read; 0 to read the whole
+         *            history
+         */
+        public void readBackTo(long eventId) {
+            while (true) {
+                if (page != null) {
+                    for (; index < page.size(); index++) {
+                        HistoryEvent event = page.get(index);
+                        if (event.getEventId() <= eventId) {
+                            stoppedAtEventId = event.getEventId();
+                            return;
+                        }
+                        newestFirst.add(event);
+                    }
+                }
+                if (!pages.hasNext()) {
+                    stoppedAtEventId = 0;
+                    return;
+                }
+                page = pages.next().getEvents();
+                index = 0;
+            }
+        }
+
+        /**
+         * @return id of the event the last read stopped at; 0 if it reached
+         *         the start of the history
+         */
+        public long getStoppedAtEventId() {
+            return stoppedAtEventId;
+        }
+
+        /**
+         * @return the events read so far, oldest first
+         */
+        public List<HistoryEvent> getEvents() {
+            List<HistoryEvent> result = new ArrayList<HistoryEvent>(newestFirst.size());
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                result.add(newestFirst.get(i));
+            }
+            return result;
+        }
+    }
+
     private final WorkflowDefinitionFactoryFactory definitionFactoryFactory;
 
+    private final DeciderCache deciderCache;
+
     public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory) {
+        this(definitionFactoryFactory, null);
+    }
+
+    /**
+     * @param deciderCache
+     *            cache of the deciders of open executions, or null to replay
+     *            the whole history of each decision task
+     */
+    public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory, DeciderCache deciderCache) {
         this.definitionFactoryFactory = definitionFactoryFactory;
+        this.deciderCache = deciderCache;
+    }
+
+    /**
+     * With a decider cache, the history is read backwards from the newest
+     * event, so that only the events a cached decider hasn't seen are
+     * fetched.
+     */
+    @Override
+    public boolean isHistoryInReverseOrder() {
+        return deciderCache != null;
     }
 
     @Override
     public RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator) throws Exception {
-        HistoryHelper historyHelper = new HistoryHelper(decisionTaskIterator);
-        AsyncDecider decider = createDecider(historyHelper);
-        decider.decide();
+        return handleDecisionTask(decisionTaskIterator, false);
+    }
+
+    /**
+     * Decides the given decision task as
+     * {@link #handleDecisionTask(Iterator)} does, but throws a
+     * {@link NonDeterministicWorkflowException} raised by the replay of its
+     * history instead of returning a decision failing the workflow with it.
+     * Used to check recorded histories against the workflow code.
+     */
+    public RespondDecisionTaskCompletedRequest replayDecisionTask(Iterator<DecisionTask> decisionTaskIterator) throws Exception {
+        return handleDecisionTask(decisionTaskIterator, true);
+    }
+
+    private RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator,
+            boolean replay) throws Exception {
+        AsyncDecider decider;
+        DecisionTask decisionTask;
+        if (deciderCache == null) {
+            HistoryHelper historyHelper = new HistoryHelper(decisionTaskIterator);
+            decider = createDecider(historyHelper);
+            decider.decide();
+            decisionTask = historyHelper.getDecisionTask();
+        }
+        else {
+            decisionTask = decisionTaskIterator.next();
+            decider = decideWithCache(decisionTask, decisionTaskIterator);
+        }
         DecisionsHelper decisionsHelper = decider.getDecisionsHelper();
+        if (replay) {
+            for (Throwable e = decisionsHelper.getWorkflowFailureCause(); e != null; e = e.getCause()) {
+                if (e instanceof NonDeterministicWorkflowException) {
+                    throw (NonDeterministicWorkflowException) e;
+                }
+            }
+        }
         Collection<Decision> decisions = decisionsHelper.getDecisions();
         String context = decisionsHelper.getWorkflowContextDataToReturn();
-        DecisionTask decisionTask = historyHelper.getDecisionTask();
         if (log.isDebugEnabled()) {
             log.debug("WorkflowTask taskId=" + decisionTask.getStartedEventId() + ", taskToken=" + decisionTask.getTaskToken()
                     + " completed with " + decisions.size() + " new decisions");
@@ -95,6 +223,104 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
         return decider.getAsynchronousThreadDumpAsString();
     }
 
+    /**
+     * Decides with the cached decider of the execution if there is one that is
+     * up to date, applying to it only the events that happened since its last
+     * decision task; otherwise replays the whole history. The decider is
+     * cached again afterwards, unless the workflow is closing.
+     * <p>
+     * As the history is polled newest events first, a replay can only start
+     * once all of it has been fetched: on a miss the whole history is held in
+     * memory for the duration of the decision, unlike without a cache, where
+     * the pages are fetched as the replay progresses.
+     */
+    private AsyncDecider decideWithCache(DecisionTask decisionTask, Iterator<DecisionTask> nextPages) throws Exception {
+        String runId = decisionTask.getWorkflowExecution().getRunId();
+        ReverseHistory history = new ReverseHistory(decisionTask, nextPages);
+        DeciderCache.Entry cached = deciderCache.take(runId);
+        if (cached != null) {
+            boolean resumed = false;
+            try {
+                long lastStartedEventId = cached.getStartedEventId();
+                history.readBackTo(lastStartedEventId);
+                List<HistoryEvent> newEvents = history.getEvents();
+                if (isContinuation(decisionTask, history, newEvents, lastStartedEventId)) {
+                    deciderCache.recordHit();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Resuming cached decider of " + decisionTask.getWorkflowExecution() + " with "
+                                + newEvents.size() + " new events");
+                    }
+                    AsyncDecider decider = cached.getDecider();
+                    resumed = true;
+                    DecisionTask page = singlePage(decisionTask, newEvents);
+                    decider.decide(new HistoryHelper(Collections.singletonList(page).iterator()), true);
+                    cache(runId, decider, page, cached.getEventCount() + newEvents.size());
+                    return decider;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Cached decider of " + decisionTask.getWorkflowExecution()
+                            + " is out of date, replaying the whole history");
+                }
+            }
+            finally {
+                if (!resumed) {
+                    cached.getDecider().dispose();
+                }
+            }
+        }
+        deciderCache.recordMiss();
+        // Buffers the whole history, which has to be replayed oldest first
+        history.readBackTo(0);
+        List<HistoryEvent> events = history.getEvents();
+        DecisionTask page = singlePage(decisionTask, events);
+        HistoryHelper historyHelper = new HistoryHelper(Collections.singletonList(page).iterator());
+        AsyncDecider decider = createDecider(historyHelper);
+        decider.decide(true);
+        cache(runId, decider, page, events.size());
+        return decider;
+    }
+
+    /**
+     * @return true if the given new events directly follow the decision task
+     *         the cached decider was suspended at, and that decision task
+     *         completed, so that its decisions were recorded.
+     */
+    private static boolean isContinuation(DecisionTask decisionTask, ReverseHistory history, List<HistoryEvent> newEvents,
+            long lastStartedEventId) {
+        Long previousStartedEventId = decisionTask.getPreviousStartedEventId();
+        if (previousStartedEventId == null || previousStartedEventId != lastStartedEventId
+                || history.getStoppedAtEventId() != lastStartedEventId || newEvents.isEmpty()) {
+            return false;
+        }
+        HistoryEvent first = newEvents.get(0);
+        return first.getEventId() == lastStartedEventId + 1
+                && EventType.DecisionTaskCompleted.toString().equals(first.getEventType())
+                && first.getDecisionTaskCompletedEventAttributes().getStartedEventId() == lastStartedEventId;
+    }
+
+    /**
+     * @return a copy of the given decision task with the given events as its
+     *         only history page
+     */
+    private static DecisionTask singlePage(DecisionTask decisionTask, List<HistoryEvent> events) {
+        DecisionTask result = new DecisionTask();
+        result.setTaskToken(decisionTask.getTaskToken());
+        result.setWorkflowExecution(decisionTask.getWorkflowExecution());
+        result.setWorkflowType(decisionTask.getWorkflowType());
+        result.setStartedEventId(decisionTask.getStartedEventId());
+        result.setPreviousStartedEventId(decisionTask.getPreviousStartedEventId());
+        result.setEvents(events);
+        return result;
+    }
+
+    private void cache(String runId, AsyncDecider decider, DecisionTask page, long eventCount) {
+        if (decider.isSuspended()) {
+            // The decider keeps a reference to the page
+            page.setEvents(null);
+            deciderCache.put(runId, new DeciderCache.Entry(decider, page.getStartedEventId(), eventCount));
+        }
+    }
+
     private AsyncDecider createDecider(HistoryHelper historyHelper) throws Exception {
         DecisionTask decisionTask = historyHelper.getDecisionTask();
         WorkflowType workflowType = decisionTask.getWorkflowType();
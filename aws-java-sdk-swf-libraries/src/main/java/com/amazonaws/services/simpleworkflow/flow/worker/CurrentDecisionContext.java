@@ -14,6 +14,8 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
+import java.util.Map;
+
 import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
 import com.amazonaws.services.simpleworkflow.flow.DecisionContextProviderImpl;
 import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
@@ -63,4 +65,22 @@ public abstract class CurrentDecisionContext {
         WorkflowExecutionLocal.after();
     }
 
+    /**
+     * Unsets the context of a decision that is going to be resumed later with
+     * {@link #resume(Map)}, and returns its workflow execution locals.
+     */
+    static Map<WorkflowExecutionLocal<?>, Object> suspend() {
+        Map<WorkflowExecutionLocal<?>, Object> result = WorkflowExecutionLocal.capture();
+        unset();
+        return result;
+    }
+
+    /**
+     * Sets the context, and the other workflow execution locals, of a
+     * decision suspended with {@link #suspend()}.
+     */
+    static void resume(Map<WorkflowExecutionLocal<?>, Object> suspended) {
+        WorkflowExecutionLocal.restore(suspended);
+    }
+
 }
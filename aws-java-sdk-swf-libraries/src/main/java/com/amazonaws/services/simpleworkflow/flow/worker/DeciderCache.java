@@ -0,0 +1,259 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ * 
+ * http://aws.amazon.com/apache2.0
+ * 
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Cache of the deciders of open workflow executions. With a cache, a workflow
+ * worker keeps the decider of an execution alive after a decision task, and
+ * on the next decision task of the same execution only fetches the events
+ * that happened since, and applies them to the cached decider, instead of
+ * fetching and replaying the whole history. Should the cached decider turn
+ * out to be out of date, for example because its last decisions were never
+ * recorded, the whole history is replayed as usual.
+ * <p>
+ * The cache is bounded by a number of executions and by an estimate of the
+ * memory used by the cached deciders, which grows with the number of events
+ * applied to them. The least recently used deciders are evicted first.
+ * <p>
+ * With a cache, the history of a decision task is polled newest events first.
+ * On a miss, the whole history is therefore fetched and held in memory before
+ * it is replayed, whereas without a cache it is replayed page by page. Workers
+ * of executions with very long histories that are seldom decided by a cached
+ * decider may be better off without a cache.
+ * <p>
+ * Caching is opt-in, see
+ * {@link GenericWorkflowWorker#setDeciderCache(DeciderCache)}. As a cached
+ * workflow implementation instance lives on across decision tasks, possibly on
+ * different threads, it must not rely on thread locals other than
+ * {@link com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal},
+ * which are kept with it. This class is thread safe, and a cache can be shared
+ * by several workers.
+ */
+public class DeciderCache {
+
+    private static final Log log = LogFactory.getLog(DeciderCache.class);
+
+    /** 1000 executions */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /** 64 megabytes */
+    public static final long DEFAULT_MAXIMUM_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    /** Estimated memory retained by a decider, regardless of its history. */
+    static final long ESTIMATED_BYTES_PER_DECIDER = 16 * 1024;
+
+    /** Estimated memory retained by a decider per event applied to it. */
+    static final long ESTIMATED_BYTES_PER_EVENT = 512;
+
+    static final class Entry {
+
+        private final AsyncDecider decider;
+
+        private final long startedEventId;
+
+        private final long eventCount;
+
+        /**
+         * @param decider
+         *            a suspended decider
+         * @param startedEventId
+         *            id of the DecisionTaskStarted event of the decision task
+         *            the decider was suspended at
+         * @param eventCount
+         *            the number of history events applied to the decider
+         */
+        Entry(AsyncDecider decider, long startedEventId, long eventCount) {
+            this.decider = decider;
+            this.startedEventId = startedEventId;
+            this.eventCount = eventCount;
+        }
+
+        AsyncDecider getDecider() {
+            return decider;
+        }
+
+        long getStartedEventId() {
+            return startedEventId;
+        }
+
+        long getEventCount() {
+            return eventCount;
+        }
+
+        long getEstimatedMemoryBytes() {
+            return ESTIMATED_BYTES_PER_DECIDER + eventCount * ESTIMATED_BYTES_PER_EVENT;
+        }
+    }
+
+    private final int maximumSize;
+
+    private final long maximumMemoryBytes;
+
+    /** Access ordered, so that the eldest entry is the least recently used */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    private long hitCount;
+
+    private long missCount;
+
+    public DeciderCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_MEMORY_BYTES);
+    }
+
+    /**
+     * @param maximumSize
+     *            the maximum number of executions whose decider is cached
+     * @param maximumMemoryBytes
+     *            the maximum estimated memory used by the cached deciders
+     */
+    public DeciderCache(int maximumSize, long maximumMemoryBytes) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        if (maximumMemoryBytes < 1) {
+            throw new IllegalArgumentException("maximumMemoryBytes must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.maximumMemoryBytes = maximumMemoryBytes;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getMaximumMemoryBytes() {
+        return maximumMemoryBytes;
+    }
+
+    /**
+     * @return the number of executions whose decider is cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated memory used by the cached deciders
+     */
+    public synchronized long getEstimatedMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return the number of decision tasks decided by a cached decider
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of decision tasks that required replaying the whole
+     *         history
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Evicts all the cached deciders.
+     */
+    public void invalidateAll() {
+        List<Entry> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<Entry>(entries.values());
+            entries.clear();
+            memoryBytes = 0;
+        }
+        dispose(evicted);
+    }
+
+    /**
+     * Removes and returns the cached decider of the given execution, which
+     * the caller becomes responsible for putting back or disposing of.
+     * 
+     * @return the cached decider, or null if none
+     */
+    synchronized Entry take(String runId) {
+        Entry result = entries.remove(runId);
+        if (result != null) {
+            memoryBytes -= result.getEstimatedMemoryBytes();
+        }
+        return result;
+    }
+
+    /**
+     * Caches the given decider, evicting the least recently used ones if
+     * needed. Must not be called by a thread in the middle of a decision, as
+     * evicted deciders are disposed of by the calling thread.
+     */
+    void put(String runId, Entry entry) {
+        List<Entry> evicted = new ArrayList<Entry>();
+        synchronized (this) {
+            Entry previous = entries.put(runId, entry);
+            if (previous != null) {
+                memoryBytes -= previous.getEstimatedMemoryBytes();
+                evicted.add(previous);
+            }
+            memoryBytes += entry.getEstimatedMemoryBytes();
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maximumSize || memoryBytes > maximumMemoryBytes) && eldest.hasNext()) {
+                Entry e = eldest.next().getValue();
+                eldest.remove();
+                memoryBytes -= e.getEstimatedMemoryBytes();
+                evicted.add(e);
+            }
+        }
+        if (log.isDebugEnabled() && !evicted.isEmpty()) {
+            log.debug("Evicting " + evicted.size() + " cached deciders");
+        }
+        dispose(evicted);
+    }
+
+    synchronized void recordHit() {
+        hitCount++;
+    }
+
+    synchronized void recordMiss() {
+        missCount++;
+    }
+
+    private static void dispose(List<Entry> evicted) {
+        for (Entry e : evicted) {
+            try {
+                e.getDecider().dispose();
+            }
+            catch (RuntimeException ex) {
+                log.warn("Failure disposing of a cached decider", ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DeciderCache[size=" + entries.size() + ", estimatedMemoryBytes=" + memoryBytes + ", hitCount=" + hitCount
+                + ", missCount=" + missCount + "]";
+    }
+}
@@ -53,6 +53,15 @@ public abstract class DecisionTaskHandler {
      */
     public abstract RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator) throws Exception;
 
+    /**
+     * @return true if the history pages passed to
+     *         {@link #handleDecisionTask(Iterator)} are to be polled in reverse
+     *         order, newest events first
+     */
+    public boolean isHistoryInReverseOrder() {
+        return false;
+    }
+
     public abstract List<AsyncTaskInfo> getAsynchronousThreadDump(Iterator<DecisionTask> decisionTaskIterator) throws Exception;
 
     public abstract String getAsynchronousThreadDumpAsString(Iterator<DecisionTask> decisionTaskIterator) throws Exception;
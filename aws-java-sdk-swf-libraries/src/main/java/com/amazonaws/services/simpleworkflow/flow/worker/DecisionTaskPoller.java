@@ -162,6 +162,9 @@ public class DecisionTaskPoller implements TaskPoller {
         pollRequest.setDomain(domain);
         pollRequest.setIdentity(identity);
         pollRequest.setNextPageToken(nextResultToken);
+        if (decisionTaskHandler.isHistoryInReverseOrder()) {
+            pollRequest.setReverseOrder(true);
+        }
 
         pollRequest.setTaskList(new TaskList().withName(taskListToPoll));
 
@@ -23,6 +23,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.amazonaws.services.simpleworkflow.flow.NonDeterministicWorkflowException;
 import com.amazonaws.services.simpleworkflow.flow.WorkflowException;
 import com.amazonaws.services.simpleworkflow.flow.common.FlowHelpers;
 import com.amazonaws.services.simpleworkflow.flow.common.WorkflowExecutionUtils;
@@ -70,7 +71,7 @@ class DecisionsHelper {
 
     static final String FORCE_IMMEDIATE_DECISION_TIMER = "FORCE_IMMEDIATE_DECISION";
 
-    private final DecisionTask task;
+    private DecisionTask task;
 
     private long idCounter;
 
@@ -496,6 +497,10 @@ class DecisionsHelper {
         return task;
     }
 
+    void setTask(DecisionTask task) {
+        this.task = task;
+    }
+
     String getActivityId(ActivityTaskCanceledEventAttributes attributes) {
         Long sourceId = attributes.getScheduledEventId();
         return activitySchedulingEventIdToActivityId.get(sourceId);
@@ -547,7 +552,7 @@ class DecisionsHelper {
     private DecisionStateMachine getDecision(DecisionId decisionId) {
         DecisionStateMachine result = decisions.get(decisionId);
         if (result == null) {
-            throw new IllegalArgumentException("Unknown " + decisionId + ". The possible causes are "
+            throw new NonDeterministicWorkflowException("Unknown " + decisionId + ". The possible causes are "
                     + "nondeterministic workflow definition code or incompatible change in the workflow definition.");
         }
         return result;
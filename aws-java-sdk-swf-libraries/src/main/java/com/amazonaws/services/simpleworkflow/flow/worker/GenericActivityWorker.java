@@ -14,6 +14,7 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -45,6 +46,10 @@ public class GenericActivityWorker extends GenericWorker {
 
     private int taskExecutorThreadPoolSize = 100;
 
+    private ExecutorService taskExecutorService;
+
+    private ActivityHeartbeatManager heartbeatManager;
+
     public GenericActivityWorker(AmazonSimpleWorkflow service, String domain, String taskListToPoll) {
         super(service, domain, taskListToPoll);
         if (service == null) {
@@ -76,6 +81,45 @@ public class GenericActivityWorker extends GenericWorker {
         this.taskExecutorThreadPoolSize = taskExecutorThreadPoolSize;
     }
 
+    /**
+     * @see #setTaskExecutorService(ExecutorService)
+     */
+    public ExecutorService getTaskExecutorService() {
+        return taskExecutorService;
+    }
+
+    /**
+     * Executor service to execute activity tasks on instead of the internal
+     * thread pool, for example
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code> on Java 21 or
+     * later, which lets a worker execute many activities that mostly wait on
+     * I/O without a platform thread each. The number of activity tasks that
+     * are polled and not yet completed is still bounded by
+     * {@link #setTaskExecutorThreadPoolSize(int)}, which can be raised
+     * accordingly. The executor service is shut down with the worker. Default
+     * is <code>null</code>, which uses a pool of up to
+     * {@link #getTaskExecutorThreadPoolSize()} threads.
+     */
+    public void setTaskExecutorService(ExecutorService taskExecutorService) {
+        checkStarted();
+        this.taskExecutorService = taskExecutorService;
+    }
+
+    public ActivityHeartbeatManager getHeartbeatManager() {
+        return heartbeatManager;
+    }
+
+    /**
+     * Manager to record activity heartbeats through. With a manager, heartbeats
+     * are coalesced and sent in the background instead of blocking the
+     * activity on each call, see {@link ActivityHeartbeatManager}. Default is
+     * <code>null</code>, which sends every heartbeat synchronously.
+     */
+    public void setHeartbeatManager(ActivityHeartbeatManager heartbeatManager) {
+        checkStarted();
+        this.heartbeatManager = heartbeatManager;
+    }
+
     protected Semaphore createPollSemaphore() {
         return new Semaphore(taskExecutorThreadPoolSize);
     }
@@ -93,11 +137,21 @@ public class GenericActivityWorker extends GenericWorker {
 
     @Override
     protected TaskPoller createPoller() {
-        ThreadPoolExecutor tasksExecutor = new ThreadPoolExecutor(1, taskExecutorThreadPoolSize, 1, TimeUnit.MINUTES,
-                new SynchronousQueue<Runnable>());
-        tasksExecutor.setThreadFactory(new ExecutorThreadFactory(ACTIVITY_THREAD_NAME_PREFIX + " " + getTaskListToPoll() + " "));
-        tasksExecutor.setRejectedExecutionHandler(new BlockCallerPolicy());
-        return new ActivityTaskPoller(service, domain, getTaskListToPoll(), activityImplementationFactory, tasksExecutor);
+        ActivityTaskPoller poller;
+        if (taskExecutorService != null) {
+            poller = new ActivityTaskPoller(service, domain, getTaskListToPoll(), activityImplementationFactory,
+                    taskExecutorService, taskExecutorThreadPoolSize);
+        }
+        else {
+            ThreadPoolExecutor tasksExecutor = new ThreadPoolExecutor(1, taskExecutorThreadPoolSize, 1, TimeUnit.MINUTES,
+                    new SynchronousQueue<Runnable>());
+            tasksExecutor.setThreadFactory(new ExecutorThreadFactory(ACTIVITY_THREAD_NAME_PREFIX + " " + getTaskListToPoll() + " "));
+            tasksExecutor.setRejectedExecutionHandler(new BlockCallerPolicy());
+            poller = new ActivityTaskPoller(service, domain, getTaskListToPoll(), activityImplementationFactory, tasksExecutor);
+        }
+        poller.setMetrics(getMetrics());
+        poller.setHeartbeatManager(heartbeatManager);
+        return poller;
     }
 
     @Override
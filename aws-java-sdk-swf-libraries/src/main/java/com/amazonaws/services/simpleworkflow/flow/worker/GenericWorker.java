@@ -18,6 +18,7 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -58,6 +59,11 @@ public abstract class GenericWorker implements WorkerBase {
 
         private final TaskPoller poller;
 
+        /**
+         * Number of consecutive polls of this task that didn't return a task.
+         */
+        private int emptyPolls;
+
         PollServiceTask(TaskPoller poller) {
             this.poller = poller;
         }
@@ -91,8 +97,24 @@ public abstract class GenericWorker implements WorkerBase {
                 if (pollExecutor.isTerminating()) {
                     return;
                 }
-                poller.pollAndProcessSingleTask();
+                long start = System.nanoTime();
+                boolean taskReceived;
+                try {
+                    taskReceived = poller.pollAndProcessSingleTask();
+                }
+                catch (Throwable e) {
+                    metrics.pollFailed(System.nanoTime() - start);
+                    throw e;
+                }
+                metrics.pollCompleted(taskReceived, System.nanoTime() - start);
                 pollBackoffThrottler.success();
+                if (taskReceived) {
+                    emptyPolls = 0;
+                    addPoller();
+                }
+                else {
+                    emptyPolls++;
+                }
             }
             catch (Throwable e) {
                 pollBackoffThrottler.failure();
@@ -101,9 +123,25 @@ public abstract class GenericWorker implements WorkerBase {
                 }
             }
             finally {
-                // Resubmit itself back to pollExecutor
-                if (!pollExecutor.isShutdown()) {
-                    pollExecutor.execute(this);
+                // Resubmit itself back to pollExecutor unless there are
+                // more pollers than the task list currently needs
+                if (pollExecutor.isShutdown()) {
+                    metrics.pollerStopped();
+                }
+                else if (emptyPolls >= EMPTY_POLLS_TO_STOP_POLLER && removePoller()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("poll task stopped after " + emptyPolls + " empty polls, pollers=" + pollerCount.get());
+                    }
+                    metrics.pollerStopped();
+                }
+                else {
+                    try {
+                        pollExecutor.execute(this);
+                    }
+                    catch (RejectedExecutionException e) {
+                        // Shut down since the check above
+                        metrics.pollerStopped();
+                    }
                 }
             }
         }
@@ -113,6 +151,12 @@ public abstract class GenericWorker implements WorkerBase {
 
     protected static final int MAX_IDENTITY_LENGTH = 256;
 
+    /**
+     * Number of consecutive empty polls after which a poller above
+     * {@link #getPollThreadCount()} is stopped.
+     */
+    private static final int EMPTY_POLLS_TO_STOP_POLLER = 2;
+
     protected AmazonSimpleWorkflow service;
 
     protected String domain;
@@ -145,6 +189,12 @@ public abstract class GenericWorker implements WorkerBase {
 
     private int pollThreadCount = 1;
 
+    private int maximumPollThreadCount;
+
+    private final AtomicInteger pollerCount = new AtomicInteger();
+
+    private WorkerMetrics metrics;
+
     private BackoffThrottler pollBackoffThrottler;
 
     private Throttler pollRateThrottler;
@@ -338,6 +388,37 @@ public abstract class GenericWorker implements WorkerBase {
         this.pollThreadCount = threadCount;
     }
 
+    /**
+     * @see #setMaximumPollThreadCount(int)
+     */
+    public int getMaximumPollThreadCount() {
+        return Math.max(pollThreadCount, maximumPollThreadCount);
+    }
+
+    /**
+     * Enables scaling the number of poll threads with the backlog of the task
+     * list. The worker starts {@link #getPollThreadCount()} poll threads. Each
+     * poll that returns a task starts another poll thread, up to the given
+     * maximum, and a poll thread that gets two empty polls in a row stops,
+     * down to {@link #getPollThreadCount()}. Default is the poll thread
+     * count, which disables scaling.
+     */
+    public void setMaximumPollThreadCount(int maximumPollThreadCount) {
+        if (maximumPollThreadCount < 1) {
+            throw new IllegalArgumentException("0 or negative maximumPollThreadCount");
+        }
+        checkStarted();
+        this.maximumPollThreadCount = maximumPollThreadCount;
+    }
+
+    /**
+     * Counters of the polls and task executions of this worker, or
+     * <code>null</code> if the worker wasn't started.
+     */
+    public WorkerMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public void setDisableTypeRegistrationOnStart(boolean disableTypeRegistrationOnStart) {
         this.disableTypeRegitrationOnStart = disableTypeRegistrationOnStart;
@@ -372,19 +453,75 @@ public abstract class GenericWorker implements WorkerBase {
                     maximumPollRateIntervalMilliseconds);
         }
 
-        pollExecutor = new ThreadPoolExecutor(pollThreadCount, pollThreadCount, 1, TimeUnit.MINUTES,
-                new LinkedBlockingQueue<Runnable>(pollThreadCount));
+        int maximumPollers = getMaximumPollThreadCount();
+        pollExecutor = new ThreadPoolExecutor(maximumPollers, maximumPollers, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(maximumPollers));
+        if (maximumPollers > pollThreadCount) {
+            // Threads of stopped pollers
+            pollExecutor.allowCoreThreadTimeOut(true);
+        }
         ExecutorThreadFactory pollExecutorThreadFactory = getExecutorThreadFactory();
         pollExecutor.setThreadFactory(pollExecutorThreadFactory);
 
         pollBackoffThrottler = new BackoffThrottler(pollBackoffInitialInterval, pollBackoffMaximumInterval,
                 pollBackoffCoefficient);
+        metrics = new WorkerMetrics();
         poller = createPoller();
         for (int i = 0; i < pollThreadCount; i++) {
+            pollerCount.incrementAndGet();
+            metrics.pollerStarted();
             pollExecutor.execute(new PollServiceTask(poller));
         }
     }
 
+    /**
+     * Starts another poller if there are less than the maximum.
+     */
+    private void addPoller() {
+        int maximumPollers = getMaximumPollThreadCount();
+        if (pollExecutor.isShutdown()) {
+            return;
+        }
+        while (true) {
+            int count = pollerCount.get();
+            if (count >= maximumPollers) {
+                return;
+            }
+            if (pollerCount.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("poll task added, pollers=" + pollerCount.get());
+        }
+        metrics.pollerStarted();
+        try {
+            pollExecutor.execute(new PollServiceTask(poller));
+        }
+        catch (RejectedExecutionException e) {
+            pollerCount.decrementAndGet();
+            metrics.pollerStopped();
+        }
+    }
+
+    /**
+     * Accounts for a poller to stop if there are more than the configured
+     * poll thread count.
+     * 
+     * @return true if the poller should stop
+     */
+    private boolean removePoller() {
+        while (true) {
+            int count = pollerCount.get();
+            if (count <= pollThreadCount) {
+                return false;
+            }
+            if (pollerCount.compareAndSet(count, count - 1)) {
+                return true;
+            }
+        }
+    }
+
     private ExecutorThreadFactory getExecutorThreadFactory() {
         ExecutorThreadFactory pollExecutorThreadFactory = new ExecutorThreadFactory(getPollThreadNamePrefix());
         return pollExecutorThreadFactory;
@@ -453,10 +590,19 @@ public abstract class GenericWorker implements WorkerBase {
         if (!disableServiceShutdownOnStop) {
             service.shutdown();
         }
-        pollExecutor.shutdownNow();
+        shutdownPollExecutorNow();
         poller.shutdownNow();
     }
 
+    /**
+     * Shuts down the poll executor, accounting for the poll tasks it drops.
+     */
+    private void shutdownPollExecutorNow() {
+        for (int i = pollExecutor.shutdownNow().size(); i > 0; i--) {
+            metrics.pollerStopped();
+        }
+    }
+
     @Override
     public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
         long start = System.currentTimeMillis();
@@ -475,7 +621,7 @@ public abstract class GenericWorker implements WorkerBase {
         if (!disableServiceShutdownOnStop) {
             service.shutdown();
         }
-        pollExecutor.shutdownNow();
+        shutdownPollExecutorNow();
         try {
             pollExecutor.awaitTermination(timeout, unit);
         }
@@ -492,7 +638,7 @@ public abstract class GenericWorker implements WorkerBase {
         return this.getClass().getSimpleName() + "[service=" + service + ", domain=" + domain + ", taskListToPoll="
                 + taskListToPoll + ", identity=" + identity + ", backoffInitialInterval=" + pollBackoffInitialInterval
                 + ", backoffMaximumInterval=" + pollBackoffMaximumInterval + ", backoffCoefficient=" + pollBackoffCoefficient
-                + "]";
+                + ", pollThreadCount=" + pollThreadCount + ", maximumPollThreadCount=" + getMaximumPollThreadCount() + "]";
     }
 
     @Override
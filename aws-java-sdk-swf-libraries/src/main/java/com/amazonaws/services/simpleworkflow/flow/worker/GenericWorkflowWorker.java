@@ -38,6 +38,8 @@ public class GenericWorkflowWorker extends GenericWorker {
 
     private WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory;
 
+    private DeciderCache deciderCache;
+
     public GenericWorkflowWorker() {
         setIdentity(ManagementFactory.getRuntimeMXBean().getName());
     }
@@ -57,6 +59,21 @@ public class GenericWorkflowWorker extends GenericWorker {
         this.workflowDefinitionFactoryFactory = workflowDefinitionFactoryFactory;
     }
 
+    public DeciderCache getDeciderCache() {
+        return deciderCache;
+    }
+
+    /**
+     * Sets the cache of the deciders of open workflow executions, which saves
+     * fetching and replaying the whole history of an execution on each of its
+     * decision tasks. Caching is disabled by default.
+     * 
+     * @see DeciderCache
+     */
+    public void setDeciderCache(DeciderCache deciderCache) {
+        this.deciderCache = deciderCache;
+    }
+
     protected DecisionTaskPoller createWorkflowPoller() {
         DecisionTaskPoller poller = new DecisionTaskPoller();
         return poller;
@@ -75,7 +92,7 @@ public class GenericWorkflowWorker extends GenericWorker {
     @Override
     protected TaskPoller createPoller() {
         DecisionTaskPoller result = new DecisionTaskPoller();
-        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory));
+        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory, deciderCache));
         result.setDomain(getDomain());
         result.setIdentity(getIdentity());
         result.setService(getService());
@@ -91,7 +108,7 @@ public class GenericWorkflowWorker extends GenericWorker {
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + "[super=" + super.toString() + ", workflowDefinitionFactoryFactory="
-                + workflowDefinitionFactoryFactory + "]";
+                + workflowDefinitionFactoryFactory + ", deciderCache=" + deciderCache + "]";
     }
 
     public static void registerWorkflowTypes(AmazonSimpleWorkflow service, String domain, String defaultTaskList,
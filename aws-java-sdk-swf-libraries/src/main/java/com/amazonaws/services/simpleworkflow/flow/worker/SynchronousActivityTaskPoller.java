@@ -58,6 +58,8 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
 
     private boolean initialized;
 
+    private ActivityHeartbeatManager heartbeatManager;
+
     public SynchronousActivityTaskPoller(AmazonSimpleWorkflow service, String domain, String taskListToPoll,
             ActivityImplementationFactory activityImplementationFactory) {
         this();
@@ -135,6 +137,19 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
         return taskListToPoll;
     }
 
+    public ActivityHeartbeatManager getHeartbeatManager() {
+        return heartbeatManager;
+    }
+
+    /**
+     * @param heartbeatManager
+     *            manager to send activity heartbeats through, or
+     *            <code>null</code> to send them synchronously
+     */
+    public void setHeartbeatManager(ActivityHeartbeatManager heartbeatManager) {
+        this.heartbeatManager = heartbeatManager;
+    }
+
     /**
      * Poll for a task using {@link #getPollTimeoutInSeconds()}
      * 
@@ -188,12 +203,27 @@ public class SynchronousActivityTaskPoller implements TaskPoller {
         String output = null;
         ActivityType activityType = task.getActivityType();
         try {
-            ActivityExecutionContext context = new ActivityExecutionContextImpl(service, domain, task);
             ActivityImplementation activityImplementation = activityImplementationFactory.getActivityImplementation(activityType);
             if (activityImplementation == null) {
                 throw new ActivityFailureException("Unknown activity type: " + activityType);
             }
-            output = activityImplementation.execute(context);
+            ActivityHeartbeatManager.TaskHeartbeat heartbeat = null;
+            // Manually completed activities can heartbeat after execute returns
+            if (heartbeatManager != null && !activityImplementation.getExecutionOptions().isManualActivityCompletion()) {
+                ActivityTypeRegistrationOptions registrationOptions = activityImplementation.getRegistrationOptions();
+                Long heartbeatTimeout = registrationOptions == null ? null
+                        : registrationOptions.getDefaultTaskHeartbeatTimeoutSeconds();
+                heartbeat = heartbeatManager.register(service, task, heartbeatTimeout);
+            }
+            ActivityExecutionContext context = new ActivityExecutionContextImpl(service, domain, task, heartbeat);
+            try {
+                output = activityImplementation.execute(context);
+            }
+            finally {
+                if (heartbeat != null) {
+                    heartbeat.close();
+                }
+            }
             if (!activityImplementation.getExecutionOptions().isManualActivityCompletion()) {
                 respondActivityTaskCompletedWithRetry(task.getTaskToken(), output);
             }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the poll-to-execution pipeline of a worker: how many polls
+ * returned a task, how many pollers are running, how long polled tasks waited
+ * for an execution thread and how long they ran. Activity tasks are executed
+ * on a separate thread pool, so the queueing and execution counters are only
+ * maintained by activity workers; decision tasks are executed on the poll
+ * thread.
+ * <p>
+ * All counters are cumulative since the worker was started, except the number
+ * of active pollers and executing tasks. This class is thread safe.
+ */
+public class WorkerMetrics {
+
+    private final long createdNanos = System.nanoTime();
+
+    private final AtomicLong polls = new AtomicLong();
+
+    private final AtomicLong emptyPolls = new AtomicLong();
+
+    private final AtomicLong pollFailures = new AtomicLong();
+
+    private final AtomicLong pollNanos = new AtomicLong();
+
+    private final AtomicInteger activePollers = new AtomicInteger();
+
+    private final AtomicInteger peakPollers = new AtomicInteger();
+
+    private final AtomicLong executedTasks = new AtomicLong();
+
+    private final AtomicLong failedTasks = new AtomicLong();
+
+    private final AtomicInteger executingTasks = new AtomicInteger();
+
+    private final AtomicLong queueNanos = new AtomicLong();
+
+    private final AtomicLong executionNanos = new AtomicLong();
+
+    void pollCompleted(boolean taskReceived, long nanos) {
+        polls.incrementAndGet();
+        if (!taskReceived) {
+            emptyPolls.incrementAndGet();
+        }
+        pollNanos.addAndGet(nanos);
+    }
+
+    void pollFailed(long nanos) {
+        polls.incrementAndGet();
+        pollFailures.incrementAndGet();
+        pollNanos.addAndGet(nanos);
+    }
+
+    void pollerStarted() {
+        int count = activePollers.incrementAndGet();
+        while (true) {
+            int peak = peakPollers.get();
+            if (count <= peak || peakPollers.compareAndSet(peak, count)) {
+                break;
+            }
+        }
+    }
+
+    void pollerStopped() {
+        activePollers.decrementAndGet();
+    }
+
+    /**
+     * @param queuedNanos
+     *            time between the task being polled and its execution start
+     */
+    void taskStarted(long queuedNanos) {
+        executingTasks.incrementAndGet();
+        queueNanos.addAndGet(queuedNanos);
+    }
+
+    void taskCompleted(boolean failed, long nanos) {
+        executingTasks.decrementAndGet();
+        executedTasks.incrementAndGet();
+        if (failed) {
+            failedTasks.incrementAndGet();
+        }
+        executionNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Number of poll requests made, including the ones that failed.
+     */
+    public long getPollCount() {
+        return polls.get();
+    }
+
+    /**
+     * Number of poll requests that timed out without returning a task.
+     */
+    public long getEmptyPollCount() {
+        return emptyPolls.get();
+    }
+
+    /**
+     * Number of poll requests that failed, including failures to process the
+     * polled decision task.
+     */
+    public long getPollFailureCount() {
+        return pollFailures.get();
+    }
+
+    /**
+     * Number of poll requests that returned a task.
+     */
+    public long getTaskCount() {
+        return polls.get() - emptyPolls.get() - pollFailures.get();
+    }
+
+    /**
+     * Total time spent in poll requests, including the processing of decision
+     * tasks, in milliseconds.
+     */
+    public long getTotalPollTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pollNanos.get());
+    }
+
+    /**
+     * Number of poll threads currently polling.
+     */
+    public int getActivePollerCount() {
+        return activePollers.get();
+    }
+
+    /**
+     * Highest number of poll threads that were polling at the same time.
+     */
+    public int getPeakPollerCount() {
+        return peakPollers.get();
+    }
+
+    /**
+     * Number of activity tasks that finished executing, including the ones
+     * that failed.
+     */
+    public long getExecutedTaskCount() {
+        return executedTasks.get();
+    }
+
+    /**
+     * Number of activity tasks whose execution failed unexpectedly.
+     */
+    public long getFailedTaskCount() {
+        return failedTasks.get();
+    }
+
+    /**
+     * Number of activity tasks currently executing.
+     */
+    public int getExecutingTaskCount() {
+        return executingTasks.get();
+    }
+
+    /**
+     * Total time activity tasks waited between being polled and starting to
+     * execute, in milliseconds.
+     */
+    public long getTotalQueueTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(queueNanos.get());
+    }
+
+    /**
+     * Total time spent executing activity tasks, in milliseconds.
+     */
+    public long getTotalExecutionTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(executionNanos.get());
+    }
+
+    /**
+     * Average time an activity task waited between being polled and starting
+     * to execute, in milliseconds; or 0 if no task was executed.
+     */
+    public double getAverageQueueTimeMillis() {
+        long started = executedTasks.get() + executingTasks.get();
+        return started == 0 ? 0 : queueNanos.get() / 1e6 / started;
+    }
+
+    /**
+     * Fraction of the given number of execution threads that was busy
+     * executing activity tasks since the worker was started, between 0 and 1.
+     *
+     * @param threadCount
+     *            size of the activity execution pool, see
+     *            {@link GenericActivityWorker#getTaskExecutorThreadPoolSize()}
+     */
+    public double getUtilization(int threadCount) {
+        long elapsed = System.nanoTime() - createdNanos;
+        if (threadCount < 1 || elapsed <= 0) {
+            return 0;
+        }
+        return Math.min(1.0, (double) executionNanos.get() / elapsed / threadCount);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerMetrics[polls=" + getPollCount() + ", emptyPolls=" + getEmptyPollCount() + ", pollFailures="
+                + getPollFailureCount() + ", activePollers=" + getActivePollerCount() + ", peakPollers="
+                + getPeakPollerCount() + ", executedTasks=" + getExecutedTaskCount() + ", failedTasks="
+                + getFailedTaskCount() + ", executingTasks=" + getExecutingTaskCount() + ", averageQueueTimeMillis="
+                + getAverageQueueTimeMillis() + ", totalExecutionTimeMillis=" + getTotalExecutionTimeMillis() + "]";
+    }
+}
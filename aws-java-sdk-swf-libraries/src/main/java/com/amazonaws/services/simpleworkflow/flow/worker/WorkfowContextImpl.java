@@ -29,22 +29,27 @@ import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 
 class WorkfowContextImpl implements WorkflowContext {
 
-    private final DecisionTask decisionTask;
+    private final WorkflowExecution workflowExecution;
+    private final WorkflowType workflowType;
+    private DecisionTask decisionTask;
+    private WorkflowExecutionStartedEventAttributes startedAttributes;
     private boolean cancelRequested;
     private ContinueAsNewWorkflowExecutionParameters continueAsNewOnCompletion;
     
     public WorkfowContextImpl(DecisionTask decisionTask) {
         this.decisionTask = decisionTask;
+        this.workflowExecution = decisionTask.getWorkflowExecution();
+        this.workflowType = decisionTask.getWorkflowType();
     }
     
     @Override
     public WorkflowExecution getWorkflowExecution() {
-        return decisionTask.getWorkflowExecution();
+        return workflowExecution;
     }
 
     @Override
     public WorkflowType getWorkflowType() {
-        return decisionTask.getWorkflowType();
+        return workflowType;
     }
 
     @Override
@@ -104,9 +109,20 @@ class WorkfowContextImpl implements WorkflowContext {
     }
     
     private WorkflowExecutionStartedEventAttributes getWorkflowStartedEventAttributes() {
-        HistoryEvent firstHistoryEvent = decisionTask.getEvents().get(0);
-        WorkflowExecutionStartedEventAttributes attributes = firstHistoryEvent.getWorkflowExecutionStartedEventAttributes();
-        return attributes;
+        if (startedAttributes == null) {
+            HistoryEvent firstHistoryEvent = decisionTask.getEvents().get(0);
+            startedAttributes = firstHistoryEvent.getWorkflowExecutionStartedEventAttributes();
+        }
+        return startedAttributes;
+    }
+
+    /**
+     * Called with the first event of the history, after which the history
+     * pages of the decision task are no longer referenced.
+     */
+    void setWorkflowStartedEventAttributes(WorkflowExecutionStartedEventAttributes attributes) {
+        this.startedAttributes = attributes;
+        this.decisionTask = null;
     }
 
     @Override
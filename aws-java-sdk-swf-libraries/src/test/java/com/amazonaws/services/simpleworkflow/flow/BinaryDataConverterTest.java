@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+
+public class BinaryDataConverterTest {
+
+    private final JsonDataConverter json = new JsonDataConverter();
+
+    private final BinaryDataConverter converter = new BinaryDataConverter();
+
+    @Test
+    public void testValueBelowThresholdIsNotCompressed() {
+        List<String> value = Arrays.asList("first", "second");
+        String data = converter.toData(value);
+        assertTrue(data, data.startsWith("b:"));
+        assertEquals(value, converter.fromData(data, List.class));
+    }
+
+    @Test
+    public void testValueAboveThresholdIsCompressed() {
+        List<String> value = largeValue();
+        String data = converter.toData(value);
+        assertTrue(data.startsWith("z:"));
+        assertTrue(data.length() < json.toData(value).length());
+        assertEquals(value, converter.fromData(data, List.class));
+    }
+
+    @Test
+    public void testValueOfThresholdSizeIsCompressed() {
+        List<String> value = largeValue();
+        int size = json.toData(value).getBytes(StringUtils.UTF8).length;
+        converter.setCompressionThreshold(size);
+        assertTrue(converter.toData(value).startsWith("z:"));
+        converter.setCompressionThreshold(size + 1);
+        String data = converter.toData(value);
+        assertTrue(data.startsWith("b:"));
+        assertEquals(value, converter.fromData(data, List.class));
+    }
+
+    @Test
+    public void testValueIsCompressedOnlyIfSmaller() {
+        converter.setCompressionThreshold(0);
+        String data = converter.toData("a");
+        assertEquals("b:" + Base64.encodeAsString("\"a\"".getBytes(StringUtils.UTF8)), data);
+        assertEquals("a", converter.fromData(data, String.class));
+    }
+
+    @Test
+    public void testUnprefixedDataIsConvertedByFallback() {
+        assertEquals("legacy", converter.fromData(json.toData("legacy"), String.class));
+        assertEquals(largeValue(), converter.fromData(json.toData(largeValue()), List.class));
+        Map<?, ?> map = converter.fromData(json.toData(Collections.singletonMap("key", 42)), Map.class);
+        assertEquals(42, map.get("key"));
+        assertNull(converter.fromData(json.toData(null), String.class));
+    }
+
+    @Test
+    public void testValuesStartingWithPrefixes() {
+        converter.setCompressionThreshold(0);
+        for (String value : Arrays.asList("b:", "z:", "b:value", "z:" + largeValue())) {
+            assertEquals(value, converter.fromData(converter.toData(value), String.class));
+            // Serialized to JSON by an earlier converter, they start with a quote
+            assertEquals(value, converter.fromData(json.toData(value), String.class));
+        }
+    }
+
+    @Test
+    public void testFallbackConverterIsUsedForUnprefixedDataOnly() {
+        final List<String> fallbackData = new ArrayList<String>();
+        BinaryDataConverter converter = new BinaryDataConverter(json.mapper, new JsonDataConverter() {
+            @Override
+            public <T> T fromData(String serialized, Class<T> valueType) throws DataConverterException {
+                fallbackData.add(serialized);
+                return super.fromData(serialized, valueType);
+            }
+        });
+        assertEquals("value", converter.fromData(converter.toData("value"), String.class));
+        assertEquals("value", converter.fromData(json.toData("value"), String.class));
+        assertEquals(Collections.singletonList(json.toData("value")), fallbackData);
+    }
+
+    @Test
+    public void testTruncatedCompressedDataIsRejected() {
+        String data = converter.toData(largeValue());
+        byte[] compressed = Base64.decode(data.substring(2));
+        String truncated = "z:" + Base64.encodeAsString(Arrays.copyOf(compressed, compressed.length / 2));
+        try {
+            converter.fromData(truncated, List.class);
+            fail("Expected DataConverterException");
+        }
+        catch (DataConverterException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Truncated"));
+        }
+    }
+
+    @Test
+    public void testInvalidDataIsRejected() {
+        for (String data : Arrays.asList("z:" + Base64.encodeAsString(new byte[] { 1, 2, 3, 4 }),
+                "b:" + Base64.encodeAsString("{\"unterminated".getBytes(StringUtils.UTF8)), "z:#!", "b:#!")) {
+            try {
+                converter.fromData(data, List.class);
+                fail("Expected DataConverterException for " + data);
+            }
+            catch (DataConverterException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testInflaterIsResetAfterFailure() {
+        List<String> value = largeValue();
+        String data = converter.toData(value);
+        byte[] compressed = Base64.decode(data.substring(2));
+        try {
+            converter.fromData("z:" + Base64.encodeAsString(Arrays.copyOf(compressed, 10)), List.class);
+            fail("Expected DataConverterException");
+        }
+        catch (DataConverterException e) {
+            // The inflater of this thread is reused below
+        }
+        assertEquals(value, converter.fromData(data, List.class));
+    }
+
+    private static List<String> largeValue() {
+        List<String> value = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            value.add("element " + i);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.flow.BulkWorkflowReplayer.Report;
+import com.amazonaws.services.simpleworkflow.flow.BulkWorkflowReplayer.Result;
+import com.amazonaws.services.simpleworkflow.flow.BulkWorkflowReplayer.Status;
+import com.amazonaws.services.simpleworkflow.flow.core.Functor;
+import com.amazonaws.services.simpleworkflow.flow.core.Promise;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinition;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactory;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.flow.worker.AsyncDecisionTaskHandler;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.TimerFiredEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TimerStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowType;
+
+public class BulkWorkflowReplayerTest {
+
+    private static final WorkflowType WORKFLOW_TYPE = new WorkflowType().withName("Timers").withVersion("1.0");
+
+    @Test
+    public void testRecordedHistoryIsReplayed() throws Exception {
+        Result result = replayer(1, 1).replay("execution", recordedHistory());
+        assertEquals(result.toString(), Status.OK, result.getStatus());
+        assertEquals(13, result.getEventCount());
+    }
+
+    @Test
+    public void testDifferenceInEarlierDecisionTaskIsReported() throws Exception {
+        // Starts another timer in the first decision task, that would remain
+        // unnoticed if only the decisions of the last task were compared
+        Result result = replayer(2, 1).replay("execution", recordedHistory());
+        assertEquals(Status.NON_DETERMINISTIC, result.getStatus());
+        assertEquals("decision task 4 recorded [StartTimer:1] but replay decided [StartTimer:1, StartTimer:2]",
+                result.getMessage());
+        assertEquals(3, result.getEventCount());
+    }
+
+    @Test
+    public void testMissingDecisionIsReported() throws Exception {
+        Result result = replayer(1).replay("execution", recordedHistory());
+        assertEquals(Status.NON_DETERMINISTIC, result.getStatus());
+        assertEquals("decision task 9 recorded [StartTimer:2] but replay decided [CompleteWorkflowExecution]",
+                result.getMessage());
+    }
+
+    @Test
+    public void testHistoryWithoutCompletedDecisionTaskIsSkipped() throws Exception {
+        Result result = replayer(1, 1).replay("execution", recordedHistory().subList(0, 3));
+        assertEquals(Status.SKIPPED, result.getStatus());
+    }
+
+    @Test
+    public void testReplayThrowsNonDeterministicWorkflowException() throws Exception {
+        // The recorded TimerStarted event refers to a timer that the
+        // workflow no longer starts
+        List<HistoryEvent> history = recordedHistory().subList(0, 8);
+        DecisionTask decisionTask = new DecisionTask()
+                .withWorkflowExecution(new WorkflowExecution().withWorkflowId("execution").withRunId("execution"))
+                .withWorkflowType(WORKFLOW_TYPE)
+                .withStartedEventId(8L)
+                .withPreviousStartedEventId(3L)
+                .withEvents(history);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(new TimersWorkflowFactoryFactory());
+        try {
+            handler.replayDecisionTask(Collections.singletonList(decisionTask).iterator());
+            fail("Expected NonDeterministicWorkflowException");
+        }
+        catch (NonDeterministicWorkflowException e) {
+            assertTrue(e.getMessage().contains("TIMER"));
+        }
+        // While the worker fails the workflow
+        assertEquals("FailWorkflowExecution", handler.handleDecisionTask(
+                Collections.singletonList(decisionTask).iterator()).getDecisions().get(0).getDecisionType());
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        Map<String, List<HistoryEvent>> histories = new LinkedHashMap<String, List<HistoryEvent>>();
+        histories.put("first", recordedHistory());
+        histories.put("second", recordedHistory());
+        histories.put("third", recordedHistory().subList(0, 3));
+        BulkWorkflowReplayer replayer = replayer(1, 1);
+        replayer.setThreadCount(2);
+        Report report = replayer.replayHistories(histories);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(2, report.getCount(Status.OK));
+        assertEquals(1, report.getCount(Status.SKIPPED));
+        assertEquals("third", report.getResults().get(2).getName());
+
+        report = replayer(2, 1).replayHistories(histories);
+        assertFalse(report.isSuccessful());
+        assertEquals(2, report.getCount(Status.NON_DETERMINISTIC));
+    }
+
+    private static BulkWorkflowReplayer replayer(int... timersPerStep) {
+        return new BulkWorkflowReplayer(new TimersWorkflowFactoryFactory(timersPerStep));
+    }
+
+    /**
+     * History of the execution of a workflow which waited for a timer
+     * twice, recorded with <code>TimersWorkflow(1, 1)</code>.
+     */
+    private static List<HistoryEvent> recordedHistory() {
+        List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+        events.add(event(1, EventType.WorkflowExecutionStarted).withWorkflowExecutionStartedEventAttributes(
+                new WorkflowExecutionStartedEventAttributes()
+                    .withWorkflowType(WORKFLOW_TYPE)
+                    .withInput("input")
+                    .withExecutionStartToCloseTimeout("3600")
+                    .withTaskStartToCloseTimeout("60")
+                    .withChildPolicy("TERMINATE")));
+        addDecisionTask(events);
+        events.add(event(5, EventType.TimerStarted).withTimerStartedEventAttributes(
+                new TimerStartedEventAttributes().withTimerId("1").withStartToFireTimeout("10")
+                    .withDecisionTaskCompletedEventId(4L)));
+        events.add(event(6, EventType.TimerFired).withTimerFiredEventAttributes(
+                new TimerFiredEventAttributes().withTimerId("1").withStartedEventId(5L)));
+        addDecisionTask(events);
+        events.add(event(10, EventType.TimerStarted).withTimerStartedEventAttributes(
+                new TimerStartedEventAttributes().withTimerId("2").withStartToFireTimeout("10")
+                    .withDecisionTaskCompletedEventId(9L)));
+        events.add(event(11, EventType.TimerFired).withTimerFiredEventAttributes(
+                new TimerFiredEventAttributes().withTimerId("2").withStartedEventId(10L)));
+        addDecisionTask(events);
+        events.add(event(15, EventType.WorkflowExecutionCompleted).withWorkflowExecutionCompletedEventAttributes(
+                new WorkflowExecutionCompletedEventAttributes().withResult("done").withDecisionTaskCompletedEventId(14L)));
+        return events;
+    }
+
+    /**
+     * Adds the DecisionTaskScheduled, DecisionTaskStarted and
+     * DecisionTaskCompleted events of a decision task.
+     */
+    private static void addDecisionTask(List<HistoryEvent> events) {
+        long scheduledEventId = events.size() + 1;
+        events.add(event(scheduledEventId, EventType.DecisionTaskScheduled));
+        events.add(event(scheduledEventId + 1, EventType.DecisionTaskStarted));
+        events.add(event(scheduledEventId + 2, EventType.DecisionTaskCompleted).withDecisionTaskCompletedEventAttributes(
+                new DecisionTaskCompletedEventAttributes()
+                    .withScheduledEventId(scheduledEventId)
+                    .withStartedEventId(scheduledEventId + 1)));
+    }
+
+    private static HistoryEvent event(long eventId, EventType eventType) {
+        return new HistoryEvent().withEventId(eventId).withEventType(eventType).withEventTimestamp(
+                new Date(1420070400000L + eventId * 1000));
+    }
+
+    /**
+     * Creates workflows that start the given number of timers at each step,
+     * and wait for them to fire before taking the next step.
+     */
+    private static class TimersWorkflowFactoryFactory extends WorkflowDefinitionFactoryFactory {
+
+        private final int[] timersPerStep;
+
+        TimersWorkflowFactoryFactory(int... timersPerStep) {
+            this.timersPerStep = timersPerStep;
+        }
+
+        @Override
+        public WorkflowDefinitionFactory getWorkflowDefinitionFactory(WorkflowType workflowType) {
+            return new WorkflowDefinitionFactory() {
+
+                @Override
+                public WorkflowTypeRegistrationOptions getWorkflowRegistrationOptions() {
+                    return null;
+                }
+
+                @Override
+                public WorkflowDefinition getWorkflowDefinition(DecisionContext context) {
+                    return new TimersWorkflow(context.getWorkflowClock(), timersPerStep);
+                }
+
+                @Override
+                public void deleteWorkflowDefinition(WorkflowDefinition instance) {
+                }
+
+                @Override
+                public WorkflowType getWorkflowType() {
+                    return WORKFLOW_TYPE;
+                }
+            };
+        }
+
+        @Override
+        public Iterable<WorkflowType> getWorkflowTypesToRegister() {
+            return Collections.singletonList(WORKFLOW_TYPE);
+        }
+    }
+
+    private static class TimersWorkflow extends WorkflowDefinition {
+
+        private final WorkflowClock clock;
+
+        private final int[] timersPerStep;
+
+        TimersWorkflow(WorkflowClock clock, int[] timersPerStep) {
+            this.clock = clock;
+            this.timersPerStep = timersPerStep;
+        }
+
+        @Override
+        public Promise<String> execute(String input) {
+            return step(0);
+        }
+
+        private Promise<String> step(final int index) {
+            if (index == timersPerStep.length) {
+                return Promise.asPromise("done");
+            }
+            Promise<?>[] fired = new Promise<?>[timersPerStep[index]];
+            for (int i = 0; i < fired.length; i++) {
+                fired[i] = clock.createTimer(10);
+            }
+            return new Functor<String>(fired) {
+
+                @Override
+                protected Promise<String> doExecute() {
+                    return step(index + 1);
+                }
+            };
+        }
+
+        @Override
+        public void signalRecieved(String signalName, String input) {
+        }
+
+        @Override
+        public String getWorkflowState() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectMapper.DefaultTyping;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Compares the size of the data produced by the data converters and the time
+ * they take to convert an activity input back and forth:
+ * <ul>
+ * <li>legacy: an ObjectMapper called directly for every value, as
+ * {@link JsonDataConverter} used to</li>
+ * <li>json: {@link JsonDataConverter} with its cached readers and writer</li>
+ * <li>json+deflate: {@link BinaryDataConverter} with its default JSON mapper</li>
+ * <li>smile+deflate: {@link BinaryDataConverter} with a Smile mapper, when
+ * jackson-dataformat-smile is on the class path</li>
+ * </ul>
+ * Usage: <code>DataConverterBenchmark [items] [iterations]</code> (defaults:
+ * 200 items, 20000 iterations).
+ */
+public class DataConverterBenchmark {
+
+    public static class Item {
+
+        private String name;
+
+        private int quantity;
+
+        private double price;
+
+        private List<String> tags = new ArrayList<String>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    public static class Order {
+
+        private String id;
+
+        private List<Item> items = new ArrayList<Item>();
+
+        private Map<String, String> attributes = new HashMap<String, String>();
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        Order order = createOrder(itemCount);
+        Map<String, DataConverter> converters = new LinkedHashMap<String, DataConverter>();
+        converters.put("legacy", new LegacyJsonDataConverter());
+        converters.put("json", new JsonDataConverter());
+        converters.put("json+deflate", new BinaryDataConverter());
+        JsonFactory smileFactory = createSmileFactory();
+        if (smileFactory != null) {
+            converters.put("smile+deflate", new BinaryDataConverter(createMapper(smileFactory), new JsonDataConverter()));
+        }
+        else {
+            System.out.println("jackson-dataformat-smile isn't on the class path, skipping smile");
+        }
+
+        System.out.println("Converting an order of " + itemCount + " items " + iterations + " times");
+        for (Map.Entry<String, DataConverter> entry : converters.entrySet()) {
+            DataConverter converter = entry.getValue();
+            String data = converter.toData(order);
+            Order copy = converter.fromData(data, Order.class);
+            if (copy.getItems().size() != itemCount || !copy.getId().equals(order.getId())) {
+                throw new AssertionError(entry.getKey() + " didn't convert the order back");
+            }
+            // warm up
+            run(converter, order, iterations / 4);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                data = converter.toData(order);
+            }
+            long toDataNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                converter.fromData(data, Order.class);
+            }
+            long fromDataNanos = System.nanoTime() - start;
+            System.out.println(String.format("%-14s %8d chars   toData %8.1f us/op   fromData %8.1f us/op", entry.getKey(),
+                    data.length(), toDataNanos / 1000.0 / iterations, fromDataNanos / 1000.0 / iterations));
+        }
+    }
+
+    private static void run(DataConverter converter, Order order, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            converter.fromData(converter.toData(order), Order.class);
+        }
+    }
+
+    private static Order createOrder(int itemCount) {
+        Random random = new Random(42);
+        Order order = new Order();
+        order.setId("order-" + random.nextInt(1000000));
+        order.getAttributes().put("customer", "customer-" + random.nextInt(1000));
+        order.getAttributes().put("channel", "web");
+        for (int i = 0; i < itemCount; i++) {
+            Item item = new Item();
+            item.setName("item-" + random.nextInt(10000));
+            item.setQuantity(1 + random.nextInt(10));
+            item.setPrice(random.nextInt(100000) / 100.0);
+            item.getTags().add(random.nextBoolean() ? "fragile" : "standard");
+            item.getTags().add("warehouse-" + random.nextInt(5));
+            order.getItems().add(item);
+        }
+        return order;
+    }
+
+    /**
+     * @return a mapper configured as the one of {@link JsonDataConverter#JsonDataConverter()}
+     */
+    private static ObjectMapper createMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        mapper.enableDefaultTyping(DefaultTyping.NON_FINAL);
+        return mapper;
+    }
+
+    private static JsonFactory createSmileFactory() {
+        try {
+            return (JsonFactory) Class.forName("com.fasterxml.jackson.dataformat.smile.SmileFactory").newInstance();
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * The previous implementation of {@link JsonDataConverter}.
+     */
+    private static class LegacyJsonDataConverter extends DataConverter {
+
+        private final ObjectMapper mapper = createMapper(new JsonFactory());
+
+        @Override
+        public String toData(Object value) throws DataConverterException {
+            try {
+                return mapper.writeValueAsString(value);
+            }
+            catch (IOException e) {
+                throw new DataConverterException(e);
+            }
+        }
+
+        @Override
+        public <T> T fromData(String content, Class<T> valueType) throws DataConverterException {
+            try {
+                return mapper.readValue(content, valueType);
+            }
+            catch (IOException e) {
+                throw new DataConverterException(e);
+            }
+        }
+    }
+}
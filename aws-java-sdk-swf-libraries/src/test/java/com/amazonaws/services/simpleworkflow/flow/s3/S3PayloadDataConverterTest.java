@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.simpleworkflow.flow.DataConverter;
+import com.amazonaws.services.simpleworkflow.flow.DataConverterException;
+import com.amazonaws.services.simpleworkflow.flow.JsonDataConverter;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+public class S3PayloadDataConverterTest {
+
+    private static final String BUCKET = "bucket";
+
+    private final DataConverter json = new JsonDataConverter();
+
+    private final StubS3 s3 = new StubS3();
+
+    @Test
+    public void testSmallDataIsPassedThrough() {
+        S3PayloadDataConverter converter = new S3PayloadDataConverter(json, s3, BUCKET);
+        String data = converter.toData("small");
+        assertEquals(json.toData("small"), data);
+        assertEquals("small", converter.fromData(data, String.class));
+        assertEquals(0, s3.puts);
+    }
+
+    @Test
+    public void testKeyIsDerivedFromContent() throws Exception {
+        S3PayloadDataConverter converter = new S3PayloadDataConverter(json, s3, BUCKET);
+        converter.setThreshold(10);
+        String value = largeValue();
+        byte[] bytes = json.toData(value).getBytes(StringUtils.UTF8);
+        String key = "swf-payloads/" + BinaryUtils.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+
+        String reference = converter.toData(value);
+        assertEquals("s3:" + BUCKET + "/" + key, reference);
+        assertEquals(1, s3.objects.size());
+        assertTrue(s3.objects.containsKey(key));
+
+        // The same content yields the same object, different content another one
+        assertEquals(reference, converter.toData(value));
+        assertEquals(1, s3.objects.size());
+        assertFalse(reference.equals(converter.toData(value + "!")));
+        assertEquals(2, s3.objects.size());
+    }
+
+    @Test
+    public void testKeyPrefix() {
+        S3PayloadDataConverter converter = new S3PayloadDataConverter(json, s3, BUCKET);
+        converter.setThreshold(10);
+        converter.setKeyPrefix("workflows/");
+        assertTrue(converter.toData(largeValue()).startsWith("s3:" + BUCKET + "/workflows/"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        S3PayloadDataConverter writer = new S3PayloadDataConverter(json, s3, BUCKET);
+        writer.setThreshold(10);
+        String value = largeValue();
+        String reference = writer.toData(value);
+
+        // Read back by another converter, such as of another worker
+        S3PayloadDataConverter reader = new S3PayloadDataConverter(json, s3, BUCKET);
+        assertEquals(value, reader.fromData(reference, String.class));
+        assertEquals(1, s3.gets);
+        // Then served from the cache
+        assertEquals(value, reader.fromData(reference, String.class));
+        assertEquals(1, s3.gets);
+        assertEquals(value, writer.fromData(reference, String.class));
+        assertEquals(1, s3.gets);
+    }
+
+    @Test
+    public void testCachingDisabled() {
+        S3PayloadDataConverter converter = new S3PayloadDataConverter(json, s3, BUCKET);
+        converter.setThreshold(10);
+        converter.setMaximumCachedPayloads(0);
+        String reference = converter.toData(largeValue());
+        converter.fromData(reference, String.class);
+        converter.fromData(reference, String.class);
+        assertEquals(2, s3.gets);
+    }
+
+    @Test
+    public void testStoreFailure() {
+        S3PayloadDataConverter converter = new S3PayloadDataConverter(json, new StubS3() {
+            @Override
+            public PutObjectResult putObject(String bucketName, String key, InputStream input,
+                    ObjectMetadata metadata) {
+                throw new AmazonClientException("Unable to execute HTTP request");
+            }
+        }, BUCKET);
+        converter.setThreshold(10);
+        try {
+            converter.toData(largeValue());
+            fail("Expected DataConverterException");
+        }
+        catch (DataConverterException e) {
+            assertTrue(e.getCause() instanceof AmazonClientException);
+        }
+    }
+
+    private static String largeValue() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            value.append("item-").append(i).append(' ');
+        }
+        return value.toString();
+    }
+
+    /**
+     * Keeps the objects of a single bucket in memory.
+     */
+    private static class StubS3 extends AmazonS3Client {
+
+        final Map<String, byte[]> objects = new HashMap<String, byte[]>();
+
+        int puts;
+
+        int gets;
+
+        StubS3() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public PutObjectResult putObject(String bucketName, String key, InputStream input, ObjectMetadata metadata) {
+            assertEquals(BUCKET, bucketName);
+            try {
+                byte[] bytes = IOUtils.toByteArray(input);
+                assertEquals(metadata.getContentLength(), bytes.length);
+                objects.put(key, bytes);
+            }
+            catch (IOException e) {
+                throw new AmazonClientException("Unable to read the input", e);
+            }
+            puts++;
+            return new PutObjectResult();
+        }
+
+        @Override
+        public S3Object getObject(String bucketName, String key) {
+            assertEquals(BUCKET, bucketName);
+            gets++;
+            S3Object object = new S3Object();
+            object.setBucketName(bucketName);
+            object.setKey(key);
+            object.setObjectContent(new ByteArrayInputStream(objects.get(key)));
+            return object;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowClient;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityTaskStatus;
+import com.amazonaws.services.simpleworkflow.model.RecordActivityTaskHeartbeatRequest;
+
+public class ActivityHeartbeatManagerTest {
+
+    private final ActivityHeartbeatManager manager = new ActivityHeartbeatManager(1);
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void testHeartbeatsContinueAfterUnexpectedFailure() throws Exception {
+        StubSimpleWorkflow service = new StubSimpleWorkflow();
+        // No cancelRequested flag: unboxing it used to throw a
+        // NullPointerException, which left the heartbeat scheduled forever
+        service.statuses.add(new ActivityTaskStatus());
+        service.statuses.add(new ActivityTaskStatus().withCancelRequested(false));
+        manager.setDefaultHeartbeatIntervalMillis(1);
+        ActivityHeartbeatManager.TaskHeartbeat heartbeat = manager.register(service,
+                new ActivityTask().withTaskToken("token"), null);
+
+        heartbeat.record("first");
+        awaitRequests(service, 1);
+        heartbeat.record("second");
+        awaitRequests(service, 2);
+        assertEquals("second", service.details.get(1));
+        assertFalse(heartbeat.isCancelRequested());
+        heartbeat.close();
+    }
+
+    @Test
+    public void testFailedHeartbeatIsRetried() throws Exception {
+        StubSimpleWorkflow service = new StubSimpleWorkflow() {
+            @Override
+            public ActivityTaskStatus recordActivityTaskHeartbeat(RecordActivityTaskHeartbeatRequest request) {
+                ActivityTaskStatus status = super.recordActivityTaskHeartbeat(request);
+                if (details.size() == 1)
+                    throw new IllegalStateException("boom");
+                return status;
+            }
+        };
+        service.statuses.add(new ActivityTaskStatus().withCancelRequested(false));
+        service.statuses.add(new ActivityTaskStatus().withCancelRequested(true));
+        manager.setDefaultHeartbeatIntervalMillis(1);
+        ActivityHeartbeatManager.TaskHeartbeat heartbeat = manager.register(service,
+                new ActivityTask().withTaskToken("token"), null);
+
+        heartbeat.record("details");
+        awaitRequests(service, 2);
+        assertEquals("details", service.details.get(1));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!heartbeat.isCancelRequested() && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertTrue(heartbeat.isCancelRequested());
+        heartbeat.close();
+    }
+
+    private static void awaitRequests(StubSimpleWorkflow service, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.details.size() < count && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(count, service.details.size());
+    }
+
+    /**
+     * Returns the queued statuses, in order, to the heartbeats it records.
+     */
+    private static class StubSimpleWorkflow extends AmazonSimpleWorkflowClient {
+        final BlockingQueue<ActivityTaskStatus> statuses = new LinkedBlockingQueue<ActivityTaskStatus>();
+        final List<String> details = new CopyOnWriteArrayList<String>();
+
+        StubSimpleWorkflow() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public ActivityTaskStatus recordActivityTaskHeartbeat(RecordActivityTaskHeartbeatRequest request) {
+            assertEquals("token", request.getTaskToken());
+            details.add(request.getDetails());
+            return statuses.poll();
+        }
+    }
+}
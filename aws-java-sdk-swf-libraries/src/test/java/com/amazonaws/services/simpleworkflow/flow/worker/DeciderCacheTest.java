@@ -0,0 +1,408 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowClock;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowTypeRegistrationOptions;
+import com.amazonaws.services.simpleworkflow.flow.core.Functor;
+import com.amazonaws.services.simpleworkflow.flow.core.Promise;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinition;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactory;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.model.Decision;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.TimerFiredEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.TimerStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowType;
+
+public class DeciderCacheTest {
+
+    private static final WorkflowType WORKFLOW_TYPE = new WorkflowType().withName("Timers").withVersion("1.0");
+
+    /** Events per page of the polled decision tasks */
+    private static final int PAGE_SIZE = 3;
+
+    private static final WorkflowExecutionLocal<String> INPUT = new WorkflowExecutionLocal<String>();
+
+    private final TimersWorkflowFactoryFactory factoryFactory = new TimersWorkflowFactoryFactory();
+
+    private final List<Iterator<DecisionTask>> polled = new ArrayList<Iterator<DecisionTask>>();
+
+    @Test
+    public void testCachedDeciderIsResumed() throws Exception {
+        DeciderCache cache = new DeciderCache();
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+        List<HistoryEvent> history = history("run");
+
+        assertEquals("StartTimer:1", decide(handler, "run", history, 3, 0));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+
+        assertEquals("StartTimer:2", decide(handler, "run", history, 8, 3));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, factoryFactory.created.get());
+        assertEquals(0, factoryFactory.deleted.get());
+        // Only the pages newer than the last decision task are fetched
+        assertEquals(1, pagesLeft());
+
+        assertEquals("CompleteWorkflowExecution", decide(handler, "run", history, 13, 8));
+        assertEquals(2, cache.getHitCount());
+        // The decider of a closing workflow isn't cached again
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedMemoryBytes());
+        assertEquals(1, factoryFactory.created.get());
+        assertEquals(1, factoryFactory.deleted.get());
+    }
+
+    @Test
+    public void testPreviousStartedEventIdMismatchReplaysWholeHistory() throws Exception {
+        DeciderCache cache = new DeciderCache();
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+        List<HistoryEvent> history = history("run");
+
+        decide(handler, "run", history, 3, 0);
+        // The decision task started at event 8 was decided elsewhere
+        assertEquals("CompleteWorkflowExecution", decide(handler, "run", history, 13, 8));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, pagesLeft());
+        assertEquals(2, factoryFactory.created.get());
+        // Both the out of date decider and the replayed one are deleted
+        assertEquals(2, factoryFactory.deleted.get());
+    }
+
+    @Test
+    public void testUnrecordedDecisionsReplayWholeHistory() throws Exception {
+        DeciderCache cache = new DeciderCache();
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+        List<HistoryEvent> history = history("run");
+
+        decide(handler, "run", history, 3, 0);
+        // The first decision task timed out, so that its decisions were never
+        // recorded, and was scheduled again
+        List<HistoryEvent> timedOut = new ArrayList<HistoryEvent>(history.subList(0, 3));
+        timedOut.add(event(4, EventType.DecisionTaskTimedOut));
+        timedOut.add(event(5, EventType.DecisionTaskScheduled));
+        timedOut.add(event(6, EventType.DecisionTaskStarted));
+        assertEquals("StartTimer:1", decide(handler, "run", timedOut, 6, 3));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, factoryFactory.deleted.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDeciderIsEvicted() throws Exception {
+        DeciderCache cache = new DeciderCache(1, DeciderCache.DEFAULT_MAXIMUM_MEMORY_BYTES);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+
+        decide(handler, "first", history("first"), 3, 0);
+        decide(handler, "second", history("second"), 3, 0);
+        assertEquals(1, cache.size());
+        assertEquals(1, factoryFactory.deleted.get());
+
+        assertEquals("StartTimer:2", decide(handler, "first", history("first"), 8, 3));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, factoryFactory.deleted.get());
+    }
+
+    @Test
+    public void testDeciderIsEvictedWhenMemoryIsExceeded() throws Exception {
+        // Enough for a single decider that has seen the first decision task
+        DeciderCache cache = new DeciderCache(10, DeciderCache.ESTIMATED_BYTES_PER_DECIDER + 5
+                * DeciderCache.ESTIMATED_BYTES_PER_EVENT);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+
+        decide(handler, "first", history("first"), 3, 0);
+        assertEquals(DeciderCache.ESTIMATED_BYTES_PER_DECIDER + 3 * DeciderCache.ESTIMATED_BYTES_PER_EVENT,
+                cache.getEstimatedMemoryBytes());
+        decide(handler, "second", history("second"), 3, 0);
+        assertEquals(1, cache.size());
+        assertEquals(1, factoryFactory.deleted.get());
+
+        // The resumed decider has seen too many events to be cached again
+        decide(handler, "second", history("second"), 8, 3);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedMemoryBytes());
+        assertEquals(2, factoryFactory.deleted.get());
+    }
+
+    @Test
+    public void testInvalidateAllDisposesOfDeciders() throws Exception {
+        DeciderCache cache = new DeciderCache();
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+
+        decide(handler, "first", history("first"), 3, 0);
+        decide(handler, "second", history("second"), 3, 0);
+        assertEquals(2, cache.size());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedMemoryBytes());
+        assertEquals(2, factoryFactory.deleted.get());
+        assertEquals(2, factoryFactory.deletedInputs.size());
+        assertFalse(factoryFactory.deletedInputs.contains(null));
+    }
+
+    @Test
+    public void testWorkflowExecutionLocalsAreRestored() throws Exception {
+        DeciderCache cache = new DeciderCache();
+        final AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(factoryFactory, cache);
+        final List<HistoryEvent> history = history("run");
+
+        decide(handler, "run", history, 3, 0);
+        // Resumed on another thread, which never saw the execution
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("StartTimer:2", executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    return decide(handler, "run", history, 8, 3);
+                }
+            }).get());
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(1, cache.getHitCount());
+        assertEquals(Collections.singletonList("input of run"), factoryFactory.stepInputs);
+    }
+
+    /**
+     * Handles the decision task started at the given event, polled in reverse
+     * order in pages of {@link #PAGE_SIZE} events.
+     *
+     * @return the types of the decisions, along with the ids of the timers
+     *         started
+     */
+    private String decide(AsyncDecisionTaskHandler handler, String runId, List<HistoryEvent> history, long startedEventId,
+            long previousStartedEventId) throws Exception {
+        List<HistoryEvent> newestFirst = new ArrayList<HistoryEvent>(history.subList(0, (int) startedEventId));
+        Collections.reverse(newestFirst);
+        List<DecisionTask> pages = new ArrayList<DecisionTask>();
+        for (int i = 0; i < newestFirst.size(); i += PAGE_SIZE) {
+            pages.add(new DecisionTask().withEvents(newestFirst.subList(i, Math.min(i + PAGE_SIZE, newestFirst.size()))));
+        }
+        pages.get(0)
+                .withTaskToken(runId + "/" + startedEventId)
+                .withWorkflowExecution(new WorkflowExecution().withWorkflowId(runId).withRunId(runId))
+                .withWorkflowType(WORKFLOW_TYPE)
+                .withStartedEventId(startedEventId)
+                .withPreviousStartedEventId(previousStartedEventId);
+        Iterator<DecisionTask> iterator = pages.iterator();
+        polled.add(iterator);
+        RespondDecisionTaskCompletedRequest response = handler.handleDecisionTask(iterator);
+        StringBuilder result = new StringBuilder();
+        for (Decision decision : response.getDecisions()) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(decision.getDecisionType());
+            if (decision.getStartTimerDecisionAttributes() != null) {
+                result.append(":").append(decision.getStartTimerDecisionAttributes().getTimerId());
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the number of pages of the last decision task never fetched
+     */
+    private int pagesLeft() {
+        Iterator<DecisionTask> last = polled.get(polled.size() - 1);
+        int result = 0;
+        while (last.hasNext()) {
+            last.next();
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * History of an execution of <code>TimersWorkflow</code>, with decision
+     * tasks started at events 3, 8 and 13.
+     */
+    private static List<HistoryEvent> history(String runId) {
+        List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+        events.add(event(1, EventType.WorkflowExecutionStarted).withWorkflowExecutionStartedEventAttributes(
+                new WorkflowExecutionStartedEventAttributes()
+                    .withWorkflowType(WORKFLOW_TYPE)
+                    .withInput("input of " + runId)
+                    .withExecutionStartToCloseTimeout("3600")
+                    .withTaskStartToCloseTimeout("60")
+                    .withChildPolicy("TERMINATE")));
+        addDecisionTask(events);
+        addTimer(events, "1");
+        addDecisionTask(events);
+        addTimer(events, "2");
+        addDecisionTask(events);
+        return events;
+    }
+
+    private static void addTimer(List<HistoryEvent> events, String timerId) {
+        long startedEventId = events.size() + 1;
+        events.add(event(startedEventId, EventType.TimerStarted).withTimerStartedEventAttributes(
+                new TimerStartedEventAttributes().withTimerId(timerId).withStartToFireTimeout("10")
+                    .withDecisionTaskCompletedEventId(startedEventId - 1)));
+        events.add(event(startedEventId + 1, EventType.TimerFired).withTimerFiredEventAttributes(
+                new TimerFiredEventAttributes().withTimerId(timerId).withStartedEventId(startedEventId)));
+    }
+
+    /**
+     * Adds the DecisionTaskScheduled, DecisionTaskStarted and
+     * DecisionTaskCompleted events of a decision task.
+     */
+    private static void addDecisionTask(List<HistoryEvent> events) {
+        long scheduledEventId = events.size() + 1;
+        events.add(event(scheduledEventId, EventType.DecisionTaskScheduled));
+        events.add(event(scheduledEventId + 1, EventType.DecisionTaskStarted));
+        events.add(event(scheduledEventId + 2, EventType.DecisionTaskCompleted).withDecisionTaskCompletedEventAttributes(
+                new DecisionTaskCompletedEventAttributes()
+                    .withScheduledEventId(scheduledEventId)
+                    .withStartedEventId(scheduledEventId + 1)));
+    }
+
+    private static HistoryEvent event(long eventId, EventType eventType) {
+        return new HistoryEvent().withEventId(eventId).withEventType(eventType).withEventTimestamp(
+                new Date(1420070400000L + eventId * 1000));
+    }
+
+    /**
+     * Creates workflows that wait for two timers in a row, and counts the
+     * workflow definitions created and deleted.
+     */
+    private static class TimersWorkflowFactoryFactory extends WorkflowDefinitionFactoryFactory {
+
+        final AtomicInteger created = new AtomicInteger();
+
+        final AtomicInteger deleted = new AtomicInteger();
+
+        /** The input of the workflows deleted, as seen by them */
+        final List<String> deletedInputs = new CopyOnWriteArrayList<String>();
+
+        /** The input seen by the workflows when taking their second step */
+        final List<String> stepInputs = new CopyOnWriteArrayList<String>();
+
+        @Override
+        public WorkflowDefinitionFactory getWorkflowDefinitionFactory(WorkflowType workflowType) {
+            return new WorkflowDefinitionFactory() {
+
+                @Override
+                public WorkflowTypeRegistrationOptions getWorkflowRegistrationOptions() {
+                    return null;
+                }
+
+                @Override
+                public WorkflowDefinition getWorkflowDefinition(DecisionContext context) {
+                    created.incrementAndGet();
+                    // As POJOWorkflowDefinitionFactory does
+                    CurrentDecisionContext.set(context);
+                    return new TimersWorkflow(context.getWorkflowClock(), stepInputs);
+                }
+
+                @Override
+                public void deleteWorkflowDefinition(WorkflowDefinition instance) {
+                    deleted.incrementAndGet();
+                    deletedInputs.add(INPUT.get());
+                    CurrentDecisionContext.unset();
+                }
+
+                @Override
+                public WorkflowType getWorkflowType() {
+                    return WORKFLOW_TYPE;
+                }
+            };
+        }
+
+        @Override
+        public Iterable<WorkflowType> getWorkflowTypesToRegister() {
+            return Collections.singletonList(WORKFLOW_TYPE);
+        }
+    }
+
+    /**
+     * Keeps its input in a workflow execution local, and waits for a timer
+     * twice.
+     */
+    private static class TimersWorkflow extends WorkflowDefinition {
+
+        private final WorkflowClock clock;
+
+        private final List<String> stepInputs;
+
+        TimersWorkflow(WorkflowClock clock, List<String> stepInputs) {
+            this.clock = clock;
+            this.stepInputs = stepInputs;
+        }
+
+        @Override
+        public Promise<String> execute(String input) {
+            INPUT.set(input);
+            return step(0);
+        }
+
+        private Promise<String> step(final int index) {
+            if (index == 2) {
+                return Promise.asPromise("done");
+            }
+            if (index == 1) {
+                stepInputs.add(INPUT.get());
+            }
+            return new Functor<String>(clock.createTimer(10)) {
+
+                @Override
+                protected Promise<String> doExecute() {
+                    return step(index + 1);
+                }
+            };
+        }
+
+        @Override
+        public void signalRecieved(String signalName, String input) {
+        }
+
+        @Override
+        public String getWorkflowState() {
+            return null;
+        }
+    }
+}
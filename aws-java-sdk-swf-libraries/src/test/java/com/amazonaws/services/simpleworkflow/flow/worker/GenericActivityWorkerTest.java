@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowClient;
+import com.amazonaws.services.simpleworkflow.flow.ActivityExecutionContext;
+import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementation;
+import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementationBase;
+import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementationFactory;
+import com.amazonaws.services.simpleworkflow.model.ActivityTask;
+import com.amazonaws.services.simpleworkflow.model.ActivityType;
+import com.amazonaws.services.simpleworkflow.model.PollForActivityTaskRequest;
+import com.amazonaws.services.simpleworkflow.model.RespondActivityTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+
+public class GenericActivityWorkerTest {
+
+    private static final ActivityType ACTIVITY_TYPE = new ActivityType().withName("Sleep").withVersion("1.0");
+
+    private final StubSimpleWorkflow service = new StubSimpleWorkflow();
+
+    private final SleepActivityFactory activities = new SleepActivityFactory();
+
+    @Test
+    public void testActivitiesRunOnTaskExecutorService() throws Exception {
+        final AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "custom-" + threads.incrementAndGet());
+            }
+        });
+        GenericActivityWorker worker = worker();
+        worker.setTaskExecutorService(executor);
+        worker.setTaskExecutorThreadPoolSize(3);
+        worker.setMaximumPollThreadCount(4);
+        for (int i = 0; i < 20; i++) {
+            service.tasks.add(task(i));
+        }
+        worker.start();
+
+        awaitCompleted(20);
+        for (String thread : activities.threads) {
+            assertTrue(thread, thread.startsWith("custom-"));
+        }
+        // The unbounded executor still runs no more activities at a time
+        // than the task executor thread pool size
+        assertTrue(activities.maxExecuting.get() <= 3);
+
+        assertTrue(worker.shutdownAndAwaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void testMetricsCountPolledAndExecutedTasks() throws Exception {
+        GenericActivityWorker worker = worker();
+        worker.setTaskExecutorThreadPoolSize(2);
+        for (int i = 0; i < 10; i++) {
+            service.tasks.add(task(i));
+        }
+        worker.start();
+
+        awaitCompleted(10);
+        WorkerMetrics metrics = worker.getMetrics();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metrics.getExecutedTaskCount() < 10 && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(10, metrics.getExecutedTaskCount());
+        assertEquals(10, metrics.getTaskCount());
+        assertEquals(0, metrics.getFailedTaskCount());
+        assertEquals(0, metrics.getExecutingTaskCount());
+        // Each activity sleeps for 5 ms
+        assertTrue(metrics.getTotalExecutionTimeMillis() >= 50);
+        assertTrue(metrics.getUtilization(2) > 0);
+
+        assertTrue(worker.shutdownAndAwaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, metrics.getActivePollerCount());
+    }
+
+    private GenericActivityWorker worker() {
+        GenericActivityWorker worker = new GenericActivityWorker(service, "domain", "taskList");
+        worker.setActivityImplementationFactory(activities);
+        worker.setDisableTypeRegistrationOnStart(true);
+        return worker;
+    }
+
+    private void awaitCompleted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.completed.size() < count && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(count, service.completed.size());
+    }
+
+    private static ActivityTask task(int index) {
+        return new ActivityTask()
+                .withTaskToken("token " + index)
+                .withActivityId(String.valueOf(index))
+                .withActivityType(ACTIVITY_TYPE)
+                .withStartedEventId((long) index)
+                .withInput("input " + index)
+                .withWorkflowExecution(new WorkflowExecution().withWorkflowId("workflow").withRunId("run"));
+    }
+
+    /**
+     * Hands out the queued activity tasks, and returns empty tasks once
+     * there are none left.
+     */
+    private static class StubSimpleWorkflow extends AmazonSimpleWorkflowClient {
+
+        final BlockingQueue<ActivityTask> tasks = new LinkedBlockingQueue<ActivityTask>();
+
+        final List<String> completed = new CopyOnWriteArrayList<String>();
+
+        StubSimpleWorkflow() {
+            super(new BasicAWSCredentials("akid", "skid"));
+        }
+
+        @Override
+        public ActivityTask pollForActivityTask(PollForActivityTaskRequest request) {
+            assertEquals("taskList", request.getTaskList().getName());
+            try {
+                ActivityTask task = tasks.poll(5, TimeUnit.MILLISECONDS);
+                return task == null ? new ActivityTask() : task;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new ActivityTask();
+            }
+        }
+
+        @Override
+        public void respondActivityTaskCompleted(RespondActivityTaskCompletedRequest request) {
+            completed.add(request.getResult());
+        }
+    }
+
+    /**
+     * Creates an activity that sleeps for 5 ms, and records the threads it
+     * executes on.
+     */
+    private static class SleepActivityFactory extends ActivityImplementationFactory {
+
+        final List<String> threads = new CopyOnWriteArrayList<String>();
+
+        final AtomicInteger executing = new AtomicInteger();
+
+        final AtomicInteger maxExecuting = new AtomicInteger();
+
+        @Override
+        public Iterable<ActivityType> getActivityTypesToRegister() {
+            return Collections.singletonList(ACTIVITY_TYPE);
+        }
+
+        @Override
+        public ActivityImplementation getActivityImplementation(ActivityType activityType) {
+            return new ActivityImplementationBase() {
+
+                @Override
+                protected String execute(String input, ActivityExecutionContext context) {
+                    threads.add(Thread.currentThread().getName());
+                    int count = executing.incrementAndGet();
+                    synchronized (maxExecuting) {
+                        maxExecuting.set(Math.max(maxExecuting.get(), count));
+                    }
+                    try {
+                        Thread.sleep(5);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        executing.decrementAndGet();
+                    }
+                    return input;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflowClient;
+
+public class GenericWorkerTest {
+
+    private final StubPoller poller = new StubPoller();
+
+    private final TestWorker worker = new TestWorker(poller);
+
+    @After
+    public void tearDown() throws InterruptedException {
+        worker.shutdownAndAwaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testPollersScaleUpToMaximumWithBacklog() throws Exception {
+        worker.setMaximumPollThreadCount(4);
+        poller.backlog.release(500);
+        worker.start();
+
+        awaitBacklog(0);
+        WorkerMetrics metrics = worker.getMetrics();
+        assertEquals(4, metrics.getPeakPollerCount());
+        assertTrue(poller.maxPolling.get() <= 4);
+        assertEquals(500, metrics.getTaskCount());
+    }
+
+    @Test
+    public void testPollersScaleDownToPollThreadCount() throws Exception {
+        worker.setPollThreadCount(2);
+        worker.setMaximumPollThreadCount(5);
+        poller.backlog.release(200);
+        worker.start();
+
+        awaitBacklog(0);
+        WorkerMetrics metrics = worker.getMetrics();
+        assertEquals(5, metrics.getPeakPollerCount());
+        awaitActivePollers(2);
+        // The remaining pollers keep polling the empty task list
+        long polls = metrics.getPollCount();
+        Thread.sleep(50);
+        assertEquals(2, metrics.getActivePollerCount());
+        assertTrue(metrics.getPollCount() > polls);
+        assertTrue(metrics.getEmptyPollCount() > 0);
+
+        // And scale up again
+        poller.backlog.release(200);
+        awaitBacklog(0);
+        assertTrue(poller.maxPolling.get() <= 5);
+    }
+
+    @Test
+    public void testPollThreadCountIsFixedByDefault() throws Exception {
+        worker.setPollThreadCount(2);
+        poller.backlog.release(100);
+        worker.start();
+
+        awaitBacklog(0);
+        assertEquals(2, worker.getMaximumPollThreadCount());
+        assertEquals(2, worker.getMetrics().getPeakPollerCount());
+        assertEquals(2, worker.getMetrics().getActivePollerCount());
+    }
+
+    @Test
+    public void testShutdownStopsAddedPollers() throws Exception {
+        worker.setMaximumPollThreadCount(4);
+        poller.backlog.release(Integer.MAX_VALUE / 2);
+        worker.start();
+        awaitActivePollers(4);
+
+        worker.shutdown();
+        assertTrue(worker.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, worker.getMetrics().getActivePollerCount());
+        assertEquals(0, poller.polling.get());
+        assertTrue(poller.shutdown);
+    }
+
+    @Test
+    public void testShutdownNowStopsAddedPollers() throws Exception {
+        worker.setMaximumPollThreadCount(4);
+        poller.backlog.release(Integer.MAX_VALUE / 2);
+        worker.start();
+        awaitActivePollers(4);
+
+        worker.shutdownNow();
+        assertTrue(worker.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, worker.getMetrics().getActivePollerCount());
+        assertEquals(0, poller.polling.get());
+        assertTrue(poller.shutdown);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaximumPollThreadCountMustBePositive() {
+        worker.setMaximumPollThreadCount(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMaximumPollThreadCountCannotChangeOnceStarted() {
+        worker.start();
+        worker.setMaximumPollThreadCount(4);
+    }
+
+    private void awaitBacklog(int permits) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (poller.backlog.availablePermits() > permits && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(permits, poller.backlog.availablePermits());
+    }
+
+    private void awaitActivePollers(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (worker.getMetrics().getActivePollerCount() != count && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals(count, worker.getMetrics().getActivePollerCount());
+    }
+
+    /**
+     * Takes a task off the backlog on each poll, each poll taking a
+     * millisecond.
+     */
+    private static class StubPoller implements TaskPoller {
+
+        final Semaphore backlog = new Semaphore(0);
+
+        final AtomicInteger polling = new AtomicInteger();
+
+        final AtomicInteger maxPolling = new AtomicInteger();
+
+        volatile boolean shutdown;
+
+        @Override
+        public boolean pollAndProcessSingleTask() throws Exception {
+            int count = polling.incrementAndGet();
+            synchronized (maxPolling) {
+                maxPolling.set(Math.max(maxPolling.get(), count));
+            }
+            try {
+                Thread.sleep(1);
+                return backlog.tryAcquire();
+            }
+            finally {
+                polling.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public void shutdownNow() {
+            shutdown = true;
+        }
+
+        @Override
+        public boolean awaitTermination(long left, TimeUnit milliseconds) {
+            return true;
+        }
+    }
+
+    private static class TestWorker extends GenericWorker {
+
+        private final TaskPoller poller;
+
+        TestWorker(TaskPoller poller) {
+            super(new AmazonSimpleWorkflowClient(new BasicAWSCredentials("akid", "skid")), "domain", "taskList");
+            this.poller = poller;
+            setDisableTypeRegistrationOnStart(true);
+        }
+
+        @Override
+        protected String getPollThreadNamePrefix() {
+            return "Test Poll ";
+        }
+
+        @Override
+        protected TaskPoller createPoller() {
+            return poller;
+        }
+
+        @Override
+        protected void checkRequredProperties() {
+        }
+
+        @Override
+        public void registerTypesToPoll() {
+        }
+    }
+}
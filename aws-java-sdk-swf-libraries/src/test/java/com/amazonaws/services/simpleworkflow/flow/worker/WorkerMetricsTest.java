@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class WorkerMetricsTest {
+
+    private final WorkerMetrics metrics = new WorkerMetrics();
+
+    @Test
+    public void testPollCounters() {
+        metrics.pollCompleted(true, TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.pollCompleted(true, TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.pollCompleted(false, TimeUnit.MILLISECONDS.toNanos(60));
+        metrics.pollFailed(TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(4, metrics.getPollCount());
+        assertEquals(1, metrics.getEmptyPollCount());
+        assertEquals(1, metrics.getPollFailureCount());
+        assertEquals(2, metrics.getTaskCount());
+        assertEquals(100, metrics.getTotalPollTimeMillis());
+    }
+
+    @Test
+    public void testPeakPollerCount() {
+        metrics.pollerStarted();
+        metrics.pollerStarted();
+        metrics.pollerStarted();
+        metrics.pollerStopped();
+        metrics.pollerStopped();
+        metrics.pollerStarted();
+
+        assertEquals(2, metrics.getActivePollerCount());
+        assertEquals(3, metrics.getPeakPollerCount());
+    }
+
+    @Test
+    public void testTaskCounters() {
+        assertEquals(0, metrics.getAverageQueueTimeMillis(), 0);
+        metrics.taskStarted(TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.taskStarted(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.taskStarted(TimeUnit.MILLISECONDS.toNanos(0));
+        metrics.taskCompleted(false, TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.taskCompleted(true, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertEquals(2, metrics.getExecutedTaskCount());
+        assertEquals(1, metrics.getFailedTaskCount());
+        assertEquals(1, metrics.getExecutingTaskCount());
+        assertEquals(6, metrics.getTotalQueueTimeMillis());
+        // Averaged over the started tasks, including the executing one
+        assertEquals(2.0, metrics.getAverageQueueTimeMillis(), 1e-9);
+        assertEquals(40, metrics.getTotalExecutionTimeMillis());
+    }
+
+    @Test
+    public void testUtilization() {
+        assertEquals(0, metrics.getUtilization(0), 0);
+        // More execution time than elapsed is capped
+        metrics.taskStarted(0);
+        metrics.taskCompleted(false, TimeUnit.HOURS.toNanos(1));
+        assertEquals(1.0, metrics.getUtilization(1), 0);
+        double utilization = metrics.getUtilization(Integer.MAX_VALUE);
+        assertTrue(utilization > 0 && utilization < 1);
+    }
+}